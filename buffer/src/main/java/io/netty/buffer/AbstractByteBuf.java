@@ -1272,12 +1272,56 @@ public abstract class AbstractByteBuf extends ByteBuf {
         }
         checkIndex(fromIndex, toIndex - fromIndex);
 
-        for (int i = fromIndex; i < toIndex; i ++) {
+        return firstIndexOf0(fromIndex, toIndex, value);
+    }
+
+    /**
+     * Returns the index of the first occurrence of {@code value} in {@code [start, end)} or {@code -1}. If unaligned
+     * access is cheap 8 bytes are compared at a time (SWAR), see {@link ByteBufUtil#swarMatches(long, long)}.
+     */
+    final int firstIndexOf0(int start, int end, byte value) {
+        int i = start;
+        if (PlatformDependent.isUnaligned()) {
+            final long pattern = ByteBufUtil.swarPattern(value);
+            for (final int longEnd = end - 7; i < longEnd; i += 8) {
+                long matches = ByteBufUtil.swarMatches(_getLong(i), pattern);
+                if (matches != 0) {
+                    // _getLong(...) is big-endian, so the byte at i is the most significant one.
+                    return i + (Long.numberOfLeadingZeros(matches) >>> 3);
+                }
+            }
+        }
+        for (; i < end; i ++) {
             if (_getByte(i) == value) {
                 return i;
             }
         }
+        return -1;
+    }
 
+    /**
+     * Returns the index of the first {@code CR} or {@code LF} in {@code [start, end)} or {@code -1}, comparing 8 bytes
+     * at a time if unaligned access is cheap.
+     */
+    final int firstIndexOfCrOrLf0(int start, int end) {
+        int i = start;
+        if (PlatformDependent.isUnaligned()) {
+            final long crPattern = ByteBufUtil.swarPattern((byte) '\r');
+            final long lfPattern = ByteBufUtil.swarPattern((byte) '\n');
+            for (final int longEnd = end - 7; i < longEnd; i += 8) {
+                long word = _getLong(i);
+                long matches = ByteBufUtil.swarMatches(word, crPattern) | ByteBufUtil.swarMatches(word, lfPattern);
+                if (matches != 0) {
+                    return i + (Long.numberOfLeadingZeros(matches) >>> 3);
+                }
+            }
+        }
+        for (; i < end; i ++) {
+            byte value = _getByte(i);
+            if (value == '\r' || value == '\n') {
+                return i;
+            }
+        }
         return -1;
     }
 
@@ -1341,6 +1385,15 @@ public abstract class AbstractByteBuf extends ByteBuf {
     }
 
     int forEachByteAsc0(int start, int end, ByteProcessor processor) throws Exception {
+        // The well-known single byte processors do not need a callback per byte.
+        if (processor instanceof ByteProcessor.IndexOfProcessor) {
+            int target = ByteBufUtil.indexOfTarget(processor);
+            if (target != -1) {
+                return firstIndexOf0(start, end, (byte) target);
+            }
+        } else if (processor == ByteProcessor.FIND_CRLF) {
+            return firstIndexOfCrOrLf0(start, end);
+        }
         for (; start < end; ++start) {
             if (!processor.process(_getByte(start))) {
                 return start;
@@ -210,14 +210,24 @@ public final class ByteBufUtil {
      * Returns the reader index of needle in haystack, or -1 if needle is not in haystack.
      */
     public static int indexOf(ByteBuf needle, ByteBuf haystack) {
-        // TODO: maybe use Boyer Moore for efficiency.
-        int attempts = haystack.readableBytes() - needle.readableBytes() + 1;
-        for (int i = 0; i < attempts; i++) {
-            if (equals(needle, needle.readerIndex(),
-                       haystack, haystack.readerIndex() + i,
-                       needle.readableBytes())) {
-                return haystack.readerIndex() + i;
+        final int needleLength = needle.readableBytes();
+        if (needleLength == 0) {
+            return haystack.readerIndex();
+        }
+        // Let ByteBuf.indexOf(...) skip to the candidates starting with the first byte of the needle and only compare
+        // the rest of the needle there.
+        final byte first = needle.getByte(needle.readerIndex());
+        final int lastStart = haystack.writerIndex() - needleLength;
+        int fromIndex = haystack.readerIndex();
+        while (fromIndex <= lastStart) {
+            int i = haystack.indexOf(fromIndex, lastStart + 1, first);
+            if (i == -1) {
+                break;
+            }
+            if (equals(needle, needle.readerIndex(), haystack, i, needleLength)) {
+                return i;
             }
+            fromIndex = i + 1;
         }
         return -1;
     }
@@ -455,6 +465,50 @@ public final class ByteBufUtil {
         }
     }
 
+    /**
+     * Returns a {@code long} which has every byte set to {@code value}, see {@link #swarMatches(long, long)}.
+     */
+    static long swarPattern(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * Returns a {@code long} in which the highest bit of every byte of {@code word} that is equal to the byte of
+     * {@link #swarPattern(byte)} is set and all other bits are cleared. Unlike the usual {@code (x - 0x01..) & ~x}
+     * trick this never reports false positives, so the position of every match can be used and not only the first.
+     */
+    static long swarMatches(long word, long pattern) {
+        long input = word ^ pattern;
+        long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        return ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+    }
+
+    /**
+     * Returns the byte the given {@link ByteProcessor} aborts on if it is one of the single byte
+     * {@link ByteProcessor} constants, or {@code -1} otherwise.
+     */
+    static int indexOfTarget(ByteProcessor processor) {
+        if (processor == ByteProcessor.FIND_LF) {
+            return '\n';
+        }
+        if (processor == ByteProcessor.FIND_CR) {
+            return '\r';
+        }
+        if (processor == ByteProcessor.FIND_NUL) {
+            return 0;
+        }
+        if (processor == ByteProcessor.FIND_ASCII_SPACE) {
+            return ' ';
+        }
+        if (processor == ByteProcessor.FIND_COMMA) {
+            return ',';
+        }
+        if (processor == ByteProcessor.FIND_SEMI_COLON) {
+            return ';';
+        }
+        return -1;
+    }
+
     private static int firstIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         fromIndex = Math.max(fromIndex, 0);
         if (fromIndex >= toIndex || buffer.capacity() == 0) {
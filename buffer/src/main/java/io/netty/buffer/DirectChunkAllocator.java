@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides the memory of the chunks that are used by the direct arenas of a {@link PooledByteBufAllocator}.
+ * <p>
+ * By default every chunk is allocated on its own via {@link ByteBuffer#allocateDirect(int)} (or without a
+ * {@code Cleaner} if possible). A {@link DirectChunkAllocator} allows to carve the chunks out of memory that was
+ * reserved up front instead, for example out of one large memory mapping that is backed by huge pages.
+ * <p>
+ * Implementations must be thread-safe as all direct arenas of a {@link PooledByteBufAllocator} share the same
+ * {@link DirectChunkAllocator}.
+ */
+@UnstableApi
+public interface DirectChunkAllocator {
+
+    /**
+     * Returns a direct {@link ByteBuffer} with a capacity of at least {@code capacity} bytes which is used as the
+     * memory of a chunk, or {@code null} if no memory is available. In the later case the arena falls back to
+     * allocate the chunk via {@link ByteBuffer#allocateDirect(int)}.
+     */
+    ByteBuffer allocate(int capacity);
+
+    /**
+     * Releases the memory of a chunk that is not used anymore.
+     *
+     * @return {@code true} if the memory was returned by {@link #allocate(int)} of this {@link DirectChunkAllocator}
+     *         and so was released, {@code false} otherwise. In the later case the arena releases the memory itself.
+     */
+    boolean release(ByteBuffer memory);
+}
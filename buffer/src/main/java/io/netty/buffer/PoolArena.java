@@ -29,28 +29,18 @@ import java.util.concurrent.atomic.AtomicInteger;
 import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 import static java.lang.Math.max;
 
-abstract class PoolArena<T> implements PoolArenaMetric {
+abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     static final boolean HAS_UNSAFE = PlatformDependent.hasUnsafe();
 
     enum SizeClass {
-        Tiny,
         Small,
         Normal
     }
 
-    static final int numTinySubpagePools = 512 >>> 4;
-
     final PooledByteBufAllocator parent;
 
-    private final int maxOrder;
-    final int pageSize;
-    final int pageShifts;
-    final int chunkSize;
-    final int subpageOverflowMask;
     final int numSmallSubpagePools;
-    final int directMemoryCacheAlignment;
     final int directMemoryCacheAlignmentMask;
-    private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
 
     private final PoolChunkList<T> q050;
@@ -62,21 +52,26 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     private final List<PoolChunkListMetric> chunkListMetrics;
 
+    // Used by threads that have no PoolThreadCache on their own, null if disabled.
+    final PoolSharedCache<T> sharedCache;
+
     // Metrics for allocations and deallocations
     private long allocationsNormal;
     // We need to use the LongCounter here as this is not guarded via synchronized block.
-    private final LongCounter allocationsTiny = PlatformDependent.newLongCounter();
     private final LongCounter allocationsSmall = PlatformDependent.newLongCounter();
     private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
     private final LongCounter activeBytesHuge = PlatformDependent.newLongCounter();
 
-    private long deallocationsTiny;
-    private long deallocationsSmall;
     private long deallocationsNormal;
 
     // We need to use the LongCounter here as this is not guarded via synchronized block.
+    private final LongCounter deallocationsSmall = PlatformDependent.newLongCounter();
     private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
 
+    // Metrics for pooled chunks that were given back to the system.
+    private final LongCounter releasedChunks = PlatformDependent.newLongCounter();
+    private final LongCounter releasedBytes = PlatformDependent.newLongCounter();
+
     // Number of thread caches backed by this arena.
     final AtomicInteger numThreadCaches = new AtomicInteger();
 
@@ -84,24 +79,15 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     protected PoolArena(PooledByteBufAllocator parent, int pageSize,
-          int maxOrder, int pageShifts, int chunkSize, int cacheAlignment) {
+          int pageShifts, int chunkSize, int cacheAlignment) {
+        super(pageSize, pageShifts, chunkSize, cacheAlignment);
         this.parent = parent;
-        this.pageSize = pageSize;
-        this.maxOrder = maxOrder;
-        this.pageShifts = pageShifts;
-        this.chunkSize = chunkSize;
-        directMemoryCacheAlignment = cacheAlignment;
         directMemoryCacheAlignmentMask = cacheAlignment - 1;
-        subpageOverflowMask = ~(pageSize - 1);
-        tinySubpagePools = newSubpagePoolArray(numTinySubpagePools);
-        for (int i = 0; i < tinySubpagePools.length; i ++) {
-            tinySubpagePools[i] = newSubpagePoolHead(pageSize);
-        }
 
-        numSmallSubpagePools = pageShifts - 9;
+        numSmallSubpagePools = nSubpages;
         smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
         for (int i = 0; i < smallSubpagePools.length; i ++) {
-            smallSubpagePools[i] = newSubpagePoolHead(pageSize);
+            smallSubpagePools[i] = newSubpagePoolHead();
         }
 
         q100 = new PoolChunkList<T>(this, null, 100, Integer.MAX_VALUE, chunkSize);
@@ -126,10 +112,12 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         metrics.add(q075);
         metrics.add(q100);
         chunkListMetrics = Collections.unmodifiableList(metrics);
+
+        sharedCache = parent == null ? null : parent.<T>newSharedCache(this);
     }
 
-    private PoolSubpage<T> newSubpagePoolHead(int pageSize) {
-        PoolSubpage<T> head = new PoolSubpage<T>(pageSize);
+    private PoolSubpage<T> newSubpagePoolHead() {
+        PoolSubpage<T> head = new PoolSubpage<T>();
         head.prev = head;
         head.next = head;
         return head;
@@ -148,114 +136,85 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return buf;
     }
 
-    static int tinyIdx(int normCapacity) {
-        return normCapacity >>> 4;
-    }
+    private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
+        checkPositiveOrZero(reqCapacity, "reqCapacity");
+        final int sizeIdx = size2SizeIdx(reqCapacity);
 
-    static int smallIdx(int normCapacity) {
-        int tableIdx = 0;
-        int i = normCapacity >>> 10;
-        while (i != 0) {
-            i >>>= 1;
-            tableIdx ++;
+        if (sizeIdx <= smallMaxSizeIdx) {
+            tcacheAllocateSmall(cache, buf, reqCapacity, sizeIdx);
+        } else if (sizeIdx < nSizes) {
+            tcacheAllocateNormal(cache, buf, reqCapacity, sizeIdx);
+        } else {
+            // Huge allocations are never served via the cache so just call allocateHuge
+            allocateHuge(buf, reqCapacity);
         }
-        return tableIdx;
-    }
-
-    // capacity < pageSize
-    boolean isTinyOrSmall(int normCapacity) {
-        return (normCapacity & subpageOverflowMask) == 0;
     }
 
-    // normCapacity < 512
-    static boolean isTiny(int normCapacity) {
-        return (normCapacity & 0xFFFFFE00) == 0;
-    }
+    private void tcacheAllocateSmall(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity,
+                                     final int sizeIdx) {
+        if (cache.allocateSmall(this, buf, reqCapacity, sizeIdx) ||
+                useSharedCache(cache) && sharedCache.allocate(buf, reqCapacity, sizeIdx, cache)) {
+            // was able to allocate out of the cache so move on
+            return;
+        }
 
-    private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
-        final int normCapacity = normalizeCapacity(reqCapacity);
-        if (isTinyOrSmall(normCapacity)) { // capacity < pageSize
-            int tableIdx;
-            PoolSubpage<T>[] table;
-            boolean tiny = isTiny(normCapacity);
-            if (tiny) { // < 512
-                if (cache.allocateTiny(this, buf, reqCapacity, normCapacity)) {
-                    // was able to allocate out of the cache so move on
-                    return;
-                }
-                tableIdx = tinyIdx(normCapacity);
-                table = tinySubpagePools;
+        final PoolSubpage<T> head = smallSubpagePools[sizeIdx];
+
+        /**
+         * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
+         * {@link PoolChunk#freeSubpage(long)} may modify the doubly linked list as well. The head guards the whole
+         * allocation of its size class, the arena lock is only taken while holding it to carve the run of a new
+         * subpage out of a chunk. The locks are always taken in this order, never the head after the arena lock.
+         */
+        synchronized (head) {
+            final PoolSubpage<T> s = head.next;
+            if (s != head) {
+                assert s.doNotDestroy && s.elemSize == sizeIdx2size(sizeIdx);
+                long handle = s.allocate();
+                assert handle >= 0;
+                s.chunk.initBufWithSubpage(buf, null, handle, reqCapacity, cache);
             } else {
-                if (cache.allocateSmall(this, buf, reqCapacity, normCapacity)) {
-                    // was able to allocate out of the cache so move on
-                    return;
+                synchronized (this) {
+                    allocateNormal(buf, reqCapacity, sizeIdx, cache);
                 }
-                tableIdx = smallIdx(normCapacity);
-                table = smallSubpagePools;
             }
+        }
 
-            final PoolSubpage<T> head = table[tableIdx];
-
-            /**
-             * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
-             * {@link PoolChunk#free(long)} may modify the doubly linked list as well.
-             */
-            synchronized (head) {
-                final PoolSubpage<T> s = head.next;
-                if (s != head) {
-                    assert s.doNotDestroy && s.elemSize == normCapacity;
-                    long handle = s.allocate();
-                    assert handle >= 0;
-                    s.chunk.initBufWithSubpage(buf, null, handle, reqCapacity, cache);
-                    incTinySmallAllocation(tiny);
-                    return;
-                }
-            }
-            synchronized (this) {
-                allocateNormal(buf, reqCapacity, normCapacity, cache);
-            }
+        incSmallAllocation();
+    }
 
-            incTinySmallAllocation(tiny);
+    private void tcacheAllocateNormal(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity,
+                                      final int sizeIdx) {
+        if (cache.allocateNormal(this, buf, reqCapacity, sizeIdx) ||
+                useSharedCache(cache) && sharedCache.allocate(buf, reqCapacity, sizeIdx, cache)) {
+            // was able to allocate out of the cache so move on
             return;
         }
-        if (normCapacity <= chunkSize) {
-            if (cache.allocateNormal(this, buf, reqCapacity, normCapacity)) {
-                // was able to allocate out of the cache so move on
-                return;
-            }
-            synchronized (this) {
-                allocateNormal(buf, reqCapacity, normCapacity, cache);
-                ++allocationsNormal;
-            }
-        } else {
-            // Huge allocations are never served via the cache so just call allocateHuge
-            allocateHuge(buf, reqCapacity);
+        synchronized (this) {
+            allocateNormal(buf, reqCapacity, sizeIdx, cache);
+            ++allocationsNormal;
         }
     }
 
-    // Method must be called inside synchronized(this) { ... } block
-    private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int normCapacity, PoolThreadCache threadCache) {
-        if (q050.allocate(buf, reqCapacity, normCapacity, threadCache) ||
-            q025.allocate(buf, reqCapacity, normCapacity, threadCache) ||
-            q000.allocate(buf, reqCapacity, normCapacity, threadCache) ||
-            qInit.allocate(buf, reqCapacity, normCapacity, threadCache) ||
-            q075.allocate(buf, reqCapacity, normCapacity, threadCache)) {
+    // Method must be called inside synchronized(this) { ... } block
+    private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx, PoolThreadCache threadCache) {
+        if (q050.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
+            q025.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
+            q000.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
+            qInit.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
+            q075.allocate(buf, reqCapacity, sizeIdx, threadCache)) {
             return;
         }
 
         // Add a new chunk.
-        PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
-        boolean success = c.allocate(buf, reqCapacity, normCapacity, threadCache);
+        PoolChunk<T> c = newChunk(pageSize, pageShifts, chunkSize);
+        boolean success = c.allocate(buf, reqCapacity, sizeIdx, threadCache);
         assert success;
         qInit.add(c);
     }
 
-    private void incTinySmallAllocation(boolean tiny) {
-        if (tiny) {
-            allocationsTiny.increment();
-        } else {
-            allocationsSmall.increment();
-        }
+    private void incSmallAllocation() {
+        allocationsSmall.increment();
     }
 
     private void allocateHuge(PooledByteBuf<T> buf, int reqCapacity) {
@@ -272,8 +231,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             activeBytesHuge.add(-size);
             deallocationsHuge.increment();
         } else {
-            SizeClass sizeClass = sizeClass(normCapacity);
-            if (cache != null && cache.add(this, chunk, nioBuffer, handle, normCapacity, sizeClass)) {
+            SizeClass sizeClass = sizeClass(handle);
+            if (cache != null && cache.add(this, chunk, nioBuffer, handle, normCapacity, sizeClass) ||
+                    useSharedCache(cache) && sharedCache.add(chunk, nioBuffer, handle, normCapacity)) {
                 // cached so not free it.
                 return;
             }
@@ -282,97 +242,70 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
-    private SizeClass sizeClass(int normCapacity) {
-        if (!isTinyOrSmall(normCapacity)) {
-            return SizeClass.Normal;
-        }
-        return isTiny(normCapacity) ? SizeClass.Tiny : SizeClass.Small;
+    private boolean useSharedCache(PoolThreadCache cache) {
+        return sharedCache != null && cache != null && cache.useSharedCache;
+    }
+
+    private static SizeClass sizeClass(long handle) {
+        return PoolChunk.isSubpage(handle) ? SizeClass.Small : SizeClass.Normal;
     }
 
     void freeChunk(PoolChunk<T> chunk, long handle, SizeClass sizeClass, ByteBuffer nioBuffer, boolean finalizer) {
+        // We only count if freeChunk is not called because of the PoolThreadCache finalizer as otherwise this
+        // may fail due lazy class-loading in for example tomcat.
+        if (sizeClass == SizeClass.Small) {
+            if (!finalizer) {
+                deallocationsSmall.increment();
+            }
+            if (chunk.freeSubpage(handle)) {
+                // The subpage is still used, so only the lock of its pool was needed.
+                return;
+            }
+        }
         final boolean destroyChunk;
         synchronized (this) {
-            // We only call this if freeChunk is not called because of the PoolThreadCache finalizer as otherwise this
-            // may fail due lazy class-loading in for example tomcat.
-            if (!finalizer) {
-                switch (sizeClass) {
-                    case Normal:
-                        ++deallocationsNormal;
-                        break;
-                    case Small:
-                        ++deallocationsSmall;
-                        break;
-                    case Tiny:
-                        ++deallocationsTiny;
-                        break;
-                    default:
-                        throw new Error();
-                }
+            if (!finalizer && sizeClass == SizeClass.Normal) {
+                ++deallocationsNormal;
             }
             destroyChunk = !chunk.parent.free(chunk, handle, nioBuffer);
         }
         if (destroyChunk) {
             // destroyChunk not need to be called while holding the synchronized lock.
-            destroyChunk(chunk);
-        }
-    }
-
-    PoolSubpage<T> findSubpagePoolHead(int elemSize) {
-        int tableIdx;
-        PoolSubpage<T>[] table;
-        if (isTiny(elemSize)) { // < 512
-            tableIdx = tinyIdx(elemSize);
-            table = tinySubpagePools;
-        } else {
-            tableIdx = smallIdx(elemSize);
-            table = smallSubpagePools;
+            releaseChunk(chunk);
         }
-
-        return table[tableIdx];
     }
 
-    int normalizeCapacity(int reqCapacity) {
-        checkPositiveOrZero(reqCapacity, "reqCapacity");
-
-        if (reqCapacity >= chunkSize) {
-            return directMemoryCacheAlignment == 0 ? reqCapacity : alignCapacity(reqCapacity);
-        }
-
-        if (!isTiny(reqCapacity)) { // >= 512
-            // Doubled
-
-            int normalizedCapacity = reqCapacity;
-            normalizedCapacity --;
-            normalizedCapacity |= normalizedCapacity >>>  1;
-            normalizedCapacity |= normalizedCapacity >>>  2;
-            normalizedCapacity |= normalizedCapacity >>>  4;
-            normalizedCapacity |= normalizedCapacity >>>  8;
-            normalizedCapacity |= normalizedCapacity >>> 16;
-            normalizedCapacity ++;
-
-            if (normalizedCapacity < 0) {
-                normalizedCapacity >>>= 1;
-            }
-            assert directMemoryCacheAlignment == 0 || (normalizedCapacity & directMemoryCacheAlignmentMask) == 0;
-
-            return normalizedCapacity;
-        }
-
-        if (directMemoryCacheAlignment > 0) {
-            return alignCapacity(reqCapacity);
+    /**
+     * Releases all {@link PoolChunk}s of this arena that have been completely unused for at least {@code idleNanos}.
+     * Only chunks that are not used by any {@link PooledByteBuf} nor cached by any {@link PoolThreadCache} can be
+     * released.
+     *
+     * @return the number of bytes that were released.
+     */
+    long releaseIdleChunks(long idleNanos) {
+        final List<PoolChunk<T>> idleChunks;
+        synchronized (this) {
+            // Empty chunks are only retained by qInit, all other PoolChunkLists destroy a chunk once it is empty.
+            idleChunks = qInit.removeIdleChunks(System.nanoTime() - idleNanos);
         }
-
-        // Quantum-spaced
-        if ((reqCapacity & 15) == 0) {
-            return reqCapacity;
+        long released = 0;
+        for (int i = 0; i < idleChunks.size(); i++) {
+            PoolChunk<T> chunk = idleChunks.get(i);
+            released += chunk.chunkSize();
+            // destroyChunk not need to be called while holding the synchronized lock.
+            releaseChunk(chunk);
         }
+        return released;
+    }
 
-        return (reqCapacity & ~15) + 16;
+    private void releaseChunk(PoolChunk<T> chunk) {
+        releasedChunks.increment();
+        releasedBytes.add(chunk.chunkSize());
+        destroyChunk(chunk);
     }
 
-    int alignCapacity(int reqCapacity) {
-        int delta = reqCapacity & directMemoryCacheAlignmentMask;
-        return delta == 0 ? reqCapacity : reqCapacity + directMemoryCacheAlignment - delta;
+    PoolSubpage<T> findSubpagePoolHead(int sizeIdx) {
+        return smallSubpagePools[sizeIdx];
     }
 
     void reallocate(PooledByteBuf<T> buf, int newCapacity, boolean freeOldMemory) {
@@ -410,9 +343,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return numThreadCaches.get();
     }
 
+    @Deprecated
     @Override
     public int numTinySubpages() {
-        return tinySubpagePools.length;
+        return 0;
     }
 
     @Override
@@ -425,9 +359,10 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return chunkListMetrics.size();
     }
 
+    @Deprecated
     @Override
     public List<PoolSubpageMetric> tinySubpages() {
-        return subPageMetricList(tinySubpagePools);
+        return Collections.emptyList();
     }
 
     @Override
@@ -443,15 +378,17 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     private static List<PoolSubpageMetric> subPageMetricList(PoolSubpage<?>[] pages) {
         List<PoolSubpageMetric> metrics = new ArrayList<PoolSubpageMetric>();
         for (PoolSubpage<?> head : pages) {
-            if (head.next == head) {
-                continue;
-            }
-            PoolSubpage<?> s = head.next;
-            for (;;) {
-                metrics.add(s);
-                s = s.next;
-                if (s == head) {
-                    break;
+            synchronized (head) {
+                if (head.next == head) {
+                    continue;
+                }
+                PoolSubpage<?> s = head.next;
+                for (;;) {
+                    metrics.add(s);
+                    s = s.next;
+                    if (s == head) {
+                        break;
+                    }
                 }
             }
         }
@@ -464,12 +401,13 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         synchronized (this) {
             allocsNormal = allocationsNormal;
         }
-        return allocationsTiny.value() + allocationsSmall.value() + allocsNormal + allocationsHuge.value();
+        return allocationsSmall.value() + allocsNormal + allocationsHuge.value();
     }
 
+    @Deprecated
     @Override
     public long numTinyAllocations() {
-        return allocationsTiny.value();
+        return 0;
     }
 
     @Override
@@ -484,21 +422,22 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numDeallocations() {
-        final long deallocs;
+        final long deallocsNormal;
         synchronized (this) {
-            deallocs = deallocationsTiny + deallocationsSmall + deallocationsNormal;
+            deallocsNormal = deallocationsNormal;
         }
-        return deallocs + deallocationsHuge.value();
+        return deallocationsSmall.value() + deallocsNormal + deallocationsHuge.value();
     }
 
+    @Deprecated
     @Override
-    public synchronized long numTinyDeallocations() {
-        return deallocationsTiny;
+    public long numTinyDeallocations() {
+        return 0;
     }
 
     @Override
-    public synchronized long numSmallDeallocations() {
-        return deallocationsSmall;
+    public long numSmallDeallocations() {
+        return deallocationsSmall.value();
     }
 
     @Override
@@ -518,17 +457,18 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public  long numActiveAllocations() {
-        long val = allocationsTiny.value() + allocationsSmall.value() + allocationsHuge.value()
-                - deallocationsHuge.value();
+        long val = allocationsSmall.value() + allocationsHuge.value()
+                - deallocationsSmall.value() - deallocationsHuge.value();
         synchronized (this) {
-            val += allocationsNormal - (deallocationsTiny + deallocationsSmall + deallocationsNormal);
+            val += allocationsNormal - deallocationsNormal;
         }
         return max(val, 0);
     }
 
+    @Deprecated
     @Override
     public long numActiveTinyAllocations() {
-        return max(numTinyAllocations() - numTinyDeallocations(), 0);
+        return 0;
     }
 
     @Override
@@ -563,15 +503,43 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return max(0, val);
     }
 
-    protected abstract PoolChunk<T> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize);
+    /**
+     * Return the number of chunks that were released back to the system by this arena, either because they became
+     * empty or because they were idle for too long.
+     */
+    long numReleasedChunks() {
+        return releasedChunks.value();
+    }
+
+    /**
+     * Return the number of bytes that were released back to the system by this arena.
+     */
+    long numReleasedBytes() {
+        return releasedBytes.value();
+    }
+
+    protected abstract PoolChunk<T> newChunk(int pageSize, int pageShifts, int chunkSize);
     protected abstract PoolChunk<T> newUnpooledChunk(int capacity);
     protected abstract PooledByteBuf<T> newByteBuf(int maxCapacity);
     protected abstract void memoryCopy(T src, int srcOffset, PooledByteBuf<T> dst, int length);
     protected abstract void destroyChunk(PoolChunk<T> chunk);
 
     @Override
-    public synchronized String toString() {
-        StringBuilder buf = new StringBuilder()
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        synchronized (this) {
+            appendPoolChunkLists(buf);
+        }
+        // The subpages are guarded by the lock of their head, which must not be taken while holding the arena lock.
+        buf.append("small subpages:");
+        appendPoolSubPages(buf, smallSubpagePools);
+        buf.append(StringUtil.NEWLINE);
+
+        return buf.toString();
+    }
+
+    private void appendPoolChunkLists(StringBuilder buf) {
+        buf
             .append("Chunk(s) at 0~25%:")
             .append(StringUtil.NEWLINE)
             .append(qInit)
@@ -595,33 +563,27 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             .append("Chunk(s) at 100%:")
             .append(StringUtil.NEWLINE)
             .append(q100)
-            .append(StringUtil.NEWLINE)
-            .append("tiny subpages:");
-        appendPoolSubPages(buf, tinySubpagePools);
-        buf.append(StringUtil.NEWLINE)
-           .append("small subpages:");
-        appendPoolSubPages(buf, smallSubpagePools);
-        buf.append(StringUtil.NEWLINE);
-
-        return buf.toString();
+            .append(StringUtil.NEWLINE);
     }
 
     private static void appendPoolSubPages(StringBuilder buf, PoolSubpage<?>[] subpages) {
         for (int i = 0; i < subpages.length; i ++) {
             PoolSubpage<?> head = subpages[i];
-            if (head.next == head) {
-                continue;
-            }
+            synchronized (head) {
+                if (head.next == head) {
+                    continue;
+                }
 
-            buf.append(StringUtil.NEWLINE)
-                    .append(i)
-                    .append(": ");
-            PoolSubpage<?> s = head.next;
-            for (;;) {
-                buf.append(s);
-                s = s.next;
-                if (s == head) {
-                    break;
+                buf.append(StringUtil.NEWLINE)
+                        .append(i)
+                        .append(": ");
+                PoolSubpage<?> s = head.next;
+                for (;;) {
+                    buf.append(s);
+                    s = s.next;
+                    if (s == head) {
+                        break;
+                    }
                 }
             }
         }
@@ -632,8 +594,11 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         try {
             super.finalize();
         } finally {
+            if (sharedCache != null) {
+                // Give the cached memory back to the chunks, so the cache entries are recycled and not kept around.
+                sharedCache.free(true);
+            }
             destroyPoolSubPages(smallSubpagePools);
-            destroyPoolSubPages(tinySubpagePools);
             destroyPoolChunkLists(qInit, q000, q025, q050, q075, q100);
         }
     }
@@ -652,9 +617,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     static final class HeapArena extends PoolArena<byte[]> {
 
-        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder,
-                int pageShifts, int chunkSize, int directMemoryCacheAlignment) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                int chunkSize, int directMemoryCacheAlignment) {
+            super(parent, pageSize, pageShifts, chunkSize,
                     directMemoryCacheAlignment);
         }
 
@@ -668,8 +633,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
 
         @Override
-        protected PoolChunk<byte[]> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize) {
-            return new PoolChunk<byte[]>(this, newByteArray(chunkSize), pageSize, maxOrder, pageShifts, chunkSize, 0);
+        protected PoolChunk<byte[]> newChunk(int pageSize, int pageShifts, int chunkSize) {
+            return new PoolChunk<byte[]>(this, newByteArray(chunkSize), pageSize, pageShifts, chunkSize, 0);
         }
 
         @Override
@@ -700,10 +665,18 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     static final class DirectArena extends PoolArena<ByteBuffer> {
 
-        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder,
-                int pageShifts, int chunkSize, int directMemoryCacheAlignment) {
-            super(parent, pageSize, maxOrder, pageShifts, chunkSize,
+        private final DirectChunkAllocator chunkAllocator;
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                int chunkSize, int directMemoryCacheAlignment) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, null);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                int chunkSize, int directMemoryCacheAlignment, DirectChunkAllocator chunkAllocator) {
+            super(parent, pageSize, pageShifts, chunkSize,
                     directMemoryCacheAlignment);
+            this.chunkAllocator = chunkAllocator;
         }
 
         @Override
@@ -724,17 +697,17 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
 
         @Override
-        protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxOrder,
+        protected PoolChunk<ByteBuffer> newChunk(int pageSize,
                 int pageShifts, int chunkSize) {
             if (directMemoryCacheAlignment == 0) {
                 return new PoolChunk<ByteBuffer>(this,
-                        allocateDirect(chunkSize), pageSize, maxOrder,
+                        allocateChunkMemory(chunkSize), pageSize,
                         pageShifts, chunkSize, 0);
             }
-            final ByteBuffer memory = allocateDirect(chunkSize
+            final ByteBuffer memory = allocateChunkMemory(chunkSize
                     + directMemoryCacheAlignment);
             return new PoolChunk<ByteBuffer>(this, memory, pageSize,
-                    maxOrder, pageShifts, chunkSize,
+                    pageShifts, chunkSize,
                     offsetCacheLine(memory));
         }
 
@@ -750,6 +723,17 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                     offsetCacheLine(memory));
         }
 
+        private ByteBuffer allocateChunkMemory(int capacity) {
+            if (chunkAllocator != null) {
+                ByteBuffer memory = chunkAllocator.allocate(capacity);
+                if (memory != null) {
+                    assert memory.isDirect() && memory.capacity() >= capacity;
+                    return memory;
+                }
+            }
+            return allocateDirect(capacity);
+        }
+
         private static ByteBuffer allocateDirect(int capacity) {
             return PlatformDependent.useDirectBufferNoCleaner() ?
                     PlatformDependent.allocateDirectNoCleaner(capacity) : ByteBuffer.allocateDirect(capacity);
@@ -757,6 +741,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
         @Override
         protected void destroyChunk(PoolChunk<ByteBuffer> chunk) {
+            if (!chunk.unpooled && chunkAllocator != null && chunkAllocator.release(chunk.memory)) {
+                return;
+            }
             if (PlatformDependent.useDirectBufferNoCleaner()) {
                 PlatformDependent.freeDirectNoCleaner(chunk.memory);
             } else {
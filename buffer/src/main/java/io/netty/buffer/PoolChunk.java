@@ -25,8 +25,9 @@ import java.util.Deque;
  *
  * Notation: The following terms are important to understand the code
  * > page  - a page is the smallest unit of memory chunk that can be allocated
- * > chunk - a chunk is a collection of pages
- * > in this code chunkSize = 2^{maxOrder} * pageSize
+ * > run   - a run is a collection of pages
+ * > chunk - a chunk is a collection of runs
+ * > in this code chunkSize = maxPages * pageSize
  *
  * To begin we allocate a byte array of size = chunkSize
  * Whenever a ByteBuf of given size needs to be created we search for the first position
@@ -34,96 +35,131 @@ import java.util.Deque;
  * return a (long) handle that encodes this offset information, (this memory segment is then
  * marked as reserved so it is always used by exactly one ByteBuf and no more)
  *
- * For simplicity all sizes are normalized according to PoolArena#normalizeCapacity method
- * This ensures that when we request for memory segments of size >= pageSize the normalizedCapacity
- * equals the next nearest power of 2
+ * For simplicity all sizes are normalized according to the size classes of the PoolArena (see {@link SizeClasses}).
+ * This ensures that when we request for memory segments of size > pageSize the normalizedCapacity
+ * equals the next nearest size in {@link SizeClasses}, which is always a multiple of pageSize.
  *
- * To search for the first offset in chunk that has at least requested size available we construct a
- * complete balanced binary tree and store it in an array (just like heaps) - memoryMap
  *
- * The tree looks like this (the size of each node being mentioned in the parenthesis)
+ *  A chunk has the following layout:
  *
- * depth=0        1 node (chunkSize)
- * depth=1        2 nodes (chunkSize/2)
- * ..
- * ..
- * depth=d        2^d nodes (chunkSize/2^d)
- * ..
- * depth=maxOrder 2^maxOrder nodes (chunkSize/2^{maxOrder} = pageSize)
+ *     /-----------------\
+ *     | run             |
+ *     |                 |
+ *     |                 |
+ *     |-----------------|
+ *     | run             |
+ *     |                 |
+ *     |-----------------|
+ *     | unallocated     |
+ *     | (freed)         |
+ *     |                 |
+ *     |-----------------|
+ *     | subpage         |
+ *     |-----------------|
+ *     | unallocated     |
+ *     | (freed)         |
+ *     | ...             |
+ *     | ...             |
+ *     | ...             |
+ *     |                 |
+ *     |                 |
+ *     |                 |
+ *     \-----------------/
  *
- * depth=maxOrder is the last level and the leafs consist of pages
  *
- * With this tree available searching in chunkArray translates like this:
- * To allocate a memory segment of size chunkSize/2^k we search for the first node (from left) at height k
- * which is unused
+ * handle:
+ * -------
+ * a handle is a long number, the bit layout of a run looks like:
+ *
+ * oooooooo ooooooos ssssssss ssssssue bbbbbbbb bbbbbbbb bbbbbbbb bbbbbbbb
+ *
+ * o: runOffset (page offset in the chunk), 15bit
+ * s: size (number of pages) of this run, 15bit
+ * u: isUsed?, 1bit
+ * e: isSubpage?, 1bit
+ * b: bitmapIdx of subpage, zero if it's not subpage, 32bit
+ *
+ * runsAvailMap:
+ * ------
+ * an array which indexes all free runs. The first and the last page of each run are mapped to its handle,
+ * so when a run is freed it can be collapsed with its free neighbours.
+ *
+ * runsAvail:
+ * ----------
+ * an array of {@link LongPriorityQueue}.
+ * Each queue manages the runs whose size falls into the same pageSize class (see {@link SizeClasses}),
+ * the runs are sorted by offset, so that we always allocate the run with the smallest offset.
+ *
  *
  * Algorithm:
  * ----------
- * Encode the tree in memoryMap with the notation
- *   memoryMap[id] = x => in the subtree rooted at id, the first node that is free to be allocated
- *   is at depth x (counted from depth=0) i.e., at depths [depth_of_id, x), there is no node that is free
  *
- *  As we allocate & free nodes, we update values stored in memoryMap so that the property is maintained
+ *   As we allocate runs, we update values stored in runsAvailMap and runsAvail so that the property is maintained.
  *
  * Initialization -
- *   In the beginning we construct the memoryMap array by storing the depth of a node at each node
- *     i.e., memoryMap[id] = depth_of_id
- *
- * Observations:
- * -------------
- * 1) memoryMap[id] = depth_of_id  => it is free / unallocated
- * 2) memoryMap[id] > depth_of_id  => at least one of its child nodes is allocated, so we cannot allocate it, but
- *                                    some of its children can still be allocated based on their availability
- * 3) memoryMap[id] = maxOrder + 1 => the node is fully allocated & thus none of its children can be allocated, it
- *                                    is thus marked as unusable
+ *  In the beginning we store the initial run which is the whole chunk.
+ *  The initial run:
+ *  runOffset = 0
+ *  size = chunkSize
+ *  isUsed = no
+ *  isSubpage = no
+ *  bitmapIdx = 0
  *
- * Algorithm: [allocateNode(d) => we want to find the first node (from left) at height h that can be allocated]
- * ----------
- * 1) start at root (i.e., depth = 0 or id = 1)
- * 2) if memoryMap[1] > d => cannot be allocated from this chunk
- * 3) if left node value <= h; we can allocate from left subtree so move to left and repeat until found
- * 4) else try in right subtree
  *
  * Algorithm: [allocateRun(size)]
  * ----------
- * 1) Compute d = log_2(chunkSize/size)
- * 2) Return allocateNode(d)
+ * 1) find the first avail run in runsAvail according to size
+ * 2) if pages of run is larger than request pages then split it, and save the tailing run
+ *    for later using
  *
  * Algorithm: [allocateSubpage(size)]
  * ----------
- * 1) use allocateNode(maxOrder) to find an empty (i.e., unused) leaf (i.e., page)
- * 2) use this handle to construct the PoolSubpage object or if it already exists just call init(normCapacity)
- *    note that this PoolSubpage object is added to subpagesPool in the PoolArena when we init() it
- *
- * Note:
- * -----
- * In the implementation for improving cache coherence,
- * we store 2 pieces of information depth_of_id and x as two byte values in memoryMap and depthMap respectively
+ * 1) find a not full subpage according to size.
+ *    if it already exists just return, otherwise allocate a new PoolSubpage and call init()
+ *    note that this subpage object is added to subpagesPool in the PoolArena when we init() it
+ * 2) call subpage.allocate()
  *
- * memoryMap[id]= depth_of_id  is defined above
- * depthMap[id]= x  indicates that the first node which is free to be allocated is at depth x (from root)
+ * Algorithm: [free(handle, length, nioBuffer)]
+ * ----------
+ * 1) if it is a subpage, return the slab back into this subpage
+ * 2) if the subpage is not used or it is a run, then start free this run
+ * 3) merge continuous avail runs
+ * 4) save the merged run
  */
 final class PoolChunk<T> implements PoolChunkMetric {
+    private static final int SIZE_BIT_LENGTH = 15;
+    private static final int INUSED_BIT_LENGTH = 1;
+    private static final int SUBPAGE_BIT_LENGTH = 1;
+    private static final int BITMAP_IDX_BIT_LENGTH = 32;
 
-    private static final int INTEGER_SIZE_MINUS_ONE = Integer.SIZE - 1;
+    static final int IS_SUBPAGE_SHIFT = BITMAP_IDX_BIT_LENGTH;
+    static final int IS_USED_SHIFT = SUBPAGE_BIT_LENGTH + IS_SUBPAGE_SHIFT;
+    static final int SIZE_SHIFT = INUSED_BIT_LENGTH + IS_USED_SHIFT;
+    static final int RUN_OFFSET_SHIFT = SIZE_BIT_LENGTH + SIZE_SHIFT;
 
     final PoolArena<T> arena;
     final T memory;
     final boolean unpooled;
     final int offset;
-    private final byte[] memoryMap;
-    private final byte[] depthMap;
+
+    /**
+     * store the first page and last page of each avail run
+     */
+    private final long[] runsAvailMap;
+
+    /**
+     * manage all avail runs
+     */
+    private final LongPriorityQueue[] runsAvail;
+
+    /**
+     * manage all subpages in this chunk
+     */
     private final PoolSubpage<T>[] subpages;
-    /** Used to determine if the requested capacity is equal to or greater than pageSize. */
-    private final int subpageOverflowMask;
+
     private final int pageSize;
     private final int pageShifts;
-    private final int maxOrder;
     private final int chunkSize;
-    private final int log2ChunkSize;
-    private final int maxSubpageAllocs;
-    /** Used to mark memory as unusable */
-    private final byte unusable;
 
     // Use as cache for ByteBuffer created from the memory. These are just duplicates and so are only a container
     // around the memory itself. These are often needed for operations within the Pooled*ByteBuf and so
@@ -134,6 +170,9 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
     int freeBytes;
 
+    // The System.nanoTime() of the moment this chunk became completely free again, used to release idle chunks.
+    long freeSinceNanos;
+
     PoolChunkList<T> parent;
     PoolChunk<T> prev;
     PoolChunk<T> next;
@@ -141,38 +180,25 @@ final class PoolChunk<T> implements PoolChunkMetric {
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
-    PoolChunk(PoolArena<T> arena, T memory, int pageSize, int maxOrder, int pageShifts, int chunkSize, int offset) {
+    PoolChunk(PoolArena<T> arena, T memory, int pageSize, int pageShifts, int chunkSize, int offset) {
         unpooled = false;
         this.arena = arena;
         this.memory = memory;
         this.pageSize = pageSize;
         this.pageShifts = pageShifts;
-        this.maxOrder = maxOrder;
         this.chunkSize = chunkSize;
         this.offset = offset;
-        unusable = (byte) (maxOrder + 1);
-        log2ChunkSize = log2(chunkSize);
-        subpageOverflowMask = ~(pageSize - 1);
         freeBytes = chunkSize;
 
-        assert maxOrder < 30 : "maxOrder should be < 30, but is: " + maxOrder;
-        maxSubpageAllocs = 1 << maxOrder;
-
-        // Generate the memory map.
-        memoryMap = new byte[maxSubpageAllocs << 1];
-        depthMap = new byte[memoryMap.length];
-        int memoryMapIndex = 1;
-        for (int d = 0; d <= maxOrder; ++ d) { // move down the tree one level at a time
-            int depth = 1 << d;
-            for (int p = 0; p < depth; ++ p) {
-                // in each level traverse left to right and set value to the depth of subtree
-                memoryMap[memoryMapIndex] = (byte) d;
-                depthMap[memoryMapIndex] = (byte) d;
-                memoryMapIndex ++;
-            }
-        }
+        runsAvail = newRunsAvailqueueArray(arena.nPSizes);
+        int chunkPages = chunkSize >> pageShifts;
+        runsAvailMap = new long[chunkPages];
+        subpages = newSubpageArray(chunkPages);
+
+        // insert initial run, offset = 0, pages = chunkSize / pageSize
+        long initHandle = (long) chunkPages << SIZE_SHIFT;
+        insertAvailRun(0, chunkPages, initHandle);
 
-        subpages = newSubpageArray(maxSubpageAllocs);
         cachedNioBuffers = new ArrayDeque<ByteBuffer>(8);
     }
 
@@ -182,25 +208,68 @@ final class PoolChunk<T> implements PoolChunkMetric {
         this.arena = arena;
         this.memory = memory;
         this.offset = offset;
-        memoryMap = null;
-        depthMap = null;
-        subpages = null;
-        subpageOverflowMask = 0;
         pageSize = 0;
         pageShifts = 0;
-        maxOrder = 0;
-        unusable = (byte) (maxOrder + 1);
+        runsAvailMap = null;
+        runsAvail = null;
+        subpages = null;
         chunkSize = size;
-        log2ChunkSize = log2(chunkSize);
-        maxSubpageAllocs = 0;
         cachedNioBuffers = null;
     }
 
+    private static LongPriorityQueue[] newRunsAvailqueueArray(int size) {
+        LongPriorityQueue[] queueArray = new LongPriorityQueue[size];
+        for (int i = 0; i < queueArray.length; i++) {
+            queueArray[i] = new LongPriorityQueue();
+        }
+        return queueArray;
+    }
+
     @SuppressWarnings("unchecked")
     private PoolSubpage<T>[] newSubpageArray(int size) {
         return new PoolSubpage[size];
     }
 
+    private void insertAvailRun(int runOffset, int pages, long handle) {
+        // A run can serve every pageSize class up to its own size, so it is filed under the floor pageIdx.
+        int pageIdxFloor = arena.pages2pageIdxFloor(pages);
+        runsAvail[pageIdxFloor].offer(handle);
+
+        // insert first page of run
+        runsAvailMap[runOffset] = handle;
+        if (pages > 1) {
+            // insert last page of run
+            runsAvailMap[lastPage(runOffset, pages)] = handle;
+        }
+    }
+
+    private void removeAvailRun(long handle) {
+        int pageIdxFloor = arena.pages2pageIdxFloor(runPages(handle));
+        runsAvail[pageIdxFloor].remove(handle);
+
+        int runOffset = runOffset(handle);
+        int pages = runPages(handle);
+        // remove first page of run
+        runsAvailMap[runOffset] = 0;
+        if (pages > 1) {
+            // remove last page of run
+            runsAvailMap[lastPage(runOffset, pages)] = 0;
+        }
+    }
+
+    private static int lastPage(int runOffset, int pages) {
+        return runOffset + pages - 1;
+    }
+
+    private long getAvailRunByOffset(int runOffset) {
+        if (runOffset < 0 || runOffset >= runsAvailMap.length) {
+            return -1;
+        }
+        long handle = runsAvailMap[runOffset];
+        // A free run always has at least one page, so a zero entry means that there is no run.
+        return handle == 0 ? -1 : handle;
+    }
+
     @Override
     public int usage() {
         final int freeBytes;
@@ -222,256 +291,292 @@ final class PoolChunk<T> implements PoolChunkMetric {
         return 100 - freePercentage;
     }
 
-    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int normCapacity, PoolThreadCache threadCache) {
+    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx, PoolThreadCache threadCache) {
         final long handle;
-        if ((normCapacity & subpageOverflowMask) != 0) { // >= pageSize
-            handle =  allocateRun(normCapacity);
+        if (sizeIdx <= arena.smallMaxSizeIdx) {
+            // small
+            handle = allocateSubpage(sizeIdx);
+            if (handle < 0) {
+                return false;
+            }
+            assert isSubpage(handle);
         } else {
-            handle = allocateSubpage(normCapacity);
+            // normal
+            // runSize must be multiple of pageSize
+            int runSize = arena.sizeIdx2size(sizeIdx);
+            handle = allocateRun(runSize);
+            if (handle < 0) {
+                return false;
+            }
         }
 
-        if (handle < 0) {
-            return false;
-        }
         ByteBuffer nioBuffer = cachedNioBuffers != null ? cachedNioBuffers.pollLast() : null;
         initBuf(buf, nioBuffer, handle, reqCapacity, threadCache);
         return true;
     }
 
-    /**
-     * Update method used by allocate
-     * This is triggered only when a successor is allocated and all its predecessors
-     * need to update their state
-     * The minimal depth at which subtree rooted at id has some free space
-     *
-     * @param id id
-     */
-    private void updateParentsAlloc(int id) {
-        while (id > 1) {
-            int parentId = id >>> 1;
-            byte val1 = value(id);
-            byte val2 = value(id ^ 1);
-            byte val = val1 < val2 ? val1 : val2;
-            setValue(parentId, val);
-            id = parentId;
+    private long allocateRun(int runSize) {
+        int pages = runSize >> pageShifts;
+        int pageIdx = arena.pages2pageIdx(pages);
+
+        // find first queue which has at least one big enough run
+        int queueIdx = runFirstBestFit(pageIdx);
+        if (queueIdx == -1) {
+            return -1;
         }
+
+        // get run with min offset in this queue
+        LongPriorityQueue queue = runsAvail[queueIdx];
+        long handle = queue.poll();
+
+        assert handle != LongPriorityQueue.NO_VALUE && !isUsed(handle) : "invalid handle: " + handle;
+
+        removeAvailRun(handle);
+
+        handle = splitLargeRun(handle, pages);
+
+        freeBytes -= runSize(pageShifts, handle);
+        return handle;
     }
 
-    /**
-     * Update method used by free
-     * This needs to handle the special case when both children are completely free
-     * in which case parent be directly allocated on request of size = child-size * 2
-     *
-     * @param id id
-     */
-    private void updateParentsFree(int id) {
-        int logChild = depth(id) + 1;
-        while (id > 1) {
-            int parentId = id >>> 1;
-            byte val1 = value(id);
-            byte val2 = value(id ^ 1);
-            logChild -= 1; // in first iteration equals log, subsequently reduce 1 from logChild as we traverse up
-
-            if (val1 == logChild && val2 == logChild) {
-                setValue(parentId, (byte) (logChild - 1));
-            } else {
-                byte val = val1 < val2 ? val1 : val2;
-                setValue(parentId, val);
-            }
+    private int calculateRunSize(int sizeIdx) {
+        int maxElements = 1 << pageShifts - SizeClasses.LOG2_QUANTUM;
+        int runSize = 0;
+        int nElements;
+
+        final int elemSize = arena.sizeIdx2size(sizeIdx);
+
+        // find lowest common multiple of pageSize and elemSize, but never exceed the chunk itself
+        do {
+            runSize += pageSize;
+            nElements = runSize / elemSize;
+        } while (nElements < maxElements && runSize != nElements * elemSize && runSize < chunkSize);
 
-            id = parentId;
+        while (nElements > maxElements) {
+            runSize -= pageSize;
+            nElements = runSize / elemSize;
         }
+
+        assert nElements > 0;
+        assert runSize <= chunkSize;
+        assert runSize >= elemSize;
+
+        return runSize;
     }
 
-    /**
-     * Algorithm to allocate an index in memoryMap when we query for a free node
-     * at depth d
-     *
-     * @param d depth
-     * @return index in memoryMap
-     */
-    private int allocateNode(int d) {
-        int id = 1;
-        int initial = - (1 << d); // has last d bits = 0 and rest all = 1
-        byte val = value(id);
-        if (val > d) { // unusable
-            return -1;
+    private int runFirstBestFit(int pageIdx) {
+        if (freeBytes == chunkSize) {
+            return arena.nPSizes - 1;
         }
-        while (val < d || (id & initial) == 0) { // id & initial == 1 << d for all ids at depth d, for < d it is 0
-            id <<= 1;
-            val = value(id);
-            if (val > d) {
-                id ^= 1;
-                val = value(id);
+        for (int i = pageIdx; i < arena.nPSizes; i++) {
+            LongPriorityQueue queue = runsAvail[i];
+            if (!queue.isEmpty()) {
+                return i;
             }
         }
-        byte value = value(id);
-        assert value == d && (id & initial) == 1 << d : String.format("val = %d, id & initial = %d, d = %d",
-                value, id & initial, d);
-        setValue(id, unusable); // mark as unusable
-        updateParentsAlloc(id);
-        return id;
+        return -1;
+    }
+
+    private long splitLargeRun(long handle, int needPages) {
+        assert needPages > 0;
+
+        int totalPages = runPages(handle);
+        assert needPages <= totalPages;
+
+        int remPages = totalPages - needPages;
+
+        if (remPages > 0) {
+            int runOffset = runOffset(handle);
+
+            // keep track of trailing unused pages for later use
+            int availOffset = runOffset + needPages;
+            long availRun = toRunHandle(availOffset, remPages, 0);
+            insertAvailRun(availOffset, remPages, availRun);
+
+            // not avail
+            return toRunHandle(runOffset, needPages, 1);
+        }
+
+        // mark it as used
+        handle |= 1L << IS_USED_SHIFT;
+        return handle;
     }
 
     /**
-     * Allocate a run of pages (>=1)
+     * Create / initialize a new PoolSubpage of normCapacity. Any PoolSubpage created / initialized here is added to
+     * subpage pool in the PoolArena that owns this PoolChunk
      *
-     * @param normCapacity normalized capacity
-     * @return index in memoryMap
+     * @param sizeIdx sizeIdx of normalized size
+     *
+     * @return handle of the allocated element
      */
-    private long allocateRun(int normCapacity) {
-        int d = maxOrder - (log2(normCapacity) - pageShifts);
-        int id = allocateNode(d);
-        if (id < 0) {
-            return id;
+    private long allocateSubpage(int sizeIdx) {
+        // The head of the PoolSubPage pool that is owned by the PoolArena was already locked by the caller, as
+        // the new subpage is added to its linked-list.
+        PoolSubpage<T> head = arena.findSubpagePoolHead(sizeIdx);
+        assert Thread.holdsLock(head);
+
+        //allocate a new run
+        int runSize = calculateRunSize(sizeIdx);
+        //runSize must be multiples of pageSize
+        long runHandle = allocateRun(runSize);
+        if (runHandle < 0) {
+            return -1;
         }
-        freeBytes -= runLength(id);
-        return id;
+
+        int runOffset = runOffset(runHandle);
+        int elemSize = arena.sizeIdx2size(sizeIdx);
+
+        PoolSubpage<T> subpage = new PoolSubpage<T>(head, this, pageShifts, runOffset,
+                           runSize(pageShifts, runHandle), elemSize);
+
+        subpages[runOffset] = subpage;
+        return subpage.allocate();
     }
 
     /**
-     * Create / initialize a new PoolSubpage of normCapacity
-     * Any PoolSubpage created / initialized here is added to subpage pool in the PoolArena that owns this PoolChunk
+     * Free an element of a subpage. This only needs the lock of the subpage pool in the {@link PoolArena} that owns
+     * this {@link PoolChunk}, as long as the subpage is still used the run that backs it stays allocated and so
+     * neither {@link #freeBytes} nor the {@link PoolChunkList} of this {@link PoolChunk} change.
      *
-     * @param normCapacity normalized capacity
-     * @return index in memoryMap
+     * @param handle handle to free
+     * @return {@code true} if the subpage is still used, {@code false} if it was removed from the subpage pool and
+     *         its run must be freed via {@link #free(long, ByteBuffer)}.
      */
-    private long allocateSubpage(int normCapacity) {
+    boolean freeSubpage(long handle) {
+        assert isSubpage(handle);
+        int sIdx = runOffset(handle);
+        PoolSubpage<T> subpage = subpages[sIdx];
+        assert subpage != null && subpage.doNotDestroy;
+
         // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
         // This is need as we may add it back and so alter the linked-list structure.
-        PoolSubpage<T> head = arena.findSubpagePoolHead(normCapacity);
-        int d = maxOrder; // subpages are only be allocated from pages i.e., leaves
+        PoolSubpage<T> head = arena.findSubpagePoolHead(arena.size2SizeIdx(subpage.elemSize));
         synchronized (head) {
-            int id = allocateNode(d);
-            if (id < 0) {
-                return id;
+            if (subpage.free(head, bitmapIdx(handle))) {
+                //the subpage is still used, do not free it
+                return true;
             }
-
-            final PoolSubpage<T>[] subpages = this.subpages;
-            final int pageSize = this.pageSize;
-
-            freeBytes -= pageSize;
-
-            int subpageIdx = subpageIdx(id);
-            PoolSubpage<T> subpage = subpages[subpageIdx];
-            if (subpage == null) {
-                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), pageSize, normCapacity);
-                subpages[subpageIdx] = subpage;
-            } else {
-                subpage.init(head, normCapacity);
-            }
-            return subpage.allocate();
+            assert !subpage.doNotDestroy;
+            // Null out slot in the array as it was freed and we should not use it anymore.
+            subpages[sIdx] = null;
+            return false;
         }
     }
 
     /**
-     * Free a subpage or a run of pages
-     * When a subpage is freed from PoolSubpage, it might be added back to subpage pool of the owning PoolArena
-     * If the subpage pool in PoolArena has at least one other PoolSubpage of given elemSize, we can
-     * completely free the owning Page so it is available for subsequent allocations
+     * Free a run of pages. If the handle belongs to a subpage, the subpage must have been released via
+     * {@link #freeSubpage(long)} before.
      *
      * @param handle handle to free
      */
     void free(long handle, ByteBuffer nioBuffer) {
-        int memoryMapIdx = memoryMapIdx(handle);
-        int bitmapIdx = bitmapIdx(handle);
+        assert !isSubpage(handle) || subpages[runOffset(handle)] == null;
 
-        if (bitmapIdx != 0) { // free a subpage
-            PoolSubpage<T> subpage = subpages[subpageIdx(memoryMapIdx)];
-            assert subpage != null && subpage.doNotDestroy;
-
-            // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
-            // This is need as we may add it back and so alter the linked-list structure.
-            PoolSubpage<T> head = arena.findSubpagePoolHead(subpage.elemSize);
-            synchronized (head) {
-                if (subpage.free(head, bitmapIdx & 0x3FFFFFFF)) {
-                    return;
-                }
-            }
+        //start free run
+        int pages = runPages(handle);
+
+        // collapse continuous runs, successfully collapsed runs
+        // will be removed from runsAvail and runsAvailMap
+        long finalRun = collapseRuns(handle);
+
+        //set run as not used
+        finalRun &= ~(1L << IS_USED_SHIFT);
+        //if it is a subpage, set it to run
+        finalRun &= ~(1L << IS_SUBPAGE_SHIFT);
+
+        insertAvailRun(runOffset(finalRun), runPages(finalRun), finalRun);
+        freeBytes += pages << pageShifts;
+        if (freeBytes == chunkSize) {
+            freeSinceNanos = System.nanoTime();
         }
-        freeBytes += runLength(memoryMapIdx);
-        setValue(memoryMapIdx, depth(memoryMapIdx));
-        updateParentsFree(memoryMapIdx);
 
         if (nioBuffer != null && cachedNioBuffers != null &&
-                cachedNioBuffers.size() < PooledByteBufAllocator.DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK) {
+            cachedNioBuffers.size() < PooledByteBufAllocator.DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK) {
             cachedNioBuffers.offer(nioBuffer);
         }
     }
 
-    void initBuf(PooledByteBuf<T> buf, ByteBuffer nioBuffer, long handle, int reqCapacity,
-                 PoolThreadCache threadCache) {
-        int memoryMapIdx = memoryMapIdx(handle);
-        int bitmapIdx = bitmapIdx(handle);
-        if (bitmapIdx == 0) {
-            byte val = value(memoryMapIdx);
-            assert val == unusable : String.valueOf(val);
-            buf.init(this, nioBuffer, handle, runOffset(memoryMapIdx) + offset,
-                    reqCapacity, runLength(memoryMapIdx), threadCache);
-        } else {
-            initBufWithSubpage(buf, nioBuffer, handle, bitmapIdx, reqCapacity, threadCache);
-        }
-    }
-
-    void initBufWithSubpage(PooledByteBuf<T> buf, ByteBuffer nioBuffer, long handle, int reqCapacity,
-                            PoolThreadCache threadCache) {
-        initBufWithSubpage(buf, nioBuffer, handle, bitmapIdx(handle), reqCapacity, threadCache);
+    private long collapseRuns(long handle) {
+        return collapseNext(collapsePast(handle));
     }
 
-    private void initBufWithSubpage(PooledByteBuf<T> buf, ByteBuffer nioBuffer,
-                                    long handle, int bitmapIdx, int reqCapacity, PoolThreadCache threadCache) {
-        assert bitmapIdx != 0;
+    private long collapsePast(long handle) {
+        for (;;) {
+            int runOffset = runOffset(handle);
+            int runPages = runPages(handle);
 
-        int memoryMapIdx = memoryMapIdx(handle);
+            long pastRun = getAvailRunByOffset(runOffset - 1);
+            if (pastRun == -1) {
+                return handle;
+            }
 
-        PoolSubpage<T> subpage = subpages[subpageIdx(memoryMapIdx)];
-        assert subpage.doNotDestroy;
-        assert reqCapacity <= subpage.elemSize;
+            int pastOffset = runOffset(pastRun);
+            int pastPages = runPages(pastRun);
 
-        buf.init(
-            this, nioBuffer, handle,
-            runOffset(memoryMapIdx) + (bitmapIdx & 0x3FFFFFFF) * subpage.elemSize + offset,
-                reqCapacity, subpage.elemSize, threadCache);
+            //is continuous
+            if (pastRun != handle && pastOffset + pastPages == runOffset) {
+                //remove past run
+                removeAvailRun(pastRun);
+                handle = toRunHandle(pastOffset, pastPages + runPages, 0);
+            } else {
+                return handle;
+            }
+        }
     }
 
-    private byte value(int id) {
-        return memoryMap[id];
-    }
+    private long collapseNext(long handle) {
+        for (;;) {
+            int runOffset = runOffset(handle);
+            int runPages = runPages(handle);
 
-    private void setValue(int id, byte val) {
-        memoryMap[id] = val;
-    }
+            long nextRun = getAvailRunByOffset(runOffset + runPages);
+            if (nextRun == -1) {
+                return handle;
+            }
 
-    private byte depth(int id) {
-        return depthMap[id];
-    }
+            int nextOffset = runOffset(nextRun);
+            int nextPages = runPages(nextRun);
 
-    private static int log2(int val) {
-        // compute the (0-based, with lsb = 0) position of highest set bit i.e, log2
-        return INTEGER_SIZE_MINUS_ONE - Integer.numberOfLeadingZeros(val);
+            //is continuous
+            if (nextRun != handle && runOffset + runPages == nextOffset) {
+                //remove next run
+                removeAvailRun(nextRun);
+                handle = toRunHandle(runOffset, runPages + nextPages, 0);
+            } else {
+                return handle;
+            }
+        }
     }
 
-    private int runLength(int id) {
-        // represents the size in #bytes supported by node 'id' in the tree
-        return 1 << log2ChunkSize - depth(id);
+    private static long toRunHandle(int runOffset, int runPages, int inUsed) {
+        return (long) runOffset << RUN_OFFSET_SHIFT
+               | (long) runPages << SIZE_SHIFT
+               | (long) inUsed << IS_USED_SHIFT;
     }
 
-    private int runOffset(int id) {
-        // represents the 0-based offset in #bytes from start of the byte-array chunk
-        int shift = id ^ 1 << depth(id);
-        return shift * runLength(id);
+    void initBuf(PooledByteBuf<T> buf, ByteBuffer nioBuffer, long handle, int reqCapacity,
+                 PoolThreadCache threadCache) {
+        if (isRun(handle)) {
+            buf.init(this, nioBuffer, handle, (runOffset(handle) << pageShifts) + offset,
+                     reqCapacity, runSize(pageShifts, handle), threadCache);
+        } else {
+            initBufWithSubpage(buf, nioBuffer, handle, reqCapacity, threadCache);
+        }
     }
 
-    private int subpageIdx(int memoryMapIdx) {
-        return memoryMapIdx ^ maxSubpageAllocs; // remove highest set bit, to get offset
-    }
+    void initBufWithSubpage(PooledByteBuf<T> buf, ByteBuffer nioBuffer, long handle, int reqCapacity,
+                            PoolThreadCache threadCache) {
+        int runOffset = runOffset(handle);
+        int bitmapIdx = bitmapIdx(handle);
 
-    private static int memoryMapIdx(long handle) {
-        return (int) handle;
-    }
+        PoolSubpage<T> s = subpages[runOffset];
+        assert s.doNotDestroy;
+        assert reqCapacity <= s.elemSize;
 
-    private static int bitmapIdx(long handle) {
-        return (int) (handle >>> Integer.SIZE);
+        buf.init(this, nioBuffer, handle,
+                 (runOffset << pageShifts) + bitmapIdx * s.elemSize + offset,
+                 reqCapacity, s.elemSize, threadCache);
     }
 
     @Override
@@ -509,4 +614,32 @@ final class PoolChunk<T> implements PoolChunkMetric {
     void destroy() {
         arena.destroyChunk(this);
     }
+
+    static int runOffset(long handle) {
+        return (int) (handle >> RUN_OFFSET_SHIFT);
+    }
+
+    static int runSize(int pageShifts, long handle) {
+        return runPages(handle) << pageShifts;
+    }
+
+    static int runPages(long handle) {
+        return (int) (handle >> SIZE_SHIFT & 0x7fff);
+    }
+
+    static boolean isUsed(long handle) {
+        return (handle >> IS_USED_SHIFT & 1) == 1L;
+    }
+
+    static boolean isRun(long handle) {
+        return !isSubpage(handle);
+    }
+
+    static boolean isSubpage(long handle) {
+        return (handle >> IS_SUBPAGE_SHIFT & 1) == 1L;
+    }
+
+    static int bitmapIdx(long handle) {
+        return (int) handle;
+    }
 }
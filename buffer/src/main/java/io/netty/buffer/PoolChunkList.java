@@ -96,7 +96,8 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         this.prevList = prevList;
     }
 
-    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int normCapacity, PoolThreadCache threadCache) {
+    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx, PoolThreadCache threadCache) {
+        int normCapacity = arena.sizeIdx2size(sizeIdx);
         if (normCapacity > maxCapacity) {
             // Either this PoolChunkList is empty or the requested capacity is larger then the capacity which can
             // be handled by the PoolChunks that are contained in this PoolChunkList.
@@ -104,7 +105,7 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         }
 
         for (PoolChunk<T> cur = head; cur != null; cur = cur.next) {
-            if (cur.allocate(buf, reqCapacity, normCapacity, threadCache)) {
+            if (cur.allocate(buf, reqCapacity, sizeIdx, threadCache)) {
                 if (cur.freeBytes <= freeMinThreshold) {
                     remove(cur);
                     nextList.add(cur);
@@ -152,6 +153,26 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         return prevList.move(chunk);
     }
 
+    /**
+     * Removes all {@link PoolChunk}s that are completely free since at least {@code deadlineNanos} from this
+     * {@link PoolChunkList} and returns them, so they can be destroyed by the caller.
+     */
+    List<PoolChunk<T>> removeIdleChunks(long deadlineNanos) {
+        List<PoolChunk<T>> idleChunks = null;
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (cur.freeBytes == cur.chunkSize() && cur.freeSinceNanos - deadlineNanos <= 0) {
+                remove(cur);
+                if (idleChunks == null) {
+                    idleChunks = new ArrayList<PoolChunk<T>>();
+                }
+                idleChunks.add(cur);
+            }
+            cur = next;
+        }
+        return idleChunks == null ? Collections.<PoolChunk<T>>emptyList() : idleChunks;
+    }
+
     void add(PoolChunk<T> chunk) {
         if (chunk.freeBytes <= freeMinThreshold) {
             nextList.add(chunk);
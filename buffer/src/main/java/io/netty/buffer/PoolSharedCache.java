@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.buffer.PoolArena.SizeClass;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.ObjectPool;
+import io.netty.util.internal.ObjectPool.Handle;
+import io.netty.util.internal.ObjectPool.ObjectCreator;
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded cache that is shared by all threads of a {@link PoolArena} which do not have a {@link PoolThreadCache}
+ * on their own, like threads of a {@link java.util.concurrent.ForkJoinPool} or other executors. Such threads would
+ * otherwise either need to go through the arena for every allocation and deallocation or, when
+ * {@code useCacheForAllThreads} is enabled, each grow a cache that is never trimmed.
+ * <p>
+ * As the cache is owned by the arena and not by a thread, nothing is lost when one of these threads terminates.
+ * Entries that are not allocated frequently enough are given back to the arena by {@link #trim()}, which is called
+ * by the trim task of the {@link PooledByteBufAllocator} and never by an allocation.
+ */
+final class PoolSharedCache<T> {
+
+    private final PoolArena<T> arena;
+    // Indexed by sizeIdx, covers all small size classes and the normal size classes up to the max cached capacity.
+    private final MemoryRegionCache<T>[] caches;
+
+    PoolSharedCache(PoolArena<T> arena, int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity) {
+        this.arena = arena;
+
+        int numCaches = smallCacheSize > 0 ? arena.numSmallSubpagePools : 0;
+        if (normalCacheSize > 0) {
+            int max = Math.min(arena.chunkSize, maxCachedBufferCapacity);
+            numCaches = arena.numSmallSubpagePools;
+            while (numCaches < arena.nSizes && arena.sizeIdx2size(numCaches) <= max) {
+                numCaches++;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        MemoryRegionCache<T>[] caches = new MemoryRegionCache[numCaches];
+        for (int i = 0; i < caches.length; i++) {
+            if (i < arena.numSmallSubpagePools) {
+                if (smallCacheSize > 0) {
+                    caches[i] = new MemoryRegionCache<T>(smallCacheSize, SizeClass.Small);
+                }
+            } else {
+                caches[i] = new MemoryRegionCache<T>(normalCacheSize, SizeClass.Normal);
+            }
+        }
+        this.caches = caches;
+    }
+
+    /**
+     * Try to allocate a buffer of the given size class out of the cache. Returns {@code true} if successful
+     * {@code false} otherwise.
+     */
+    boolean allocate(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx, PoolThreadCache threadCache) {
+        MemoryRegionCache<T> cache = cache(sizeIdx);
+        if (cache == null) {
+            return false;
+        }
+        return cache.allocate(buf, reqCapacity, threadCache);
+    }
+
+    /**
+     * Add {@link PoolChunk} and {@code handle} to the cache if there is enough room.
+     * Returns {@code true} if it fit into the cache {@code false} otherwise.
+     */
+    boolean add(PoolChunk<T> chunk, ByteBuffer nioBuffer, long handle, int normCapacity) {
+        MemoryRegionCache<T> cache = cache(arena.size2SizeIdx(normCapacity));
+        if (cache == null) {
+            return false;
+        }
+        return cache.add(chunk, nioBuffer, handle);
+    }
+
+    /**
+     * Free up cached {@link PoolChunk}s that were not allocated frequently enough since the last trim.
+     */
+    void trim() {
+        for (MemoryRegionCache<T> cache : caches) {
+            if (cache != null) {
+                cache.trim();
+            }
+        }
+    }
+
+    /**
+     * Free up all cached {@link PoolChunk}s and returns the number of freed entries. Called by the finalizer of the
+     * {@link PoolArena}, as the cache lives as long as its arena.
+     */
+    int free(boolean finalizer) {
+        int numFreed = 0;
+        for (MemoryRegionCache<T> cache : caches) {
+            if (cache != null) {
+                numFreed += cache.free(Integer.MAX_VALUE, finalizer);
+            }
+        }
+        return numFreed;
+    }
+
+    private MemoryRegionCache<T> cache(int sizeIdx) {
+        return sizeIdx < caches.length ? caches[sizeIdx] : null;
+    }
+
+    private static final class MemoryRegionCache<T> {
+        private final int size;
+        private final Queue<Entry<T>> queue;
+        private final SizeClass sizeClass;
+        private final AtomicInteger allocations = new AtomicInteger();
+
+        MemoryRegionCache(int size, SizeClass sizeClass) {
+            // The queue needs a capacity of at least 2.
+            this.size = Math.max(2, MathUtil.safeFindNextPositivePowerOfTwo(size));
+            queue = PlatformDependent.newFixedMpmcQueue(this.size);
+            this.sizeClass = sizeClass;
+        }
+
+        boolean add(PoolChunk<T> chunk, ByteBuffer nioBuffer, long handle) {
+            Entry<T> entry = newEntry(chunk, nioBuffer, handle);
+            boolean queued = queue.offer(entry);
+            if (!queued) {
+                // If it was not possible to cache the chunk, immediately recycle the entry
+                entry.recycle();
+            }
+            return queued;
+        }
+
+        boolean allocate(PooledByteBuf<T> buf, int reqCapacity, PoolThreadCache threadCache) {
+            Entry<T> entry = queue.poll();
+            if (entry == null) {
+                return false;
+            }
+            if (sizeClass == SizeClass.Small) {
+                entry.chunk.initBufWithSubpage(buf, entry.nioBuffer, entry.handle, reqCapacity, threadCache);
+            } else {
+                entry.chunk.initBuf(buf, entry.nioBuffer, entry.handle, reqCapacity, threadCache);
+            }
+            entry.recycle();
+            allocations.incrementAndGet();
+            return true;
+        }
+
+        void trim() {
+            int free = size - allocations.getAndSet(0);
+            if (free > 0) {
+                free(free, false);
+            }
+        }
+
+        int free(int max, boolean finalizer) {
+            int numFreed = 0;
+            for (; numFreed < max; numFreed++) {
+                Entry<T> entry = queue.poll();
+                if (entry == null) {
+                    break;
+                }
+                PoolChunk<T> chunk = entry.chunk;
+                long handle = entry.handle;
+                ByteBuffer nioBuffer = entry.nioBuffer;
+                // recycle now so PoolChunk can be GC'ed.
+                entry.recycle();
+                chunk.arena.freeChunk(chunk, handle, sizeClass, nioBuffer, finalizer);
+            }
+            return numFreed;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Entry<T> newEntry(PoolChunk<T> chunk, ByteBuffer nioBuffer, long handle) {
+            Entry<T> entry = RECYCLER.get();
+            entry.chunk = chunk;
+            entry.nioBuffer = nioBuffer;
+            entry.handle = handle;
+            return entry;
+        }
+
+        @SuppressWarnings("rawtypes")
+        private static final ObjectPool<Entry> RECYCLER = ObjectPool.newPool(new ObjectCreator<Entry>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Entry newObject(Handle<Entry> handle) {
+                return new Entry(handle);
+            }
+        });
+    }
+
+    private static final class Entry<T> {
+        final Handle<Entry<T>> recyclerHandle;
+        PoolChunk<T> chunk;
+        ByteBuffer nioBuffer;
+        long handle = -1;
+
+        Entry(Handle<Entry<T>> recyclerHandle) {
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        void recycle() {
+            chunk = null;
+            nioBuffer = null;
+            handle = -1;
+            recyclerHandle.recycle(this);
+        }
+    }
+}
@@ -49,7 +49,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
     private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
+    private static final long DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS;
     private static final boolean DEFAULT_USE_CACHE_FOR_ALL_THREADS;
+    private static final boolean DEFAULT_USE_SHARED_CACHE;
     private static final int DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT;
     static final int DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK;
 
@@ -59,7 +61,8 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     private final Runnable trimTask = new Runnable() {
         @Override
         public void run() {
-            PooledByteBufAllocator.this.trimCurrentThreadCache();
+            PooledByteBufAllocator.this.trimCurrentThread(DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0,
+                    TimeUnit.MILLISECONDS.toNanos(DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS));
         }
     };
 
@@ -141,9 +144,19 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                     "io.netty.allocator.cacheTrimIntervalMillis", 0);
         }
 
+        // the time after which a chunk that is completely unused is released, 0 means chunks are never released because
+        // of being idle
+        DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS = SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkIdleTimeoutMillis", 0);
+
         DEFAULT_USE_CACHE_FOR_ALL_THREADS = SystemPropertyUtil.getBoolean(
                 "io.netty.allocator.useCacheForAllThreads", true);
 
+        // threads that are neither FastThreadLocalThreads nor run by an EventExecutor share a bounded cache per arena
+        // instead of having a thread local cache
+        DEFAULT_USE_SHARED_CACHE = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.useSharedCache", true);
+
         DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT = SystemPropertyUtil.getInt(
                 "io.netty.allocator.directMemoryCacheAlignment", 0);
 
@@ -166,13 +179,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                 logger.debug("-Dio.netty.allocator.maxOrder: {}", DEFAULT_MAX_ORDER, maxOrderFallbackCause);
             }
             logger.debug("-Dio.netty.allocator.chunkSize: {}", DEFAULT_PAGE_SIZE << DEFAULT_MAX_ORDER);
-            logger.debug("-Dio.netty.allocator.tinyCacheSize: {}", DEFAULT_TINY_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.smallCacheSize: {}", DEFAULT_SMALL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
             logger.debug("-Dio.netty.allocator.cacheTrimIntervalMillis: {}", DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
+            logger.debug("-Dio.netty.allocator.chunkIdleTimeoutMillis: {}", DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS);
             logger.debug("-Dio.netty.allocator.useCacheForAllThreads: {}", DEFAULT_USE_CACHE_FOR_ALL_THREADS);
+            logger.debug("-Dio.netty.allocator.useSharedCache: {}", DEFAULT_USE_SHARED_CACHE);
             logger.debug("-Dio.netty.allocator.maxCachedByteBuffersPerChunk: {}",
                     DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK);
         }
@@ -183,9 +197,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     private final PoolArena<byte[]>[] heapArenas;
     private final PoolArena<ByteBuffer>[] directArenas;
-    private final int tinyCacheSize;
     private final int smallCacheSize;
     private final int normalCacheSize;
+    private final boolean useSharedCache;
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
     private final PoolThreadLocalCache threadCache;
@@ -208,42 +222,83 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     /**
      * @deprecated use
-     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, int, boolean)}
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean)}
      */
     @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder) {
         this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
-                DEFAULT_TINY_CACHE_SIZE, DEFAULT_SMALL_CACHE_SIZE, DEFAULT_NORMAL_CACHE_SIZE);
+                DEFAULT_SMALL_CACHE_SIZE, DEFAULT_NORMAL_CACHE_SIZE, DEFAULT_USE_CACHE_FOR_ALL_THREADS);
     }
 
     /**
      * @deprecated use
-     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, int, boolean)}
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean)}
      */
     @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
-        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize,
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, smallCacheSize,
                 normalCacheSize, DEFAULT_USE_CACHE_FOR_ALL_THREADS, DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT);
     }
 
+    /**
+     * @deprecated use
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean)}
+     */
+    @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena,
                                   int nDirectArena, int pageSize, int maxOrder, int tinyCacheSize,
                                   int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads) {
         this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
-                tinyCacheSize, smallCacheSize, normalCacheSize,
+                smallCacheSize, normalCacheSize,
+                useCacheForAllThreads);
+    }
+
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena,
+                                  int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
                 useCacheForAllThreads, DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT);
     }
 
+    /**
+     * @deprecated use
+     * {@link PooledByteBufAllocator#PooledByteBufAllocator(boolean, int, int, int, int, int, int, boolean, int)}
+     */
+    @Deprecated
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment);
+    }
+
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize,
+                useCacheForAllThreads, directMemoryCacheAlignment, null);
+    }
+
+    /**
+     * Creates a new instance whose direct arenas get the memory of their chunks from the given
+     * {@link DirectChunkAllocator}. If {@code directChunkAllocator} is {@code null} every chunk is allocated on its own.
+     * Be aware that a chunk needs {@code (pageSize << maxOrder) + directMemoryCacheAlignment} bytes of memory.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  DirectChunkAllocator directChunkAllocator) {
         super(preferDirect);
         threadCache = new PoolThreadLocalCache(useCacheForAllThreads);
-        this.tinyCacheSize = tinyCacheSize;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
+        useSharedCache = DEFAULT_USE_SHARED_CACHE && (smallCacheSize > 0 || normalCacheSize > 0);
         chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
 
         checkPositiveOrZero(nHeapArena, "nHeapArena");
@@ -266,7 +321,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(heapArenas.length);
             for (int i = 0; i < heapArenas.length; i ++) {
                 PoolArena.HeapArena arena = new PoolArena.HeapArena(this,
-                        pageSize, maxOrder, pageShifts, chunkSize,
+                        pageSize, pageShifts, chunkSize,
                         directMemoryCacheAlignment);
                 heapArenas[i] = arena;
                 metrics.add(arena);
@@ -282,7 +337,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
                 PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, maxOrder, pageShifts, chunkSize, directMemoryCacheAlignment);
+                        this, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, directChunkAllocator);
                 directArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -294,6 +349,17 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         metric = new PooledByteBufAllocatorMetric(this);
     }
 
+    /**
+     * Creates the {@link PoolSharedCache} for the given arena or returns {@code null} if none should be used. The
+     * shared cache uses the same limits as a {@link PoolThreadCache}.
+     */
+    <T> PoolSharedCache<T> newSharedCache(PoolArena<T> arena) {
+        if (!useSharedCache) {
+            return null;
+        }
+        return new PoolSharedCache<T>(arena, smallCacheSize, normalCacheSize, DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
+    }
+
     @SuppressWarnings("unchecked")
     private static <T> PoolArena<T>[] newArenaArray(int size) {
         return new PoolArena[size];
@@ -407,7 +473,10 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     /**
      * Default tiny cache size - System Property: io.netty.allocator.tinyCacheSize - default 512
+     *
+     * @deprecated Tiny caches have been merged into small caches.
      */
+    @Deprecated
     public static int defaultTinyCacheSize() {
         return DEFAULT_TINY_CACHE_SIZE;
     }
@@ -468,22 +537,27 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas);
 
             final Thread current = Thread.currentThread();
-            if (useCacheForAllThreads || current instanceof FastThreadLocalThread) {
+            final EventExecutor executor = ThreadExecutorMap.currentExecutor();
+            // Threads that are not run by an EventExecutor are never trimmed by the trim task, so if possible these
+            // use the shared cache of their arenas instead of growing a cache on their own.
+            if (current instanceof FastThreadLocalThread ||
+                    useCacheForAllThreads && (executor != null || !useSharedCache)) {
                 final PoolThreadCache cache = new PoolThreadCache(
-                        heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
+                        heapArena, directArena, smallCacheSize, normalCacheSize,
                         DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
 
-                if (DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0) {
-                    final EventExecutor executor = ThreadExecutorMap.currentExecutor();
+                final long trimIntervalMillis = DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0 ?
+                        DEFAULT_CACHE_TRIM_INTERVAL_MILLIS : DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS;
+                if (trimIntervalMillis > 0) {
                     if (executor != null) {
-                        executor.scheduleAtFixedRate(trimTask, DEFAULT_CACHE_TRIM_INTERVAL_MILLIS,
-                                DEFAULT_CACHE_TRIM_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        executor.scheduleAtFixedRate(trimTask, trimIntervalMillis,
+                                trimIntervalMillis, TimeUnit.MILLISECONDS);
                     }
                 }
                 return cache;
             }
             // No caching so just use 0 as sizes.
-            return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0, 0);
+            return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0);
         }
 
         @Override
@@ -576,11 +650,11 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     /**
      * Return the size of the tiny cache.
      *
-     * @deprecated use {@link PooledByteBufAllocatorMetric#tinyCacheSize()}.
+     * @deprecated Tiny caches have been merged into small caches.
      */
     @Deprecated
     public int tinyCacheSize() {
-        return tinyCacheSize;
+        return 0;
     }
 
     /**
@@ -621,6 +695,28 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return usedMemory(directArenas);
     }
 
+    final long releasedHeapMemory() {
+        return releasedMemory(heapArenas);
+    }
+
+    final long releasedDirectMemory() {
+        return releasedMemory(directArenas);
+    }
+
+    private static long releasedMemory(PoolArena<?>[] arenas) {
+        if (arenas == null) {
+            return -1;
+        }
+        long released = 0;
+        for (PoolArena<?> arena : arenas) {
+            released += arena.numReleasedBytes();
+            if (released < 0) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return released;
+    }
+
     private static long usedMemory(PoolArena<?>[] arenas) {
         if (arenas == null) {
             return -1;
@@ -643,19 +739,89 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
     /**
      * Trim thread local cache for the current {@link Thread}, which will give back any cached memory that was not
-     * allocated frequently since the last trim operation.
+     * allocated frequently since the last trim operation. If the current {@link Thread} uses the caches that are
+     * shared by the arenas instead, these are trimmed.
      *
      * Returns {@code true} if a cache for the current {@link Thread} exists and so was trimmed, false otherwise.
      */
     public boolean trimCurrentThreadCache() {
         PoolThreadCache cache = threadCache.getIfExists();
         if (cache != null) {
-            cache.trim();
+            if (cache.useSharedCache) {
+                trimSharedCache(cache.heapArena);
+                trimSharedCache(cache.directArena);
+            } else {
+                cache.trim();
+            }
             return true;
         }
         return false;
     }
 
+    private static void trimSharedCache(PoolArena<?> arena) {
+        if (arena != null && arena.sharedCache != null) {
+            arena.sharedCache.trim();
+        }
+    }
+
+    /**
+     * Release all chunks of all arenas that have not been used for at least the given amount of time, which will
+     * give back the memory of these chunks to the system. Memory that is still cached by a {@link PoolThreadCache}
+     * counts as used, so trimming the thread caches first (see {@link #trimCurrentThreadCache()}) can free up more
+     * chunks.
+     *
+     * Returns the number of bytes that were released.
+     */
+    public long releaseIdleChunks(long idleTime, TimeUnit unit) {
+        checkPositiveOrZero(idleTime, "idleTime");
+        long idleNanos = unit.toNanos(idleTime);
+        return releaseIdleChunks(heapArenas, idleNanos) + releaseIdleChunks(directArenas, idleNanos);
+    }
+
+    private static long releaseIdleChunks(PoolArena<?>[] arenas, long idleNanos) {
+        if (arenas == null) {
+            return 0;
+        }
+        long released = 0;
+        for (PoolArena<?> arena : arenas) {
+            released += arena.releaseIdleChunks(idleNanos);
+        }
+        return released;
+    }
+
+    /**
+     * Run by the trim task that is scheduled on every {@link EventExecutor} which uses this allocator.
+     * If nothing was allocated by the current {@link Thread} since the last run, it is idle and all of its cached
+     * memory is given back. Otherwise its cache is only trimmed if {@code trimCache} is {@code true}, as are the
+     * shared caches of its arenas. Afterwards the chunks of its arenas that were unused for at least
+     * {@code chunkIdleNanos} are released, if it is positive.
+     */
+    void trimCurrentThread(boolean trimCache, long chunkIdleNanos) {
+        PoolThreadCache cache = threadCache.getIfExists();
+        if (cache == null) {
+            return;
+        }
+        if (cache.isIdle()) {
+            // Cached memory keeps chunks in use, so give it back first to allow them to be released.
+            cache.freeCached();
+        } else if (trimCache) {
+            cache.trim();
+        }
+        if (trimCache) {
+            // Allocations out of the shared caches do not trim these, so this is done here.
+            trimSharedCache(cache.heapArena);
+            trimSharedCache(cache.directArena);
+        }
+        if (chunkIdleNanos > 0) {
+            if (cache.heapArena != null) {
+                cache.heapArena.releaseIdleChunks(chunkIdleNanos);
+            }
+            if (cache.directArena != null) {
+                cache.directArena.releaseIdleChunks(chunkIdleNanos);
+            }
+        }
+    }
+
     /**
      * Returns the status of the allocator (which contains all metrics) as string. Be aware this may be expensive
      * and so should not called too frequently.
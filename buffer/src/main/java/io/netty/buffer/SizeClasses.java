@@ -0,0 +1,375 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+/**
+ * The size classes that are used by a {@link PoolArena}, modeled after the size classes of jemalloc 4.
+ * <p>
+ * Instead of rounding every request up to the next power of two, each doubling of the size is split into
+ * {@code 1 << LOG2_SIZE_CLASS_GROUP} size classes that are {@code 1 << log2Delta} bytes apart:
+ * <pre>
+ *   size = (1 << log2Group) + nDelta * (1 << log2Delta)
+ * </pre>
+ * The first size class and the spacing of the first group are {@code 1 << LOG2_QUANTUM}. As the first group
+ * starts at {@code nDelta == 0} its encoding is a bit special, all the following groups start at
+ * {@code nDelta == 1}. This keeps the internal fragmentation of a single allocation below 25% for all sizes
+ * larger than {@code 1 << (LOG2_QUANTUM + LOG2_SIZE_CLASS_GROUP)}.
+ * <p>
+ * The generated {@code sizeClasses} table holds a
+ * {@code [index, log2Group, log2Delta, nDelta, isMultiPageSize, isSubpage, log2DeltaLookup]} tuple per size class:
+ * <ul>
+ *   <li>index: the size class index, also called {@code sizeIdx}</li>
+ *   <li>log2Group: log of the group base size (without any delta added)</li>
+ *   <li>log2Delta: log of the delta to the previous size class</li>
+ *   <li>nDelta: the delta multiplier</li>
+ *   <li>isMultiPageSize: {@code yes} if the size is a multiple of {@code pageSize}, {@code no} otherwise</li>
+ *   <li>isSubpage: {@code yes} if the size class is served out of a {@link PoolSubpage}, {@code no} otherwise</li>
+ *   <li>log2DeltaLookup: same as log2Delta if the size class is part of the lookup table, {@code no}
+ *   otherwise</li>
+ * </ul>
+ * Every size class that is smaller than {@code pageSize << LOG2_SIZE_CLASS_GROUP} is served out of a
+ * {@link PoolSubpage}, all bigger size classes are multiples of {@code pageSize} and are served as a run of pages.
+ * The size classes that are multiples of {@code pageSize} are also indexed on their own, this index is called
+ * {@code pageIdx} and is used by {@link PoolChunk} to bucket its free runs.
+ * <p>
+ * With the default {@code pageSize} of 8192 the table starts like this:
+ * <pre>
+ *   (index, log2Group, log2Delta, nDelta, isMultiPageSize, isSubpage, log2DeltaLookup)   size
+ *   (    0,         4,         4,      0,              no,       yes,               4)     16
+ *   (    1,         4,         4,      1,              no,       yes,               4)     32
+ *   (    2,         4,         4,      2,              no,       yes,               4)     48
+ *   (    3,         4,         4,      3,              no,       yes,               4)     64
+ *
+ *   (    4,         6,         4,      1,              no,       yes,               4)     80
+ *   (    5,         6,         4,      2,              no,       yes,               4)     96
+ *   (    6,         6,         4,      3,              no,       yes,               4)    112
+ *   (    7,         6,         4,      4,              no,       yes,               4)    128
+ *
+ *   (    8,         7,         5,      1,              no,       yes,               5)    160
+ *   ...
+ *   (   30,        12,        10,      3,              no,       yes,              no)   7168
+ *   (   31,        12,        10,      4,             yes,       yes,              no)   8192
+ *   ...
+ *   (   38,        14,        12,      3,              no,       yes,              no)  28672
+ *   (   39,        14,        12,      4,             yes,        no,              no)  32768
+ *   ...
+ *   (   75,        23,        21,      4,             yes,        no,              no)   16 MiB
+ * </pre>
+ */
+abstract class SizeClasses implements SizeClassesMetric {
+
+    static final int LOG2_QUANTUM = 4;
+
+    private static final int LOG2_SIZE_CLASS_GROUP = 2;
+    private static final int LOG2_MAX_LOOKUP_SIZE = 12;
+
+    private static final int INDEX_IDX = 0;
+    private static final int LOG2GROUP_IDX = 1;
+    private static final int LOG2DELTA_IDX = 2;
+    private static final int NDELTA_IDX = 3;
+    private static final int PAGESIZE_IDX = 4;
+    private static final int SUBPAGE_IDX = 5;
+    private static final int LOG2_DELTA_LOOKUP_IDX = 6;
+
+    private static final byte no = 0, yes = 1;
+
+    protected final int pageSize;
+    protected final int pageShifts;
+    protected final int chunkSize;
+    protected final int directMemoryCacheAlignment;
+
+    final int nSizes;
+    int nSubpages;
+    int nPSizes;
+    int smallMaxSizeIdx;
+
+    private int lookupMaxSize;
+
+    private final short[][] sizeClasses;
+
+    private final int[] sizeIdx2sizeTab;
+
+    private final int[] pageIdx2sizeTab;
+
+    // lookup table used for size <= lookupMaxSize
+    private final int[] size2idxTab;
+
+    protected SizeClasses(int pageSize, int pageShifts, int chunkSize, int directMemoryCacheAlignment) {
+        this.pageSize = pageSize;
+        this.pageShifts = pageShifts;
+        this.chunkSize = chunkSize;
+        this.directMemoryCacheAlignment = directMemoryCacheAlignment;
+
+        int group = log2(chunkSize) + 1 - LOG2_QUANTUM;
+
+        // generate size classes
+        // [index, log2Group, log2Delta, nDelta, isMultiPageSize, isSubpage, log2DeltaLookup]
+        sizeClasses = new short[group << LOG2_SIZE_CLASS_GROUP][];
+        nSizes = sizeClasses();
+
+        // generate lookup tables
+        sizeIdx2sizeTab = new int[nSizes];
+        pageIdx2sizeTab = new int[nPSizes];
+        idx2SizeTab(sizeIdx2sizeTab, pageIdx2sizeTab);
+        size2idxTab = new int[lookupMaxSize >> LOG2_QUANTUM];
+        size2idxTab(size2idxTab);
+    }
+
+    private int sizeClasses() {
+        int index = 0;
+        int size = 0;
+
+        int log2Group = LOG2_QUANTUM;
+        int log2Delta = LOG2_QUANTUM;
+        int nDeltaLimit = 1 << LOG2_SIZE_CLASS_GROUP;
+
+        // The first group starts at nDelta == 0, so the first size class is 1 << LOG2_QUANTUM.
+        for (int nDelta = 0; nDelta < nDeltaLimit; nDelta++) {
+            size = sizeClass(index++, log2Group, log2Delta, nDelta);
+        }
+        log2Group += LOG2_SIZE_CLASS_GROUP;
+
+        // All remaining groups start at nDelta == 1.
+        while (size < chunkSize) {
+            for (int nDelta = 1; nDelta <= nDeltaLimit && size < chunkSize; nDelta++) {
+                size = sizeClass(index++, log2Group, log2Delta, nDelta);
+            }
+            log2Group++;
+            log2Delta++;
+        }
+
+        // chunkSize must be the biggest size class.
+        assert chunkSize == size;
+
+        // return the number of size classes
+        return index;
+    }
+
+    // calculate and store a single size class
+    private int sizeClass(int index, int log2Group, int log2Delta, int nDelta) {
+        int size = (1 << log2Group) + (nDelta << log2Delta);
+
+        short isMultiPageSize = size % pageSize == 0 ? yes : no;
+        // Sizes from pageSize << LOG2_SIZE_CLASS_GROUP on are all multiples of pageSize and so can be served by a
+        // run of pages directly, everything below is packed into a run of one or more pages by a PoolSubpage.
+        short isSubpage = size < pageSize << LOG2_SIZE_CLASS_GROUP ? yes : no;
+        short log2DeltaLookup = size <= 1 << LOG2_MAX_LOOKUP_SIZE ? (short) log2Delta : no;
+
+        sizeClasses[index] = new short[] {
+                (short) index, (short) log2Group, (short) log2Delta, (short) nDelta,
+                isMultiPageSize, isSubpage, log2DeltaLookup
+        };
+
+        if (isMultiPageSize == yes) {
+            nPSizes++;
+        }
+        if (isSubpage == yes) {
+            nSubpages++;
+            smallMaxSizeIdx = index;
+        }
+        if (log2DeltaLookup != no) {
+            lookupMaxSize = size;
+        }
+        return size;
+    }
+
+    private void idx2SizeTab(int[] sizeIdx2sizeTab, int[] pageIdx2sizeTab) {
+        int pageIdx = 0;
+        for (int i = 0; i < nSizes; i++) {
+            short[] sizeClass = sizeClasses[i];
+            assert sizeClass[INDEX_IDX] == i;
+            int size = (1 << sizeClass[LOG2GROUP_IDX]) + (sizeClass[NDELTA_IDX] << sizeClass[LOG2DELTA_IDX]);
+            sizeIdx2sizeTab[i] = size;
+            if (sizeClass[PAGESIZE_IDX] == yes) {
+                pageIdx2sizeTab[pageIdx++] = size;
+            }
+        }
+    }
+
+    private void size2idxTab(int[] size2idxTab) {
+        // Every slot of the lookup table covers 1 << LOG2_QUANTUM bytes, so a size class covers
+        // 1 << (log2Delta - LOG2_QUANTUM) slots.
+        int idx = 0;
+        for (int i = 0; idx < size2idxTab.length; i++) {
+            int times = 1 << sizeClasses[i][LOG2DELTA_IDX] - LOG2_QUANTUM;
+            while (idx < size2idxTab.length && times-- > 0) {
+                size2idxTab[idx++] = i;
+            }
+        }
+    }
+
+    @Override
+    public int numSizeClasses() {
+        return nSizes;
+    }
+
+    @Override
+    public int numSubpageSizeClasses() {
+        return nSubpages;
+    }
+
+    @Override
+    public int numPageSizeClasses() {
+        return nPSizes;
+    }
+
+    @Override
+    public int sizeIdx2size(int sizeIdx) {
+        return sizeIdx2sizeTab[sizeIdx];
+    }
+
+    @Override
+    public int sizeIdx2sizeCompute(int sizeIdx) {
+        int group = sizeIdx >> LOG2_SIZE_CLASS_GROUP;
+        int mod = sizeIdx & (1 << LOG2_SIZE_CLASS_GROUP) - 1;
+
+        int groupSize = group == 0 ? 0 : 1 << LOG2_QUANTUM + LOG2_SIZE_CLASS_GROUP - 1 << group;
+
+        int shift = group == 0 ? 1 : group;
+        int lgDelta = shift + LOG2_QUANTUM - 1;
+        int modSize = mod + 1 << lgDelta;
+
+        return groupSize + modSize;
+    }
+
+    @Override
+    public int pageIdx2size(int pageIdx) {
+        return pageIdx2sizeTab[pageIdx];
+    }
+
+    @Override
+    public int pageIdx2sizeCompute(int pageIdx) {
+        int group = pageIdx >> LOG2_SIZE_CLASS_GROUP;
+        int mod = pageIdx & (1 << LOG2_SIZE_CLASS_GROUP) - 1;
+
+        int groupSize = group == 0 ? 0 : 1 << pageShifts + LOG2_SIZE_CLASS_GROUP - 1 << group;
+
+        int shift = group == 0 ? 1 : group;
+        int log2Delta = shift + pageShifts - 1;
+        int modSize = mod + 1 << log2Delta;
+
+        return groupSize + modSize;
+    }
+
+    @Override
+    public int size2SizeIdx(int size) {
+        if (size == 0) {
+            return 0;
+        }
+        if (size > chunkSize) {
+            return nSizes;
+        }
+
+        if (directMemoryCacheAlignment > 0) {
+            size = alignSize(size);
+        }
+
+        if (size <= lookupMaxSize) {
+            // size2idxTab[i] covers all sizes in ((i << LOG2_QUANTUM), (i + 1) << LOG2_QUANTUM]
+            return size2idxTab[size - 1 >> LOG2_QUANTUM];
+        }
+
+        int x = log2((size << 1) - 1);
+        int shift = x < LOG2_SIZE_CLASS_GROUP + LOG2_QUANTUM + 1
+                ? 0 : x - (LOG2_SIZE_CLASS_GROUP + LOG2_QUANTUM);
+
+        int group = shift << LOG2_SIZE_CLASS_GROUP;
+
+        int log2Delta = x < LOG2_SIZE_CLASS_GROUP + LOG2_QUANTUM + 1
+                ? LOG2_QUANTUM : x - LOG2_SIZE_CLASS_GROUP - 1;
+
+        int deltaInverseMask = -1 << log2Delta;
+        int mod = (size - 1 & deltaInverseMask) >> log2Delta & (1 << LOG2_SIZE_CLASS_GROUP) - 1;
+
+        return group + mod;
+    }
+
+    @Override
+    public int pages2pageIdx(int pages) {
+        return pages2pageIdxCompute(pages, false);
+    }
+
+    @Override
+    public int pages2pageIdxFloor(int pages) {
+        return pages2pageIdxCompute(pages, true);
+    }
+
+    private int pages2pageIdxCompute(int pages, boolean floor) {
+        int size = pages << pageShifts;
+        if (size > chunkSize) {
+            return nPSizes;
+        }
+
+        // Same as size2SizeIdx() but for the size classes that are multiples of pageSize, which start at pageSize
+        // instead of 1 << LOG2_QUANTUM.
+        int x = log2((size << 1) - 1);
+        int shift = x < LOG2_SIZE_CLASS_GROUP + pageShifts
+                ? 0 : x - (LOG2_SIZE_CLASS_GROUP + pageShifts);
+
+        int group = shift << LOG2_SIZE_CLASS_GROUP;
+
+        int log2Delta = x < LOG2_SIZE_CLASS_GROUP + pageShifts + 1
+                ? pageShifts : x - LOG2_SIZE_CLASS_GROUP - 1;
+
+        int deltaInverseMask = -1 << log2Delta;
+        int mod = (size - 1 & deltaInverseMask) >> log2Delta & (1 << LOG2_SIZE_CLASS_GROUP) - 1;
+
+        int pageIdx = group + mod;
+
+        if (floor && pageIdx2sizeTab[pageIdx] > size) {
+            pageIdx--;
+        }
+
+        return pageIdx;
+    }
+
+    // Round size up to the nearest multiple of alignment.
+    private int alignSize(int size) {
+        int delta = size & directMemoryCacheAlignment - 1;
+        return delta == 0 ? size : size + directMemoryCacheAlignment - delta;
+    }
+
+    @Override
+    public int normalizeSize(int size) {
+        if (size == 0) {
+            return sizeIdx2sizeTab[0];
+        }
+        if (directMemoryCacheAlignment > 0) {
+            size = alignSize(size);
+        }
+
+        if (size <= lookupMaxSize) {
+            int ret = sizeIdx2sizeTab[size2idxTab[size - 1 >> LOG2_QUANTUM]];
+            assert ret == normalizeSizeCompute(size);
+            return ret;
+        }
+        return normalizeSizeCompute(size);
+    }
+
+    private static int normalizeSizeCompute(int size) {
+        int x = log2((size << 1) - 1);
+        int log2Delta = x < LOG2_SIZE_CLASS_GROUP + LOG2_QUANTUM + 1
+                ? LOG2_QUANTUM : x - LOG2_SIZE_CLASS_GROUP - 1;
+        int delta = 1 << log2Delta;
+        int deltaMask = delta - 1;
+        return size + deltaMask & ~deltaMask;
+    }
+
+    // val > 0
+    static int log2(int val) {
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(val);
+    }
+}
@@ -2157,6 +2157,26 @@ public abstract class AbstractByteBufTest {
         assertEquals(0, buffer.indexOf(-1, buffer.capacity(), (byte) 1));
     }
 
+    @Test
+    public void testIndexOfEveryPosition() {
+        // Covers the 8 bytes at a time search for every alignment of the match and of the searched range.
+        int length = Math.min(buffer.capacity(), 40);
+        for (int match = 0; match < length; match ++) {
+            buffer.clear();
+            buffer.setZero(0, buffer.capacity());
+            buffer.setByte(match, '\n');
+            for (int from = 0; from < length; from ++) {
+                for (int to = from; to <= length; to ++) {
+                    int expected = match >= from && match < to ? match : -1;
+                    assertEquals(expected, buffer.indexOf(from, to, (byte) '\n'));
+                    assertEquals(expected, buffer.forEachByte(from, to - from, ByteProcessor.FIND_LF));
+                    assertEquals(expected, buffer.forEachByte(from, to - from, ByteProcessor.FIND_CRLF));
+                    assertEquals(-1, buffer.forEachByte(from, to - from, ByteProcessor.FIND_CR));
+                }
+            }
+        }
+    }
+
     @Test
     public void testIndexOfReleaseBuffer() {
         ByteBuf buffer = releasedBuffer();
@@ -36,6 +36,32 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class ByteBufUtilTest {
+    @Test
+    public void testIndexOf() {
+        ByteBuf haystack = Unpooled.copiedBuffer("abcabcabdabcabcabd", CharsetUtil.US_ASCII);
+        ByteBuf needle = Unpooled.copiedBuffer("abcabd", CharsetUtil.US_ASCII);
+        ByteBuf missing = Unpooled.copiedBuffer("abcabe", CharsetUtil.US_ASCII);
+        try {
+            assertEquals(3, ByteBufUtil.indexOf(needle, haystack));
+            assertEquals(-1, ByteBufUtil.indexOf(missing, haystack));
+            assertEquals(0, ByteBufUtil.indexOf(Unpooled.EMPTY_BUFFER, haystack));
+            assertEquals(-1, ByteBufUtil.indexOf(haystack, needle));
+
+            haystack.readerIndex(4);
+            assertEquals(12, ByteBufUtil.indexOf(needle, haystack));
+
+            // A match that ends exactly at the writerIndex.
+            haystack.readerIndex(13);
+            assertEquals(-1, ByteBufUtil.indexOf(needle, haystack));
+            haystack.readerIndex(12);
+            assertEquals(12, ByteBufUtil.indexOf(needle, haystack));
+        } finally {
+            haystack.release();
+            needle.release();
+            missing.release();
+        }
+    }
+
     @Test
     public void decodeRandomHexBytesWithEvenLength() {
         decodeRandomHexBytes(256);
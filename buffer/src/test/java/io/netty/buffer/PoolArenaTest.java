@@ -26,23 +26,97 @@ import java.nio.ByteBuffer;
 
 public class PoolArenaTest {
 
+    private static final int PAGE_SIZE = 8192;
+    private static final int PAGE_SHIFTS = 13;
+    // chunkSize = pageSize << 11
+    private static final int CHUNK_SIZE = 16777216;
+
     @Test
     public void testNormalizeCapacity() throws Exception {
-        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 0, 0, 9, 999999, 0);
-        int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025};
-        int[] expectedResult = {0, 16, 512, 1024, 1024, 2048};
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+        int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025, 5000, 8193};
+        int[] expectedResult = {16, 16, 512, 1024, 1024, 1280, 5120, 10240};
         for (int i = 0; i < reqCapacities.length; i ++) {
-            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+            Assert.assertEquals(expectedResult[i], arena.sizeIdx2size(arena.size2SizeIdx(reqCapacities[i])));
+            Assert.assertEquals(expectedResult[i], arena.normalizeSize(reqCapacities[i]));
         }
     }
 
     @Test
     public void testNormalizeAlignedCapacity() throws Exception {
-        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 0, 0, 9, 999999, 64);
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 64);
         int[] reqCapacities = {0, 15, 510, 1024, 1023, 1025};
-        int[] expectedResult = {0, 64, 512, 1024, 1024, 2048};
+        int[] expectedResult = {16, 64, 512, 1024, 1024, 1280};
         for (int i = 0; i < reqCapacities.length; i ++) {
-            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+            Assert.assertEquals(expectedResult[i], arena.sizeIdx2size(arena.size2SizeIdx(reqCapacities[i])));
+            Assert.assertEquals(expectedResult[i], arena.normalizeSize(reqCapacities[i]));
+        }
+    }
+
+    @Test
+    public void testSize2SizeIdx() {
+        SizeClasses sc = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+        for (int sz = 0; sz <= CHUNK_SIZE; sz++) {
+            int sizeIdx = sc.size2SizeIdx(sz);
+            Assert.assertTrue(sz <= sc.sizeIdx2size(sizeIdx));
+            if (sizeIdx > 0) {
+                Assert.assertTrue(sz > sc.sizeIdx2size(sizeIdx - 1));
+            }
+        }
+        Assert.assertEquals(sc.nSizes, sc.size2SizeIdx(CHUNK_SIZE + 1));
+    }
+
+    @Test
+    public void testSizeIdx2size() {
+        SizeClasses sc = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+        for (int i = 0; i < sc.nSizes; i++) {
+            Assert.assertEquals(sc.sizeIdx2sizeCompute(i), sc.sizeIdx2size(i));
+        }
+        Assert.assertEquals(CHUNK_SIZE, sc.sizeIdx2size(sc.nSizes - 1));
+    }
+
+    @Test
+    public void testPages2PageIdx() {
+        int pageShifts = PAGE_SHIFTS;
+
+        SizeClasses sc = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+
+        int maxPages = CHUNK_SIZE >> pageShifts;
+        for (int pages = 1; pages <= maxPages; pages++) {
+            int pageIdxFloor = sc.pages2pageIdxFloor(pages);
+            Assert.assertTrue(pages << pageShifts >= sc.pageIdx2size(pageIdxFloor));
+            if (pageIdxFloor < sc.nPSizes - 1) {
+                Assert.assertTrue(pages << pageShifts < sc.pageIdx2size(pageIdxFloor + 1));
+            }
+
+            int pageIdxCeiling = sc.pages2pageIdx(pages);
+            Assert.assertTrue(pages << pageShifts <= sc.pageIdx2size(pageIdxCeiling));
+            if (pageIdxCeiling > 0) {
+                Assert.assertTrue(pages << pageShifts > sc.pageIdx2size(pageIdxCeiling - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPageIdx2size() {
+        SizeClasses sc = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+        for (int i = 0; i < sc.nPSizes; i++) {
+            Assert.assertEquals(sc.pageIdx2sizeCompute(i), sc.pageIdx2size(i));
+            Assert.assertEquals(0, sc.pageIdx2size(i) % PAGE_SIZE);
+        }
+        Assert.assertEquals(PAGE_SIZE, sc.pageIdx2size(0));
+        Assert.assertEquals(CHUNK_SIZE, sc.pageIdx2size(sc.nPSizes - 1));
+    }
+
+    @Test
+    public void testSubpageSizeClasses() {
+        SizeClasses sc = new PoolArena.DirectArena(null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, 0);
+        Assert.assertEquals(sc.nSubpages - 1, sc.smallMaxSizeIdx);
+        Assert.assertTrue(sc.sizeIdx2size(sc.smallMaxSizeIdx) < PAGE_SIZE << 2);
+        Assert.assertEquals(PAGE_SIZE << 2, sc.sizeIdx2size(sc.smallMaxSizeIdx + 1));
+        // Everything that is not served out of a subpage must be a run of whole pages.
+        for (int i = sc.smallMaxSizeIdx + 1; i < sc.nSizes; i++) {
+            Assert.assertEquals(0, sc.sizeIdx2size(i) % PAGE_SIZE);
         }
     }
 
@@ -57,7 +131,8 @@ public class PoolArenaTest {
                     ? PlatformDependent.allocateDirectNoCleaner(capacity + alignment)
                     : ByteBuffer.allocateDirect(capacity + alignment);
 
-            PoolArena.DirectArena arena = new PoolArena.DirectArena(null, 0, 0, 9, 9, alignment);
+            PoolArena.DirectArena arena = new PoolArena.DirectArena(
+                    null, PAGE_SIZE, PAGE_SHIFTS, CHUNK_SIZE, alignment);
             int offset = arena.offsetCacheLine(bb);
             long address = PlatformDependent.directBufferAddress(bb);
 
@@ -74,18 +149,17 @@ public class PoolArenaTest {
                 1,      // nDirectArena
                 8192,   // pageSize
                 11,     // maxOrder
-                0,      // tinyCacheSize
                 0,      // smallCacheSize
                 0,      // normalCacheSize
                 true    // useCacheForAllThreads
                 );
 
-        // create tiny buffer
+        // create small buffer
         final ByteBuf b1 = allocator.directBuffer(24);
         // create small buffer
         final ByteBuf b2 = allocator.directBuffer(800);
         // create normal buffer
-        final ByteBuf b3 = allocator.directBuffer(8192 * 2);
+        final ByteBuf b3 = allocator.directBuffer(8192 * 4);
 
         Assert.assertNotNull(b1);
         Assert.assertNotNull(b2);
@@ -103,10 +177,8 @@ public class PoolArenaTest {
         Assert.assertEquals(3, metric.numDeallocations());
         Assert.assertEquals(3, metric.numAllocations());
 
-        Assert.assertEquals(1, metric.numTinyDeallocations());
-        Assert.assertEquals(1, metric.numTinyAllocations());
-        Assert.assertEquals(1, metric.numSmallDeallocations());
-        Assert.assertEquals(1, metric.numSmallAllocations());
+        Assert.assertEquals(2, metric.numSmallDeallocations());
+        Assert.assertEquals(2, metric.numSmallAllocations());
         Assert.assertEquals(1, metric.numNormalDeallocations());
         Assert.assertEquals(1, metric.numNormalAllocations());
     }
@@ -23,11 +23,13 @@ import io.netty.util.internal.SystemPropertyUtil;
 import org.junit.Assume;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
@@ -129,6 +131,80 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         buf.release();
     }
 
+    @Test(timeout = 3000)
+    public void testSharedCacheWithoutUseCacheForAllThreads() throws Exception {
+        assertFalse(Thread.currentThread() instanceof FastThreadLocalThread);
+
+        final PooledByteBufAllocator pool = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 256, 64, false);
+        PoolArenaMetric metric = pool.metric().directArenas().get(0);
+
+        ByteBuf buf = pool.directBuffer(1024);
+        final ByteBuffer nioBuffer = buf.internalNioBuffer(0, 1024);
+        assertTrue(buf.release());
+        // The released memory went to the shared cache of the arena and not back to the arena.
+        assertEquals(1, metric.numSmallAllocations());
+        assertEquals(0, metric.numSmallDeallocations());
+
+        // Another thread without a thread local cache can reuse it.
+        final AtomicReference<ByteBuf> reused = new AtomicReference<ByteBuf>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                reused.set(pool.directBuffer(1024));
+            }
+        });
+        thread.start();
+        thread.join();
+        buf = reused.get();
+        assertEquals(1, metric.numSmallAllocations());
+        if (PlatformDependent.hasUnsafe()) {
+            assertEquals(PlatformDependent.directBufferAddress(nioBuffer), buf.memoryAddress());
+        }
+        assertTrue(buf.release());
+        assertEquals(0, metric.numSmallDeallocations());
+    }
+
+    @Test
+    public void testSharedCacheWithUseCacheForAllThreads() {
+        assertFalse(Thread.currentThread() instanceof FastThreadLocalThread);
+
+        PooledByteBufAllocator pool = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 256, 64, true);
+        @SuppressWarnings("unchecked")
+        PoolArena<ByteBuffer> arena = (PoolArena<ByteBuffer>) pool.metric().directArenas().get(0);
+
+        // A thread that is not run by an EventExecutor uses the shared cache of its arena, which is not trimmed by
+        // allocations.
+        for (int i = 0; i < 2 * 8192; i++) {
+            assertTrue(pool.directBuffer(1024).release());
+        }
+        assertEquals(1, arena.numSmallAllocations());
+        assertEquals(0, arena.numSmallDeallocations());
+
+        // The shared cache was used since the last trim, so nothing is given back.
+        assertTrue(pool.trimCurrentThreadCache());
+        assertEquals(0, arena.numSmallDeallocations());
+        // Now it was not used since the last trim, so the cached memory is given back to the arena.
+        assertTrue(pool.trimCurrentThreadCache());
+        assertEquals(1, arena.numSmallDeallocations());
+    }
+
+    @Test
+    public void testSharedCacheFree() {
+        assertFalse(Thread.currentThread() instanceof FastThreadLocalThread);
+
+        PooledByteBufAllocator pool = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 256, 64, false);
+        @SuppressWarnings("unchecked")
+        PoolArena<ByteBuffer> arena = (PoolArena<ByteBuffer>) pool.metric().directArenas().get(0);
+
+        assertTrue(pool.directBuffer(1024).release());
+        assertEquals(0, arena.numSmallDeallocations());
+
+        // Freeing the shared cache, like the finalizer of the arena does, gives the memory back to the arena.
+        assertEquals(1, arena.sharedCache.free(false));
+        assertEquals(1, arena.numSmallDeallocations());
+        assertEquals(0, arena.sharedCache.free(false));
+    }
+
     @Test
     public void testArenaMetricsNoCache() {
         testArenaMetrics0(new PooledByteBufAllocator(true, 2, 2, 8192, 11, 0, 0, 0), 100, 0, 100, 100);
@@ -218,11 +294,245 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         ByteBuf buffer = allocator.heapBuffer(1);
         try {
             PoolArenaMetric metric = allocator.metric().heapArenas().get(0);
-            PoolSubpageMetric subpageMetric = metric.tinySubpages().get(0);
+            // Tiny sub-pages have been merged into small sub-pages.
+            assertTrue(metric.tinySubpages().isEmpty());
+            PoolSubpageMetric subpageMetric = metric.smallSubpages().get(0);
             assertEquals(1, subpageMetric.maxNumElements() - subpageMetric.numAvailable());
+            assertEquals(16, subpageMetric.elementSize());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testSizeClassSubpageMetric() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, false);
+        // 3000 bytes are served out of the 3072 bytes size class instead of being rounded up to 4096 bytes.
+        ByteBuf buffer = allocator.heapBuffer(3000);
+        try {
+            assertEquals(3072, ((PooledByteBuf<?>) buffer).maxLength);
+            PoolArenaMetric metric = allocator.metric().heapArenas().get(0);
+            assertEquals(3072, metric.normalizeSize(3000));
+            PoolSubpageMetric subpageMetric = metric.smallSubpages().get(0);
+            assertEquals(3072, subpageMetric.elementSize());
+            assertEquals(1, metric.numSmallAllocations());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testNormalRunIsNotRoundedToPowerOfTwo() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, false);
+        // 5 pages are enough for 40000 bytes, there is no need to use a run of 8 pages.
+        ByteBuf buffer = allocator.heapBuffer(40000);
+        try {
+            assertEquals(8192 * 5, ((PooledByteBuf<?>) buffer).maxLength);
+            PoolChunkMetric chunk = allocator.metric().heapArenas().get(0).chunkLists().get(0).iterator().next();
+            assertEquals(chunk.chunkSize() - 8192 * 5, chunk.freeBytes());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testFreedRunsAreCollapsed() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, false);
+        int chunkSize = allocator.metric().chunkSize();
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        // Fill the chunk with runs of different sizes.
+        int[] sizes = { 8192 * 5, 8192 * 6, 8192 * 7, 8192 * 10 };
+        int allocated = 0;
+        for (int i = 0; allocated + sizes[i % sizes.length] <= chunkSize; i++) {
+            int size = sizes[i % sizes.length];
+            buffers.add(allocator.heapBuffer(size));
+            allocated += size;
+        }
+        PoolArenaMetric metric = allocator.metric().heapArenas().get(0);
+
+        // Release every second buffer first so the freed runs are not adjacent to each other.
+        for (int i = 0; i < buffers.size(); i += 2) {
+            assertTrue(buffers.get(i).release());
+        }
+        for (int i = 1; i < buffers.size(); i += 2) {
+            assertTrue(buffers.get(i).release());
+        }
+
+        // All runs must have been collapsed back into a single run that spans the whole chunk, so no new chunk is
+        // needed to serve an allocation of chunkSize.
+        ByteBuf buffer = allocator.heapBuffer(chunkSize);
+        try {
+            assertEquals(1, numChunks(metric));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testReleaseIdleChunks() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, false);
+        PoolArena<?> metric = (PoolArena<?>) allocator.metric().heapArenas().get(0);
+        int chunkSize = allocator.metric().chunkSize();
+
+        // The chunk stays in qInit once the buffer was released and so is not destroyed.
+        assertTrue(allocator.heapBuffer(8192 * 8).release());
+        assertEquals(1, numChunks(metric));
+        assertEquals(0, metric.numReleasedChunks());
+
+        // The chunk was idle for less then one hour, so nothing is released.
+        assertEquals(0, allocator.releaseIdleChunks(1, TimeUnit.HOURS));
+        assertEquals(1, numChunks(metric));
+
+        ByteBuf buffer = allocator.heapBuffer(8192 * 8);
+        try {
+            // The chunk is in use and so must not be released.
+            assertEquals(0, allocator.releaseIdleChunks(0, TimeUnit.MILLISECONDS));
+            assertEquals(1, numChunks(metric));
         } finally {
             buffer.release();
         }
+
+        assertEquals(chunkSize, allocator.releaseIdleChunks(0, TimeUnit.MILLISECONDS));
+        assertEquals(0, numChunks(metric));
+        assertEquals(1, metric.numReleasedChunks());
+        assertEquals(chunkSize, metric.numReleasedBytes());
+        assertEquals(chunkSize, allocator.metric().releasedHeapMemory());
+        assertEquals(0, allocator.metric().releasedDirectMemory());
+
+        // The arena allocates a new chunk on demand.
+        assertTrue(allocator.heapBuffer(8192 * 8).release());
+        assertEquals(1, numChunks(metric));
+    }
+
+    @Test(timeout = 3000)
+    public void testTrimCurrentThreadFreesCacheOfIdleThread() throws Throwable {
+        // Only FastThreadLocalThreads or threads run by an EventExecutor have a thread local cache on their own.
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        Thread thread = new FastThreadLocalThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    testTrimCurrentThreadFreesCacheOfIdleThread0();
+                } catch (Throwable cause) {
+                    error.set(cause);
+                } finally {
+                    FastThreadLocal.removeAll();
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    private static void testTrimCurrentThreadFreesCacheOfIdleThread0() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 256, 64, true);
+        PoolArena<?> metric = (PoolArena<?>) allocator.metric().heapArenas().get(0);
+        int chunkSize = allocator.metric().chunkSize();
+
+        // The released buffer is cached by the thread cache, which keeps the chunk in use.
+        assertTrue(allocator.heapBuffer(8192 * 4).release());
+        assertEquals(1, numChunks(metric));
+
+        // The thread allocated since the last run, so the cache is not touched as trimCache is false.
+        allocator.trimCurrentThread(false, 0);
+        assertEquals(0, allocator.releaseIdleChunks(0, TimeUnit.MILLISECONDS));
+        assertEquals(1, numChunks(metric));
+
+        // Nothing was allocated since the last run, so the thread is idle and gives back all cached memory.
+        allocator.trimCurrentThread(false, 0);
+        assertEquals(chunkSize, allocator.releaseIdleChunks(0, TimeUnit.MILLISECONDS));
+        assertEquals(0, numChunks(metric));
+
+        // The cache can still be used afterwards.
+        assertTrue(allocator.heapBuffer(8192 * 4).release());
+        allocator.trimCurrentThread(false, 0);
+        assertEquals(0, allocator.releaseIdleChunks(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testReleasedChunkMetric() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, false);
+        PoolArena<?> metric = (PoolArena<?>) allocator.metric().directArenas().get(0);
+        int chunkSize = allocator.metric().chunkSize();
+
+        // A buffer that uses the whole chunk moves it out of qInit, so it is destroyed as soon as it is empty again.
+        assertTrue(allocator.directBuffer(chunkSize).release());
+        assertEquals(0, numChunks(metric));
+        assertEquals(1, metric.numReleasedChunks());
+        assertEquals(chunkSize, metric.numReleasedBytes());
+        assertEquals(chunkSize, allocator.metric().releasedDirectMemory());
+    }
+
+    @Test
+    public void testDirectChunkAllocator() {
+        final int chunkSize = 8192 << 2;
+        final ByteBuffer region = ByteBuffer.allocateDirect(chunkSize * 2);
+        final List<ByteBuffer> free = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < 2; i++) {
+            region.clear().position(i * chunkSize).limit((i + 1) * chunkSize);
+            free.add(region.slice());
+        }
+        final List<ByteBuffer> slices = new ArrayList<ByteBuffer>(free);
+        DirectChunkAllocator chunkAllocator = new DirectChunkAllocator() {
+            @Override
+            public ByteBuffer allocate(int capacity) {
+                assertEquals(chunkSize, capacity);
+                return free.isEmpty() ? null : free.remove(0);
+            }
+
+            @Override
+            public boolean release(ByteBuffer memory) {
+                if (containsSame(slices, memory)) {
+                    free.add(memory);
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 2, 0, 0, false, 0, chunkAllocator);
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        for (int i = 0; i < 3; i++) {
+            buffers.add(allocator.directBuffer(chunkSize));
+        }
+        // The first two chunks are carved out of the region, the third falls back to a chunk of its own.
+        assertTrue(free.isEmpty());
+        assertTrue(containsSame(slices, ((PooledByteBuf<?>) buffers.get(0)).memory));
+        assertTrue(containsSame(slices, ((PooledByteBuf<?>) buffers.get(1)).memory));
+        assertFalse(containsSame(slices, ((PooledByteBuf<?>) buffers.get(2)).memory));
+        assertEquals(3 * chunkSize, allocator.metric().usedDirectMemory());
+
+        for (ByteBuf buffer : buffers) {
+            assertTrue(buffer.release());
+        }
+        // Chunks that were carved out of the region must be given back to it.
+        assertEquals(2, free.size());
+        assertEquals(0, allocator.metric().usedDirectMemory());
+        assertEquals(3 * chunkSize, allocator.metric().releasedDirectMemory());
+    }
+
+    // ByteBuffer.equals(...) compares the content, so List.contains(...) can not be used.
+    private static boolean containsSame(List<ByteBuffer> buffers, Object memory) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer == memory) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int numChunks(PoolArenaMetric metric) {
+        int chunks = 0;
+        for (PoolChunkListMetric chunkList : metric.chunkLists()) {
+            for (PoolChunkMetric ignored : chunkList) {
+                chunks++;
+            }
+        }
+        return chunks;
     }
 
     @Test
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AsciiString;
+
+/**
+ * Maps well-known header names, both in lower case and in their usual capitalized form (e.g.
+ * {@code Content-Length}), to shared {@link AsciiString} instances. This allows {@link HttpObjectDecoder} to decode
+ * them straight from a {@link ByteBuf} without allocating.
+ * <p>
+ * The lookup is case-sensitive, so a name is always returned exactly as it was received.
+ */
+final class HttpHeaderNameCache {
+
+    // 必须是2的幂, 且至少是名称数量的两倍
+    private static final int SIZE = 256;
+    private static final int MASK = SIZE - 1;
+    private static final AsciiString[] NAMES = new AsciiString[SIZE];
+
+    static {
+        AsciiString[] names = {
+                HttpHeaderNames.ACCEPT,
+                HttpHeaderNames.ACCEPT_CHARSET,
+                HttpHeaderNames.ACCEPT_ENCODING,
+                HttpHeaderNames.ACCEPT_LANGUAGE,
+                HttpHeaderNames.ACCEPT_RANGES,
+                HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN,
+                HttpHeaderNames.ACCESS_CONTROL_REQUEST_HEADERS,
+                HttpHeaderNames.ACCESS_CONTROL_REQUEST_METHOD,
+                HttpHeaderNames.AGE,
+                HttpHeaderNames.ALLOW,
+                HttpHeaderNames.AUTHORIZATION,
+                HttpHeaderNames.CACHE_CONTROL,
+                HttpHeaderNames.CONNECTION,
+                HttpHeaderNames.CONTENT_DISPOSITION,
+                HttpHeaderNames.CONTENT_ENCODING,
+                HttpHeaderNames.CONTENT_LANGUAGE,
+                HttpHeaderNames.CONTENT_LENGTH,
+                HttpHeaderNames.CONTENT_LOCATION,
+                HttpHeaderNames.CONTENT_RANGE,
+                HttpHeaderNames.CONTENT_TYPE,
+                HttpHeaderNames.COOKIE,
+                HttpHeaderNames.DATE,
+                HttpHeaderNames.DNT,
+                HttpHeaderNames.ETAG,
+                HttpHeaderNames.EXPECT,
+                HttpHeaderNames.EXPIRES,
+                HttpHeaderNames.HOST,
+                HttpHeaderNames.IF_MATCH,
+                HttpHeaderNames.IF_MODIFIED_SINCE,
+                HttpHeaderNames.IF_NONE_MATCH,
+                HttpHeaderNames.IF_RANGE,
+                HttpHeaderNames.IF_UNMODIFIED_SINCE,
+                HttpHeaderNames.KEEP_ALIVE,
+                HttpHeaderNames.LAST_MODIFIED,
+                HttpHeaderNames.LOCATION,
+                HttpHeaderNames.ORIGIN,
+                HttpHeaderNames.PRAGMA,
+                HttpHeaderNames.PROXY_AUTHORIZATION,
+                HttpHeaderNames.PROXY_CONNECTION,
+                HttpHeaderNames.RANGE,
+                HttpHeaderNames.REFERER,
+                HttpHeaderNames.SEC_WEBSOCKET_ACCEPT,
+                HttpHeaderNames.SEC_WEBSOCKET_EXTENSIONS,
+                HttpHeaderNames.SEC_WEBSOCKET_KEY,
+                HttpHeaderNames.SEC_WEBSOCKET_PROTOCOL,
+                HttpHeaderNames.SEC_WEBSOCKET_VERSION,
+                HttpHeaderNames.SERVER,
+                HttpHeaderNames.SET_COOKIE,
+                HttpHeaderNames.TE,
+                HttpHeaderNames.TRAILER,
+                HttpHeaderNames.TRANSFER_ENCODING,
+                HttpHeaderNames.UPGRADE,
+                HttpHeaderNames.UPGRADE_INSECURE_REQUESTS,
+                HttpHeaderNames.USER_AGENT,
+                HttpHeaderNames.VARY,
+                HttpHeaderNames.VIA,
+                HttpHeaderNames.WWW_AUTHENTICATE,
+                HttpHeaderNames.X_REQUESTED_WITH,
+        };
+        for (AsciiString name : names) {
+            add(name);
+            add(capitalize(name));
+        }
+    }
+
+    private HttpHeaderNameCache() { }
+
+    /**
+     * Returns the shared {@link AsciiString} whose bytes are equal to the given region of the {@link ByteBuf}, or
+     * {@code null} if it is not a well-known header name.
+     */
+    static AsciiString get(ByteBuf buf, int index, int length) {
+        int hash = 0;
+        for (int i = index; i < index + length; i ++) {
+            hash = hash * 31 + buf.getByte(i);
+        }
+        for (int i = hash & MASK;; i = (i + 1) & MASK) {
+            AsciiString name = NAMES[i];
+            if (name == null) {
+                return null;
+            }
+            if (name.length() == length && contentEquals(name, buf, index)) {
+                return name;
+            }
+        }
+    }
+
+    private static boolean contentEquals(AsciiString name, ByteBuf buf, int index) {
+        byte[] array = name.array();
+        for (int i = name.arrayOffset(), end = i + name.length(); i < end; i ++, index ++) {
+            if (array[i] != buf.getByte(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void add(AsciiString name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i ++) {
+            hash = hash * 31 + name.byteAt(i);
+        }
+        int i = hash & MASK;
+        while (NAMES[i] != null) {
+            if (NAMES[i].equals(name)) {
+                return;
+            }
+            i = (i + 1) & MASK;
+        }
+        NAMES[i] = name;
+    }
+
+    /**
+     * Upper-cases the first letter and every letter following a {@code '-'}, e.g. {@code content-length} becomes
+     * {@code Content-Length}.
+     */
+    private static AsciiString capitalize(AsciiString name) {
+        byte[] bytes = name.toByteArray();
+        boolean upper = true;
+        for (int i = 0; i < bytes.length; i ++) {
+            if (upper && bytes[i] >= 'a' && bytes[i] <= 'z') {
+                bytes[i] -= 'a' - 'A';
+            }
+            upper = bytes[i] == '-';
+        }
+        return new AsciiString(bytes, false);
+    }
+}
@@ -25,7 +25,9 @@ import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.PrematureChannelClosureException;
 import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AsciiString;
 import io.netty.util.ByteProcessor;
+import io.netty.util.CharsetUtil;
 import io.netty.util.internal.AppendableCharSequence;
 
 import java.util.List;
@@ -60,6 +62,16 @@ import java.util.List;
  * </tr>
  * </table>
  *
+ * <h3>Header decoding</h3>
+ *
+ * By default every header line is copied into a character buffer and its name and value are split into new
+ * {@link String}s. If {@code asciiStringHeaders} is enabled, the header lines are located and split directly in the
+ * inbound {@link ByteBuf}: well-known names are replaced by shared {@link AsciiString} instances (see
+ * {@link HttpHeaderNames}) and every other name and value is a single bulk copy wrapped in an {@link AsciiString}.
+ * This mode creates considerably less garbage. {@link HttpHeaders#get(CharSequence)} and friends still return
+ * {@link String}s, converted on access, but {@link HttpHeaders#iteratorCharSequence()} exposes the
+ * {@link AsciiString}s themselves, so code which casts them to {@link String} must not use this mode.
+ *
  * <h3>Chunked Content</h3>
  *
  * If the content of an HTTP message is greater than {@code maxChunkSize} or
@@ -107,6 +119,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     private final int maxChunkSize;
     private final boolean chunkedSupported;
     protected final boolean validateHeaders;
+    private final boolean asciiStringHeaders;
     private final HeaderParser headerParser;
     private final LineParser lineParser;
 
@@ -170,6 +183,19 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
     protected HttpObjectDecoder(
             int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
             boolean chunkedSupported, boolean validateHeaders, int initialBufferSize) {
+        this(maxInitialLineLength, maxHeaderSize, maxChunkSize, chunkedSupported, validateHeaders, initialBufferSize,
+             false);
+    }
+
+    /**
+     * Creates a new instance with the specified parameters.
+     *
+     * @param asciiStringHeaders {@code true} to decode header names and values into {@link AsciiString}s directly
+     *                           from the inbound {@link ByteBuf}, see the class documentation.
+     */
+    protected HttpObjectDecoder(
+            int maxInitialLineLength, int maxHeaderSize, int maxChunkSize,
+            boolean chunkedSupported, boolean validateHeaders, int initialBufferSize, boolean asciiStringHeaders) {
         checkPositive(maxInitialLineLength, "maxInitialLineLength");
         checkPositive(maxHeaderSize, "maxHeaderSize");
         checkPositive(maxChunkSize, "maxChunkSize");
@@ -180,6 +206,7 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         this.maxChunkSize = maxChunkSize;
         this.chunkedSupported = chunkedSupported;
         this.validateHeaders = validateHeaders;
+        this.asciiStringHeaders = asciiStringHeaders;
     }
 
     @Override
@@ -549,6 +576,13 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         final HttpMessage message = this.message;
         final HttpHeaders headers = message.headers();
 
+        if (asciiStringHeaders) {
+            if (!readHeaderLines(buffer, headers)) {
+                return null;
+            }
+            return headersComplete(message);
+        }
+
         AppendableCharSequence line = headerParser.parse(buffer);
         if (line == null) {
             return null;
@@ -585,6 +619,55 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         name = null;
         value = null;
 
+        return headersComplete(message);
+    }
+
+    /**
+     * Reads header lines directly from the {@link ByteBuf} until the empty line that terminates the headers.
+     * Returns {@code false} if more data is needed.
+     */
+    private boolean readHeaderLines(ByteBuf buffer, HttpHeaders headers) {
+        for (;;) {
+            int lf = headerParser.findLineEnd(buffer);
+            if (lf == -1) {
+                return false;
+            }
+            final int start = buffer.readerIndex();
+            int end = lf;
+            if (end > start && buffer.getByte(end - 1) == HttpConstants.CR) {
+                end --;
+            }
+            buffer.readerIndex(lf + 1);
+
+            if (start == end) {
+                // Add the last header.
+                if (name != null) {
+                    headers.add(name, value);
+                }
+                // reset name and value fields
+                name = null;
+                value = null;
+                return true;
+            }
+
+            byte firstByte = buffer.getByte(start);
+            if (name != null && (firstByte == ' ' || firstByte == '\t')) {
+                //please do not make one line from below code
+                //as it breaks +XX:OptimizeStringConcat optimization
+                String trimmedLine = buffer.toString(start, end - start, CharsetUtil.ISO_8859_1).trim();
+                String valueStr = String.valueOf(value);
+                value = valueStr + ' ' + trimmedLine;
+            } else {
+                if (name != null) {
+                    headers.add(name, value);
+                }
+                splitHeader(buffer, start, end);
+            }
+        }
+    }
+
+    private State headersComplete(HttpMessage message) {
+        final HttpHeaders headers = message.headers();
         List<String> values = headers.getAll(HttpHeaderNames.CONTENT_LENGTH);
         int contentLengthValuesCount = values.size();
 
@@ -799,6 +882,78 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         }
     }
 
+    /**
+     * The {@link ByteBuf} flavour of {@link #splitHeader(AppendableCharSequence)} which splits the header line in
+     * {@code [start, end)} without copying it first.
+     */
+    private void splitHeader(ByteBuf buffer, int start, int end) {
+        int nameStart;
+        int nameEnd;
+        int colonEnd;
+        int valueStart;
+        int valueEnd;
+
+        nameStart = findNonWhitespace(buffer, start, end, false);
+        for (nameEnd = nameStart; nameEnd < end; nameEnd ++) {
+            char ch = (char) (buffer.getByte(nameEnd) & 0xFF);
+            // See splitHeader(AppendableCharSequence) and https://tools.ietf.org/html/rfc7230#section-3.2.4
+            if (ch == ':' || (!isDecodingRequest() && isOWS(ch))) {
+                break;
+            }
+        }
+
+        if (nameEnd == end) {
+            // There was no colon present at all.
+            throw new IllegalArgumentException("No colon found");
+        }
+
+        for (colonEnd = nameEnd; colonEnd < end; colonEnd ++) {
+            if (buffer.getByte(colonEnd) == ':') {
+                colonEnd ++;
+                break;
+            }
+        }
+
+        AsciiString knownName = HttpHeaderNameCache.get(buffer, nameStart, nameEnd - nameStart);
+        name = knownName != null ? knownName : newAsciiString(buffer, nameStart, nameEnd);
+        valueStart = findNonWhitespace(buffer, colonEnd, end, true);
+        if (valueStart == end) {
+            value = EMPTY_VALUE;
+        } else {
+            valueEnd = findEndOfString(buffer, start, end);
+            value = newAsciiString(buffer, valueStart, valueEnd);
+        }
+    }
+
+    private static AsciiString newAsciiString(ByteBuf buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.getBytes(start, bytes);
+        return new AsciiString(bytes, false);
+    }
+
+    private static int findNonWhitespace(ByteBuf buffer, int offset, int end, boolean validateOWS) {
+        for (int result = offset; result < end; ++result) {
+            char c = (char) (buffer.getByte(result) & 0xFF);
+            if (!Character.isWhitespace(c)) {
+                return result;
+            } else if (validateOWS && !isOWS(c)) {
+                // Only OWS is supported for whitespace
+                throw new IllegalArgumentException("Invalid separator, only a single space or horizontal tab allowed," +
+                        " but received a '" + c + "'");
+            }
+        }
+        return end;
+    }
+
+    private static int findEndOfString(ByteBuf buffer, int start, int end) {
+        for (int result = end - 1; result > start; --result) {
+            if (!Character.isWhitespace((char) (buffer.getByte(result) & 0xFF))) {
+                return result + 1;
+            }
+        }
+        return start;
+    }
+
     private static int findNonSPLenient(AppendableCharSequence sb, int offset) {
         for (int result = offset; result < sb.length(); ++result) {
             char c = sb.charAtUnsafe(result);
@@ -882,6 +1037,27 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
             size = 0;
         }
 
+        /**
+         * Finds the end of the next line without copying it, accounting its length like {@link #parse(ByteBuf)}.
+         * Returns the index of the {@code LF} or {@code -1} if the line is not complete yet.
+         */
+        int findLineEnd(ByteBuf buffer) {
+            final int readerIndex = buffer.readerIndex();
+            final int lf = buffer.indexOf(readerIndex, buffer.writerIndex(), HttpConstants.LF);
+            final int length = (lf == -1 ? buffer.writerIndex() : lf) - readerIndex;
+            if (size + length > maxLength) {
+                throw newException(maxLength);
+            }
+            if (lf != -1) {
+                size += length;
+                // The CR of a CRLF pair is not accounted.
+                if (length > 0 && buffer.getByte(lf - 1) == HttpConstants.CR) {
+                    -- size;
+                }
+            }
+            return lf;
+        }
+
         @Override
         public boolean process(byte value) throws Exception {
             char nextByte = (char) (value & 0xFF);
@@ -22,6 +22,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.FileRegion;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import io.netty.util.CharsetUtil;
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.StringUtil;
 
 import java.util.Iterator;
@@ -78,6 +79,24 @@ public abstract class HttpObjectEncoder<H extends HttpMessage> extends MessageTo
      */
     private float trailersEncodedSizeAccumulator = 256;
 
+    private final PreEncodedHttpHeaders preEncodedHeaders;
+
+    /**
+     * Creates a new instance which only writes the headers of the encoded messages.
+     */
+    public HttpObjectEncoder() {
+        this(PreEncodedHttpHeaders.EMPTY);
+    }
+
+    /**
+     * Creates a new instance which also writes the given {@link PreEncodedHttpHeaders} into each
+     * {@link HttpMessage}, requests included, except for the ones which are contained in its
+     * {@link HttpMessage#headers()}.
+     */
+    public HttpObjectEncoder(PreEncodedHttpHeaders preEncodedHeaders) {
+        this.preEncodedHeaders = ObjectUtil.checkNotNull(preEncodedHeaders, "preEncodedHeaders");
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, Object msg, List<Object> out) throws Exception {
         ByteBuf buf = null;
@@ -99,6 +118,9 @@ public abstract class HttpObjectEncoder<H extends HttpMessage> extends MessageTo
             sanitizeHeadersBeforeEncode(m, state == ST_CONTENT_ALWAYS_EMPTY);
 
             encodeHeaders(m.headers(), buf);
+            if (preEncodedHeaders != PreEncodedHttpHeaders.EMPTY) {
+                preEncodedHeaders.encode(m.headers(), buf);
+            }
             ByteBufUtil.writeShortBE(buf, CRLF_SHORT);
 
             headersEncodedSizeAccumulator = HEADERS_WEIGHT_NEW * padSizeForAccumulation(buf.readableBytes()) +
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.StringUtil;
+
+/**
+ * Associates an outbound {@link HttpObject} with the sequence number of the {@link HttpRequest} it answers, so that
+ * an {@link HttpServerPipeliningHandler} can write it in request order, even if the responses of pipelined requests
+ * are produced out of order.
+ * <p>
+ * The reference count is the one of {@link #message()}, so releasing an instance which could not be written releases
+ * the wrapped message.
+ */
+public final class HttpPipelinedResponse implements ReferenceCounted {
+
+    private final int sequence;
+    private final HttpObject message;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param sequence the {@link HttpServerPipeliningHandler#REQUEST_SEQUENCE} of the answered {@link HttpRequest}
+     * @param message the {@link HttpResponse}, {@link HttpContent} or {@link LastHttpContent} to write
+     */
+    public HttpPipelinedResponse(int sequence, HttpObject message) {
+        this.sequence = sequence;
+        this.message = ObjectUtil.checkNotNull(message, "message");
+    }
+
+    /**
+     * Returns the sequence number of the {@link HttpRequest} which is answered by {@link #message()}.
+     */
+    public int sequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the {@link HttpObject} to write.
+     */
+    public HttpObject message() {
+        return message;
+    }
+
+    @Override
+    public int refCnt() {
+        if (message instanceof ReferenceCounted) {
+            return ((ReferenceCounted) message).refCnt();
+        } else {
+            return 1;
+        }
+    }
+
+    @Override
+    public HttpPipelinedResponse retain() {
+        ReferenceCountUtil.retain(message);
+        return this;
+    }
+
+    @Override
+    public HttpPipelinedResponse retain(int increment) {
+        ReferenceCountUtil.retain(message, increment);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return ReferenceCountUtil.release(message);
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return ReferenceCountUtil.release(message, decrement);
+    }
+
+    @Override
+    public HttpPipelinedResponse touch() {
+        ReferenceCountUtil.touch(message);
+        return this;
+    }
+
+    @Override
+    public HttpPipelinedResponse touch(Object hint) {
+        ReferenceCountUtil.touch(message, hint);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) + "(sequence: " + sequence +
+                ", message: " + message + ')';
+    }
+}
@@ -26,6 +26,20 @@ import static io.netty.handler.codec.http.HttpConstants.*;
  */
 public class HttpResponseEncoder extends HttpObjectEncoder<HttpResponse> {
 
+    /**
+     * Creates a new instance.
+     */
+    public HttpResponseEncoder() {
+    }
+
+    /**
+     * Creates a new instance which also writes the given {@link PreEncodedHttpHeaders} into each response, except
+     * for the headers which are already set on the response.
+     */
+    public HttpResponseEncoder(PreEncodedHttpHeaders preEncodedHeaders) {
+        super(preEncodedHeaders);
+    }
+
     @Override
     public boolean acceptOutboundMessage(Object msg) throws Exception {
         return super.acceptOutboundMessage(msg) && !(msg instanceof HttpRequest);
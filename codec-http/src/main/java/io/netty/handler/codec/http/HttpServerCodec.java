@@ -71,6 +71,18 @@ public final class HttpServerCodec extends CombinedChannelDuplexHandler<HttpRequ
           new HttpServerResponseEncoder());
     }
 
+    /**
+     * Creates a new instance with the specified decoder options whose encoder also writes the given
+     * {@link PreEncodedHttpHeaders} into each response.
+     */
+    public HttpServerCodec(int maxInitialLineLength, int maxHeaderSize, int maxChunkSize, boolean validateHeaders,
+                           int initialBufferSize, PreEncodedHttpHeaders preEncodedHeaders) {
+        init(
+          new HttpServerRequestDecoder(maxInitialLineLength, maxHeaderSize, maxChunkSize,
+                  validateHeaders, initialBufferSize),
+          new HttpServerResponseEncoder(preEncodedHeaders));
+    }
+
     /**
      * Upgrades to another protocol from HTTP. Removes the {@link HttpRequestDecoder} and
      * {@link HttpResponseEncoder} from the pipeline.
@@ -115,6 +127,13 @@ public final class HttpServerCodec extends CombinedChannelDuplexHandler<HttpRequ
 
         private HttpMethod method;
 
+        HttpServerResponseEncoder() {
+        }
+
+        HttpServerResponseEncoder(PreEncodedHttpHeaders preEncodedHeaders) {
+            super(preEncodedHeaders);
+        }
+
         @Override
         protected void sanitizeHeadersBeforeEncode(HttpResponse msg, boolean isAlwaysEmpty) {
             if (!isAlwaysEmpty && HttpMethod.CONNECT.equals(method)
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.ObjectUtil;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps the responses to pipelined HTTP/1.1 requests in request order and consolidates their flushes.
+ * <p>
+ * Each received {@link HttpRequest} gets a slot in a queue of in-flight responses and a sequence number, which is
+ * stored in the {@link #REQUEST_SEQUENCE} attribute of the {@link Channel} before the request is passed on.
+ * Outbound {@link HttpObject}s are added to the slot of the oldest in-flight request, unless they are wrapped in a
+ * {@link HttpPipelinedResponse} which names the sequence number of the request they answer. Only the slot at the head
+ * of the queue is written through, the others are buffered until all responses before them are complete, that is
+ * until their {@link LastHttpContent} was written. This allows the responses to be produced out of order, for
+ * example on other executors.
+ * <p>
+ * While a read is in progress, flushes are deferred until {@link #channelReadComplete(ChannelHandlerContext)}, so
+ * that the responses to all the requests of one read are written with a single gathering write, unless
+ * {@code explicitFlushAfterResponses} responses were completed before.
+ * <p>
+ * {@link HttpServerPipeliningHandler} should be added right after the {@link HttpServerCodec}, so that the responses
+ * written by an {@link HttpObjectAggregator} are kept in order as well. <blockquote>
+ * <pre>
+ *  {@link ChannelPipeline} p = ...;
+ *  ...
+ *  p.addLast("serverCodec", new {@link HttpServerCodec}());
+ *  p.addLast("pipelining", <b>new {@link HttpServerPipeliningHandler}()</b>);
+ *  p.addLast("aggregator", new {@link HttpObjectAggregator}(1048576));
+ *  ...
+ *  p.addLast("handler", new HttpRequestHandler());
+ *  </pre>
+ * </blockquote>
+ * The sequence number must be read while the request is processed in the event loop, as it is replaced once the
+ * next request is received. An {@link HttpObjectAggregator} passes on the aggregated request before the next one is
+ * received, so this also holds for a {@link FullHttpRequest}: <blockquote>
+ * <pre>
+ *  public void channelRead(final {@link ChannelHandlerContext} ctx, Object msg) {
+ *      final int sequence = ctx.channel().attr({@link #REQUEST_SEQUENCE}).get();
+ *      executor.execute(new Runnable() {
+ *          public void run() {
+ *              {@link FullHttpResponse} response = ...;
+ *              ctx.writeAndFlush(new {@link HttpPipelinedResponse}(sequence, response));
+ *          }
+ *      });
+ *  }
+ *  </pre>
+ * </blockquote>
+ */
+public class HttpServerPipeliningHandler extends ChannelDuplexHandler {
+
+    /**
+     * The default number of responses after which a flush is forwarded while a read is in progress.
+     */
+    public static final int DEFAULT_EXPLICIT_FLUSH_AFTER_RESPONSES = 256;
+
+    /**
+     * The sequence number of the last {@link HttpRequest} that was received on the {@link Channel}.
+     */
+    public static final AttributeKey<Integer> REQUEST_SEQUENCE =
+            AttributeKey.valueOf(HttpServerPipeliningHandler.class, "REQUEST_SEQUENCE");
+
+    private final int explicitFlushAfterResponses;
+    private final ArrayDeque<PendingResponse> inflight = new ArrayDeque<PendingResponse>();
+    private boolean readInProgress;
+    private boolean flushRequested;
+    private boolean writtenSinceFlush;
+    private int completedSinceFlush;
+    private int nextSequence;
+
+    /**
+     * Creates a new instance which forwards a flush after at most
+     * {@value #DEFAULT_EXPLICIT_FLUSH_AFTER_RESPONSES} responses.
+     */
+    public HttpServerPipeliningHandler() {
+        this(DEFAULT_EXPLICIT_FLUSH_AFTER_RESPONSES);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param explicitFlushAfterResponses the number of completed responses after which a requested flush is
+     *                                    forwarded even though a read is in progress.
+     */
+    public HttpServerPipeliningHandler(int explicitFlushAfterResponses) {
+        this.explicitFlushAfterResponses =
+                ObjectUtil.checkPositive(explicitFlushAfterResponses, "explicitFlushAfterResponses");
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readInProgress = true;
+        if (msg instanceof HttpRequest) {
+            int sequence = nextSequence++;
+            inflight.add(new PendingResponse(sequence));
+            ctx.channel().attr(REQUEST_SEQUENCE).set(sequence);
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        final PendingResponse response;
+        final Object message;
+        if (msg instanceof HttpPipelinedResponse) {
+            HttpPipelinedResponse pipelined = (HttpPipelinedResponse) msg;
+            message = pipelined.message();
+            response = find(pipelined.sequence());
+            if (response == null) {
+                ReferenceCountUtil.release(message);
+                promise.setFailure(new IllegalStateException(
+                        "no in-flight request for response: " + pipelined));
+                return;
+            }
+        } else {
+            message = msg;
+            response = inflight.peek();
+            if (response == null || !(msg instanceof HttpObject)) {
+                // Nothing to keep in order, e.g. an error response written before any request was decoded.
+                ctx.write(msg, promise);
+                writtenSinceFlush = true;
+                return;
+            }
+        }
+
+        if (response == inflight.peek()) {
+            ctx.write(message, promise);
+            writtenSinceFlush = true;
+            if (response.isComplete(message)) {
+                completeHead(ctx);
+            }
+        } else {
+            response.add(message, promise);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        flushRequested = true;
+        if (!readInProgress || completedSinceFlush >= explicitFlushAfterResponses) {
+            flushIfNeeded(ctx);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        // To ensure we not miss to flush anything, do it now.
+        readInProgress = false;
+        flushIfNeeded(ctx);
+        ctx.fireExceptionCaught(cause);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failBuffered(new ClosedChannelException());
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        // Write whatever was buffered in order, as the handlers after us can no longer rely on this one.
+        for (PendingResponse response; (response = inflight.poll()) != null;) {
+            writtenSinceFlush |= response.writeTo(ctx);
+        }
+        flushRequested = true;
+        flushIfNeeded(ctx);
+    }
+
+    private PendingResponse find(int sequence) {
+        for (PendingResponse response : inflight) {
+            if (response.sequence == sequence) {
+                return response;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the completed head and writes the buffered messages of the responses after it, until one is found
+     * which is not complete yet.
+     */
+    private void completeHead(ChannelHandlerContext ctx) {
+        inflight.poll();
+        completedSinceFlush++;
+        PendingResponse next;
+        while ((next = inflight.peek()) != null) {
+            writtenSinceFlush |= next.writeTo(ctx);
+            if (!next.complete) {
+                break;
+            }
+            inflight.poll();
+            completedSinceFlush++;
+        }
+        if (flushRequested && (!readInProgress || completedSinceFlush >= explicitFlushAfterResponses)) {
+            // Someone asked for the now written responses to be flushed before.
+            flushIfNeeded(ctx);
+        }
+    }
+
+    private void flushIfNeeded(ChannelHandlerContext ctx) {
+        // A requested flush stays pending until some of the responses it was requested for were written.
+        if (flushRequested && writtenSinceFlush) {
+            flushRequested = false;
+            writtenSinceFlush = false;
+            completedSinceFlush = 0;
+            ctx.flush();
+        }
+    }
+
+    private void failBuffered(Throwable cause) {
+        for (PendingResponse response; (response = inflight.poll()) != null;) {
+            response.fail(cause);
+        }
+    }
+
+    private static final class PendingResponse {
+        final int sequence;
+        // Alternating messages and their promises, only used while this is not the head of the queue.
+        private List<Object> buffered;
+        private boolean informational;
+        boolean complete;
+
+        PendingResponse(int sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * Returns {@code true} if {@code message} is the last part of the final response to the request.
+         */
+        boolean isComplete(Object message) {
+            if (message instanceof HttpResponse) {
+                informational = ((HttpResponse) message).status().codeClass() == HttpStatusClass.INFORMATIONAL;
+            }
+            if (message instanceof LastHttpContent) {
+                if (informational) {
+                    informational = false;
+                } else {
+                    complete = true;
+                }
+            }
+            return complete;
+        }
+
+        void add(Object message, ChannelPromise promise) {
+            if (buffered == null) {
+                buffered = new ArrayList<Object>(4);
+            }
+            buffered.add(message);
+            buffered.add(promise);
+            isComplete(message);
+        }
+
+        boolean writeTo(ChannelHandlerContext ctx) {
+            List<Object> buffered = this.buffered;
+            if (buffered == null) {
+                return false;
+            }
+            this.buffered = null;
+            for (int i = 0; i < buffered.size(); i += 2) {
+                ctx.write(buffered.get(i), (ChannelPromise) buffered.get(i + 1));
+            }
+            return true;
+        }
+
+        void fail(Throwable cause) {
+            List<Object> buffered = this.buffered;
+            if (buffered == null) {
+                return;
+            }
+            this.buffered = null;
+            for (Iterator<Object> i = buffered.iterator(); i.hasNext();) {
+                ReferenceCountUtil.release(i.next());
+                ((ChannelPromise) i.next()).tryFailure(cause);
+            }
+        }
+    }
+}
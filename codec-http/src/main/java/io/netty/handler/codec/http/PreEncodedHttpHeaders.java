@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.util.AsciiString;
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static io.netty.handler.codec.http.HttpConstants.COLON;
+import static io.netty.handler.codec.http.HttpConstants.CR;
+import static io.netty.handler.codec.http.HttpConstants.LF;
+import static io.netty.handler.codec.http.HttpConstants.SP;
+import static io.netty.util.internal.EmptyArrays.EMPTY_BYTES;
+
+/**
+ * Header lines which are encoded once and then copied as they are into every {@link HttpMessage} written by an
+ * {@link HttpObjectEncoder} that uses them, unless the message contains a header of the same name itself. Typical
+ * candidates are headers that are identical for most responses, like {@code Server} or a fixed
+ * {@code Content-Type}, and the {@code Date} header, which is re-encoded at most once per second.
+ *
+ * <pre>
+ * {@link PreEncodedHttpHeaders} headers = {@link PreEncodedHttpHeaders}.EMPTY
+ *         .add({@link HttpHeaderNames}.SERVER, "netty")
+ *         .add({@link HttpHeaderNames}.CONTENT_TYPE, {@link HttpHeaderValues}.APPLICATION_JSON)
+ *         .addDate();
+ * pipeline.addLast(new {@link HttpServerCodec}(4096, 8192, 8192, true, 128, headers));
+ * </pre>
+ *
+ * The header lines are written into every {@link HttpMessage} the encoder writes, so an {@link HttpObjectEncoder}
+ * subclass which encodes requests copies them into requests as well. The built-in encoders only accept them for
+ * responses, see {@link HttpResponseEncoder#HttpResponseEncoder(PreEncodedHttpHeaders)}.
+ * <p>
+ * {@code Content-Length} and {@code Transfer-Encoding} can not be pre-encoded, as the encoder derives the framing of
+ * the content from the headers of the message itself.
+ * <p>
+ * Instances are immutable and can be shared by any number of encoders.
+ */
+public final class PreEncodedHttpHeaders {
+
+    /**
+     * An instance without any header.
+     */
+    public static final PreEncodedHttpHeaders EMPTY =
+            new PreEncodedHttpHeaders(new AsciiString[0], new int[] { 0 }, EMPTY_BYTES, false);
+
+    private static volatile DateLine dateLine = new DateLine(-1, EMPTY_BYTES);
+
+    private final AsciiString[] names;
+    // The line of names[i] is lines[offsets[i], offsets[i + 1]).
+    private final int[] offsets;
+    private final byte[] lines;
+    private final boolean date;
+
+    private PreEncodedHttpHeaders(AsciiString[] names, int[] offsets, byte[] lines, boolean date) {
+        this.names = names;
+        this.offsets = offsets;
+        this.lines = lines;
+        this.date = date;
+    }
+
+    /**
+     * Returns a copy of this instance with the given header added.
+     *
+     * @throws IllegalArgumentException if {@code name} is {@code Content-Length} or {@code Transfer-Encoding}
+     */
+    public PreEncodedHttpHeaders add(CharSequence name, CharSequence value) {
+        ObjectUtil.checkNotNull(value, "value");
+        return add(name, AsciiString.of(DefaultHttpHeaders.valueConverter(true).convertObject(value)));
+    }
+
+    /**
+     * Returns a copy of this instance with the given header added. {@code value} must contain the already encoded
+     * value.
+     *
+     * @throws IllegalArgumentException if {@code name} is {@code Content-Length} or {@code Transfer-Encoding}
+     */
+    public PreEncodedHttpHeaders add(CharSequence name, byte[] value) {
+        ObjectUtil.checkNotNull(value, "value");
+        return add(name, new AsciiString(value));
+    }
+
+    /**
+     * Returns a copy of this instance with the given header added. The readable bytes of {@code value} must contain
+     * the already encoded value. They are copied, so {@code value} can be released once this method returns.
+     *
+     * @throws IllegalArgumentException if {@code name} is {@code Content-Length} or {@code Transfer-Encoding}
+     */
+    public PreEncodedHttpHeaders add(CharSequence name, ByteBuf value) {
+        ObjectUtil.checkNotNull(value, "value");
+        return add(name, new AsciiString(ByteBufUtil.getBytes(value), false));
+    }
+
+    /**
+     * Returns a copy of this instance which also writes the {@code Date} header with the current time. The encoded
+     * header is cached and shared by all instances, and is refreshed at most once per second.
+     */
+    public PreEncodedHttpHeaders addDate() {
+        return date ? this : new PreEncodedHttpHeaders(names, offsets, lines, true);
+    }
+
+    private PreEncodedHttpHeaders add(CharSequence name, AsciiString value) {
+        ObjectUtil.checkNotNull(name, "name");
+        DefaultHttpHeaders.nameValidator(true).validateName(name);
+        if (HttpHeaderNames.CONTENT_LENGTH.contentEqualsIgnoreCase(name) ||
+                HttpHeaderNames.TRANSFER_ENCODING.contentEqualsIgnoreCase(name)) {
+            // The encoder only looks at the headers of the message to decide how the content is framed.
+            throw new IllegalArgumentException("header can not be pre-encoded: " + name);
+        }
+        // Also validates pre-encoded values as they are written as is.
+        DefaultHttpHeaders.valueConverter(true).convertObject(value);
+
+        byte[] line = encodeLine(name, value);
+        AsciiString[] newNames = Arrays.copyOf(names, names.length + 1);
+        newNames[names.length] = AsciiString.of(name);
+        int[] newOffsets = Arrays.copyOf(offsets, offsets.length + 1);
+        newOffsets[offsets.length] = lines.length + line.length;
+        byte[] newLines = Arrays.copyOf(lines, lines.length + line.length);
+        System.arraycopy(line, 0, newLines, lines.length, line.length);
+        return new PreEncodedHttpHeaders(newNames, newOffsets, newLines, date);
+    }
+
+    /**
+     * Writes all the header lines whose name is not contained in {@code headers} to {@code buf}.
+     */
+    void encode(HttpHeaders headers, ByteBuf buf) {
+        if (date && !headers.contains(HttpHeaderNames.DATE)) {
+            buf.writeBytes(dateLine(System.currentTimeMillis()));
+        }
+
+        int i = 0;
+        while (i < names.length && !headers.contains(names[i])) {
+            i ++;
+        }
+        if (i == names.length) {
+            // The message does not override any of the headers, so all of them can be copied at once.
+            buf.writeBytes(lines);
+            return;
+        }
+
+        buf.writeBytes(lines, 0, offsets[i]);
+        for (i ++; i < names.length; i ++) {
+            if (!headers.contains(names[i])) {
+                buf.writeBytes(lines, offsets[i], offsets[i + 1] - offsets[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the encoded {@code Date} header line for the second of the given time.
+     */
+    static byte[] dateLine(long currentTimeMillis) {
+        long second = currentTimeMillis / 1000;
+        DateLine dateLine = PreEncodedHttpHeaders.dateLine;
+        if (dateLine.second != second) {
+            // Racing threads may encode the same second twice, which is harmless.
+            byte[] line = encodeLine(HttpHeaderNames.DATE,
+                    AsciiString.of(DateFormatter.format(new Date(second * 1000))));
+            PreEncodedHttpHeaders.dateLine = dateLine = new DateLine(second, line);
+        }
+        return dateLine.line;
+    }
+
+    private static byte[] encodeLine(CharSequence name, AsciiString value) {
+        AsciiString asciiName = AsciiString.of(name);
+        byte[] line = new byte[asciiName.length() + value.length() + 4];
+        int offset = 0;
+        System.arraycopy(asciiName.array(), asciiName.arrayOffset(), line, offset, asciiName.length());
+        offset += asciiName.length();
+        line[offset ++] = COLON;
+        line[offset ++] = SP;
+        System.arraycopy(value.array(), value.arrayOffset(), line, offset, value.length());
+        offset += value.length();
+        line[offset ++] = CR;
+        line[offset] = LF;
+        return line;
+    }
+
+    private static final class DateLine {
+        final long second;
+        final byte[] line;
+
+        DateLine(long second, byte[] line) {
+            this.second = second;
+            this.line = line;
+        }
+    }
+}
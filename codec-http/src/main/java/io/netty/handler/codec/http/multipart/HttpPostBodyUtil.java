@@ -16,6 +16,7 @@
 package io.netty.handler.codec.http.multipart;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpConstants;
 
 /**
  * Shared Static object between HttpMessageDecoder, HttpPostRequestDecoder and HttpPostRequestEncoder
@@ -122,6 +123,88 @@ final class HttpPostBodyUtil {
         }
     }
 
+    /**
+     * Searches a {@link ByteBuf} for a multipart delimiter at the start of a line, using the Boyer-Moore-Horspool
+     * algorithm on {@code LF + delimiter}, so that most bytes of the body are skipped instead of compared.
+     */
+    static final class DelimiterSearcher {
+        final String delimiter;
+        // LF followed by the delimiter
+        private final byte[] pattern;
+        private final int[] shifts = new int[256];
+
+        DelimiterSearcher(String delimiter) {
+            this.delimiter = delimiter;
+            pattern = new byte[delimiter.length() + 1];
+            pattern[0] = HttpConstants.LF;
+            for (int i = 0; i < delimiter.length(); i++) {
+                pattern[i + 1] = (byte) delimiter.charAt(i);
+            }
+            final int last = pattern.length - 1;
+            for (int i = 0; i < shifts.length; i++) {
+                shifts[i] = pattern.length;
+            }
+            for (int i = 0; i < last; i++) {
+                shifts[pattern[i] & 0xFF] = last - i;
+            }
+        }
+
+        /**
+         * Returns the index of the {@code LF} which starts the first {@code LF + delimiter} in
+         * {@code [fromIndex, toIndex)} of {@code buffer}, or {@code -1} if there is none.
+         */
+        int indexOf(ByteBuf buffer, int fromIndex, int toIndex) {
+            final byte[] pattern = this.pattern;
+            final int last = pattern.length - 1;
+            final byte lastByte = pattern[last];
+            for (int i = fromIndex; i <= toIndex - pattern.length;) {
+                final byte b = buffer.getByte(i + last);
+                if (b == lastByte && regionMatches(buffer, i, last)) {
+                    return i;
+                }
+                i += shifts[b & 0xFF];
+            }
+            return -1;
+        }
+
+        /**
+         * Returns {@code true} if {@code [index, toIndex)} of {@code buffer} is the delimiter or its beginning,
+         * without the leading {@code LF}.
+         */
+        boolean isDelimiterPrefix(ByteBuf buffer, int index, int toIndex) {
+            final int length = Math.min(toIndex - index, pattern.length - 1);
+            for (int i = 0; i < length; i++) {
+                if (buffer.getByte(index + i) != pattern[i + 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the index of the {@code LF} which starts an incomplete {@code LF + delimiter} at the end of
+         * {@code [fromIndex, toIndex)} of {@code buffer}, or {@code -1} if there is none.
+         */
+        int partialMatchIndex(ByteBuf buffer, int fromIndex, int toIndex) {
+            for (int i = toIndex - 1; i >= Math.max(fromIndex, toIndex - pattern.length + 1); i--) {
+                if (buffer.getByte(i) == HttpConstants.LF) {
+                    // The delimiter contains no LF, so the last one is the only candidate.
+                    return isDelimiterPrefix(buffer, i + 1, toIndex) ? i : -1;
+                }
+            }
+            return -1;
+        }
+
+        private boolean regionMatches(ByteBuf buffer, int index, int length) {
+            for (int i = 0; i < length; i++) {
+                if (buffer.getByte(index + i) != pattern[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Find the first non whitespace
      * @return the rank of the first non whitespace
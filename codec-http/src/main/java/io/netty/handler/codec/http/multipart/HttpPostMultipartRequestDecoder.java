@@ -23,6 +23,7 @@ import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.multipart.HttpPostBodyUtil.DelimiterSearcher;
 import io.netty.handler.codec.http.multipart.HttpPostBodyUtil.SeekAheadOptimize;
 import io.netty.handler.codec.http.multipart.HttpPostBodyUtil.TransferEncodingMechanism;
 import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.EndOfDataDecoderException;
@@ -30,6 +31,10 @@ import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDec
 import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.MultiPartStatus;
 import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.NotEnoughDataDecoderException;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import io.netty.util.internal.InternalThreadLocalMap;
 import io.netty.util.internal.StringUtil;
 
@@ -37,9 +42,12 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 import static io.netty.util.internal.ObjectUtil.*;
 
@@ -123,6 +131,32 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
      */
     private Attribute currentAttribute;
 
+    /**
+     * Searches the delimiter which ends the current Attribute or FileUpload
+     */
+    private DelimiterSearcher delimiterSearcher;
+
+    /**
+     * Writes the content of the FileUploads if not {@code null}, otherwise it is written by the decoding thread
+     */
+    private final EventExecutor diskWriteExecutor;
+
+    /**
+     * Completes once all the FileUpload content submitted to the diskWriteExecutor so far is written
+     */
+    private Future<?> diskWriteFuture = ImmediateEventExecutor.INSTANCE.newSucceededFuture(null);
+
+    /**
+     * The first failure of the diskWriteExecutor, after which the remaining content is dropped
+     */
+    private volatile Throwable diskWriteCause;
+
+    /**
+     * Decoded FileUploads whose content may still be written by the diskWriteExecutor
+     */
+    private final Map<InterfaceHttpData, Future<?>> pendingDiskWrites =
+            new IdentityHashMap<InterfaceHttpData, Future<?>>();
+
     private boolean destroyed;
 
     private int discardThreshold = HttpPostRequestDecoder.DEFAULT_DISCARD_THRESHOLD;
@@ -172,9 +206,35 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
      *             errors
      */
     public HttpPostMultipartRequestDecoder(HttpDataFactory factory, HttpRequest request, Charset charset) {
+        this(factory, request, charset, null);
+    }
+
+    /**
+     *
+     * @param factory
+     *            the factory used to create InterfaceHttpData
+     * @param request
+     *            the request to decode
+     * @param charset
+     *            the charset to use as default
+     * @param diskWriteGroup
+     *            the group whose executor writes the content of the FileUploads, so that large uploads
+     *            which are stored on disk do not block the thread which decodes the request. The content
+     *            is written by the decoding thread if {@code null}.
+     *            A FileUpload is only returned by {@link #next()} once its content was written, see
+     *            {@link #diskWriteFuture()}.
+     * @throws NullPointerException
+     *             for request or charset or factory
+     * @throws ErrorDataDecoderException
+     *             if the default charset was wrong when decoding or other
+     *             errors
+     */
+    public HttpPostMultipartRequestDecoder(HttpDataFactory factory, HttpRequest request, Charset charset,
+                                           EventExecutorGroup diskWriteGroup) {
         this.request = checkNotNull(request, "request");
         this.charset = checkNotNull(charset, "charset");
         this.factory = checkNotNull(factory, "factory");
+        diskWriteExecutor = diskWriteGroup != null ? diskWriteGroup.next() : null;
         // Fill default values
 
         setMultipart(this.request.headers().get(HttpHeaderNames.CONTENT_TYPE));
@@ -366,7 +426,22 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
                 throw new EndOfDataDecoderException();
             }
         }
-        return !bodyListHttpData.isEmpty() && bodyListHttpDataRank < bodyListHttpData.size();
+        if (bodyListHttpData.isEmpty() || bodyListHttpDataRank >= bodyListHttpData.size()) {
+            return false;
+        }
+        if (!pendingDiskWrites.isEmpty()) {
+            Future<?> future = pendingDiskWrites.get(bodyListHttpData.get(bodyListHttpDataRank));
+            if (future != null) {
+                if (!future.isDone()) {
+                    // The content of the next FileUpload is still written.
+                    return false;
+                }
+                if (!future.isSuccess()) {
+                    throw new ErrorDataDecoderException(future.cause());
+                }
+            }
+        }
+        return true;
     }
 
     /**
@@ -386,11 +461,30 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         checkDestroyed();
 
         if (hasNext()) {
-            return bodyListHttpData.get(bodyListHttpDataRank++);
+            InterfaceHttpData data = bodyListHttpData.get(bodyListHttpDataRank++);
+            if (!pendingDiskWrites.isEmpty()) {
+                pendingDiskWrites.remove(data);
+            }
+            return data;
         }
         return null;
     }
 
+    /**
+     * Returns a {@link Future} which completes once the content of all the FileUploads decoded so far is written,
+     * or fails with the cause of the first failed write. Only the executor of the {@link EventExecutorGroup} given
+     * to the constructor writes the content asynchronously, without it the returned {@link Future} is always
+     * completed already.
+     *
+     * Once the last chunk was offered, wait for it before using {@link #getBodyHttpDatas()} or the FileUpload of
+     * {@link #currentPartialHttpData()}, and to call {@link #next()} again after {@link #hasNext()} returned
+     * {@code false} as the content of the next FileUpload was still written. Listeners are notified by the disk
+     * write executor.
+     */
+    public Future<?> diskWriteFuture() {
+        return diskWriteFuture;
+    }
+
     @Override
     public InterfaceHttpData currentPartialHttpData() {
         if (currentFileUpload != null) {
@@ -541,7 +635,8 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
                 }
             }
             // load data
-            if (!loadDataMultipart(undecodedChunk, multipartDataBoundary, currentAttribute)) {
+            if (!loadDataMultipart(undecodedChunk, delimiterSearcher(multipartDataBoundary), currentAttribute,
+                    false)) {
                 // Delimiter is not found. Need more chunks.
                 return null;
             }
@@ -908,11 +1003,16 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
             }
         }
         // load data as much as possible
-        if (!loadDataMultipart(undecodedChunk, delimiter, currentFileUpload)) {
+        if (!loadDataMultipart(undecodedChunk, delimiterSearcher(delimiter), currentFileUpload,
+                diskWriteExecutor != null)) {
             // Delimiter is not found. Need more chunks.
             return null;
         }
-        if (currentFileUpload.isCompleted()) {
+        if (diskWriteExecutor != null) {
+            // Completed by the disk write executor, only hand it out once it is done.
+            pendingDiskWrites.put(currentFileUpload, diskWriteFuture);
+        }
+        if (diskWriteExecutor != null || currentFileUpload.isCompleted()) {
             // ready to load the next one
             if (currentStatus == MultiPartStatus.FILEUPLOAD) {
                 currentStatus = MultiPartStatus.HEADERDELIMITER;
@@ -937,8 +1037,24 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
      */
     @Override
     public void destroy() {
-        // Release all data items, including those not yet pulled
-        cleanFiles();
+        if (diskWriteExecutor != null && !diskWriteFuture.isDone()) {
+            // Drop the content which is not written yet and release all data items once the write in progress is
+            // done, as the disk write executor may still use them.
+            checkDestroyed();
+            if (diskWriteCause == null) {
+                diskWriteCause = new IllegalStateException(HttpPostMultipartRequestDecoder.class.getSimpleName()
+                        + " was destroyed already");
+            }
+            diskWriteExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    factory.cleanRequestHttpData(request);
+                }
+            });
+        } else {
+            // Release all data items, including those not yet pulled
+            cleanFiles();
+        }
 
         destroyed = true;
 
@@ -1289,97 +1405,91 @@ public class HttpPostMultipartRequestDecoder implements InterfaceHttpPostRequest
         throw new NotEnoughDataDecoderException();
     }
 
+    private DelimiterSearcher delimiterSearcher(String delimiter) {
+        DelimiterSearcher searcher = delimiterSearcher;
+        if (searcher == null || !searcher.delimiter.equals(delimiter)) {
+            delimiterSearcher = searcher = new DelimiterSearcher(delimiter);
+        }
+        return searcher;
+    }
+
     /**
      * Load the field value or file data from a Multipart request
      *
+     * @param writeLater {@code true} if the data is added by the disk write executor
      * @return {@code true} if the last chunk is loaded (boundary delimiter found), {@code false} if need more chunks
      * @throws ErrorDataDecoderException
      */
-    private static boolean loadDataMultipartStandard(ByteBuf undecodedChunk, String delimiter, HttpData httpData) {
+    private boolean loadDataMultipart(ByteBuf undecodedChunk, DelimiterSearcher searcher,
+                                      HttpData httpData, boolean writeLater) {
         final int startReaderIndex = undecodedChunk.readerIndex();
-        final int delimeterLength = delimiter.length();
-        int index = 0;
-        int lastPosition = startReaderIndex;
-        byte prevByte = HttpConstants.LF;
-        boolean delimiterFound = false;
-        while (undecodedChunk.isReadable()) {
-            final byte nextByte = undecodedChunk.readByte();
-            // Check the delimiter
-            if (prevByte == HttpConstants.LF && nextByte == delimiter.codePointAt(index)) {
-                index++;
-                if (delimeterLength == index) {
-                    delimiterFound = true;
-                    break;
-                }
-                continue;
+        final int writerIndex = undecodedChunk.writerIndex();
+        boolean delimiterFound;
+        int lastPosition;
+        if (searcher.isDelimiterPrefix(undecodedChunk, startReaderIndex, writerIndex)) {
+            // The data is empty, the delimiter follows right away or may do so once more data was received.
+            delimiterFound = writerIndex - startReaderIndex >= searcher.delimiter.length();
+            lastPosition = startReaderIndex;
+        } else {
+            int lineFeed = searcher.indexOf(undecodedChunk, startReaderIndex, writerIndex);
+            delimiterFound = lineFeed >= 0;
+            if (!delimiterFound) {
+                // Keep what may be the beginning of the delimiter for the next chunk.
+                lineFeed = searcher.partialMatchIndex(undecodedChunk, startReaderIndex, writerIndex);
             }
-            lastPosition = undecodedChunk.readerIndex();
-            if (nextByte == HttpConstants.LF) {
-                index = 0;
-                lastPosition -= (prevByte == HttpConstants.CR)? 2 : 1;
+            lastPosition = lineFeed >= 0 ? lineFeed : writerIndex;
+            // The CR of the line break before the delimiter does not belong to the data either.
+            if (lastPosition > startReaderIndex && undecodedChunk.getByte(lastPosition - 1) == HttpConstants.CR) {
+                lastPosition--;
             }
-            prevByte = nextByte;
         }
-        if (prevByte == HttpConstants.CR) {
-            lastPosition--;
-        }
-        ByteBuf content = undecodedChunk.retainedSlice(startReaderIndex, lastPosition - startReaderIndex);
-        try {
-            httpData.addContent(content, delimiterFound);
-        } catch (IOException e) {
-            throw new ErrorDataDecoderException(e);
+        if (writeLater) {
+            Throwable cause = diskWriteCause;
+            if (cause != null) {
+                throw new ErrorDataDecoderException(cause);
+            }
+            // Copy as the undecoded chunk is changed by this thread while the disk write executor writes the content.
+            addContentLater(httpData, undecodedChunk.copy(startReaderIndex, lastPosition - startReaderIndex),
+                    delimiterFound);
+        } else {
+            ByteBuf content = undecodedChunk.retainedSlice(startReaderIndex, lastPosition - startReaderIndex);
+            try {
+                httpData.addContent(content, delimiterFound);
+            } catch (IOException e) {
+                throw new ErrorDataDecoderException(e);
+            }
         }
         undecodedChunk.readerIndex(lastPosition);
         return delimiterFound;
     }
 
     /**
-     * Load the field value from a Multipart request
-     *
-     * @return {@code true} if the last chunk is loaded (boundary delimiter found), {@code false} if need more chunks
-     * @throws ErrorDataDecoderException
+     * Adds the content to the given {@link HttpData} on the disk write executor, which runs the writes in order.
      */
-    private static boolean loadDataMultipart(ByteBuf undecodedChunk, String delimiter, HttpData httpData) {
-        if (!undecodedChunk.hasArray()) {
-            return loadDataMultipartStandard(undecodedChunk, delimiter, httpData);
-        }
-        final SeekAheadOptimize sao = new SeekAheadOptimize(undecodedChunk);
-        final int startReaderIndex = undecodedChunk.readerIndex();
-        final int delimeterLength = delimiter.length();
-        int index = 0;
-        int lastRealPos = sao.pos;
-        byte prevByte = HttpConstants.LF;
-        boolean delimiterFound = false;
-        while (sao.pos < sao.limit) {
-            final byte nextByte = sao.bytes[sao.pos++];
-            // Check the delimiter
-            if (prevByte == HttpConstants.LF && nextByte == delimiter.codePointAt(index)) {
-                index++;
-                if (delimeterLength == index) {
-                    delimiterFound = true;
-                    break;
-                }
-                continue;
-            }
-            lastRealPos = sao.pos;
-            if (nextByte == HttpConstants.LF) {
-                index = 0;
-                lastRealPos -= (prevByte == HttpConstants.CR)? 2 : 1;
-            }
-            prevByte = nextByte;
-        }
-        if (prevByte == HttpConstants.CR) {
-            lastRealPos--;
-        }
-        final int lastPosition = sao.getReadPosition(lastRealPos);
-        final ByteBuf content = undecodedChunk.retainedSlice(startReaderIndex, lastPosition - startReaderIndex);
+    private void addContentLater(final HttpData httpData, final ByteBuf content, final boolean last) {
         try {
-            httpData.addContent(content, delimiterFound);
-        } catch (IOException e) {
+            diskWriteFuture = diskWriteExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    Throwable cause = diskWriteCause;
+                    if (cause != null) {
+                        // An earlier write failed or the decoder was destroyed.
+                        content.release();
+                        throw new IOException(cause);
+                    }
+                    try {
+                        httpData.addContent(content, last);
+                    } catch (IOException e) {
+                        diskWriteCause = e;
+                        throw e;
+                    }
+                    return null;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            content.release();
             throw new ErrorDataDecoderException(e);
         }
-        undecodedChunk.readerIndex(lastPosition);
-        return delimiterFound;
     }
 
     /**
@@ -22,7 +22,10 @@ import io.netty.util.AsciiString;
 import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.*;
 import static io.netty.handler.codec.http.HttpHeadersTestUtils.of;
@@ -33,6 +36,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -128,14 +132,26 @@ public class HttpRequestDecoderTest {
         testDecodeWholeRequestInMultipleSteps(CONTENT_MIXED_DELIMITERS);
     }
 
+    @Test
+    public void testDecodeWholeRequestInMultipleStepsAsciiStringHeaders() {
+        for (byte[] content : new byte[][] {
+                CONTENT_CRLF_DELIMITERS, CONTENT_LF_DELIMITERS, CONTENT_MIXED_DELIMITERS }) {
+            for (int i = 1; i < content.length; i++) {
+                testDecodeWholeRequestInMultipleSteps(content, i, true);
+            }
+        }
+    }
+
     private static void testDecodeWholeRequestInMultipleSteps(byte[] content) {
         for (int i = 1; i < content.length; i++) {
-            testDecodeWholeRequestInMultipleSteps(content, i);
+            testDecodeWholeRequestInMultipleSteps(content, i, false);
         }
     }
 
-    private static void testDecodeWholeRequestInMultipleSteps(byte[] content, int fragmentSize) {
-        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
+    private static void testDecodeWholeRequestInMultipleSteps(
+            byte[] content, int fragmentSize, boolean asciiStringHeaders) {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new HttpRequestDecoder(4096, 8192, 8192, true, 128, asciiStringHeaders));
         int headerLength = content.length - CONTENT_LENGTH;
 
         // split up the header
@@ -478,6 +494,73 @@ public class HttpRequestDecoderTest {
         assertFalse(channel.finish());
     }
 
+    @Test
+    public void testAsciiStringHeaders() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(4096, 8192, 8192, true, 128, true));
+        String requestStr = "GET /some/path HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "content-type: text/plain \r\n" +
+                "X-Custom:\tvalue\r\n" +
+                "X-Folded: part1\r\n" +
+                "  part2\r\n" +
+                "X-Empty:\r\n\r\n";
+        for (int i = 0; i < 2; i++) {
+            assertTrue(channel.writeInbound(Unpooled.copiedBuffer(requestStr, CharsetUtil.US_ASCII)));
+            HttpRequest req = channel.readInbound();
+            assertTrue(req.decoderResult().isSuccess());
+            HttpHeaders headers = req.headers();
+            assertEquals(5, headers.size());
+            assertEquals("localhost", headers.get(HOST));
+            assertEquals("text/plain", headers.get(CONTENT_TYPE));
+            assertEquals("value", headers.get("x-custom"));
+            assertEquals("part1 part2", headers.get("X-Folded"));
+            assertEquals("", headers.get("X-Empty"));
+
+            // Well-known names are shared and keep the received case, everything else is an AsciiString.
+            List<CharSequence> names = new ArrayList<CharSequence>();
+            Iterator<Entry<CharSequence, CharSequence>> it = headers.iteratorCharSequence();
+            while (it.hasNext()) {
+                Entry<CharSequence, CharSequence> header = it.next();
+                assertThat(header.getValue(), instanceOf(CharSequence.class));
+                names.add(header.getKey());
+            }
+            assertEquals("[Host, content-type, X-Custom, X-Folded, X-Empty]", names.toString());
+            assertSame(CONTENT_TYPE, names.get(1));
+            assertSame(names.get(0), HttpHeaderNameCache.get(Unpooled.wrappedBuffer("Host".getBytes()), 0, 4));
+            assertThat(headers.iteratorCharSequence().next().getValue(), instanceOf(AsciiString.class));
+
+            LastHttpContent c = channel.readInbound();
+            c.release();
+        }
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testAsciiStringHeadersTooLarge() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(1024, 10, 1024, true, 128, true));
+        String requestStr = "GET /some/path HTTP/1.1\r\n" +
+                "Host: localhost1\r\n\r\n";
+
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer(requestStr, CharsetUtil.US_ASCII)));
+        HttpRequest request = channel.readInbound();
+        assertTrue(request.decoderResult().isFailure());
+        assertTrue(request.decoderResult().cause() instanceof TooLongFrameException);
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testAsciiStringHeadersInvalid() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder(4096, 8192, 8192, true, 128, true));
+        String requestStr = "GET /some/path HTTP/1.1\r\n" +
+                "Transfer-Encoding : chunked\r\n" +
+                "Host: netty.io\r\n\r\n";
+        assertTrue(channel.writeInbound(Unpooled.copiedBuffer(requestStr, CharsetUtil.US_ASCII)));
+        HttpRequest request = channel.readInbound();
+        assertTrue(request.decoderResult().isFailure());
+        assertTrue(request.decoderResult().cause() instanceof IllegalArgumentException);
+        assertFalse(channel.finish());
+    }
+
     private static void testInvalidHeaders0(String requestStr) {
         EmbeddedChannel channel = new EmbeddedChannel(new HttpRequestDecoder());
         assertTrue(channel.writeInbound(Unpooled.copiedBuffer(requestStr, CharsetUtil.US_ASCII)));
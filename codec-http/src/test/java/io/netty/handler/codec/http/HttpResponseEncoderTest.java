@@ -397,4 +397,80 @@ public class HttpResponseEncoderTest {
         assertEquals(responseText.toString(), written.toString());
         assertFalse(channel.finish());
     }
+
+    @Test
+    public void testPreEncodedHeaders() {
+        PreEncodedHttpHeaders preEncodedHeaders = PreEncodedHttpHeaders.EMPTY
+                .add(HttpHeaderNames.SERVER, "netty")
+                .add(HttpHeaderNames.CONTENT_TYPE, "text/plain".getBytes(CharsetUtil.US_ASCII))
+                .add(HttpHeaderNames.CACHE_CONTROL, Unpooled.copiedBuffer("no-cache", CharsetUtil.US_ASCII));
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpResponseEncoder(preEncodedHeaders));
+
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        assertTrue(channel.writeOutbound(response));
+        ByteBuf buffer = channel.readOutbound();
+        assertEquals("HTTP/1.1 200 OK\r\ncontent-length: 0\r\nserver: netty\r\ncontent-type: text/plain\r\n" +
+                "cache-control: no-cache\r\n\r\n", buffer.toString(CharsetUtil.US_ASCII));
+        buffer.release();
+        assertTrue(channel.writeOutbound(LastHttpContent.EMPTY_LAST_CONTENT));
+        ((ByteBuf) channel.readOutbound()).release();
+
+        // Headers set on the response take precedence over the pre-encoded ones.
+        response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/html");
+        assertTrue(channel.writeOutbound(response));
+        buffer = channel.readOutbound();
+        assertEquals("HTTP/1.1 200 OK\r\ncontent-length: 0\r\ncontent-type: text/html\r\nserver: netty\r\n" +
+                "cache-control: no-cache\r\n\r\n", buffer.toString(CharsetUtil.US_ASCII));
+        buffer.release();
+        assertTrue(channel.writeOutbound(LastHttpContent.EMPTY_LAST_CONTENT));
+        ((ByteBuf) channel.readOutbound()).release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testPreEncodedDateHeader() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpResponseEncoder(PreEncodedHttpHeaders.EMPTY.addDate()));
+
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        assertTrue(channel.writeOutbound(response));
+        ByteBuf buffer = channel.readOutbound();
+        String encoded = buffer.toString(CharsetUtil.US_ASCII);
+        buffer.release();
+        assertTrue(encoded, encoded.matches(
+                "HTTP/1\\.1 200 OK\r\ncontent-length: 0\r\n" +
+                "date: \\w{3}, \\d{2} \\w{3} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT\r\n\r\n"));
+        assertTrue(channel.writeOutbound(LastHttpContent.EMPTY_LAST_CONTENT));
+        ((ByteBuf) channel.readOutbound()).release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testPreEncodedDateLineCachedPerSecond() {
+        byte[] line = PreEncodedHttpHeaders.dateLine(784111777000L);
+        assertEquals("date: Sun, 06 Nov 1994 08:49:37 GMT\r\n", new String(line, CharsetUtil.US_ASCII));
+        assertSame(line, PreEncodedHttpHeaders.dateLine(784111777999L));
+        assertEquals("date: Sun, 06 Nov 1994 08:49:38 GMT\r\n",
+                new String(PreEncodedHttpHeaders.dateLine(784111778000L), CharsetUtil.US_ASCII));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPreEncodedHeadersRejectsLineBreak() {
+        PreEncodedHttpHeaders.EMPTY.add(HttpHeaderNames.SERVER,
+                "netty\r\nX-Injected: true".getBytes(CharsetUtil.US_ASCII));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPreEncodedHeadersRejectsContentLength() {
+        PreEncodedHttpHeaders.EMPTY.add("Content-Length", "0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPreEncodedHeadersRejectsTransferEncoding() {
+        PreEncodedHttpHeaders.EMPTY.add(HttpHeaderNames.TRANSFER_ENCODING,
+                HttpHeaderValues.CHUNKED.toString().getBytes(CharsetUtil.US_ASCII));
+    }
 }
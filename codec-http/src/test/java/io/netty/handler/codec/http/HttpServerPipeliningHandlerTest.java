@@ -0,0 +1,265 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HttpServerPipeliningHandlerTest {
+
+    @Test
+    public void testResponsesOfOneReadAreFlushedOnce() {
+        FlushCounter flushes = new FlushCounter();
+        EmbeddedChannel channel = new EmbeddedChannel(flushes, new HttpServerPipeliningHandler(),
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ctx.writeAndFlush(response(((HttpRequest) msg).uri()));
+                    }
+                });
+        flushes.count = 0;
+
+        assertFalse(channel.writeInbound(request("/1"), request("/2"), request("/3")));
+        assertEquals(1, flushes.count);
+        assertResponse(channel, "/1");
+        assertResponse(channel, "/2");
+        assertResponse(channel, "/3");
+        assertNull(channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testExplicitFlushAfterResponses() {
+        FlushCounter flushes = new FlushCounter();
+        EmbeddedChannel channel = new EmbeddedChannel(flushes, new HttpServerPipeliningHandler(2),
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ctx.writeAndFlush(response(((HttpRequest) msg).uri()));
+                    }
+                });
+        flushes.count = 0;
+
+        assertFalse(channel.writeInbound(request("/1"), request("/2"), request("/3")));
+        assertEquals(2, flushes.count);
+        assertResponse(channel, "/1");
+        assertResponse(channel, "/2");
+        assertResponse(channel, "/3");
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testOutOfOrderResponses() {
+        FlushCounter flushes = new FlushCounter();
+        RequestRecorder requests = new RequestRecorder();
+        EmbeddedChannel channel = new EmbeddedChannel(flushes, new HttpServerPipeliningHandler(), requests);
+        flushes.count = 0;
+
+        assertFalse(channel.writeInbound(request("/1"), request("/2"), request("/3")));
+        int first = requests.sequences.get(0);
+        int second = requests.sequences.get(1);
+        int third = requests.sequences.get(2);
+        assertEquals(0, first);
+        assertEquals(1, second);
+        assertEquals(2, third);
+
+        ChannelFuture thirdFuture = channel.writeAndFlush(new HttpPipelinedResponse(third, response("/3")));
+        channel.writeAndFlush(new HttpPipelinedResponse(second, response("/2")));
+        assertNull(channel.readOutbound());
+        assertFalse(thirdFuture.isDone());
+        assertEquals(0, flushes.count);
+
+        channel.writeAndFlush(new HttpPipelinedResponse(first, response("/1")));
+        assertTrue(thirdFuture.isSuccess());
+        assertEquals(1, flushes.count);
+        assertResponse(channel, "/1");
+        assertResponse(channel, "/2");
+        assertResponse(channel, "/3");
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testStreamedResponses() {
+        RequestRecorder requests = new RequestRecorder();
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpServerPipeliningHandler(), requests);
+
+        assertFalse(channel.writeInbound(request("/1"), request("/2")));
+        int second = requests.sequences.get(1);
+
+        HttpResponse secondResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        channel.writeAndFlush(new HttpPipelinedResponse(second, secondResponse));
+        channel.writeAndFlush(new HttpPipelinedResponse(second, LastHttpContent.EMPTY_LAST_CONTENT));
+
+        HttpResponse firstResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        HttpContent firstContent = new DefaultHttpContent(Unpooled.copiedBuffer("/1", CharsetUtil.US_ASCII));
+        HttpResponse informational = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE);
+        // Unwrapped messages belong to the oldest request.
+        channel.writeAndFlush(informational);
+        channel.writeAndFlush(firstResponse);
+        channel.writeAndFlush(firstContent);
+        assertSame(informational, channel.readOutbound());
+        assertSame(firstResponse, channel.readOutbound());
+        assertSame(firstContent, channel.readOutbound());
+        assertNull(channel.readOutbound());
+
+        channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+        assertSame(secondResponse, channel.readOutbound());
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+        assertNull(channel.readOutbound());
+        firstContent.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testResponseForUnknownRequest() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpServerPipeliningHandler());
+        FullHttpResponse response = response("/1");
+        ChannelFuture future = channel.writeAndFlush(new HttpPipelinedResponse(42, response));
+        assertTrue(future.cause() instanceof IllegalStateException);
+        assertEquals(0, response.refCnt());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testResponseReleasedWhenChannelClosed() {
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpServerPipeliningHandler());
+        assertFalse(channel.finish());
+
+        FullHttpResponse response = response("/1");
+        ChannelFuture future = channel.writeAndFlush(new HttpPipelinedResponse(0, response));
+        assertFalse(future.isSuccess());
+        assertEquals(0, response.refCnt());
+    }
+
+    @Test
+    public void testReleaseReleasesMessage() {
+        FullHttpResponse response = response("/1");
+        HttpPipelinedResponse pipelined = new HttpPipelinedResponse(0, response);
+        assertSame(pipelined, pipelined.retain());
+        assertEquals(2, pipelined.refCnt());
+        assertFalse(ReferenceCountUtil.release(pipelined));
+        assertTrue(ReferenceCountUtil.release(pipelined));
+        assertEquals(0, response.refCnt());
+    }
+
+    @Test
+    public void testBufferedResponsesFailedOnClose() {
+        RequestRecorder requests = new RequestRecorder();
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpServerPipeliningHandler(), requests);
+
+        assertFalse(channel.writeInbound(request("/1"), request("/2")));
+        FullHttpResponse response = response("/2");
+        ChannelFuture future = channel.writeAndFlush(new HttpPipelinedResponse(requests.sequences.get(1), response));
+        assertFalse(future.isDone());
+
+        assertFalse(channel.finish());
+        assertTrue(future.cause() instanceof ClosedChannelException);
+        assertEquals(0, response.refCnt());
+    }
+
+    @Test
+    public void testOutOfOrderResponsesWithAggregator() {
+        RequestRecorder requests = new RequestRecorder();
+        EmbeddedChannel channel = new EmbeddedChannel(new HttpServerCodec(), new HttpServerPipeliningHandler(),
+                new HttpObjectAggregator(1024), requests);
+
+        assertFalse(channel.writeInbound(Unpooled.copiedBuffer(
+                "POST /1 HTTP/1.1\r\nContent-Length: 2\r\n\r\nab" +
+                "POST /2 HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n2\r\ncd\r\n0\r\n\r\n",
+                CharsetUtil.US_ASCII)));
+        assertEquals(2, requests.requests.size());
+        assertTrue(requests.requests.get(0) instanceof FullHttpRequest);
+        assertTrue(requests.requests.get(1) instanceof FullHttpRequest);
+
+        // Answer the aggregated requests in reverse order.
+        ChannelFuture secondFuture =
+                channel.writeAndFlush(new HttpPipelinedResponse(requests.sequences.get(1), response("/2")));
+        assertFalse(secondFuture.isDone());
+        assertNull(channel.readOutbound());
+        channel.writeAndFlush(new HttpPipelinedResponse(requests.sequences.get(0), response("/1")));
+        assertTrue(secondFuture.isSuccess());
+
+        StringBuilder written = new StringBuilder();
+        for (ByteBuf buf; (buf = channel.readOutbound()) != null;) {
+            written.append(buf.toString(CharsetUtil.US_ASCII));
+            buf.release();
+        }
+        String responses = written.toString();
+        assertTrue(responses, responses.indexOf("\r\n\r\n/1") < responses.indexOf("\r\n\r\n/2"));
+        for (HttpRequest request : requests.requests) {
+            ((FullHttpRequest) request).release();
+        }
+        assertFalse(channel.finish());
+    }
+
+    private static HttpRequest request(String uri) {
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+    }
+
+    private static FullHttpResponse response(String content) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                Unpooled.copiedBuffer(content, CharsetUtil.US_ASCII));
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        return response;
+    }
+
+    private static void assertResponse(EmbeddedChannel channel, String content) {
+        FullHttpResponse response = channel.readOutbound();
+        ByteBuf buf = response.content();
+        assertEquals(content, buf.toString(CharsetUtil.US_ASCII));
+        response.release();
+    }
+
+    private static final class FlushCounter extends ChannelOutboundHandlerAdapter {
+        int count;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+            count++;
+            ctx.flush();
+        }
+    }
+
+    private static final class RequestRecorder extends ChannelInboundHandlerAdapter {
+        final List<HttpRequest> requests = new ArrayList<HttpRequest>();
+        final List<Integer> sequences = new ArrayList<Integer>();
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            requests.add((HttpRequest) msg);
+            sequences.add(ctx.channel().attr(HttpServerPipeliningHandler.REQUEST_SEQUENCE).get());
+        }
+    }
+}
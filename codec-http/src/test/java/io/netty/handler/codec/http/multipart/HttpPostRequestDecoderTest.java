@@ -32,11 +32,16 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -345,6 +350,141 @@ public class HttpPostRequestDecoderTest {
         buf4.release();
     }
 
+    @Test
+    public void testDelimiterSplitAcrossChunks() throws Exception {
+        final String boundary = "dLV9Wyq26L_-JQxk6ferf-RT153LhOO";
+        // Contains line breaks and prefixes of the delimiter which must be kept as data.
+        final String fileData = "\r\n--dLV9Wyq26L_-JQxk6\r\r\n\n--\r-" + boundary + "\n\r";
+        final String body =
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"tmp-0.txt\"\r\n" +
+                "Content-Type: application/octet-stream\r\n" +
+                "\r\n" +
+                fileData + "\r\n" +
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n" +
+                "\r\n" +
+                "value\r--" + boundary + "\r\n" +
+                "--" + boundary + "--\r\n";
+        final byte[] bytes = body.getBytes(CharsetUtil.US_ASCII);
+
+        for (int chunkSize = 1; chunkSize <= bytes.length; chunkSize++) {
+            DefaultHttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/");
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary);
+            HttpPostRequestDecoder decoder = new HttpPostRequestDecoder(new DefaultHttpDataFactory(false), request);
+            for (int i = 0; i < bytes.length; i += chunkSize) {
+                ByteBuf buf = Unpooled.wrappedBuffer(bytes, i, Math.min(chunkSize, bytes.length - i));
+                decoder.offer(i + chunkSize >= bytes.length ? new DefaultLastHttpContent(buf)
+                        : new DefaultHttpContent(buf));
+                buf.release();
+            }
+
+            FileUpload fileUpload = (FileUpload) decoder.getBodyHttpData("file");
+            assertEquals("chunk size: " + chunkSize, fileData, fileUpload.getString(CharsetUtil.US_ASCII));
+            Attribute attribute = (Attribute) decoder.getBodyHttpData("field");
+            assertEquals("chunk size: " + chunkSize, "value\r--" + boundary, attribute.getValue());
+            decoder.destroy();
+        }
+    }
+
+    @Test
+    public void testDiskWriteExecutor() throws Exception {
+        final String boundary = "dLV9Wyq26L_-JQxk6ferf-RT153LhOO";
+        final String body =
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"tmp-0.txt\"\r\n" +
+                "Content-Type: application/octet-stream\r\n" +
+                "\r\n" +
+                "file data\r\n" +
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"field\"\r\n" +
+                "\r\n" +
+                "value\r\n" +
+                "--" + boundary + "--\r\n";
+        final byte[] bytes = body.getBytes(CharsetUtil.US_ASCII);
+
+        EventExecutorGroup group = new DefaultEventExecutorGroup(1);
+        try {
+            // Keep the disk write executor busy until all chunks were offered.
+            final CountDownLatch latch = new CountDownLatch(1);
+            group.next().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            DefaultHttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/");
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary);
+            HttpPostMultipartRequestDecoder decoder = new HttpPostMultipartRequestDecoder(
+                    new DefaultHttpDataFactory(true), request, CharsetUtil.UTF_8, group);
+            for (int i = 0; i < bytes.length; i += 16) {
+                ByteBuf buf = Unpooled.wrappedBuffer(bytes, i, Math.min(16, bytes.length - i));
+                decoder.offer(i + 16 >= bytes.length ? new DefaultLastHttpContent(buf) : new DefaultHttpContent(buf));
+                buf.release();
+            }
+
+            // The file content is not written yet, so neither it nor the attribute after it is returned.
+            assertFalse(decoder.hasNext());
+            assertFalse(decoder.diskWriteFuture().isDone());
+
+            latch.countDown();
+            assertTrue(decoder.diskWriteFuture().await(5, TimeUnit.SECONDS));
+            assertTrue(decoder.diskWriteFuture().isSuccess());
+
+            FileUpload fileUpload = (FileUpload) decoder.next();
+            assertTrue(fileUpload.isCompleted());
+            assertFalse(fileUpload.isInMemory());
+            assertEquals("file data", fileUpload.getString(CharsetUtil.US_ASCII));
+            Attribute attribute = (Attribute) decoder.next();
+            assertEquals("value", attribute.getValue());
+            decoder.destroy();
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testDiskWriteExecutorFailure() throws Exception {
+        final String boundary = "dLV9Wyq26L_-JQxk6ferf-RT153LhOO";
+        final String body =
+                "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"tmp-0.txt\"\r\n" +
+                "Content-Type: application/octet-stream\r\n" +
+                "Content-Length: 4\r\n" +
+                "\r\n" +
+                "too much file data\r\n" +
+                "--" + boundary + "--\r\n";
+
+        EventExecutorGroup group = new DefaultEventExecutorGroup(1);
+        try {
+            DefaultHttpDataFactory factory = new DefaultHttpDataFactory(true);
+            DefaultHttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/");
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary);
+            HttpPostMultipartRequestDecoder decoder =
+                    new HttpPostMultipartRequestDecoder(factory, request, CharsetUtil.UTF_8, group);
+            ByteBuf buf = Unpooled.copiedBuffer(body, CharsetUtil.US_ASCII);
+            decoder.offer(new DefaultLastHttpContent(buf));
+            buf.release();
+
+            assertTrue(decoder.diskWriteFuture().await(5, TimeUnit.SECONDS));
+            assertTrue(decoder.diskWriteFuture().cause() instanceof IOException);
+            try {
+                decoder.hasNext();
+                fail();
+            } catch (HttpPostRequestDecoder.ErrorDataDecoderException expected) {
+                assertTrue(expected.getCause() instanceof IOException);
+            }
+            decoder.destroy();
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
     // See https://github.com/netty/netty/issues/3326
     @Test
     public void testFilenameContainingSemicolon() throws Exception {
@@ -35,6 +35,8 @@ import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http2.HpackUtil.IndexType;
 import io.netty.util.AsciiString;
 
+import java.util.Arrays;
+
 import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_HEADER_TABLE_SIZE;
 import static io.netty.handler.codec.http2.Http2CodecUtil.MAX_HEADER_LIST_SIZE;
 import static io.netty.handler.codec.http2.Http2CodecUtil.MAX_HEADER_TABLE_SIZE;
@@ -95,6 +97,7 @@ final class HpackDecoder {
     private long maxDynamicTableSize;
     private long encoderMaxDynamicTableSize;
     private boolean maxDynamicTableSizeChangeRequired;
+    private FlatHeadersSink flatHeadersSink;
 
     /**
      * Create a new instance.
@@ -133,6 +136,28 @@ final class HpackDecoder {
         sink.finish();
     }
 
+    /**
+     * Decode the header block into a {@link FlatHttp2Headers}.
+     * <p>
+     * Names and values are decoded into a block of bytes which is reused for every header block, so the only
+     * allocations per header block are the copies handed to the returned {@link FlatHttp2Headers}.
+     * <p>
+     * This method assumes the entire header block is contained in {@code in}.
+     */
+    public FlatHttp2Headers decodeFlat(int streamId, ByteBuf in, boolean validateHeaders) throws Http2Exception {
+        FlatHeadersSink sink = flatHeadersSink;
+        if (sink == null) {
+            flatHeadersSink = sink = new FlatHeadersSink(huffmanDecoder);
+        }
+        sink.reset(streamId, maxHeaderListSize, validateHeaders);
+        decode(in, sink);
+
+        // Now that we've read all of our headers we can perform the validation steps. We must
+        // delay throwing until this point to prevent dynamic table corruption.
+        sink.finish();
+        return sink.newHeaders();
+    }
+
     private void decode(ByteBuf in, Sink sink) throws Http2Exception {
         int index = 0;
         int nameLength = 0;
@@ -288,8 +313,12 @@ final class HpackDecoder {
                         throw notEnoughDataException(in);
                     }
 
-                    CharSequence value = readStringLiteral(in, valueLength, huffmanEncoded);
-                    insertHeader(sink, name, value, indexType);
+                    // Values which are not added to the dynamic table may be decoded by the sink itself.
+                    if (indexType == IndexType.INCREMENTAL ||
+                            !sink.appendToHeaderList(name, in, valueLength, huffmanEncoded)) {
+                        CharSequence value = readStringLiteral(in, valueLength, huffmanEncoded);
+                        insertHeader(sink, name, value, indexType);
+                    }
                     state = READ_HEADER_REPRESENTATION;
                     break;
 
@@ -520,6 +549,14 @@ final class HpackDecoder {
 
     private interface Sink {
         void appendToHeaderList(CharSequence name, CharSequence value);
+
+        /**
+         * Append a header whose value is the next {@code valueLength} bytes of {@code in}. Returns {@code false}
+         * without reading from {@code in} if the value should be passed as a {@link CharSequence} instead.
+         */
+        boolean appendToHeaderList(CharSequence name, ByteBuf in, int valueLength, boolean huffmanEncoded)
+                throws Http2Exception;
+
         void finish() throws Http2Exception;
     }
 
@@ -570,5 +607,165 @@ final class HpackDecoder {
 
             headers.add(name, value);
         }
+
+        @Override
+        public boolean appendToHeaderList(CharSequence name, ByteBuf in, int valueLength, boolean huffmanEncoded) {
+            return false;
+        }
+    }
+
+    private static final class FlatHeadersSink implements Sink {
+        private static final int INITIAL_BLOCK_SIZE = 1024;
+        private static final int INITIAL_HEADERS = 16;
+        // Don't hold on to the memory of an unusually large header block.
+        private static final int MAX_RETAINED_BLOCK_SIZE = 64 * 1024;
+
+        private final HpackHuffmanDecoder huffmanDecoder;
+        private byte[] block;
+        private int[] indexes;
+        private int position;
+        private int size;
+        private long maxHeaderListSize;
+        private int streamId;
+        private boolean validate;
+        private long headersLength;
+        private boolean exceededMaxLength;
+        private HeaderType previousType;
+        private Http2Exception validationException;
+
+        FlatHeadersSink(HpackHuffmanDecoder huffmanDecoder) {
+            this.huffmanDecoder = huffmanDecoder;
+        }
+
+        void reset(int streamId, long maxHeaderListSize, boolean validate) {
+            if (block == null || block.length > MAX_RETAINED_BLOCK_SIZE) {
+                block = new byte[INITIAL_BLOCK_SIZE];
+                indexes = new int[INITIAL_HEADERS * FlatHttp2Headers.INDEXES_PER_HEADER];
+            }
+            position = 0;
+            size = 0;
+            this.maxHeaderListSize = maxHeaderListSize;
+            this.streamId = streamId;
+            this.validate = validate;
+            headersLength = 0;
+            exceededMaxLength = false;
+            previousType = null;
+            validationException = null;
+        }
+
+        @Override
+        public void finish() throws Http2Exception {
+            if (exceededMaxLength) {
+                headerListSizeExceeded(streamId, maxHeaderListSize, true);
+            } else if (validationException != null) {
+                throw validationException;
+            }
+        }
+
+        FlatHttp2Headers newHeaders() {
+            return new FlatHttp2Headers(Arrays.copyOf(block, position),
+                    Arrays.copyOf(indexes, size * FlatHttp2Headers.INDEXES_PER_HEADER), size);
+        }
+
+        @Override
+        public void appendToHeaderList(CharSequence name, CharSequence value) {
+            headersLength += HpackHeaderField.sizeOf(name, value);
+            exceededMaxLength |= headersLength > maxHeaderListSize;
+
+            if (accept(name)) {
+                int nameOffset = append(name);
+                int valueOffset = append(value);
+                addIndexes(nameOffset, name.length(), valueOffset, value.length());
+            }
+        }
+
+        @Override
+        public boolean appendToHeaderList(CharSequence name, ByteBuf in, int valueLength, boolean huffmanEncoded)
+                throws Http2Exception {
+            // Decode the value straight into the block, it is discarded again if the header is not accepted.
+            final int valueOffset = position;
+            if (huffmanEncoded) {
+                ensureWritable(HpackHuffmanDecoder.maxDecodedLength(valueLength));
+                position = huffmanDecoder.decode(in, valueLength, block, valueOffset);
+            } else {
+                ensureWritable(valueLength);
+                in.readBytes(block, valueOffset, valueLength);
+                position += valueLength;
+            }
+            final int decodedLength = position - valueOffset;
+
+            headersLength += name.length() + decodedLength + HpackHeaderField.HEADER_ENTRY_OVERHEAD;
+            exceededMaxLength |= headersLength > maxHeaderListSize;
+
+            if (accept(name)) {
+                addIndexes(append(name), name.length(), valueOffset, decodedLength);
+            } else {
+                position = valueOffset;
+            }
+            return true;
+        }
+
+        private boolean accept(CharSequence name) {
+            if (exceededMaxLength || validationException != null) {
+                // We don't store the header since we've already failed validation requirements.
+                return false;
+            }
+
+            if (validate) {
+                try {
+                    previousType = HpackDecoder.validate(streamId, name, previousType);
+                    validateName(name);
+                } catch (Http2Exception ex) {
+                    validationException = ex;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void validateName(CharSequence name) throws Http2Exception {
+            // Same rules DefaultHttp2Headers applies when validating.
+            if (name.length() == 0) {
+                throw connectionError(PROTOCOL_ERROR, "empty headers are not allowed [%s]", name);
+            }
+            for (int i = 0; i < name.length(); ++i) {
+                if (AsciiString.isUpperCase(name.charAt(i))) {
+                    throw connectionError(PROTOCOL_ERROR, "invalid header name [%s]", name);
+                }
+            }
+        }
+
+        private int append(CharSequence s) {
+            final int offset = position;
+            final int length = s.length();
+            ensureWritable(length);
+            if (s instanceof AsciiString) {
+                ((AsciiString) s).copy(0, block, offset, length);
+            } else {
+                for (int i = 0; i < length; ++i) {
+                    block[offset + i] = AsciiString.c2b(s.charAt(i));
+                }
+            }
+            position += length;
+            return offset;
+        }
+
+        private void ensureWritable(int length) {
+            if (block.length - position < length) {
+                block = Arrays.copyOf(block, Math.max(block.length << 1, position + length));
+            }
+        }
+
+        private void addIndexes(int nameOffset, int nameLength, int valueOffset, int valueLength) {
+            int i = size * FlatHttp2Headers.INDEXES_PER_HEADER;
+            if (i == indexes.length) {
+                indexes = Arrays.copyOf(indexes, indexes.length << 1);
+            }
+            indexes[i] = nameOffset;
+            indexes[i + 1] = nameLength;
+            indexes[i + 2] = valueOffset;
+            indexes[i + 3] = valueLength;
+            size++;
+        }
     }
 }
@@ -63,12 +63,16 @@ import static java.lang.Math.min;
  */
 final class HpackEncoder {
     static final int HUFF_CODE_THRESHOLD = 512;
-    // a linked hash map of header fields
+    static final int DEFAULT_ARRAY_SIZE_HINT = 64;
+    private static final int MAX_ARRAY_SIZE_HINT = 1024;
+    // a linked hash map of header fields, keyed by header name and value
     private final HeaderEntry[] headerFields;
-    private final HeaderEntry head = new HeaderEntry(-1, AsciiString.EMPTY_STRING,
-            AsciiString.EMPTY_STRING, Integer.MAX_VALUE, null);
+    // the same header fields, keyed by header name
+    private final HeaderEntry[] headerNames;
+    private final HeaderEntry head = new HeaderEntry(-1, -1, AsciiString.EMPTY_STRING,
+            AsciiString.EMPTY_STRING, Integer.MAX_VALUE, null, null);
     private final HpackHuffmanEncoder hpackHuffmanEncoder = new HpackHuffmanEncoder();
-    private final byte hashMask;
+    private final int hashMask;
     private final boolean ignoreMaxHeaderListSize;
     private final int huffCodeThreshold;
     private long size;
@@ -86,7 +90,7 @@ final class HpackEncoder {
      * Creates a new encoder.
      */
     HpackEncoder(boolean ignoreMaxHeaderListSize) {
-        this(ignoreMaxHeaderListSize, 16, HUFF_CODE_THRESHOLD);
+        this(ignoreMaxHeaderListSize, DEFAULT_ARRAY_SIZE_HINT, HUFF_CODE_THRESHOLD);
     }
 
     /**
@@ -96,10 +100,11 @@ final class HpackEncoder {
         this.ignoreMaxHeaderListSize = ignoreMaxHeaderListSize;
         maxHeaderTableSize = DEFAULT_HEADER_TABLE_SIZE;
         maxHeaderListSize = MAX_HEADER_LIST_SIZE;
-        // Enforce a bound of [2, 128] because hashMask is a byte. The max possible value of hashMask is one less
-        // than the length of this array, and we want the mask to be > 0.
-        headerFields = new HeaderEntry[findNextPositivePowerOfTwo(max(2, min(arraySizeHint, 128)))];
-        hashMask = (byte) (headerFields.length - 1);
+        // Enforce a bound of [2, MAX_ARRAY_SIZE_HINT]. The max possible value of hashMask is one less than the length
+        // of this array, and we want the mask to be > 0.
+        headerFields = new HeaderEntry[findNextPositivePowerOfTwo(max(2, min(arraySizeHint, MAX_ARRAY_SIZE_HINT)))];
+        headerNames = new HeaderEntry[headerFields.length];
+        hashMask = headerFields.length - 1;
         head.before = head.after = head;
         this.huffCodeThreshold = huffCodeThreshold;
     }
@@ -152,18 +157,20 @@ final class HpackEncoder {
      * <strong>The given {@link CharSequence}s must be immutable!</strong>
      */
     private void encodeHeader(ByteBuf out, CharSequence name, CharSequence value, boolean sensitive, long headerSize) {
+        final int nameHash = AsciiString.hashCode(name);
         // If the header value is sensitive then it must never be indexed
         if (sensitive) {
-            int nameIndex = getNameIndex(name);
+            int nameIndex = getNameIndex(name, nameHash);
             encodeLiteral(out, name, value, IndexType.NEVER, nameIndex);
             return;
         }
 
+        final int valueHash = AsciiString.hashCode(value);
         // If the peer will only use the static table
         if (maxHeaderTableSize == 0) {
-            int staticTableIndex = HpackStaticTable.getIndexInsensitive(name, value);
+            int staticTableIndex = HpackStaticTable.getIndexInsensitive(name, value, nameHash, valueHash);
             if (staticTableIndex == -1) {
-                int nameIndex = HpackStaticTable.getIndex(name);
+                int nameIndex = HpackStaticTable.getIndex(name, nameHash);
                 encodeLiteral(out, name, value, IndexType.NONE, nameIndex);
             } else {
                 encodeInteger(out, 0x80, 7, staticTableIndex);
@@ -173,25 +180,26 @@ final class HpackEncoder {
 
         // If the headerSize is greater than the max table size then it must be encoded literally
         if (headerSize > maxHeaderTableSize) {
-            int nameIndex = getNameIndex(name);
+            int nameIndex = getNameIndex(name, nameHash);
             encodeLiteral(out, name, value, IndexType.NONE, nameIndex);
             return;
         }
 
-        HeaderEntry headerField = getEntryInsensitive(name, value);
+        final int hash = HpackStaticTable.nameAndValueHash(nameHash, valueHash);
+        HeaderEntry headerField = getEntryInsensitive(name, value, hash);
         if (headerField != null) {
             int index = getIndex(headerField.index) + HpackStaticTable.length;
             // Section 6.1. Indexed Header Field Representation
             encodeInteger(out, 0x80, 7, index);
         } else {
-            int staticTableIndex = HpackStaticTable.getIndexInsensitive(name, value);
+            int staticTableIndex = HpackStaticTable.getIndexInsensitive(name, value, nameHash, valueHash);
             if (staticTableIndex != -1) {
                 // Section 6.1. Indexed Header Field Representation
                 encodeInteger(out, 0x80, 7, staticTableIndex);
             } else {
                 ensureCapacity(headerSize);
-                encodeLiteral(out, name, value, IndexType.INCREMENTAL, getNameIndex(name));
-                add(name, value, headerSize);
+                encodeLiteral(out, name, value, IndexType.INCREMENTAL, getNameIndex(name, nameHash));
+                add(name, value, nameHash, hash, headerSize);
             }
         }
     }
@@ -305,10 +313,10 @@ final class HpackEncoder {
         encodeStringLiteral(out, value);
     }
 
-    private int getNameIndex(CharSequence name) {
-        int index = HpackStaticTable.getIndex(name);
+    private int getNameIndex(CharSequence name, int nameHash) {
+        int index = HpackStaticTable.getIndex(name, nameHash);
         if (index == -1) {
-            index = getIndex(name);
+            index = getIndex(name, nameHash);
             if (index >= 0) {
                 index += HpackStaticTable.length;
             }
@@ -359,16 +367,14 @@ final class HpackEncoder {
      * Returns the header entry with the lowest index value for the header field. Returns null if
      * header field is not in the dynamic table.
      */
-    private HeaderEntry getEntryInsensitive(CharSequence name, CharSequence value) {
+    private HeaderEntry getEntryInsensitive(CharSequence name, CharSequence value, int hash) {
         if (length() == 0 || name == null || value == null) {
             return null;
         }
-        int h = AsciiString.hashCode(name);
-        int i = index(h);
-        for (HeaderEntry e = headerFields[i]; e != null; e = e.next) {
+        for (HeaderEntry e = headerFields[index(hash)]; e != null; e = e.next) {
             // Check the value before then name, as it is more likely the value will be different incase there is no
             // match.
-            if (e.hash == h && equalsVariableTime(value, e.value) && equalsVariableTime(name, e.name)) {
+            if (e.hash == hash && equalsVariableTime(value, e.value) && equalsVariableTime(name, e.name)) {
                 return e;
             }
         }
@@ -379,14 +385,12 @@ final class HpackEncoder {
      * Returns the lowest index value for the header field name in the dynamic table. Returns -1 if
      * the header field name is not in the dynamic table.
      */
-    private int getIndex(CharSequence name) {
+    private int getIndex(CharSequence name, int nameHash) {
         if (length() == 0 || name == null) {
             return -1;
         }
-        int h = AsciiString.hashCode(name);
-        int i = index(h);
-        for (HeaderEntry e = headerFields[i]; e != null; e = e.next) {
-            if (e.hash == h && equalsConstantTime(name, e.name) != 0) {
+        for (HeaderEntry e = headerNames[index(nameHash)]; e != null; e = e.nextName) {
+            if (e.nameHash == nameHash && equalsConstantTime(name, e.name) != 0) {
                 return getIndex(e.index);
             }
         }
@@ -405,7 +409,7 @@ final class HpackEncoder {
      * the size of the table and the new header field is less than the table's maxHeaderTableSize. If the size
      * of the new entry is larger than the table's maxHeaderTableSize, the dynamic table will be cleared.
      */
-    private void add(CharSequence name, CharSequence value, long headerSize) {
+    private void add(CharSequence name, CharSequence value, int nameHash, int hash, long headerSize) {
         // Clear the table if the header field size is larger than the maxHeaderTableSize.
         if (headerSize > maxHeaderTableSize) {
             clear();
@@ -417,11 +421,12 @@ final class HpackEncoder {
             remove();
         }
 
-        int h = AsciiString.hashCode(name);
-        int i = index(h);
-        HeaderEntry old = headerFields[i];
-        HeaderEntry e = new HeaderEntry(h, name, value, head.before.index - 1, old);
+        int i = index(hash);
+        int j = index(nameHash);
+        HeaderEntry e = new HeaderEntry(nameHash, hash, name, value, head.before.index - 1,
+                headerFields[i], headerNames[j]);
         headerFields[i] = e;
+        headerNames[j] = e;
         e.addBefore(head);
         size += headerSize;
     }
@@ -434,26 +439,30 @@ final class HpackEncoder {
             return null;
         }
         HeaderEntry eldest = head.after;
-        int h = eldest.hash;
-        int i = index(h);
-        HeaderEntry prev = headerFields[i];
-        HeaderEntry e = prev;
-        while (e != null) {
-            HeaderEntry next = e.next;
-            if (e == eldest) {
-                if (prev == eldest) {
-                    headerFields[i] = next;
-                } else {
-                    prev.next = next;
-                }
-                eldest.remove();
-                size -= eldest.size();
-                return eldest;
+        // The eldest entry is the last one in both of its chains.
+        int i = index(eldest.hash);
+        HeaderEntry e = headerFields[i];
+        if (e == eldest) {
+            headerFields[i] = null;
+        } else {
+            while (e.next != eldest) {
+                e = e.next;
             }
-            prev = e;
-            e = next;
+            e.next = null;
         }
-        return null;
+        int j = index(eldest.nameHash);
+        e = headerNames[j];
+        if (e == eldest) {
+            headerNames[j] = null;
+        } else {
+            while (e.nextName != eldest) {
+                e = e.nextName;
+            }
+            e.nextName = null;
+        }
+        eldest.remove();
+        size -= eldest.size();
+        return eldest;
     }
 
     /**
@@ -461,6 +470,7 @@ final class HpackEncoder {
      */
     private void clear() {
         Arrays.fill(headerFields, null);
+        Arrays.fill(headerNames, null);
         head.before = head.after = head;
         size = 0;
     }
@@ -479,21 +489,28 @@ final class HpackEncoder {
         // These fields comprise the doubly linked list used for iteration.
         HeaderEntry before, after;
 
-        // These fields comprise the chained list for header fields with the same hash.
+        // These fields comprise the chained list for header fields with the same hash of name and value.
         HeaderEntry next;
         int hash;
 
+        // These fields comprise the chained list for header fields with the same hash of the name.
+        HeaderEntry nextName;
+        int nameHash;
+
         // This is used to compute the index in the dynamic table.
         int index;
 
         /**
          * Creates new entry.
          */
-        HeaderEntry(int hash, CharSequence name, CharSequence value, int index, HeaderEntry next) {
+        HeaderEntry(int nameHash, int hash, CharSequence name, CharSequence value, int index, HeaderEntry next,
+                    HeaderEntry nextName) {
             super(name, value);
             this.index = index;
             this.hash = hash;
             this.next = next;
+            this.nameHash = nameHash;
+            this.nextName = nextName;
         }
 
         /**
@@ -505,6 +522,7 @@ final class HpackEncoder {
             before = null; // null references to prevent nepotism in generational GC.
             after = null;
             next = null;
+            nextName = null;
         }
 
         /**
@@ -4686,7 +4686,24 @@ final class HpackHuffmanDecoder implements ByteProcessor {
         if (length == 0) {
             return AsciiString.EMPTY_STRING;
         }
-        dest = new byte[length * 8 / 5];
+        byte[] dest = new byte[maxDecodedLength(length)];
+        int end = decode(buf, length, dest, 0);
+        return new AsciiString(dest, 0, end, false);
+    }
+
+    /**
+     * Decompresses the given Huffman coded string literal into {@code dest}, which must have room for
+     * {@link #maxDecodedLength(int)} bytes after {@code destIndex}.
+     *
+     * @return the index after the last decoded byte in {@code dest}
+     * @throws Http2Exception EOS Decoded
+     */
+    int decode(ByteBuf buf, int length, byte[] dest, int destIndex) throws Http2Exception {
+        if (length == 0) {
+            return destIndex;
+        }
+        this.dest = dest;
+        k = destIndex;
         try {
             int readerIndex = buf.readerIndex();
             // Using ByteProcessor to reduce bounds-checking and reference-count checking during byte-by-byte
@@ -4698,7 +4715,7 @@ final class HpackHuffmanDecoder implements ByteProcessor {
                 if ((state & HUFFMAN_COMPLETE_SHIFT) != HUFFMAN_COMPLETE_SHIFT) {
                     throw BAD_ENCODING;
                 }
-                return new AsciiString(dest, 0, k, false);
+                return k;
             }
 
             // The process(...) method returned before the requested length was requested. This means there
@@ -4706,12 +4723,20 @@ final class HpackHuffmanDecoder implements ByteProcessor {
             buf.readerIndex(endIndex);
             throw BAD_ENCODING;
         } finally {
-            dest = null;
+            this.dest = null;
             k = 0;
             state = 0;
         }
     }
 
+    /**
+     * Returns the maximum number of bytes a Huffman coded string literal of {@code length} bytes decodes to.
+     */
+    static int maxDecodedLength(int length) {
+        // The shortest code has 5 bits.
+        return length * 8 / 5;
+    }
+
     /**
      * <strong>This should never be called from anything but this class itself!</strong>
      */
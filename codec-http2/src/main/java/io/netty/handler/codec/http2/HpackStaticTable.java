@@ -31,7 +31,6 @@
  */
 package io.netty.handler.codec.http2;
 
-import io.netty.handler.codec.UnsupportedValueConverter;
 import io.netty.util.AsciiString;
 
 import java.util.Arrays;
@@ -115,13 +114,17 @@ final class HpackStaticTable {
         return new HpackHeaderField(AsciiString.cached(name), AsciiString.cached(value));
     }
 
-    private static final CharSequenceMap<Integer> STATIC_INDEX_BY_NAME = createMap();
-
     /**
      * The number of header fields in the static table.
      */
     static final int length = STATIC_TABLE.size();
 
+    // Perfect hash tables from the header name, respectively the header name and value, to the index of the entry
+    // in the static table. They are searched for when the class is initialized, as the hash codes of header names
+    // depend on the platform.
+    private static final PerfectHashTable INDEX_BY_NAME = createNameTable();
+    private static final PerfectHashTable INDEX_BY_NAME_AND_VALUE = createNameAndValueTable();
+
     /**
      * Return the header field at the given index value.
      */
@@ -134,8 +137,16 @@ final class HpackStaticTable {
      * -1 if the header field name is not in the static table.
      */
     static int getIndex(CharSequence name) {
-        Integer index = STATIC_INDEX_BY_NAME.get(name);
-        if (index == null) {
+        return getIndex(name, AsciiString.hashCode(name));
+    }
+
+    /**
+     * Same as {@link #getIndex(CharSequence)} for a {@code name} whose {@link AsciiString#hashCode(CharSequence)}
+     * is already known.
+     */
+    static int getIndex(CharSequence name, int nameHash) {
+        int index = INDEX_BY_NAME.get(nameHash);
+        if (index == 0 || !equalsVariableTime(name, getEntry(index).name)) {
             return -1;
         }
         return index;
@@ -146,37 +157,100 @@ final class HpackStaticTable {
      * header field is not in the static table.
      */
     static int getIndexInsensitive(CharSequence name, CharSequence value) {
-        int index = getIndex(name);
-        if (index == -1) {
+        return getIndexInsensitive(name, value, AsciiString.hashCode(name), AsciiString.hashCode(value));
+    }
+
+    /**
+     * Same as {@link #getIndexInsensitive(CharSequence, CharSequence)} for a {@code name} and {@code value} whose
+     * {@link AsciiString#hashCode(CharSequence)} are already known.
+     */
+    static int getIndexInsensitive(CharSequence name, CharSequence value, int nameHash, int valueHash) {
+        int index = INDEX_BY_NAME_AND_VALUE.get(nameAndValueHash(nameHash, valueHash));
+        if (index == 0) {
             return -1;
         }
-
-        // Note this assumes all entries for a given header field are sequential.
-        while (index <= length) {
-            HpackHeaderField entry = getEntry(index);
-            if (equalsVariableTime(name, entry.name) && equalsVariableTime(value, entry.value)) {
-                return index;
-            }
-            index++;
+        HpackHeaderField entry = getEntry(index);
+        if (!equalsVariableTime(value, entry.value) || !equalsVariableTime(name, entry.name)) {
+            return -1;
         }
+        return index;
+    }
 
-        return -1;
+    static int nameAndValueHash(int nameHash, int valueHash) {
+        return 31 * nameHash + valueHash;
     }
 
-    // create a map CharSequenceMap header name to index value to allow quick lookup
-    private static CharSequenceMap<Integer> createMap() {
-        int length = STATIC_TABLE.size();
-        @SuppressWarnings("unchecked")
-        CharSequenceMap<Integer> ret = new CharSequenceMap<Integer>(true,
-                UnsupportedValueConverter.<Integer>instance(), length);
-        // Iterate through the static table in reverse order to
-        // save the smallest index for a given name in the map.
+    private static PerfectHashTable createNameTable() {
+        // Iterate through the static table in reverse order to save the smallest index for a given name.
+        int[] hashes = new int[length];
+        int[] indexes = new int[length];
+        int size = 0;
         for (int index = length; index > 0; index--) {
+            int hash = AsciiString.hashCode(getEntry(index).name);
+            if (size > 0 && hashes[size - 1] == hash) {
+                // The entries for a given header name are sequential.
+                indexes[size - 1] = index;
+            } else {
+                hashes[size] = hash;
+                indexes[size] = index;
+                size++;
+            }
+        }
+        return PerfectHashTable.create(Arrays.copyOf(hashes, size), Arrays.copyOf(indexes, size));
+    }
+
+    private static PerfectHashTable createNameAndValueTable() {
+        int[] hashes = new int[length];
+        int[] indexes = new int[length];
+        for (int index = 1; index <= length; index++) {
             HpackHeaderField entry = getEntry(index);
-            CharSequence name = entry.name;
-            ret.set(name, index);
+            hashes[index - 1] = nameAndValueHash(AsciiString.hashCode(entry.name), AsciiString.hashCode(entry.value));
+            indexes[index - 1] = index;
+        }
+        return PerfectHashTable.create(hashes, indexes);
+    }
+
+    /**
+     * Maps a fixed set of hash codes without collisions to positive values, using the bits of the hash code
+     * starting at {@code shift} as the index into a power of two sized array.
+     */
+    private static final class PerfectHashTable {
+        private static final int MAX_TABLE_BITS = 12;
+
+        private final int[] values;
+        private final int shift;
+        private final int mask;
+
+        private PerfectHashTable(int[] values, int shift) {
+            this.values = values;
+            this.shift = shift;
+            mask = values.length - 1;
+        }
+
+        int get(int hash) {
+            return values[(hash >>> shift) & mask];
+        }
+
+        static PerfectHashTable create(int[] hashes, int[] values) {
+            for (int bits = 32 - Integer.numberOfLeadingZeros(hashes.length - 1); bits <= MAX_TABLE_BITS; bits++) {
+                final int mask = (1 << bits) - 1;
+                for (int shift = 0; shift <= 32 - bits; shift++) {
+                    int[] table = new int[1 << bits];
+                    int i = 0;
+                    for (; i < hashes.length; i++) {
+                        int bucket = (hashes[i] >>> shift) & mask;
+                        if (table[bucket] != 0) {
+                            break;
+                        }
+                        table[bucket] = values[i];
+                    }
+                    if (i == hashes.length) {
+                        return new PerfectHashTable(table, shift);
+                    }
+                }
+            }
+            throw new IllegalStateException("no perfect hash found for the static table");
         }
-        return ret;
     }
 
     // singleton
@@ -21,13 +21,21 @@ import io.netty.util.AsciiString;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
 import static io.netty.handler.codec.http2.Http2CodecUtil.MAX_HEADER_LIST_SIZE;
 import static io.netty.handler.codec.http2.Http2CodecUtil.MIN_HEADER_LIST_SIZE;
+import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_HEADER_LIST_SIZE;
 import static io.netty.handler.codec.http2.Http2HeadersEncoder.NEVER_SENSITIVE;
 import static io.netty.handler.codec.http2.Http2TestUtil.newTestEncoder;
 import static io.netty.handler.codec.http2.Http2TestUtil.randomBytes;
 import static io.netty.util.CharsetUtil.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -113,6 +121,116 @@ public class DefaultHttp2HeadersDecoderTest {
         }
     }
 
+    @Test
+    public void decodeFlatShouldMatchDefault() throws Exception {
+        final Http2Headers expected = new DefaultHttp2Headers(false);
+        expected.method("GET").path("/index.html").scheme("https").authority("example.org");
+        expected.add("accept-encoding", "gzip, deflate");
+        expected.add("cookie", "a=b");
+        expected.add("cookie", "c=d");
+        expected.add("x-custom", "");
+        // Sensitive values are never indexed, so they are decoded straight into the flat block.
+        expected.add("authorization", "secret");
+        final Http2HeadersEncoder.SensitivityDetector sensitivityDetector =
+                new Http2HeadersEncoder.SensitivityDetector() {
+            @Override
+            public boolean isSensitive(CharSequence name, CharSequence value) {
+                return AsciiString.contentEqualsIgnoreCase("authorization", name);
+            }
+        };
+        DefaultHttp2HeadersDecoder flatDecoder =
+                new DefaultHttp2HeadersDecoder(true, DEFAULT_HEADER_LIST_SIZE, true);
+        DefaultHttp2HeadersDecoder defaultDecoder = new DefaultHttp2HeadersDecoder(true);
+        HpackEncoder hpackEncoder = newTestEncoder();
+        // Encode twice so the second header block refers to the dynamic table.
+        for (int i = 0; i < 2; i++) {
+            ByteBuf buf = Unpooled.buffer();
+            try {
+                hpackEncoder.encodeHeaders(3, buf, expected, sensitivityDetector);
+                Http2Headers flat = flatDecoder.decodeHeaders(3, buf.duplicate());
+                Http2Headers headers = defaultDecoder.decodeHeaders(3, buf);
+
+                assertTrue(flat instanceof FlatHttp2Headers);
+                assertEquals(headers.size(), flat.size());
+                Iterator<Map.Entry<CharSequence, CharSequence>> flatItr = flat.iterator();
+                for (Map.Entry<CharSequence, CharSequence> entry : headers) {
+                    Map.Entry<CharSequence, CharSequence> flatEntry = flatItr.next();
+                    assertTrue(AsciiString.contentEquals(entry.getKey(), flatEntry.getKey()));
+                    assertTrue(AsciiString.contentEquals(entry.getValue(), flatEntry.getValue()));
+                }
+                assertFalse(flatItr.hasNext());
+                assertEquals("/index.html", flat.path().toString());
+                assertEquals("secret", flat.get("Authorization").toString());
+                assertEquals("", flat.get("x-custom").toString());
+                assertEquals(Arrays.<CharSequence>asList(new AsciiString("a=b"), new AsciiString("c=d")),
+                        flat.getAll("cookie"));
+                assertTrue(flat.contains("Accept-Encoding", "GZIP, DEFLATE", true));
+                assertFalse(flat.contains("accept-encoding", "GZIP, DEFLATE", false));
+                assertNull(flat.get("x-missing"));
+                assertEquals(headers.names().size(), flat.names().size());
+            } finally {
+                buf.release();
+            }
+        }
+    }
+
+    @Test
+    public void decodeFlatShouldNotShareBlockBetweenHeaders() throws Exception {
+        DefaultHttp2HeadersDecoder flatDecoder =
+                new DefaultHttp2HeadersDecoder(false, DEFAULT_HEADER_LIST_SIZE, true);
+        ByteBuf first = encode(b("akey"), b("avalue"));
+        ByteBuf second = encode(b("akey"), b("bvalue"));
+        try {
+            Http2Headers firstHeaders = flatDecoder.decodeHeaders(1, first);
+            Http2Headers secondHeaders = flatDecoder.decodeHeaders(3, second);
+            assertEquals("avalue", firstHeaders.get("akey").toString());
+            assertEquals("bvalue", secondHeaders.get("akey").toString());
+        } finally {
+            first.release();
+            second.release();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void decodeFlatShouldBeReadOnly() throws Exception {
+        DefaultHttp2HeadersDecoder flatDecoder =
+                new DefaultHttp2HeadersDecoder(false, DEFAULT_HEADER_LIST_SIZE, true);
+        ByteBuf buf = encode(b("akey"), b("avalue"));
+        try {
+            flatDecoder.decodeHeaders(1, buf).add("bkey", "bvalue");
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void decodeFlatShouldValidateNames() throws Exception {
+        DefaultHttp2HeadersDecoder flatDecoder =
+                new DefaultHttp2HeadersDecoder(true, DEFAULT_HEADER_LIST_SIZE, true);
+        ByteBuf buf = encode(b("AKey"), b("avalue"));
+        try {
+            flatDecoder.decodeHeaders(1, buf);
+            fail();
+        } catch (Http2Exception e) {
+            assertEquals(Http2Error.PROTOCOL_ERROR, e.error());
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test(expected = Http2Exception.HeaderListSizeException.class)
+    public void decodeFlatExceedHeaderSize() throws Exception {
+        final int maxListSize = 100;
+        DefaultHttp2HeadersDecoder flatDecoder =
+                new DefaultHttp2HeadersDecoder(false, maxListSize, true);
+        ByteBuf buf = encode(b("akey"), randomBytes(maxListSize));
+        try {
+            flatDecoder.decodeHeaders(1, buf);
+        } finally {
+            buf.release();
+        }
+    }
+
     private static byte[] b(String string) {
         return string.getBytes(UTF_8);
     }
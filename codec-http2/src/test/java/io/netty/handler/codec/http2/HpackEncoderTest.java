@@ -98,4 +98,41 @@ public class HpackEncoderTest {
             buf.release();
         }
     }
+
+    @Test
+    public void testDynamicTableWithManyValuesPerName() throws Http2Exception {
+        // A small index, so that entries share buckets and are evicted while being indexed.
+        hpackEncoder = new HpackEncoder(false, 2, HpackEncoder.HUFF_CODE_THRESHOLD);
+        Http2Headers headers = new DefaultHttp2Headers();
+        for (int i = 0; i < 100; i++) {
+            headers.add("x-name-" + (i % 3), "value-" + i);
+        }
+        for (int i = 0; i < 3; i++) {
+            ByteBuf buf = Unpooled.buffer();
+            try {
+                hpackEncoder.encodeHeaders(0, buf, headers, Http2HeadersEncoder.NEVER_SENSITIVE);
+                Http2Headers decoded = new DefaultHttp2Headers();
+                hpackDecoder.decode(0, buf, decoded, true);
+                assertEquals(headers, decoded);
+            } finally {
+                buf.release();
+            }
+        }
+    }
+
+    @Test
+    public void testIndexedHeaderIsEncodedAsIndex() throws Http2Exception {
+        Http2Headers headers = new DefaultHttp2Headers().add("x-custom", "value");
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            hpackEncoder.encodeHeaders(0, buf, headers, Http2HeadersEncoder.NEVER_SENSITIVE);
+            buf.clear();
+            hpackEncoder.encodeHeaders(0, buf, headers, Http2HeadersEncoder.NEVER_SENSITIVE);
+            // Section 6.1: the first entry of the dynamic table follows the static table.
+            assertEquals(1, buf.readableBytes());
+            assertEquals(0x80 | (HpackStaticTable.length + 1), buf.readUnsignedByte());
+        } finally {
+            buf.release();
+        }
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import io.netty.util.AsciiString;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HpackStaticTableTest {
+
+    @Test
+    public void testGetIndexOfEveryEntry() {
+        for (int index = 1; index <= HpackStaticTable.length; index++) {
+            HpackHeaderField entry = HpackStaticTable.getEntry(index);
+            // Use copies, so that the lookup does not depend on the identity of the cached AsciiStrings.
+            String name = entry.name.toString();
+            String value = entry.value.toString();
+            assertEquals(index, HpackStaticTable.getIndexInsensitive(name, value));
+            assertEquals(index, HpackStaticTable.getIndexInsensitive(new AsciiString(name), new AsciiString(value)));
+
+            int nameIndex = HpackStaticTable.getIndex(name);
+            assertEquals(name, HpackStaticTable.getEntry(nameIndex).name.toString());
+            // The lowest index of a name is returned.
+            assertEquals(nameIndex == 1 || !name.equals(HpackStaticTable.getEntry(nameIndex - 1).name.toString()),
+                    true);
+            assertEquals(nameIndex, HpackStaticTable.getIndex(new AsciiString(name)));
+        }
+    }
+
+    @Test
+    public void testGetIndexNotFound() {
+        assertEquals(-1, HpackStaticTable.getIndex("x-custom"));
+        assertEquals(-1, HpackStaticTable.getIndex(":Method"));
+        assertEquals(-1, HpackStaticTable.getIndexInsensitive(":method", "PUT"));
+        assertEquals(-1, HpackStaticTable.getIndexInsensitive(":status", "201"));
+        assertEquals(-1, HpackStaticTable.getIndexInsensitive("content-type", "text/plain"));
+        assertEquals(-1, HpackStaticTable.getIndexInsensitive("x-custom", ""));
+    }
+}
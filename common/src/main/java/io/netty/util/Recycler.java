@@ -18,6 +18,7 @@ package io.netty.util;
 
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.internal.ObjectPool;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -25,6 +26,7 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Queue;
 import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -95,6 +97,16 @@ public abstract class Recycler<T> {
      */
     private static final int DELAYED_QUEUE_RATIO;
 
+    /**
+     * 是否使用每个回收栈独享的MPSC队列代替WeakOrderQueue来跨线程回收对象
+     */
+    private static final boolean USE_MPSC_QUEUE;
+
+    /**
+     * Used as {@link DefaultHandle#lastRecycledId} for handles that were recycled through a MPSC queue.
+     */
+    private static final int MPSC_QUEUE_ID = ID_GENERATOR.getAndIncrement();
+
     static {
         // In the future, we might have different maxCapacity for different object types.
         // e.g. io.netty.recycler.maxCapacity.writeTask
@@ -127,6 +139,10 @@ public abstract class Recycler<T> {
         RATIO = max(0, SystemPropertyUtil.getInt("io.netty.recycler.ratio", 8));
         DELAYED_QUEUE_RATIO = max(0, SystemPropertyUtil.getInt("io.netty.recycler.delayedQueue.ratio", RATIO));
 
+        // Recycle objects released by other threads through a bounded MPSC queue per Stack instead of the
+        // WeakOrderQueue links that are kept in the DELAYED_RECYCLED map of the recycling thread.
+        USE_MPSC_QUEUE = SystemPropertyUtil.getBoolean("io.netty.recycler.useMpscQueue", false);
+
         if (logger.isDebugEnabled()) {
             if (DEFAULT_MAX_CAPACITY_PER_THREAD == 0) {
                 logger.debug("-Dio.netty.recycler.maxCapacityPerThread: disabled");
@@ -140,6 +156,7 @@ public abstract class Recycler<T> {
                 logger.debug("-Dio.netty.recycler.linkCapacity: {}", LINK_CAPACITY);
                 logger.debug("-Dio.netty.recycler.ratio: {}", RATIO);
                 logger.debug("-Dio.netty.recycler.delayedQueue.ratio: {}", DELAYED_QUEUE_RATIO);
+                logger.debug("-Dio.netty.recycler.useMpscQueue: {}", USE_MPSC_QUEUE);
             }
         }
 
@@ -151,12 +168,13 @@ public abstract class Recycler<T> {
     private final int interval;
     private final int maxDelayedQueuesPerThread;
     private final int delayedQueueInterval;
+    private final boolean useMpscQueue;
 
     private final FastThreadLocal<Stack<T>> threadLocal = new FastThreadLocal<Stack<T>>() {
         @Override
         protected Stack<T> initialValue() {
             return new Stack<T>(Recycler.this, Thread.currentThread(), maxCapacityPerThread, maxSharedCapacityFactor,
-                    interval, maxDelayedQueuesPerThread, delayedQueueInterval);
+                    interval, maxDelayedQueuesPerThread, delayedQueueInterval, useMpscQueue);
         }
 
         @Override
@@ -190,6 +208,20 @@ public abstract class Recycler<T> {
 
     protected Recycler(int maxCapacityPerThread, int maxSharedCapacityFactor,
                        int ratio, int maxDelayedQueuesPerThread, int delayedQueueRatio) {
+        this(maxCapacityPerThread, maxSharedCapacityFactor, ratio, maxDelayedQueuesPerThread, delayedQueueRatio,
+                USE_MPSC_QUEUE);
+    }
+
+    /**
+     * @param useMpscQueue {@code true} if objects recycled by other threads should be handed back to their owner
+     *                     through a bounded MPSC queue instead of {@code WeakOrderQueue}s. The queue is bounded by
+     *                     the same shared capacity as the {@code WeakOrderQueue}s (but never less than the minimum
+     *                     capacity of the MPSC queue) and is only used if {@code maxDelayedQueuesPerThread} is not
+     *                     {@code 0}.
+     */
+    protected Recycler(int maxCapacityPerThread, int maxSharedCapacityFactor,
+                       int ratio, int maxDelayedQueuesPerThread, int delayedQueueRatio, boolean useMpscQueue) {
+        this.useMpscQueue = useMpscQueue;
         interval = max(0, ratio);
         delayedQueueInterval = max(0, delayedQueueRatio);
         if (maxCapacityPerThread <= 0) {
@@ -646,8 +678,20 @@ public abstract class Recycler<T> {
         private WeakOrderQueue cursor, prev;
         private volatile WeakOrderQueue head;
 
+        /**
+         * 其它线程回收的对象，如果使用WeakOrderQueue则为null
+         *
+         * Handles recycled by other threads when the MPSC queue is used, {@code null} otherwise.
+         */
+        private final Queue<DefaultHandle<?>> pendingHandles;
+
+        /**
+         * 跨线程回收统计
+         */
+        private int pendingRecycleCount;
+
         Stack(Recycler<T> parent, Thread thread, int maxCapacity, int maxSharedCapacityFactor,
-              int interval, int maxDelayedQueues, int delayedQueueInterval) {
+              int interval, int maxDelayedQueues, int delayedQueueInterval, boolean useMpscQueue) {
             this.parent = parent;
 
             // 当前回收栈绑定的线程
@@ -660,6 +704,14 @@ public abstract class Recycler<T> {
             this.delayedQueueInterval = delayedQueueInterval;
             handleRecycleCount = interval; // Start at interval so the first one will be recycled.
             this.maxDelayedQueues = maxDelayedQueues;
+            if (useMpscQueue && maxDelayedQueues > 0) {
+                // Bounded by the same shared capacity as the WeakOrderQueue links. The queue grows in chunks so an
+                // idle Stack does not pay for the whole capacity up front.
+                pendingHandles = PlatformDependent.newMpscQueue(availableSharedCapacity.get());
+                pendingRecycleCount = delayedQueueInterval; // Start at interval so the first one will be recycled.
+            } else {
+                pendingHandles = null;
+            }
         }
 
         // Marked as synchronized to ensure this is serialized.
@@ -733,6 +785,10 @@ public abstract class Recycler<T> {
          * @return
          */
         private boolean scavenge() {
+            if (pendingHandles != null) {
+                return drainPendingHandles();
+            }
+
             // continue an existing scavenge, if any
             // 尝试回收
             if (scavengeSome()) {
@@ -746,6 +802,41 @@ public abstract class Recycler<T> {
             return false;
         }
 
+        /**
+         * 将其它线程通过MPSC队列回收的对象转移到回收栈中
+         *
+         * Moves the handles that other threads recycled through the MPSC queue into this stack.
+         */
+        private boolean drainPendingHandles() {
+            final int maxCapacity = this.maxCapacity;
+            int size = this.size;
+            DefaultHandle<?> handle;
+            while (size < maxCapacity && (handle = pendingHandles.poll()) != null) {
+                if (handle.recycleId == 0) {
+                    handle.recycleId = handle.lastRecycledId;
+                } else if (handle.recycleId != handle.lastRecycledId) {
+                    throw new IllegalStateException("recycled already");
+                }
+                if (pendingRecycleCount < delayedQueueInterval) {
+                    pendingRecycleCount++;
+                    continue;
+                }
+                pendingRecycleCount = 0;
+                if (dropHandle(handle)) {
+                    continue;
+                }
+                if (size == elements.length) {
+                    elements = Arrays.copyOf(elements, min(size << 1, maxCapacity));
+                }
+                elements[size++] = handle;
+            }
+            if (this.size == size) {
+                return false;
+            }
+            this.size = size;
+            return true;
+        }
+
         /**
          * 尝试从其它线程中获取本线程创建但被其它线程回收的对象
          *
@@ -895,6 +986,11 @@ public abstract class Recycler<T> {
                 return;
             }
 
+            if (pendingHandles != null) {
+                pushToPendingHandles(item);
+                return;
+            }
+
             // 我们不想将队列的ref作为弱映射中的值，所以我们将其空出来；
             // 为了确保以后恢复队列时不会出现竞争，我们在这里强制执行内存顺序
             // we don't want to have a ref to the queue as the value in our weak map
@@ -940,6 +1036,25 @@ public abstract class Recycler<T> {
             queue.add(item);
         }
 
+        /**
+         * 通过MPSC队列将对象交还给回收栈绑定的线程
+         *
+         * @param item 回收对象持有者
+         */
+        private void pushToPendingHandles(DefaultHandle<?> item) {
+            if ((item.recycleId | item.lastRecycledId) != 0) {
+                throw new IllegalStateException("recycled already");
+            }
+            if (threadRef.get() == null) {
+                // The owning thread is gone, nobody will ever poll the queue again.
+                return;
+            }
+            item.lastRecycledId = MPSC_QUEUE_ID;
+            // If the queue is full the item is just dropped on the floor, the same as when no more links could be
+            // reserved for a WeakOrderQueue.
+            pendingHandles.offer(item);
+        }
+
         /**
          * 分配一个新的弱序队列实例，可能返回null如果不成功
          *
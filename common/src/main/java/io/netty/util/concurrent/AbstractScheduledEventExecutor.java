@@ -18,6 +18,9 @@ package io.netty.util.concurrent;
 import io.netty.util.internal.DefaultPriorityQueue;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PriorityQueue;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import static io.netty.util.concurrent.ScheduledFutureTask.deadlineNanos;
 
@@ -30,6 +33,18 @@ import java.util.concurrent.TimeUnit;
  * Abstract base class for {@link EventExecutor}s that want to support scheduling.
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractScheduledEventExecutor.class);
+
+    /**
+     * 是否使用分层时间轮代替优先级队列存放调度任务
+     */
+    private static final boolean USE_TIMING_WHEEL =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.useTimingWheel", false);
+
+    static {
+        logger.debug("-Dio.netty.eventexecutor.useTimingWheel: {}", USE_TIMING_WHEEL);
+    }
+
     private static final Comparator<ScheduledFutureTask<?>> SCHEDULED_FUTURE_TASK_COMPARATOR =
             new Comparator<ScheduledFutureTask<?>>() {
                 @Override
@@ -84,10 +99,14 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue() {
         if (scheduledTaskQueue == null) {
-            scheduledTaskQueue = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
-                    SCHEDULED_FUTURE_TASK_COMPARATOR,
-                    // Use same initial capacity as java.util.PriorityQueue
-                    11);
+            if (USE_TIMING_WHEEL) {
+                scheduledTaskQueue = new ScheduledTaskWheel(SCHEDULED_FUTURE_TASK_COMPARATOR);
+            } else {
+                scheduledTaskQueue = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
+                        SCHEDULED_FUTURE_TASK_COMPARATOR,
+                        // Use same initial capacity as java.util.PriorityQueue
+                        11);
+            }
         }
         return scheduledTaskQueue;
     }
@@ -219,6 +219,7 @@ public final class NonStickyEventExecutorGroup implements EventExecutorGroup {
         private static final int NONE = 0;
         private static final int SUBMITTED = 1;
         private static final int RUNNING = 2;
+        private static final int LAZY_SUBMITTED = 3;
 
         private final AtomicInteger state = new AtomicInteger();
         private final int maxTaskExecutePerRun;
@@ -231,7 +232,7 @@ public final class NonStickyEventExecutorGroup implements EventExecutorGroup {
 
         @Override
         public void run() {
-            if (!state.compareAndSet(SUBMITTED, RUNNING)) {
+            if (!state.compareAndSet(SUBMITTED, RUNNING) && !state.compareAndSet(LAZY_SUBMITTED, RUNNING)) {
                 return;
             }
             for (;;) {
@@ -329,19 +330,48 @@ public final class NonStickyEventExecutorGroup implements EventExecutorGroup {
 
         @Override
         public void execute(Runnable command) {
+            execute(command, !(command instanceof LazyRunnable));
+        }
+
+        @Override
+        public void lazyExecute(Runnable command) {
+            execute(command, false);
+        }
+
+        private void execute(Runnable command, boolean immediate) {
             if (!tasks.offer(command)) {
                 throw new RejectedExecutionException();
             }
-            if (state.compareAndSet(NONE, SUBMITTED)) {
+            for (;;) {
+                int s = state.get();
+                if (s == NONE) {
+                    if (!state.compareAndSet(NONE, immediate ? SUBMITTED : LAZY_SUBMITTED)) {
+                        continue;
+                    }
+                } else if (s == LAZY_SUBMITTED && immediate) {
+                    // We were only handed to the executor lazily, so it may not run us until something else wakes it
+                    // up. Submit ourself again so the task is picked up in time, the lazy submission will then just
+                    // be a NOOP when run() is called.
+                    if (!state.compareAndSet(LAZY_SUBMITTED, SUBMITTED)) {
+                        continue;
+                    }
+                } else {
+                    return;
+                }
                 // Actually it could happen that the runnable was picked up in between but we not care to much and just
                 // execute ourself. At worst this will be a NOOP when run() is called.
                 try {
-                    executor.execute(this);
+                    if (!immediate && executor instanceof AbstractEventExecutor) {
+                        ((AbstractEventExecutor) executor).lazyExecute(this);
+                    } else {
+                        executor.execute(this);
+                    }
                 } catch (Throwable e) {
                     // Not reset the state as some other Runnable may be added to the queue already in the meantime.
                     tasks.remove(command);
                     PlatformDependent.throwException(e);
                 }
+                return;
             }
         }
     }
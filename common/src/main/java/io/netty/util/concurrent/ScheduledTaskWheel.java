@@ -0,0 +1,300 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.DefaultPriorityQueue;
+import io.netty.util.internal.PriorityQueue;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import static io.netty.util.internal.PriorityQueueNode.INDEX_NOT_IN_QUEUE;
+
+/**
+ * 分层时间轮，可以代替{@link DefaultPriorityQueue}作为{@link AbstractScheduledEventExecutor}的调度任务队列
+ *
+ * A hierarchical timing wheel which can be used instead of a {@link DefaultPriorityQueue} to store the
+ * {@link ScheduledFutureTask}s of an {@link AbstractScheduledEventExecutor}.
+ * <p>
+ * Deadlines are grouped into ticks of {@code 2^20} nanoseconds (roughly 1ms). Each level has 64 slots that hold a
+ * doubly linked list of the tasks which fall into the slot, and each level covers 64 times the range of the level
+ * below it, so adding and removing a task is {@code O(1)}. Only the tasks of the next tick that has any tasks are
+ * moved into a small {@link DefaultPriorityQueue}, which keeps the exact ordering by deadline and id that
+ * {@link ScheduledFutureTask} guarantees. Tasks of higher levels are cascaded to the lower levels once the wheel
+ * reaches their slot, which happens at most once per level for every task.
+ * <p>
+ * The wheel does not advance by itself, there is no extra thread or timer. It only moves forward when
+ * {@link #peek()} or {@link #poll()} find the {@link DefaultPriorityQueue} empty. Tasks which are added with a
+ * deadline before the current position of the wheel go straight into the {@link DefaultPriorityQueue}.
+ * <p>
+ * This class is not thread-safe and must only be used from the {@link EventExecutor} thread.
+ */
+final class ScheduledTaskWheel extends AbstractQueue<ScheduledFutureTask<?>>
+        implements PriorityQueue<ScheduledFutureTask<?>> {
+
+    private static final int TICK_SHIFT = 20;
+    private static final int LEVEL_SHIFT = 6;
+    private static final int SLOTS_PER_LEVEL = 1 << LEVEL_SHIFT;
+    private static final int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+    // Enough levels to hold every non-negative deadline.
+    private static final int LEVELS = (Long.SIZE - TICK_SHIFT + LEVEL_SHIFT - 1) / LEVEL_SHIFT;
+
+    private final DefaultPriorityQueue<ScheduledFutureTask<?>> expiring;
+    private final ScheduledFutureTask<?>[] slots = new ScheduledFutureTask<?>[LEVELS << LEVEL_SHIFT];
+    private final long[] occupied = new long[LEVELS];
+
+    // All tasks in the wheel have a tick >= cursor, all tasks in expiring have a tick < cursor.
+    private long cursor;
+    private int wheelSize;
+
+    ScheduledTaskWheel(Comparator<ScheduledFutureTask<?>> comparator) {
+        expiring = new DefaultPriorityQueue<ScheduledFutureTask<?>>(comparator, 11);
+    }
+
+    private static long tick(ScheduledFutureTask<?> task) {
+        return Math.max(0L, task.deadlineNanos()) >>> TICK_SHIFT;
+    }
+
+    @Override
+    public boolean offer(ScheduledFutureTask<?> task) {
+        if (task.wheelSlot != INDEX_NOT_IN_QUEUE) {
+            throw new IllegalArgumentException("task.wheelSlot: " + task.wheelSlot + " (expected: "
+                    + INDEX_NOT_IN_QUEUE + ") + task: " + task);
+        }
+        long tick = tick(task);
+        if (tick < cursor) {
+            return expiring.offer(task);
+        }
+        link(task, tick);
+        return true;
+    }
+
+    @Override
+    public ScheduledFutureTask<?> poll() {
+        if (expiring.isEmpty()) {
+            advance();
+        }
+        return expiring.poll();
+    }
+
+    @Override
+    public ScheduledFutureTask<?> peek() {
+        if (expiring.isEmpty()) {
+            advance();
+        }
+        return expiring.peek();
+    }
+
+    @Override
+    public int size() {
+        return expiring.size() + wheelSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return wheelSize == 0 && expiring.isEmpty();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof ScheduledFutureTask && containsTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof ScheduledFutureTask && removeTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean removeTyped(ScheduledFutureTask<?> task) {
+        if (task.wheelSlot != INDEX_NOT_IN_QUEUE) {
+            unlink(task);
+            return true;
+        }
+        return expiring.removeTyped(task);
+    }
+
+    @Override
+    public boolean containsTyped(ScheduledFutureTask<?> task) {
+        return task.wheelSlot != INDEX_NOT_IN_QUEUE || expiring.containsTyped(task);
+    }
+
+    @Override
+    public void priorityChanged(ScheduledFutureTask<?> task) {
+        if (task.wheelSlot != INDEX_NOT_IN_QUEUE) {
+            unlink(task);
+            offer(task);
+        } else {
+            expiring.priorityChanged(task);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < slots.length; i++) {
+            ScheduledFutureTask<?> task = slots[i];
+            slots[i] = null;
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                resetLinks(task);
+                task = next;
+            }
+        }
+        Arrays.fill(occupied, 0L);
+        wheelSize = 0;
+        expiring.clear();
+    }
+
+    @Override
+    public void clearIgnoringIndexes() {
+        Arrays.fill(slots, null);
+        Arrays.fill(occupied, 0L);
+        wheelSize = 0;
+        expiring.clearIgnoringIndexes();
+    }
+
+    @Override
+    public Iterator<ScheduledFutureTask<?>> iterator() {
+        // Only used to cancel all tasks on shutdown, so just take a snapshot.
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>(size());
+        for (ScheduledFutureTask<?> task : expiring) {
+            tasks.add(task);
+        }
+        for (ScheduledFutureTask<?> head : slots) {
+            for (ScheduledFutureTask<?> task = head; task != null; task = task.wheelNext) {
+                tasks.add(task);
+            }
+        }
+        return Collections.unmodifiableList(tasks).iterator();
+    }
+
+    /**
+     * Moves the tasks of the next tick that has any tasks into {@link #expiring}, cascading higher levels down on
+     * the way.
+     */
+    private void advance() {
+        while (wheelSize != 0) {
+            int index = (int) cursor & SLOT_MASK;
+            long bits = occupied[0] & (-1L << index);
+            if (bits != 0) {
+                index = Long.numberOfTrailingZeros(bits);
+                ScheduledFutureTask<?> task = slots[index];
+                slots[index] = null;
+                occupied[0] &= ~(1L << index);
+                while (task != null) {
+                    ScheduledFutureTask<?> next = task.wheelNext;
+                    resetLinks(task);
+                    wheelSize--;
+                    expiring.offer(task);
+                    task = next;
+                }
+                moveCursor((cursor & ~(long) SLOT_MASK | index) + 1);
+                return;
+            }
+            // Nothing left in the lowest level, find the next slot in one of the higher levels and cascade it down.
+            for (int level = 1;; level++) {
+                assert level < LEVELS;
+                int shift = level * LEVEL_SHIFT;
+                index = (int) (cursor >>> shift) & SLOT_MASK;
+                // The slot of the cursor itself is always empty for all but the lowest level.
+                bits = occupied[level] & (-2L << index);
+                if (bits != 0) {
+                    index = Long.numberOfTrailingZeros(bits);
+                    moveCursor(cursor & (-1L << shift + LEVEL_SHIFT) | (long) index << shift);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the cursor forward and cascades the slots that the cursor enters on each level above the lowest one.
+     * The cursor is always at the start of these slots, so all their tasks end up in lower levels.
+     */
+    private void moveCursor(long newCursor) {
+        long changed = cursor ^ newCursor;
+        cursor = newCursor;
+        if (changed >>> LEVEL_SHIFT == 0) {
+            return;
+        }
+        int top = Math.min((Long.SIZE - 1 - Long.numberOfLeadingZeros(changed)) / LEVEL_SHIFT, LEVELS - 1);
+        for (int level = top; level > 0; level--) {
+            int index = (int) (newCursor >>> level * LEVEL_SHIFT) & SLOT_MASK;
+            int slot = level << LEVEL_SHIFT | index;
+            ScheduledFutureTask<?> task = slots[slot];
+            if (task == null) {
+                continue;
+            }
+            slots[slot] = null;
+            occupied[level] &= ~(1L << index);
+            while (task != null) {
+                ScheduledFutureTask<?> next = task.wheelNext;
+                resetLinks(task);
+                wheelSize--;
+                link(task, tick(task));
+                task = next;
+            }
+        }
+    }
+
+    private void link(ScheduledFutureTask<?> task, long tick) {
+        assert tick >= cursor;
+        long diff = tick ^ cursor;
+        int level = diff == 0 ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(diff)) / LEVEL_SHIFT;
+        int index = (int) (tick >>> level * LEVEL_SHIFT) & SLOT_MASK;
+        int slot = level << LEVEL_SHIFT | index;
+        ScheduledFutureTask<?> head = slots[slot];
+        if (head == null) {
+            occupied[level] |= 1L << index;
+        } else {
+            head.wheelPrev = task;
+        }
+        task.wheelNext = head;
+        task.wheelSlot = slot;
+        slots[slot] = task;
+        wheelSize++;
+    }
+
+    private void unlink(ScheduledFutureTask<?> task) {
+        int slot = task.wheelSlot;
+        ScheduledFutureTask<?> prev = task.wheelPrev;
+        ScheduledFutureTask<?> next = task.wheelNext;
+        if (prev == null) {
+            slots[slot] = next;
+            if (next == null) {
+                occupied[slot >>> LEVEL_SHIFT] &= ~(1L << (slot & SLOT_MASK));
+            }
+        } else {
+            prev.wheelNext = next;
+        }
+        if (next != null) {
+            next.wheelPrev = prev;
+        }
+        resetLinks(task);
+        wheelSize--;
+    }
+
+    private static void resetLinks(ScheduledFutureTask<?> task) {
+        task.wheelPrev = null;
+        task.wheelNext = null;
+        task.wheelSlot = INDEX_NOT_IN_QUEUE;
+    }
+}
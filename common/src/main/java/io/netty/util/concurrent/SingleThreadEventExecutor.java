@@ -299,6 +299,20 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
     }
 
+    /**
+     * Like {@link #pollTask()} but does not wait for a producer that is still in the middle of publishing its task,
+     * see {@link PlatformDependent#relaxedPoll(Queue)}. The caller is expected to check {@link #hasTasks()} again
+     * before blocking.
+     */
+    private Runnable relaxedPollTask() {
+        for (;;) {
+            Runnable task = PlatformDependent.relaxedPoll(taskQueue);
+            if (task != WAKEUP_TASK) {
+                return task;
+            }
+        }
+    }
+
     /**
      * Take the next {@link Runnable} from the task queue and so will block if no task is currently present.
      * <p>
@@ -552,9 +566,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
         int remaining = Math.min(maxPendingTasks, taskQueue.size());
         safeExecute(task);
-        // Use taskQueue.poll() directly rather than pollTaskFrom() since the latter may
-        // silently consume more than one item from the queue (skips over WAKEUP_TASK instances)
-        while (remaining-- > 0 && (task = taskQueue.poll()) != null) {
+        // Use relaxedPoll() directly rather than pollTaskFrom() since the latter may
+        // silently consume more than one item from the queue (skips over WAKEUP_TASK instances).
+        // A slot that is claimed but not yet published by a producer ends the batch instead of stalling the loop, the
+        // caller will see it via hasTasks() and drain it on the next iteration.
+        while (remaining-- > 0 && (task = PlatformDependent.relaxedPoll(taskQueue)) != null) {
             safeExecute(task);
         }
         return true;
@@ -597,7 +613,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 }
             }
 
-            task = pollTask();
+            task = relaxedPollTask();
             if (task == null) {
                 lastExecutionTime = ScheduledFutureTask.nanoTime();
                 break;
@@ -664,7 +680,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     }
 
     protected void wakeup(boolean inEventLoop) {
-        if (!inEventLoop) {
+        // Any element in the queue already unblocks takeTask(), so only the first of many concurrent producers needs
+        // to add the WAKEUP_TASK. This keeps a burst of producers from flooding the queue with redundant wakeups.
+        if (!inEventLoop && taskQueue.isEmpty()) {
             // Use offer as we actually only need this to unblock the thread and if offer fails we do not care as there
             // is already something in the queue.
             taskQueue.offer(WAKEUP_TASK);
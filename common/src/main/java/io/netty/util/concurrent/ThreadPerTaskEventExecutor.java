@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link EventExecutor} which runs every task on a new {@link Thread} of the given {@link ThreadFactory}. As no
+ * {@link Thread} is ever reused, all {@link FastThreadLocal}s are removed once a task is done so the resources that
+ * are bound to them (like {@link io.netty.util.Recycler} stacks) are not kept alive by a {@link Thread} that will
+ * never run again.
+ *
+ * <p>This executor makes no guarantees about the execution order of the tasks and so is no
+ * {@link OrderedEventExecutor}, use it together with {@link NonStickyEventExecutorGroup}.
+ */
+final class ThreadPerTaskEventExecutor extends AbstractEventExecutor {
+
+    private static final int ST_STARTED = 0;
+    private static final int ST_SHUTTING_DOWN = 1;
+    private static final int ST_TERMINATED = 2;
+
+    private final ThreadFactory threadFactory;
+    private final AtomicInteger state = new AtomicInteger(ST_STARTED);
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final Promise<?> terminationFuture = new DefaultPromise<Void>(GlobalEventExecutor.INSTANCE);
+
+    ThreadPerTaskEventExecutor(EventExecutorGroup parent, ThreadFactory threadFactory) {
+        super(parent);
+        this.threadFactory = ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        ObjectUtil.checkNotNull(task, "task");
+        // Increment before checking the state so a concurrent shutdown can not terminate while the task is started.
+        activeTasks.incrementAndGet();
+        boolean started = false;
+        try {
+            if (isShuttingDown()) {
+                throw new RejectedExecutionException("event executor terminated");
+            }
+            threadFactory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        FastThreadLocal.removeAll();
+                        taskDone();
+                    }
+                }
+            }).start();
+            started = true;
+        } finally {
+            if (!started) {
+                taskDone();
+            }
+        }
+    }
+
+    private void taskDone() {
+        if (activeTasks.decrementAndGet() == 0 && isShuttingDown()) {
+            tryTerminate();
+        }
+    }
+
+    private void tryTerminate() {
+        if (state.compareAndSet(ST_SHUTTING_DOWN, ST_TERMINATED)) {
+            terminationFuture.trySuccess(null);
+        }
+    }
+
+    @Override
+    public boolean inEventLoop(Thread thread) {
+        return false;
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return state.get() >= ST_SHUTTING_DOWN;
+    }
+
+    /**
+     * Stops accepting new tasks. Tasks that are running already are not interrupted, the returned {@link Future} is
+     * notified once all of them are done. The quiet period is ignored as there is no task queue that could be
+     * drained.
+     */
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        if (state.compareAndSet(ST_STARTED, ST_SHUTTING_DOWN) && activeTasks.get() == 0) {
+            tryTerminate();
+        }
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+        shutdownGracefully();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return isShuttingDown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return state.get() == ST_TERMINATED;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminationFuture.await(timeout, unit);
+    }
+}
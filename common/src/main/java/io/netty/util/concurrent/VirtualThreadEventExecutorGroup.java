@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventExecutorGroup} which runs tasks on virtual threads, which makes it a good fit for handlers that need to
+ * do blocking calls (like JDBC or legacy RPC clients) when added via
+ * {@code ChannelPipeline.addLast(EventExecutorGroup, ChannelHandler...)}.
+ * A blocking call only parks its virtual thread, so it neither pins a platform thread nor delays the handlers of
+ * other channels.
+ *
+ * <p>Like {@link NonStickyEventExecutorGroup}, each {@link EventExecutor} returned by {@link #next()} preserves the
+ * execution order of its tasks, so the events of a channel are still handled one after another, but makes no
+ * guarantees about what {@link Thread} will be used. A new virtual thread is started whenever an executor has tasks
+ * pending and none is running for it already. All {@link FastThreadLocal}s are removed once such a thread is done, so
+ * per thread state like {@link io.netty.util.Recycler} stacks or buffer caches is not accumulated.
+ *
+ * <p>Scheduling tasks is not supported. Virtual threads require Java 21 or later, use {@link #isAvailable()} to check
+ * if they can be used.
+ */
+@UnstableApi
+public final class VirtualThreadEventExecutorGroup extends AbstractEventExecutorGroup {
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(VirtualThreadEventExecutorGroup.class);
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Throwable cause = null;
+        if (PlatformDependent.javaVersion() >= 21) {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                name = builderClass.getMethod("name", String.class, long.class);
+                factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+                // Ensure we can really create virtual threads.
+                newVirtualThreadFactory(ofVirtual, name, factory, "probe-");
+            } catch (Throwable t) {
+                ofVirtual = null;
+                name = null;
+                factory = null;
+                cause = t;
+            }
+        } else {
+            cause = new UnsupportedOperationException("Virtual threads require Java 21+");
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        UNAVAILABILITY_CAUSE = cause;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Virtual threads: {}", cause == null ? "available" : "unavailable", cause);
+        }
+    }
+
+    private final ThreadPerTaskEventExecutor executor;
+    private final NonStickyEventExecutorGroup group;
+
+    /**
+     * Returns {@code true} if virtual threads are supported by the current JVM.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Creates a new instance whose virtual threads are named {@code virtualEventExecutor-<n>}.
+     *
+     * @throws UnsupportedOperationException if virtual threads are not available.
+     */
+    public VirtualThreadEventExecutorGroup() {
+        this("virtualEventExecutor-");
+    }
+
+    /**
+     * Creates a new instance whose virtual threads are named with the given {@code namePrefix} followed by a
+     * counter.
+     *
+     * @throws UnsupportedOperationException if virtual threads are not available.
+     */
+    public VirtualThreadEventExecutorGroup(String namePrefix) {
+        this(newVirtualThreadFactory(ObjectUtil.checkNotNull(namePrefix, "namePrefix")));
+    }
+
+    // Visible for testing, allows to use platform threads when virtual threads are not available.
+    VirtualThreadEventExecutorGroup(ThreadFactory threadFactory) {
+        executor = new ThreadPerTaskEventExecutor(this, threadFactory);
+        group = new NonStickyEventExecutorGroup(executor);
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw (UnsupportedOperationException) new UnsupportedOperationException(
+                    "Virtual threads are not available").initCause(UNAVAILABILITY_CAUSE);
+        }
+        try {
+            return newVirtualThreadFactory(OF_VIRTUAL, NAME, FACTORY, namePrefix);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to create a virtual thread factory", e);
+        }
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(Method ofVirtual, Method name, Method factory,
+                                                         String namePrefix) throws Exception {
+        Object builder = name.invoke(ofVirtual.invoke(null), namePrefix, 0L);
+        return (ThreadFactory) factory.invoke(builder);
+    }
+
+    @Override
+    public EventExecutor next() {
+        return group.next();
+    }
+
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return group.iterator();
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return executor.isShuttingDown();
+    }
+
+    /**
+     * Stops accepting new tasks. Tasks that are already running are not interrupted, the returned {@link Future}
+     * is notified once all of them are done.
+     */
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        return executor.shutdownGracefully(quietPeriod, timeout, unit);
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return executor.terminationFuture();
+    }
+
+    @Override
+    @Deprecated
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
@@ -18,10 +18,13 @@ package io.netty.util.internal;
 import io.netty.util.CharsetUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpmcArrayQueue;
 import org.jctools.queues.MpscArrayQueue;
 import org.jctools.queues.MpscChunkedArrayQueue;
 import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.jctools.queues.SpscLinkedQueue;
+import org.jctools.queues.atomic.MpmcAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscGrowableAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscUnboundedAtomicArrayQueue;
@@ -515,6 +518,14 @@ public final class PlatformDependent {
         return PlatformDependent0.getLong(address);
     }
 
+    /**
+     * Returns the {@code int} at the given memory address using volatile semantics, so that it can be used to
+     * read memory which is concurrently written by another party (for example the kernel).
+     */
+    public static int getIntVolatile(long address) {
+        return PlatformDependent0.getIntVolatile(address);
+    }
+
     public static byte getByte(byte[] data, int index) {
         return PlatformDependent0.getByte(data, index);
     }
@@ -651,6 +662,14 @@ public final class PlatformDependent {
         PlatformDependent0.putInt(address, value);
     }
 
+    /**
+     * Store the {@code int} at the given memory address with release semantics, so that all prior writes are
+     * visible to a party that reads the address afterwards.
+     */
+    public static void putIntOrdered(long address, int newValue) {
+        PlatformDependent0.putIntOrdered(address, newValue);
+    }
+
     public static void putLong(long address, long value) {
         PlatformDependent0.putLong(address, value);
     }
@@ -953,6 +972,17 @@ public final class PlatformDependent {
         return Mpsc.newMpscQueue(maxCapacity);
     }
 
+    /**
+     * Poll the head of a {@link Queue} created via {@link #newMpscQueue()} or {@link #newMpscQueue(int)} from its
+     * single consumer. Unlike {@link Queue#poll()} this will not spin-wait for a producer that has claimed a slot but
+     * not yet published its element, and so may return {@code null} even if {@link Queue#isEmpty()} is
+     * {@code false}. Other {@link Queue} implementations just fall back to {@link Queue#poll()}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T relaxedPoll(Queue<T> queue) {
+        return queue instanceof MessagePassingQueue ? ((MessagePassingQueue<T>) queue).relaxedPoll() : queue.poll();
+    }
+
     /**
      * Create a new {@link Queue} which is safe to use for single producer (one thread!) and a single
      * consumer (one thread!).
@@ -969,6 +999,14 @@ public final class PlatformDependent {
         return hasUnsafe() ? new MpscArrayQueue<T>(capacity) : new MpscAtomicArrayQueue<T>(capacity);
     }
 
+    /**
+     * Create a new {@link Queue} which is safe to use for multiple producers (different threads) and multiple
+     * consumers with the given fixed {@code capacity}.
+     */
+    public static <T> Queue<T> newFixedMpmcQueue(int capacity) {
+        return hasUnsafe() ? new MpmcArrayQueue<T>(capacity) : new MpmcAtomicArrayQueue<T>(capacity);
+    }
+
     /**
      * Return the {@link ClassLoader} for the given {@link Class}.
      */
@@ -533,6 +533,10 @@ final class PlatformDependent0 {
         return UNSAFE.getLong(address);
     }
 
+    static int getIntVolatile(long address) {
+        return UNSAFE.getIntVolatile(null, address);
+    }
+
     static byte getByte(byte[] data, int index) {
         return UNSAFE.getByte(data, BYTE_ARRAY_BASE_OFFSET + index);
     }
@@ -573,6 +577,10 @@ final class PlatformDependent0 {
         UNSAFE.putInt(address, value);
     }
 
+    static void putIntOrdered(long address, int newValue) {
+        UNSAFE.putOrderedInt(null, address, newValue);
+    }
+
     static void putLong(long address, long value) {
         UNSAFE.putLong(address, value);
     }
@@ -43,6 +43,18 @@ public class RecyclerTest {
         };
     }
 
+    private static Recycler<HandledObject> newMpscRecycler(int maxCapacityPerThread, final AtomicInteger instancesCount,
+                                                           int ratio, int delayedQueueRatio) {
+        return new Recycler<HandledObject>(maxCapacityPerThread, 2, ratio, 2, delayedQueueRatio, true) {
+            @Override
+            protected HandledObject newObject(
+                    Recycler.Handle<HandledObject> handle) {
+                instancesCount.incrementAndGet();
+                return new HandledObject(handle);
+            }
+        };
+    }
+
     @Test(timeout = 5000L)
     public void testThreadCanBeCollectedEvenIfHandledObjectIsReferenced() throws Exception {
         final Recycler<HandledObject> recycler = newRecycler(1024);
@@ -313,6 +325,85 @@ public class RecyclerTest {
                 " internally", array.length - maxCapacity / 2 <= instancesCount.get());
     }
 
+    @Test
+    public void testRecycleAtDifferentThreadWithMpscQueue() throws Exception {
+        final Recycler<HandledObject> recycler = newMpscRecycler(256, new AtomicInteger(), 2, 2);
+        final HandledObject o = recycler.get();
+        final HandledObject o2 = recycler.get();
+
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                o.recycle();
+                o2.recycle();
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertSame(recycler.get(), o);
+        assertNotSame(recycler.get(), o2);
+    }
+
+    @Test
+    public void testMaxCapacityWithRecycleAtDifferentThreadWithMpscQueue() throws Exception {
+        final int maxCapacity = 32;
+        final AtomicInteger instancesCount = new AtomicInteger();
+        final Recycler<HandledObject> recycler = newMpscRecycler(maxCapacity, instancesCount, 0, 0);
+
+        final HandledObject[] array = new HandledObject[maxCapacity * 2];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = recycler.get();
+        }
+        assertEquals(array.length, instancesCount.get());
+        instancesCount.set(0);
+
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                for (HandledObject object: array) {
+                    object.recycle();
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+
+        // Only maxCapacity objects are moved into the stack, the rest stays queued for later.
+        assertNotNull(recycler.get());
+        assertEquals(maxCapacity - 1, recycler.threadLocalSize());
+        assertEquals(maxCapacity, recycler.threadLocalCapacity());
+
+        for (int i = 1; i < array.length; i++) {
+            recycler.get();
+        }
+        assertEquals(0, instancesCount.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMultipleRecycleAtDifferentThreadWithMpscQueue() throws InterruptedException {
+        Recycler<HandledObject> recycler = newMpscRecycler(1024, new AtomicInteger(), 8, 8);
+        final HandledObject object = recycler.get();
+        final AtomicReference<IllegalStateException> exceptionStore = new AtomicReference<IllegalStateException>();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                object.recycle();
+                try {
+                    object.recycle();
+                } catch (IllegalStateException e) {
+                    exceptionStore.set(e);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        IllegalStateException exception = exceptionStore.get();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
     static final class HandledObject {
         Recycler.Handle<HandledObject> handle;
 
@@ -22,6 +22,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -123,6 +124,101 @@ public class NonStickyEventExecutorGroupTest {
         }
     }
 
+    @Test
+    public void testLazyExecute() {
+        RecordingEventExecutor recorder = new RecordingEventExecutor();
+        NonStickyEventExecutorGroup nonStickyGroup = new NonStickyEventExecutorGroup(recorder, maxTaskExecutePerRun);
+        AbstractEventExecutor executor = (AbstractEventExecutor) nonStickyGroup.next();
+        final List<Integer> ran = new ArrayList<Integer>();
+
+        executor.lazyExecute(new Runnable() {
+            @Override
+            public void run() {
+                ran.add(1);
+            }
+        });
+        executor.execute(new AbstractEventExecutor.LazyRunnable() {
+            @Override
+            public void run() {
+                ran.add(2);
+            }
+        });
+        // Only handed to the underlying executor once and without waking it up.
+        Assert.assertEquals(1, recorder.lazyTasks.size());
+        Assert.assertEquals(0, recorder.tasks.size());
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran.add(3);
+            }
+        });
+        // A non-lazy task must not wait behind the lazy submission.
+        Assert.assertEquals(1, recorder.tasks.size());
+        recorder.tasks.remove(0).run();
+        Assert.assertEquals(Arrays.asList(1, 2, 3), ran);
+
+        // The lazy submission is a NOOP by now.
+        recorder.lazyTasks.remove(0).run();
+        Assert.assertEquals(3, ran.size());
+    }
+
+    private static final class RecordingEventExecutor extends AbstractEventExecutor {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final List<Runnable> lazyTasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void lazyExecute(Runnable command) {
+            lazyTasks.add(command);
+        }
+
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return false;
+        }
+
+        @Override
+        public boolean isShuttingDown() {
+            return false;
+        }
+
+        @Override
+        public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<?> terminationFuture() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        @Deprecated
+        public void shutdown() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+
     private static void execute(EventExecutorGroup group, CountDownLatch startLatch) throws Throwable {
         EventExecutor executor = group.next();
         Assert.assertTrue(executor instanceof OrderedEventExecutor);
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduledTaskWheelTest {
+
+    private static final Comparator<ScheduledFutureTask<?>> COMPARATOR = new Comparator<ScheduledFutureTask<?>>() {
+        @Override
+        public int compare(ScheduledFutureTask<?> o1, ScheduledFutureTask<?> o2) {
+            return o1.compareTo(o2);
+        }
+    };
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    private static final DefaultEventExecutor EXECUTOR = new DefaultEventExecutor();
+
+    private long nextId;
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdownGracefully();
+    }
+
+    private ScheduledFutureTask<Void> newTask(long deadlineNanos) {
+        return new ScheduledFutureTask<Void>(EXECUTOR, NOOP, deadlineNanos).setId(++nextId);
+    }
+
+    @Test
+    public void testOrdering() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(COMPARATOR);
+        ScheduledFutureTask<Void> far = newTask(Long.MAX_VALUE);
+        ScheduledFutureTask<Void> late = newTask(3600000000000L);
+        ScheduledFutureTask<Void> sameTick1 = newTask(5000100L);
+        ScheduledFutureTask<Void> sameTick2 = newTask(5000000L);
+        ScheduledFutureTask<Void> sameDeadline = newTask(5000000L);
+        ScheduledFutureTask<Void> early = newTask(1);
+
+        assertTrue(wheel.offer(far));
+        assertTrue(wheel.offer(late));
+        assertTrue(wheel.offer(sameTick1));
+        assertTrue(wheel.offer(sameTick2));
+        assertTrue(wheel.offer(sameDeadline));
+        assertTrue(wheel.offer(early));
+        assertEquals(6, wheel.size());
+
+        assertSame(early, wheel.poll());
+        assertSame(sameTick2, wheel.poll());
+        assertSame(sameDeadline, wheel.poll());
+        assertSame(sameTick1, wheel.peek());
+        assertSame(sameTick1, wheel.poll());
+        assertSame(late, wheel.poll());
+        assertSame(far, wheel.poll());
+        assertNull(wheel.poll());
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testAddBeforeCursor() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(COMPARATOR);
+        ScheduledFutureTask<Void> late = newTask(60000000000L);
+        wheel.offer(late);
+        // Moves the wheel forward to the tick of the task.
+        assertSame(late, wheel.peek());
+
+        ScheduledFutureTask<Void> early = newTask(1000000L);
+        wheel.offer(early);
+        assertSame(early, wheel.poll());
+        assertSame(late, wheel.poll());
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(COMPARATOR);
+        ScheduledFutureTask<Void> task1 = newTask(10000000L);
+        ScheduledFutureTask<Void> task2 = newTask(10000000L);
+        ScheduledFutureTask<Void> task3 = newTask(20000000000L);
+        wheel.offer(task1);
+        wheel.offer(task2);
+        wheel.offer(task3);
+
+        assertTrue(wheel.removeTyped(task3));
+        assertFalse(wheel.containsTyped(task3));
+        assertFalse(wheel.removeTyped(task3));
+
+        assertSame(task1, wheel.peek());
+        // task1 is now in the part of the wheel which is ordered exactly.
+        assertTrue(wheel.containsTyped(task1));
+        assertTrue(wheel.removeTyped(task1));
+        assertSame(task2, wheel.poll());
+        assertTrue(wheel.isEmpty());
+
+        // A removed task can be added again.
+        wheel.offer(task3);
+        assertSame(task3, wheel.poll());
+    }
+
+    @Test
+    public void testClear() {
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(COMPARATOR);
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        for (int i = 0; i < 100; i++) {
+            ScheduledFutureTask<Void> task = newTask(i * 1000000000L);
+            tasks.add(task);
+            wheel.offer(task);
+        }
+        wheel.peek();
+        assertEquals(100, wheel.size());
+        assertEquals(100, wheel.toArray().length);
+
+        wheel.clear();
+        assertTrue(wheel.isEmpty());
+        for (ScheduledFutureTask<?> task : tasks) {
+            assertFalse(wheel.containsTyped(task));
+        }
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(42);
+        ScheduledTaskWheel wheel = new ScheduledTaskWheel(COMPARATOR);
+        PriorityQueue<ScheduledFutureTask<?>> expected = new PriorityQueue<ScheduledFutureTask<?>>(11, COMPARATOR);
+        List<ScheduledFutureTask<?>> added = new ArrayList<ScheduledFutureTask<?>>();
+        long now = 0;
+
+        for (int i = 0; i < 200000; i++) {
+            int op = random.nextInt(10);
+            if (op < 5) {
+                long delay;
+                switch (random.nextInt(4)) {
+                case 0:
+                    delay = random.nextInt(1 << 22);
+                    break;
+                case 1:
+                    delay = (long) random.nextInt(1 << 30) << 4;
+                    break;
+                case 2:
+                    delay = random.nextLong() >>> 1;
+                    break;
+                default:
+                    delay = 0;
+                    break;
+                }
+                long deadline = now + delay < 0 ? Long.MAX_VALUE : now + delay;
+                ScheduledFutureTask<Void> task = newTask(deadline);
+                wheel.offer(task);
+                expected.add(task);
+                added.add(task);
+            } else if (op < 7) {
+                if (!added.isEmpty()) {
+                    ScheduledFutureTask<?> task = added.remove(random.nextInt(added.size()));
+                    assertEquals(expected.remove(task), wheel.removeTyped(task));
+                }
+            } else {
+                ScheduledFutureTask<?> task = expected.poll();
+                assertSame(task, wheel.poll());
+                if (task != null) {
+                    now = Math.max(now, task.deadlineNanos());
+                }
+            }
+            assertEquals(expected.size(), wheel.size());
+            assertSame(expected.peek(), wheel.peek());
+        }
+
+        for (;;) {
+            ScheduledFutureTask<?> task = expected.poll();
+            assertSame(task, wheel.poll());
+            if (task == null) {
+                break;
+            }
+        }
+    }
+}
@@ -252,6 +252,53 @@ public class SingleThreadEventExecutorTest {
         assertEquals(0, latch2.getCount());
     }
 
+    @Test(timeout = 5000)
+    public void testWakeupsAreCoalesced() throws Exception {
+        final SingleThreadEventExecutor executor = new SingleThreadEventExecutor(null,
+                Executors.defaultThreadFactory(), false) {
+            @Override
+            protected void run() {
+                while (!confirmShutdown()) {
+                    Runnable task = takeTask();
+                    if (task != null) {
+                        task.run();
+                    }
+                }
+            }
+        };
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch unblock = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    blocked.countDown();
+                    try {
+                        unblock.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            blocked.await();
+
+            LatchTask[] tasks = new LatchTask[16];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new LatchTask();
+                executor.execute(tasks[i]);
+            }
+            // The queued tasks already unblock takeTask(), so no extra WAKEUP_TASK should have been added.
+            assertEquals(tasks.length, executor.pendingTasks());
+
+            unblock.countDown();
+            for (LatchTask task : tasks) {
+                task.await();
+            }
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
     @Test
     public void testTaskAddedAfterShutdownNotAbandoned() throws Exception {
 
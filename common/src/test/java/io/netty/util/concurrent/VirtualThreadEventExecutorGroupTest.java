@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadEventExecutorGroupTest {
+
+    private static final ThreadFactory PLATFORM_THREADS = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r);
+        }
+    };
+
+    @Test(timeout = 10000)
+    public void testOrdering() throws Throwable {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(PLATFORM_THREADS);
+        try {
+            final EventExecutor executor = group.next();
+            assertTrue(executor instanceof OrderedEventExecutor);
+
+            final int tasks = 10000;
+            final AtomicInteger last = new AtomicInteger();
+            final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+            final CountDownLatch latch = new CountDownLatch(tasks);
+            for (int i = 1; i <= tasks; i++) {
+                final int id = i;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!last.compareAndSet(id - 1, id)) {
+                            cause.compareAndSet(null, new AssertionError(
+                                    "Out of order execution id(" + id + ") lastId(" + last.get() + ')'));
+                        }
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+            if (cause.get() != null) {
+                throw cause.get();
+            }
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockingTaskDoesNotBlockOtherExecutors() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(PLATFORM_THREADS);
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            group.next().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            group.next().execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            blocked.countDown();
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFastThreadLocalsAreRemoved() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(PLATFORM_THREADS);
+        try {
+            final CountDownLatch removed = new CountDownLatch(1);
+            final FastThreadLocal<Object> threadLocal = new FastThreadLocal<Object>() {
+                @Override
+                protected void onRemoval(Object value) {
+                    removed.countDown();
+                }
+            };
+            group.next().execute(new Runnable() {
+                @Override
+                public void run() {
+                    threadLocal.set(new Object());
+                }
+            });
+            assertTrue(removed.await(5, TimeUnit.SECONDS));
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownWaitsForRunningTasks() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(PLATFORM_THREADS);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        group.next().execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        started.await();
+
+        Future<?> terminationFuture = group.shutdownGracefully();
+        assertTrue(group.isShuttingDown());
+        assertTrue(group.next().isShuttingDown());
+        assertFalse(terminationFuture.await(100));
+
+        blocked.countDown();
+        terminationFuture.syncUninterruptibly();
+        assertTrue(group.isTerminated());
+    }
+
+    @Test(timeout = 10000)
+    public void testRunsOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreadEventExecutorGroup.isAvailable());
+
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup("test-");
+        try {
+            Thread thread = group.next().submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).syncUninterruptibly().getNow();
+            assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+            assertTrue(thread.getName().startsWith("test-"));
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import io.netty.channel.PendingWriteQueue;
+import io.netty.channel.socket.KernelTlsChannel;
+import io.netty.internal.tcnative.SSL;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Offloads the encryption and decryption of TLS records to the kernel (kTLS) once the handshake of the
+ * {@link SslHandler} completed. The {@link SslHandler} is then removed from the {@link ChannelPipeline}, so data is
+ * not copied through an {@link SSLEngine} anymore and {@link FileRegion}s can be written, which the kernel encrypts
+ * while doing {@code sendfile}.
+ * <p>
+ * This handler must be added directly after the {@link SslHandler} of a {@link KernelTlsChannel}, like the
+ * {@code EpollSocketChannel} of the native epoll transport:
+ * <pre>
+ * pipeline.addLast(sslHandler, new KernelTlsHandler(), ...);
+ * </pre>
+ * All writes are delayed until the handshake completed and the offload was attempted. If it succeeded both handlers
+ * are removed from the {@link ChannelPipeline}, otherwise only this handler is removed and the {@link SslHandler}
+ * stays in the data path, which is always the case for other {@link Channel}s. Use
+ * {@code pipeline.get(SslHandler.class) == null} to find out which one happened. The offload requires:
+ * <ul>
+ *     <li>Linux 4.17 or later with the {@code tls} module loaded</li>
+ *     <li>{@link SslProvider#OPENSSL} or {@link SslProvider#OPENSSL_REFCNT}, as the keys of the JDK
+ *     {@link SSLEngine} are not accessible</li>
+ *     <li>TLSv1.2 with an AES-GCM cipher suite</li>
+ *     <li>that the remote peer did not send application data before the handshake completed on this side</li>
+ * </ul>
+ * Once offloaded, TLS alerts are neither sent nor understood anymore: the connection is closed without sending a
+ * {@code close_notify} and reading fails if the remote peer sends an alert or wants to renegotiate.
+ */
+@UnstableApi
+public final class KernelTlsHandler extends ChannelDuplexHandler {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(KernelTlsHandler.class);
+
+    // Values of the linux/tls.h uapi header.
+    private static final short TLS_1_2_VERSION = 0x0303;
+    private static final short TLS_CIPHER_AES_GCM_128 = 51;
+    private static final short TLS_CIPHER_AES_GCM_256 = 52;
+    private static final int TLS_CIPHER_AES_GCM_IV_SIZE = 8;
+    private static final int TLS_CIPHER_AES_GCM_SALT_SIZE = 4;
+
+    private static final byte[] KEY_EXPANSION_LABEL = "key expansion".getBytes(CharsetUtil.US_ASCII);
+
+    // The Finished message of each side was the first record (sequence number 0) protected by the negotiated keys.
+    private static final long FIRST_RECORD_SEQUENCE = 1;
+
+    private PendingWriteQueue pendingWrites;
+    private boolean flushPending;
+    private boolean handshakeDone;
+    private boolean readAfterHandshake;
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        pendingWrites = new PendingWriteQueue(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        if (!pendingWrites.isEmpty()) {
+            pendingWrites.removeAndFailAll(new ChannelException("Pending write on removal of KernelTlsHandler"));
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        // Delay all writes as encrypting them would advance the record sequence number of the SSLEngine.
+        pendingWrites.add(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        flushPending = true;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (handshakeDone) {
+            // The SslHandler decrypted application data, so we do not know the receive record sequence number.
+            readAfterHandshake = true;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void userEventTriggered(final ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof SslHandshakeCompletionEvent && !handshakeDone) {
+            if (((SslHandshakeCompletionEvent) evt).isSuccess()) {
+                handshakeDone = true;
+                // The event is triggered while the SslHandler still unwraps, so attempt the offload once it is done
+                // and wrote the last handshake message.
+                ctx.executor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        offload(ctx);
+                    }
+                });
+            } else {
+                finish(ctx);
+            }
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    private void offload(ChannelHandlerContext ctx) {
+        if (ctx.isRemoved()) {
+            return;
+        }
+        try {
+            if (!tryOffload(ctx)) {
+                logger.debug("{} Could not offload TLS to the kernel, continue to use the SslHandler", ctx.channel());
+            }
+        } catch (IOException e) {
+            // The receive direction was offloaded already, so there is no way back.
+            ctx.fireExceptionCaught(e);
+            ctx.close();
+        }
+        finish(ctx);
+    }
+
+    private boolean tryOffload(ChannelHandlerContext ctx) throws IOException {
+        Channel channel = ctx.channel();
+        if (!(channel instanceof KernelTlsChannel) || !channel.isActive() || readAfterHandshake) {
+            return false;
+        }
+        SslHandler sslHandler = ctx.pipeline().get(SslHandler.class);
+        if (sslHandler == null || sslHandler.hasBufferedData()) {
+            return false;
+        }
+        // All handshake messages must be written to the socket, as the kernel would encrypt them otherwise.
+        ChannelOutboundBuffer outboundBuffer = channel.unsafe().outboundBuffer();
+        if (outboundBuffer == null || outboundBuffer.totalPendingWriteBytes() != 0) {
+            return false;
+        }
+        byte[][] cryptoInfos = newCryptoInfos(sslHandler.engine());
+        if (cryptoInfos == null) {
+            return false;
+        }
+
+        KernelTlsChannel kernelTlsChannel = (KernelTlsChannel) channel;
+        try {
+            kernelTlsChannel.enableKernelTls();
+            // Offload the receive direction first, as its kernel support is more recent.
+            kernelTlsChannel.setKernelTlsCryptoInfo(false, cryptoInfos[0]);
+        } catch (IOException e) {
+            logger.debug("{} Failed to attach the kernel TLS protocol", channel, e);
+            return false;
+        }
+        kernelTlsChannel.setKernelTlsCryptoInfo(true, cryptoInfos[1]);
+
+        ctx.pipeline().remove(sslHandler);
+        logger.debug("{} Offloaded TLS to the kernel", channel);
+        return true;
+    }
+
+    /**
+     * Replays the delayed writes, which now either pass the {@link SslHandler} or go to the socket directly.
+     */
+    private void finish(ChannelHandlerContext ctx) {
+        pendingWrites.removeAndWriteAll();
+        if (flushPending) {
+            flushPending = false;
+            ctx.flush();
+        }
+        ctx.pipeline().remove(this);
+    }
+
+    /**
+     * Returns the {@code struct tls12_crypto_info_aes_gcm_*} for the receive and the transmit direction, or
+     * {@code null} if the negotiated session can not be offloaded.
+     */
+    private static byte[][] newCryptoInfos(SSLEngine engine) {
+        if (!(engine instanceof ReferenceCountedOpenSslEngine)) {
+            return null;
+        }
+        SSLSession session = engine.getSession();
+        if (!"TLSv1.2".equals(session.getProtocol())) {
+            return null;
+        }
+        String cipherSuite = session.getCipherSuite();
+        final short cipherType;
+        final int keyLength;
+        final String macAlgorithm;
+        if (cipherSuite.endsWith("_WITH_AES_128_GCM_SHA256")) {
+            cipherType = TLS_CIPHER_AES_GCM_128;
+            keyLength = 16;
+            macAlgorithm = "HmacSHA256";
+        } else if (cipherSuite.endsWith("_WITH_AES_256_GCM_SHA384")) {
+            cipherType = TLS_CIPHER_AES_GCM_256;
+            keyLength = 32;
+            macAlgorithm = "HmacSHA384";
+        } else {
+            return null;
+        }
+
+        final byte[] masterKey;
+        final byte[] clientRandom;
+        final byte[] serverRandom;
+        synchronized (engine) {
+            long ssl = ((ReferenceCountedOpenSslEngine) engine).sslPointer();
+            if (ssl == 0) {
+                return null;
+            }
+            masterKey = SSL.getMasterKey(ssl);
+            clientRandom = SSL.getClientRandom(ssl);
+            serverRandom = SSL.getServerRandom(ssl);
+        }
+        if (masterKey == null || clientRandom == null || serverRandom == null) {
+            return null;
+        }
+
+        // See https://tools.ietf.org/html/rfc5246#section-6.3. AEAD cipher suites have no MAC keys, so the key block
+        // consists of client_write_key, server_write_key, client_write_IV and server_write_IV.
+        final byte[] keyBlock;
+        try {
+            keyBlock = PseudoRandomFunction.hash(masterKey, KEY_EXPANSION_LABEL,
+                    concat(serverRandom, clientRandom), 2 * (keyLength + TLS_CIPHER_AES_GCM_SALT_SIZE), macAlgorithm);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Failed to derive the TLS key block", e);
+            return null;
+        }
+        int clientKeyOffset = 0;
+        int serverKeyOffset = keyLength;
+        int clientSaltOffset = 2 * keyLength;
+        int serverSaltOffset = clientSaltOffset + TLS_CIPHER_AES_GCM_SALT_SIZE;
+
+        byte[] clientCryptoInfo = cryptoInfo(cipherType, keyBlock, clientKeyOffset, keyLength, clientSaltOffset);
+        byte[] serverCryptoInfo = cryptoInfo(cipherType, keyBlock, serverKeyOffset, keyLength, serverSaltOffset);
+        return engine.getUseClientMode() ? new byte[][] { serverCryptoInfo, clientCryptoInfo }
+                : new byte[][] { clientCryptoInfo, serverCryptoInfo };
+    }
+
+    /**
+     * Returns the {@code struct tls12_crypto_info_aes_gcm_*} for the given key and salt.
+     */
+    static byte[] cryptoInfo(short cipherType, byte[] keyBlock, int keyOffset, int keyLength, int saltOffset) {
+        ByteBuffer info = ByteBuffer.allocate(4 + TLS_CIPHER_AES_GCM_IV_SIZE + keyLength +
+                TLS_CIPHER_AES_GCM_SALT_SIZE + 8);
+        // struct tls_crypto_info uses the byte order of the host.
+        info.order(ByteOrder.nativeOrder());
+        info.putShort(TLS_1_2_VERSION);
+        info.putShort(cipherType);
+        info.order(ByteOrder.BIG_ENDIAN);
+        // The explicit nonce only needs to be unique per key, so use the record sequence number like OpenSSL does.
+        info.putLong(FIRST_RECORD_SEQUENCE);
+        info.put(keyBlock, keyOffset, keyLength);
+        info.put(keyBlock, saltOffset, TLS_CIPHER_AES_GCM_SALT_SIZE);
+        info.putLong(FIRST_RECORD_SEQUENCE);
+        return info.array();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
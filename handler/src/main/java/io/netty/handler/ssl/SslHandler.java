@@ -590,6 +590,17 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         return engine;
     }
 
+    /**
+     * Returns {@code true} if this handler buffers data which was not processed by the {@link SSLEngine} yet, which
+     * are either received bytes that do not form a complete TLS record or writes that were not encrypted yet.
+     * If the handshake is done and this method returns {@code false} this handler may be removed from the
+     * {@link ChannelPipeline} without losing any data, see {@link KernelTlsHandler}.
+     */
+    final boolean hasBufferedData() {
+        return actualReadableBytes() > 0 ||
+                (pendingUnencryptedWrites != null && !pendingUnencryptedWrites.isEmpty());
+    }
+
     /**
      * Returns the name of the current application-level protocol.
      *
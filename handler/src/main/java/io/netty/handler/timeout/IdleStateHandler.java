@@ -93,6 +93,14 @@ import java.util.concurrent.TimeUnit;
  * ...
  * </pre>
  *
+ * <h3>Idle scanner</h3>
+ * By default every handler schedules its own timeouts on the {@link io.netty.util.concurrent.EventExecutor} of the
+ * {@link Channel}. With {@code -Dio.netty.handler.timeout.useIdleScanner=true} the handlers of all channels served
+ * by the same {@link io.netty.util.concurrent.EventExecutor} are checked by one shared sweeper instead, which scans
+ * them in coarse buckets of {@code -Dio.netty.handler.timeout.idleScannerTickMillis} (100 by default) and fires the
+ * {@link IdleStateEvent}s of all expired handlers in one batch. The events are the same as in the default mode,
+ * but may be fired up to one tick late.
+ *
  * @see ReadTimeoutHandler
  * @see WriteTimeoutHandler
  */
@@ -124,6 +132,12 @@ public class IdleStateHandler extends ChannelDuplexHandler {
     private ScheduledFuture<?> allIdleTimeout;
     private boolean firstAllIdleEvent = true;
 
+    // Only set if the idle checks are run by the IdleStateScanner of the executor instead of plain timers.
+    private IdleStateScanner scanner;
+    private AbstractIdleTask readerIdleTask;
+    private AbstractIdleTask writerIdleTask;
+    private AbstractIdleTask allIdleTask;
+
     private byte state; // 0 - none, 1 - initialized, 2 - destroyed
     private boolean reading;
 
@@ -317,19 +331,33 @@ public class IdleStateHandler extends ChannelDuplexHandler {
         state = 1;
         initOutputChanged(ctx);
 
+        scanner = idleStateScanner(ctx);
+
         lastReadTime = lastWriteTime = ticksInNanos();
         if (readerIdleTimeNanos > 0) {
-            readerIdleTimeout = schedule(ctx, new ReaderIdleTimeoutTask(ctx),
-                    readerIdleTimeNanos, TimeUnit.NANOSECONDS);
+            readerIdleTask = new ReaderIdleTimeoutTask(ctx);
+            readerIdleTimeout = schedule(ctx, readerIdleTask, readerIdleTimeNanos);
         }
         if (writerIdleTimeNanos > 0) {
-            writerIdleTimeout = schedule(ctx, new WriterIdleTimeoutTask(ctx),
-                    writerIdleTimeNanos, TimeUnit.NANOSECONDS);
+            writerIdleTask = new WriterIdleTimeoutTask(ctx);
+            writerIdleTimeout = schedule(ctx, writerIdleTask, writerIdleTimeNanos);
         }
         if (allIdleTimeNanos > 0) {
-            allIdleTimeout = schedule(ctx, new AllIdleTimeoutTask(ctx),
-                    allIdleTimeNanos, TimeUnit.NANOSECONDS);
+            allIdleTask = new AllIdleTimeoutTask(ctx);
+            allIdleTimeout = schedule(ctx, allIdleTask, allIdleTimeNanos);
+        }
+    }
+
+    /**
+     * Schedules the given task on the {@link IdleStateScanner} if one is used, otherwise on the executor of the
+     * {@link ChannelHandlerContext}. Returns {@code null} in the former case.
+     */
+    private ScheduledFuture<?> schedule(ChannelHandlerContext ctx, AbstractIdleTask task, long delayNanos) {
+        if (scanner != null) {
+            scanner.schedule(task, delayNanos);
+            return null;
         }
+        return schedule(ctx, task, delayNanos, TimeUnit.NANOSECONDS);
     }
 
     /**
@@ -346,6 +374,18 @@ public class IdleStateHandler extends ChannelDuplexHandler {
         return ctx.executor().schedule(task, delay, unit);
     }
 
+    /**
+     * Returns the {@link IdleStateScanner} that should run the idle checks, or {@code null} to use plain timers.
+     *
+     * This method is visible for testing!
+     */
+    IdleStateScanner idleStateScanner(ChannelHandlerContext ctx) {
+        if (IdleStateScanner.USE_IDLE_SCANNER && ctx.executor().inEventLoop()) {
+            return IdleStateScanner.scanner(ctx.executor());
+        }
+        return null;
+    }
+
     private void destroy() {
         state = 2;
 
@@ -361,6 +401,19 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             allIdleTimeout.cancel(false);
             allIdleTimeout = null;
         }
+        if (scanner != null) {
+            if (readerIdleTask != null) {
+                scanner.cancel(readerIdleTask);
+            }
+            if (writerIdleTask != null) {
+                scanner.cancel(writerIdleTask);
+            }
+            if (allIdleTask != null) {
+                scanner.cancel(allIdleTask);
+            }
+            scanner = null;
+        }
+        readerIdleTask = writerIdleTask = allIdleTask = null;
     }
 
     /**
@@ -459,7 +512,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
         return false;
     }
 
-    private abstract static class AbstractIdleTask implements Runnable {
+    private abstract static class AbstractIdleTask extends IdleStateScanner.Entry {
 
         private final ChannelHandlerContext ctx;
 
@@ -494,7 +547,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
 
             if (nextDelay <= 0) {
                 // Reader is idle - set a new timeout and notify the callback.
-                readerIdleTimeout = schedule(ctx, this, readerIdleTimeNanos, TimeUnit.NANOSECONDS);
+                readerIdleTimeout = schedule(ctx, this, readerIdleTimeNanos);
 
                 boolean first = firstReaderIdleEvent;
                 firstReaderIdleEvent = false;
@@ -507,7 +560,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
                 }
             } else {
                 // Read occurred before the timeout - set a new timeout with shorter delay.
-                readerIdleTimeout = schedule(ctx, this, nextDelay, TimeUnit.NANOSECONDS);
+                readerIdleTimeout = schedule(ctx, this, nextDelay);
             }
         }
     }
@@ -525,7 +578,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             long nextDelay = writerIdleTimeNanos - (ticksInNanos() - lastWriteTime);
             if (nextDelay <= 0) {
                 // Writer is idle - set a new timeout and notify the callback.
-                writerIdleTimeout = schedule(ctx, this, writerIdleTimeNanos, TimeUnit.NANOSECONDS);
+                writerIdleTimeout = schedule(ctx, this, writerIdleTimeNanos);
 
                 boolean first = firstWriterIdleEvent;
                 firstWriterIdleEvent = false;
@@ -542,7 +595,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
                 }
             } else {
                 // Write occurred before the timeout - set a new timeout with shorter delay.
-                writerIdleTimeout = schedule(ctx, this, nextDelay, TimeUnit.NANOSECONDS);
+                writerIdleTimeout = schedule(ctx, this, nextDelay);
             }
         }
     }
@@ -563,7 +616,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             if (nextDelay <= 0) {
                 // Both reader and writer are idle - set a new timeout and
                 // notify the callback.
-                allIdleTimeout = schedule(ctx, this, allIdleTimeNanos, TimeUnit.NANOSECONDS);
+                allIdleTimeout = schedule(ctx, this, allIdleTimeNanos);
 
                 boolean first = firstAllIdleEvent;
                 firstAllIdleEvent = false;
@@ -581,7 +634,7 @@ public class IdleStateHandler extends ChannelDuplexHandler {
             } else {
                 // Either read or write occurred before the timeout - set a new
                 // timeout with shorter delay.
-                allIdleTimeout = schedule(ctx, this, nextDelay, TimeUnit.NANOSECONDS);
+                allIdleTimeout = schedule(ctx, this, nextDelay);
             }
         }
     }
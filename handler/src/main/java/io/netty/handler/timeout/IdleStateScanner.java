@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.timeout;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the idle state of all {@link IdleStateHandler}s served by the same {@link EventExecutor} from a single
+ * periodic task instead of scheduling a {@link ScheduledFuture} per handler and idle state.
+ * <p>
+ * A handler registers the time of its next idle check, which is hashed into a coarse bucket of {@code tickNanos}.
+ * Every tick the buckets that became due are swept and all expired checks run as one batch. Reads and writes only
+ * update the timestamps kept by the handler, so the scanner is never touched on the I/O path and the
+ * {@link EventExecutor}'s scheduled task queue only holds one task no matter how many channels are idle-checked.
+ * <p>
+ * The price is that an {@link IdleStateEvent} may fire up to one tick later than it would with a per-handler timer.
+ * <p>
+ * Instances are not thread-safe and must only be used from the {@link EventExecutor} they were created for.
+ */
+final class IdleStateScanner implements Runnable {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IdleStateScanner.class);
+
+    /**
+     * Whether {@link IdleStateHandler}s use the scanner of their {@link EventExecutor} by default.
+     */
+    static final boolean USE_IDLE_SCANNER =
+            SystemPropertyUtil.getBoolean("io.netty.handler.timeout.useIdleScanner", false);
+    private static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(1, SystemPropertyUtil.getLong("io.netty.handler.timeout.idleScannerTickMillis", 100)));
+
+    // 必须是2的幂
+    private static final int BUCKETS = 512;
+    private static final int MASK = BUCKETS - 1;
+    private static final int NOT_SCHEDULED = -1;
+
+    private static final FastThreadLocal<IdleStateScanner> SCANNER = new FastThreadLocal<IdleStateScanner>();
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.handler.timeout.useIdleScanner: {}", USE_IDLE_SCANNER);
+            logger.debug("-Dio.netty.handler.timeout.idleScannerTickMillis: {}",
+                    TimeUnit.NANOSECONDS.toMillis(DEFAULT_TICK_NANOS));
+        }
+    }
+
+    /**
+     * Returns the scanner of the given {@link EventExecutor}, or {@code null} if none can be used. Must be called
+     * from the thread of the {@link EventExecutor}.
+     */
+    static IdleStateScanner scanner(EventExecutor executor) {
+        assert executor.inEventLoop();
+
+        IdleStateScanner scanner = SCANNER.get();
+        if (scanner == null || scanner.executor != executor) {
+            if (scanner != null && scanner.size != 0) {
+                // Another executor running on the same thread still uses its scanner, fall back to plain timers.
+                return null;
+            }
+            scanner = new IdleStateScanner(executor, DEFAULT_TICK_NANOS);
+            SCANNER.set(scanner);
+        }
+        return scanner;
+    }
+
+    private final EventExecutor executor;
+    private final long tickNanos;
+    private final long originNanos = System.nanoTime();
+    private final Entry[] buckets = new Entry[BUCKETS];
+
+    // All buckets up to and including this tick have been swept.
+    private long sweptTick;
+    // The entry the current sweep will visit next, kept up to date by unlink().
+    private Entry sweepNext;
+    private int size;
+    private ScheduledFuture<?> sweepFuture;
+
+    IdleStateScanner(EventExecutor executor, long tickNanos) {
+        this.executor = executor;
+        this.tickNanos = tickNanos;
+    }
+
+    /**
+     * Returns the number of scheduled entries.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the given {@link Entry} to be run once {@code delayNanos} elapsed, replacing any previous schedule.
+     */
+    void schedule(Entry entry, long delayNanos) {
+        assert executor.inEventLoop();
+
+        if (entry.bucket != NOT_SCHEDULED) {
+            unlink(entry);
+        }
+
+        long now = System.nanoTime();
+        if (sweepFuture == null) {
+            // Nothing was scheduled, so there is nothing left behind in the buckets that were skipped.
+            sweptTick = tick(now);
+            sweepFuture = executor.scheduleAtFixedRate(this, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+
+        long deadline = now + delayNanos;
+        // The first tick that is swept at or after the deadline.
+        long tick = Math.max((deadline - originNanos + tickNanos - 1) / tickNanos, sweptTick + 1);
+        link(entry, (int) (tick & MASK), deadline);
+    }
+
+    /**
+     * Removes the given {@link Entry} if it is scheduled.
+     */
+    void cancel(Entry entry) {
+        assert executor.inEventLoop();
+
+        if (entry.bucket != NOT_SCHEDULED) {
+            unlink(entry);
+        }
+        // The sweep task stops itself once it finds the scanner empty.
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        long currentTick = tick(now);
+        // Every bucket is swept at most once, even if the sweep was delayed for a whole round.
+        long lastTick = Math.min(currentTick, sweptTick + BUCKETS);
+        long tick = sweptTick;
+        // Entries scheduled while sweeping must go to a later tick.
+        sweptTick = currentTick;
+
+        while (++tick <= lastTick) {
+            Entry entry = buckets[(int) (tick & MASK)];
+            while (entry != null) {
+                sweepNext = entry.next;
+                // The bucket also holds entries of later rounds, leave them in place.
+                if (entry.deadline - now <= 0) {
+                    unlink(entry);
+                    try {
+                        entry.run();
+                    } catch (Throwable t) {
+                        logger.warn("An exception was thrown by {}.", entry, t);
+                    }
+                }
+                entry = sweepNext;
+            }
+        }
+        sweepNext = null;
+
+        if (size == 0 && sweepFuture != null) {
+            sweepFuture.cancel(false);
+            sweepFuture = null;
+        }
+    }
+
+    private long tick(long nanoTime) {
+        return (nanoTime - originNanos) / tickNanos;
+    }
+
+    private void link(Entry entry, int bucket, long deadline) {
+        // Link at the head so an entry that is rescheduled into the bucket being swept is not visited again.
+        Entry head = buckets[bucket];
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        buckets[bucket] = entry;
+        entry.bucket = bucket;
+        entry.deadline = deadline;
+        size++;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry == sweepNext) {
+            sweepNext = entry.next;
+        }
+        Entry prev = entry.prev;
+        Entry next = entry.next;
+        if (prev == null) {
+            buckets[entry.bucket] = next;
+        } else {
+            prev.next = next;
+        }
+        if (next != null) {
+            next.prev = prev;
+        }
+        entry.prev = entry.next = null;
+        entry.bucket = NOT_SCHEDULED;
+        size--;
+    }
+
+    /**
+     * A task that can be scheduled on an {@link IdleStateScanner}. An instance can only be scheduled on one scanner
+     * at a time.
+     */
+    abstract static class Entry implements Runnable {
+        private Entry prev;
+        private Entry next;
+        private long deadline;
+        private int bucket = NOT_SCHEDULED;
+    }
+}
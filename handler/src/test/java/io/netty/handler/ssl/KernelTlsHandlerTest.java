@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class KernelTlsHandlerTest {
+
+    @Test
+    public void testCryptoInfo() {
+        byte[] keyBlock = new byte[2 * (16 + 4)];
+        for (int i = 0; i < keyBlock.length; i++) {
+            keyBlock[i] = (byte) i;
+        }
+        byte[] info = KernelTlsHandler.cryptoInfo((short) 51, keyBlock, 16, 16, 36);
+        assertEquals(40, info.length);
+
+        ByteBuffer buffer = ByteBuffer.wrap(info).order(ByteOrder.nativeOrder());
+        assertEquals(0x0303, buffer.getShort());
+        assertEquals(51, buffer.getShort());
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        assertEquals(1, buffer.getLong());
+        for (int i = 16; i < 32; i++) {
+            assertEquals(i, buffer.get());
+        }
+        for (int i = 36; i < 40; i++) {
+            assertEquals(i, buffer.get());
+        }
+        assertEquals(1, buffer.getLong());
+    }
+
+    @Test(timeout = 30000)
+    public void testFallbackToSslHandler() throws Exception {
+        // A LocalChannel is no KernelTlsChannel, so the SslHandler must stay in the pipeline.
+        SelfSignedCertificate ssc = new SelfSignedCertificate();
+        final SslContext serverContext = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey())
+                .sslProvider(SslProvider.JDK).build();
+        final SslContext clientContext = SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE).sslProvider(SslProvider.JDK).build();
+        final LinkedBlockingQueue<Channel> serverChannels = new LinkedBlockingQueue<Channel>();
+        final LinkedBlockingQueue<String> received = new LinkedBlockingQueue<String>();
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        LocalAddress address = new LocalAddress(getClass().getSimpleName());
+        Channel serverChannel = null;
+        Channel clientChannel = null;
+        try {
+            serverChannel = new ServerBootstrap().group(group)
+                    .channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            serverChannels.add(ch);
+                            ch.pipeline().addLast(serverContext.newHandler(ch.alloc()),
+                                    new KernelTlsHandler(), new ChannelInboundHandlerAdapter() {
+                                        @Override
+                                        public void channelActive(ChannelHandlerContext ctx) {
+                                            // Written before the handshake completed.
+                                            ctx.writeAndFlush(Unpooled.copiedBuffer("hello", CharsetUtil.US_ASCII));
+                                        }
+                                    });
+                        }
+                    })
+                    .bind(address).syncUninterruptibly().channel();
+            clientChannel = new Bootstrap().group(group)
+                    .channel(LocalChannel.class)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(clientContext.newHandler(ch.alloc()),
+                                    new ChannelInboundHandlerAdapter() {
+                                        @Override
+                                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                            ByteBuf buf = (ByteBuf) msg;
+                                            received.add(buf.toString(CharsetUtil.US_ASCII));
+                                            buf.release();
+                                        }
+                                    });
+                        }
+                    })
+                    .connect(address).syncUninterruptibly().channel();
+
+            assertEquals("hello", received.poll(10, TimeUnit.SECONDS));
+            Channel child = serverChannels.take();
+            // The handlers are removed after the writes were flushed, so wait until the event loop is done with it.
+            child.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }).syncUninterruptibly();
+            assertNotNull(child.pipeline().get(SslHandler.class));
+            assertNull(child.pipeline().get(KernelTlsHandler.class));
+        } finally {
+            if (clientChannel != null) {
+                clientChannel.close().syncUninterruptibly();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+            ssc.delete();
+        }
+    }
+}
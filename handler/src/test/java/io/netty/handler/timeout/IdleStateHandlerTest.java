@@ -325,6 +325,78 @@ public class IdleStateHandlerTest {
         }
     }
 
+    @Test
+    public void testIdleStateScannerReaderIdle() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        IdleStateScanner scanner = new IdleStateScanner(channel.eventLoop(), TimeUnit.MILLISECONDS.toNanos(5));
+        List<Object> events = new ArrayList<Object>();
+        channel.pipeline().addLast(new ScannedIdleStateHandler(scanner, 20L, 0L, 0L), new EventRecorder(events));
+        try {
+            assertEquals(1, scanner.size());
+
+            Thread.sleep(60L);
+            channel.runScheduledPendingTasks();
+            assertEquals(1, events.size());
+            assertSame(IdleStateEvent.FIRST_READER_IDLE_STATE_EVENT, events.get(0));
+
+            // The check was rescheduled after it fired.
+            assertEquals(1, scanner.size());
+
+            Thread.sleep(60L);
+            channel.runScheduledPendingTasks();
+            assertEquals(2, events.size());
+            assertSame(IdleStateEvent.READER_IDLE_STATE_EVENT, events.get(1));
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+        assertEquals(0, scanner.size());
+    }
+
+    @Test
+    public void testIdleStateScannerFiresInBatches() throws Exception {
+        EmbeddedChannel channel1 = new EmbeddedChannel();
+        EmbeddedChannel channel2 = new EmbeddedChannel();
+        IdleStateScanner scanner = new IdleStateScanner(channel1.eventLoop(), TimeUnit.MILLISECONDS.toNanos(5));
+        List<Object> events = new ArrayList<Object>();
+        channel1.pipeline().addLast(new ScannedIdleStateHandler(scanner, 0L, 20L, 0L), new EventRecorder(events));
+        channel2.pipeline().addLast(new ScannedIdleStateHandler(scanner, 0L, 0L, 20L), new EventRecorder(events));
+        try {
+            assertEquals(2, scanner.size());
+
+            Thread.sleep(60L);
+            // A single sweep checks the handlers of both channels.
+            channel1.runScheduledPendingTasks();
+            assertEquals(2, events.size());
+            assertTrue(events.contains(IdleStateEvent.FIRST_WRITER_IDLE_STATE_EVENT));
+            assertTrue(events.contains(IdleStateEvent.FIRST_ALL_IDLE_STATE_EVENT));
+        } finally {
+            channel1.finishAndReleaseAll();
+            channel2.finishAndReleaseAll();
+        }
+        assertEquals(0, scanner.size());
+    }
+
+    @Test
+    public void testIdleStateScannerHandlerRemoved() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        IdleStateScanner scanner = new IdleStateScanner(channel.eventLoop(), TimeUnit.MILLISECONDS.toNanos(5));
+        List<Object> events = new ArrayList<Object>();
+        ScannedIdleStateHandler idleStateHandler = new ScannedIdleStateHandler(scanner, 20L, 20L, 20L);
+        channel.pipeline().addLast(idleStateHandler, new EventRecorder(events));
+        try {
+            assertEquals(3, scanner.size());
+
+            channel.pipeline().remove(idleStateHandler);
+            assertEquals(0, scanner.size());
+
+            Thread.sleep(60L);
+            channel.runScheduledPendingTasks();
+            assertEquals(0, events.size());
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
     private static void assertNotNullAndRelease(Object msg) {
         assertNotNull(msg);
         ReferenceCountUtil.release(msg);
@@ -390,6 +462,42 @@ public class IdleStateHandlerTest {
             this.delayInNanos = unit.toNanos(delay);
             return null;
         }
+
+        @Override
+        IdleStateScanner idleStateScanner(ChannelHandlerContext ctx) {
+            // The ticker is driven by hand, so always use the timers captured by schedule().
+            return null;
+        }
+    }
+
+    private static final class ScannedIdleStateHandler extends IdleStateHandler {
+
+        private final IdleStateScanner scanner;
+
+        ScannedIdleStateHandler(IdleStateScanner scanner,
+                long readerIdleTime, long writerIdleTime, long allIdleTime) {
+            super(readerIdleTime, writerIdleTime, allIdleTime, TimeUnit.MILLISECONDS);
+            this.scanner = scanner;
+        }
+
+        @Override
+        IdleStateScanner idleStateScanner(ChannelHandlerContext ctx) {
+            return scanner;
+        }
+    }
+
+    private static final class EventRecorder extends ChannelInboundHandlerAdapter {
+
+        private final List<Object> events;
+
+        EventRecorder(List<Object> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            events.add(evt);
+        }
     }
 
     private static class ObservableChannel extends EmbeddedChannel {
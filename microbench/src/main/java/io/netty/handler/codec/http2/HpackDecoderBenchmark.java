@@ -85,6 +85,13 @@ public class HpackDecoderBenchmark extends AbstractMicrobenchmark {
         hpackDecoder.decode(0, input.duplicate(), headers, true);
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public Http2Headers decodeFlat() throws Http2Exception {
+        HpackDecoder hpackDecoder = new HpackDecoder(Integer.MAX_VALUE);
+        return hpackDecoder.decodeFlat(0, input.duplicate(), true);
+    }
+
     private byte[] getSerializedHeaders(Http2Headers headers, boolean sensitive) throws Http2Exception {
         HpackEncoder hpackEncoder = HpackUtilBenchmark.newTestEncoder();
         ByteBuf out = size.newOutBuffer();
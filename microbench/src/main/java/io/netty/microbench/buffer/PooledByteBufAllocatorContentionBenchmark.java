@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how {@link PooledByteBufAllocator} behaves when many threads share a single arena and can not be served
+ * by their {@code PoolThreadCache}, which is the case for threads that are not event loop threads when
+ * {@code useCacheForAllThreads} is disabled.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(8)
+public class PooledByteBufAllocatorContentionBenchmark extends AbstractMicrobenchmark {
+
+    private static final int BATCH = 16;
+
+    private static final PooledByteBufAllocator uncachedAllocator = new PooledByteBufAllocator(
+            true, 0, 1, PooledByteBufAllocator.defaultPageSize(), PooledByteBufAllocator.defaultMaxOrder(),
+            0, 0, false);
+
+    private static final PooledByteBufAllocator cachedAllocator = new PooledByteBufAllocator(
+            true, 0, 1, PooledByteBufAllocator.defaultPageSize(), PooledByteBufAllocator.defaultMaxOrder(),
+            PooledByteBufAllocator.defaultSmallCacheSize(), PooledByteBufAllocator.defaultNormalCacheSize(), true);
+
+    @Param({ "00064", "01024", "04096", "65536" })
+    public int size;
+
+    @State(Scope.Thread)
+    public static class Buffers {
+        final ByteBuf[] buffers = new ByteBuf[BATCH];
+    }
+
+    @Benchmark
+    public boolean allocateReleaseUncached(Buffers state) {
+        return allocateRelease(uncachedAllocator, state.buffers);
+    }
+
+    @Benchmark
+    public boolean allocateReleaseCached(Buffers state) {
+        return allocateRelease(cachedAllocator, state.buffers);
+    }
+
+    private boolean allocateRelease(PooledByteBufAllocator allocator, ByteBuf[] buffers) {
+        // Keep a few buffers alive at the same time so the frees do not just undo the previous allocation.
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.directBuffer(size);
+        }
+        boolean released = true;
+        for (int i = 0; i < buffers.length; i++) {
+            released &= buffers[i].release();
+        }
+        return released;
+    }
+}
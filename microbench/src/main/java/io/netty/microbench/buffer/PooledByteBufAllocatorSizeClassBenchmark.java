@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocates and releases buffers with sizes spread over the small size classes of the
+ * {@link PooledByteBufAllocator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PooledByteBufAllocatorSizeClassBenchmark extends AbstractMicrobenchmark {
+
+    private static final int SIZES = 1024;
+
+    @Param({ "1024", "4096", "8192" })
+    public int maxSize;
+
+    @Param({ "false", "true" })
+    public boolean direct;
+
+    @Param({ "false", "true" })
+    public boolean useThreadCache;
+
+    private final int[] sizes = new int[SIZES];
+    private final ByteBuf[] buffers = new ByteBuf[SIZES];
+    private PooledByteBufAllocator allocator;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        allocator = new PooledByteBufAllocator(true, 1, 1,
+                PooledByteBufAllocator.defaultPageSize(),
+                PooledByteBufAllocator.defaultMaxOrder(),
+                PooledByteBufAllocator.defaultSmallCacheSize(),
+                PooledByteBufAllocator.defaultNormalCacheSize(),
+                useThreadCache);
+        Random rand = new Random(42);
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = 1 + rand.nextInt(maxSize);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] != null) {
+                buffers[i].release();
+                buffers[i] = null;
+            }
+        }
+    }
+
+    @Benchmark
+    public ByteBuf allocateAndRelease() {
+        int idx = index++ & SIZES - 1;
+        ByteBuf old = buffers[idx];
+        if (old != null) {
+            old.release();
+        }
+        int size = sizes[idx];
+        ByteBuf buf = direct ? allocator.directBuffer(size) : allocator.heapBuffer(size);
+        buffers[idx] = buf;
+        return buf;
+    }
+}
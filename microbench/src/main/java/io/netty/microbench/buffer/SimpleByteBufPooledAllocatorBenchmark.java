@@ -60,7 +60,6 @@ public class SimpleByteBufPooledAllocatorBenchmark extends AbstractMicrobenchmar
                 PooledByteBufAllocator.defaultNumDirectArena(),
                 PooledByteBufAllocator.defaultPageSize(),
                 PooledByteBufAllocator.defaultMaxOrder(),
-                PooledByteBufAllocator.defaultTinyCacheSize(),
                 PooledByteBufAllocator.defaultSmallCacheSize(),
                 PooledByteBufAllocator.defaultNormalCacheSize(),
                 useThreadCache);
@@ -21,12 +21,14 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -40,9 +42,13 @@ public class EpollSocketChannelBenchmark extends AbstractMicrobenchmark {
         public void run() { }
     };
 
+    private static final int WRITE_BATCH_SIZE = 32;
+
     private EpollEventLoopGroup group;
     private Channel serverChan;
     private Channel chan;
+    private Channel batchChan;
+    private Runnable writeBatch;
     private ByteBuf abyte;
     private ScheduledFuture<?> future;
 
@@ -126,11 +132,35 @@ public class EpollSocketChannelBenchmark extends AbstractMicrobenchmark {
 
         abyte = chan.alloc().directBuffer(1);
         abyte.writeByte('a');
+
+        // Writes many small buffers per flush, which is dominated by the ChannelOutboundBuffer bookkeeping.
+        batchChan = new Bootstrap()
+            .channel(EpollSocketChannel.class)
+            .handler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    ReferenceCountUtil.release(msg);
+                }
+            })
+            .group(group)
+            .connect(serverChan.localAddress())
+            .sync()
+            .channel();
+        writeBatch = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < WRITE_BATCH_SIZE; i++) {
+                    batchChan.write(abyte.retainedSlice(), batchChan.voidPromise());
+                }
+                batchChan.flush();
+            }
+        };
     }
 
     @TearDown
     public void tearDown() throws Exception {
         chan.close().sync();
+        batchChan.close().sync();
         serverChan.close().sync();
         future.cancel(true);
         group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
@@ -142,6 +172,11 @@ public class EpollSocketChannelBenchmark extends AbstractMicrobenchmark {
         return chan.pipeline().writeAndFlush(abyte.retainedSlice()).sync();
     }
 
+    @Benchmark
+    public Object writeBatch() throws Exception {
+        return batchChan.eventLoop().submit(writeBatch).get();
+    }
+
     @Benchmark
     public Object executeSingle() throws Exception {
         return chan.eventLoop().submit(runnable).get();
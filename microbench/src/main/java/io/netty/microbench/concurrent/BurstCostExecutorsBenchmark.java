@@ -20,6 +20,7 @@ import io.netty.channel.kqueue.KQueue;
 import io.netty.channel.kqueue.KQueueEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.AbstractEventExecutor;
 import io.netty.util.concurrent.DefaultEventExecutor;
 import io.netty.util.internal.PlatformDependent;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -180,6 +181,13 @@ public class BurstCostExecutorsBenchmark extends AbstractMicrobenchmark {
     private String executorType;
     @Param({ "0", "10" })
     private int work;
+    /**
+     * If {@code true} all but the last task of a burst are submitted via
+     * {@link AbstractEventExecutor#lazyExecute(Runnable)}, so only the last one needs to wake up the executor.
+     * This is a NOOP for the executors which are not an {@link AbstractEventExecutor}.
+     */
+    @Param({ "false", "true" })
+    private boolean lazyExecute;
 
     private ExecutorService executor;
     private ExecutorService executorToShutdown;
@@ -317,12 +325,27 @@ public class BurstCostExecutorsBenchmark extends AbstractMicrobenchmark {
         return executeBurst(state);
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @Threads(8)
+    public int test8Producers(final PerThreadState state) {
+        return executeBurst(state);
+    }
+
     private int executeBurst(final PerThreadState state) {
         final ExecutorService executor = this.executor;
         final int burstLength = this.burstLength;
         final Runnable completeTask = state.completeTask;
-        for (int i = 0; i < burstLength; i++) {
-            executor.execute(completeTask);
+        if (lazyExecute && executor instanceof AbstractEventExecutor) {
+            final AbstractEventExecutor eventExecutor = (AbstractEventExecutor) executor;
+            for (int i = 1; i < burstLength; i++) {
+                eventExecutor.lazyExecute(completeTask);
+            }
+            eventExecutor.execute(completeTask);
+        } else {
+            for (int i = 0; i < burstLength; i++) {
+                executor.execute(completeTask);
+            }
         }
         final int value = state.spinWaitCompletionOf(burstLength);
         state.resetCompleted();
@@ -36,7 +36,20 @@ import java.util.concurrent.TimeUnit;
 @State(Scope.Benchmark)
 public class ScheduledFutureTaskBenchmark extends AbstractMicrobenchmark {
 
-    static final EventLoop executor = new DefaultEventLoop();
+    /**
+     * If {@code true} the scheduled tasks are stored in a hierarchical timing wheel instead of a priority queue.
+     * Each parameter combination runs in its own fork, so the system property is set before the executor is created.
+     */
+    @Param({ "false", "true" })
+    public boolean useTimingWheel;
+
+    private EventLoop executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        System.setProperty("io.netty.eventexecutor.useTimingWheel", String.valueOf(useTimingWheel));
+        executor = new DefaultEventLoop();
+    }
 
     @State(Scope.Thread)
     public static class FuturesHolder {
@@ -54,7 +67,8 @@ public class ScheduledFutureTaskBenchmark extends AbstractMicrobenchmark {
         final List<ScheduledFuture<Void>> futures = new ArrayList<ScheduledFuture<Void>>();
 
         @Setup(Level.Invocation)
-        public void reset() {
+        public void reset(ScheduledFutureTaskBenchmark benchmark) {
+            final EventLoop executor = benchmark.executor;
             futures.clear();
             executor.submit(new Runnable() {
                 @Override
@@ -72,6 +86,21 @@ public class ScheduledFutureTaskBenchmark extends AbstractMicrobenchmark {
         executor.shutdownGracefully().syncUninterruptibly();
     }
 
+    @Benchmark
+    public Future<?> scheduleAndCancel(final FuturesHolder futuresHolder) {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                List<ScheduledFuture<Void>> futures = futuresHolder.futures;
+                for (int i = 0; i < futuresHolder.num; i++) {
+                    // Reschedule every task like an idle timeout that is reset on each read.
+                    futures.get(i).cancel(false);
+                    futures.set(i, executor.schedule(FuturesHolder.NO_OP, i + 1, TimeUnit.SECONDS));
+                }
+            }
+        }).syncUninterruptibly();
+    }
+
     @Benchmark
     public Future<?> cancelInOrder(final FuturesHolder futuresHolder) {
         return executor.submit(new Runnable() {
@@ -21,20 +21,26 @@ import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.DateFormatter;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.EmptyHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpRequestEncoder;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.PreEncodedHttpHeaders;
 import io.netty.microbench.channel.EmbeddedChannelWriteReleaseHandlerContext;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -49,6 +55,8 @@ import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 
+import java.util.Date;
+
 @State(Scope.Benchmark)
 @Fork(1)
 @Threads(1)
@@ -62,6 +70,9 @@ public class HttpObjectEncoderBenchmark extends AbstractMicrobenchmark {
     private HttpRequest chunkedRequest;
     private ByteBuf content;
     private ChannelHandlerContext context;
+    private HttpResponseEncoder responseEncoder;
+    private FullHttpResponse fullResponse;
+    private ChannelHandlerContext responseContext;
 
     @Param({ "true", "false" })
     public boolean pooledAllocator;
@@ -69,6 +80,13 @@ public class HttpObjectEncoderBenchmark extends AbstractMicrobenchmark {
     @Param({ "true", "false" })
     public boolean voidPromise;
 
+    /**
+     * Whether the constant response headers are written from {@link PreEncodedHttpHeaders} instead of being set on
+     * each response.
+     */
+    @Param({ "true", "false" })
+    public boolean preEncodedHeaders;
+
     @Setup(Level.Trial)
     public void setup() {
         byte[] bytes = new byte[256];
@@ -95,6 +113,29 @@ public class HttpObjectEncoderBenchmark extends AbstractMicrobenchmark {
                 handleUnexpectedException(t);
             }
         };
+
+        HttpHeaders responseHeaders = new DefaultHttpHeaders(false);
+        responseHeaders.add(HttpHeaderNames.CONTENT_LENGTH, testContent.readableBytes());
+        if (preEncodedHeaders) {
+            responseEncoder = new HttpResponseEncoder(PreEncodedHttpHeaders.EMPTY
+                    .add(HttpHeaderNames.SERVER, "netty")
+                    .add(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                    .addDate());
+        } else {
+            responseHeaders.add(HttpHeaderNames.SERVER, "netty");
+            responseHeaders.add(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+            responseHeaders.add(HttpHeaderNames.DATE, DateFormatter.format(new Date()));
+            responseEncoder = new HttpResponseEncoder();
+        }
+        fullResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, testContent,
+                responseHeaders, EmptyHttpHeaders.INSTANCE);
+        responseContext = new EmbeddedChannelWriteReleaseHandlerContext(pooledAllocator ?
+                PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT, responseEncoder) {
+            @Override
+            protected void handleException(Throwable t) {
+                handleUnexpectedException(t);
+            }
+        };
     }
 
     @TearDown(Level.Trial)
@@ -120,6 +161,12 @@ public class HttpObjectEncoderBenchmark extends AbstractMicrobenchmark {
         encoder.write(context, lastContent, newPromise());
     }
 
+    @Benchmark
+    public void fullResponse() throws Exception {
+        responseEncoder.write(responseContext, fullResponse,
+                voidPromise ? responseContext.voidPromise() : responseContext.newPromise());
+    }
+
     private ChannelPromise newPromise() {
         return voidPromise ? context.voidPromise() : context.newPromise();
     }
@@ -22,6 +22,7 @@ import io.netty.buffer.search.AbstractMultiSearchProcessorFactory;
 import io.netty.buffer.search.AbstractSearchProcessorFactory;
 import io.netty.buffer.search.SearchProcessorFactory;
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ByteProcessor;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.CompilerControl;
 import org.openjdk.jmh.annotations.CompilerControl.Mode;
@@ -45,6 +46,9 @@ public class SearchBenchmark extends AbstractMicrobenchmark {
 
     private static final long SEED = 123;
 
+    // Not one of the ByteProcessor constants, so it is called back for every byte.
+    private static final ByteProcessor FIND_LF_PER_BYTE = new ByteProcessor.IndexOfProcessor((byte) '\n');
+
     public enum Input {
         RANDOM_256B {
             @Override
@@ -153,6 +157,24 @@ public class SearchBenchmark extends AbstractMicrobenchmark {
         return ByteBufUtil.indexOf(needle, haystack);
     }
 
+    @Benchmark
+    @CompilerControl(Mode.DONT_INLINE)
+    public int findLf() {
+        return haystack.forEachByte(ByteProcessor.FIND_LF);
+    }
+
+    @Benchmark
+    @CompilerControl(Mode.DONT_INLINE)
+    public int findLfPerByte() {
+        return haystack.forEachByte(FIND_LF_PER_BYTE);
+    }
+
+    @Benchmark
+    @CompilerControl(Mode.DONT_INLINE)
+    public int findCrlf() {
+        return haystack.forEachByte(ByteProcessor.FIND_CRLF);
+    }
+
     @Benchmark
     @CompilerControl(Mode.DONT_INLINE)
     public int kmp() {
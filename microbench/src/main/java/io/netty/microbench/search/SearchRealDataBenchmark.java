@@ -16,6 +16,8 @@
 package io.netty.microbench.search;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.buffer.search.AbstractMultiSearchProcessorFactory;
 import io.netty.buffer.search.AbstractSearchProcessorFactory;
 import io.netty.buffer.search.SearchProcessor;
@@ -80,6 +82,8 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
     private ByteBuf haystack;
     private SearchProcessorFactory[] searchProcessorFactories;
     private SearchProcessorFactory searchProcessorFactory;
+    private ByteBuf[] needleBuffers;
+    private ByteBuf needleBuffer;
 
     private static final byte[][] NEEDLES = {
             "Thank You".getBytes(),
@@ -110,17 +114,25 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
         for (int i = 0; i < NEEDLES.length; i++) {
             searchProcessorFactories[i] = algorithm.newFactory(NEEDLES[i]);
         }
+        needleBuffers = new ByteBuf[NEEDLES.length];
+        for (int i = 0; i < NEEDLES.length; i++) {
+            needleBuffers[i] = Unpooled.wrappedBuffer(NEEDLES[i]);
+        }
     }
 
     @Setup(Level.Invocation)
     public void invocationSetup() {
         needleId = (needleId + 1) % searchProcessorFactories.length;
         searchProcessorFactory = searchProcessorFactories[needleId];
+        needleBuffer = needleBuffers[needleId];
     }
 
     @TearDown
     public void teardown() {
         haystack.release();
+        for (ByteBuf needleBuffer : needleBuffers) {
+            needleBuffer.release();
+        }
     }
 
     @Benchmark
@@ -129,6 +141,12 @@ public class SearchRealDataBenchmark extends AbstractMicrobenchmark {
         return haystack.forEachByte(searchProcessorFactory.newSearchProcessor());
     }
 
+    @Benchmark
+    @CompilerControl(Mode.DONT_INLINE)
+    public int indexOfFirst() {
+        return ByteBufUtil.indexOf(needleBuffer, haystack);
+    }
+
     @Benchmark
     @CompilerControl(Mode.DONT_INLINE)
     public int findFirstFromIndex() {
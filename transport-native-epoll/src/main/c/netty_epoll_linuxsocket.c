@@ -25,8 +25,12 @@
 #include <string.h>
 #include <errno.h>
 #include <netinet/in.h>
+#include <netinet/udp.h>
 #include <sys/sendfile.h>
+#include <unistd.h>
 #include <linux/tcp.h> // TCP_NOTSENT_LOWAT is a linux specific define
+#include <linux/errqueue.h>
+#include <linux/filter.h>
 
 #include "netty_epoll_linuxsocket.h"
 #include "netty_unix_errors.h"
@@ -55,6 +59,56 @@
 #define SO_BUSY_POLL 46
 #endif
 
+// SOL_UDP is not defined by older glibc versions, it is the same as IPPROTO_UDP.
+#ifndef SOL_UDP
+#define SOL_UDP 17
+#endif
+
+// UDP_GRO is defined in linux 5.0. We define this here so older kernels can compile.
+#ifndef UDP_GRO
+#define UDP_GRO 104
+#endif
+
+// SO_ZEROCOPY, MSG_ZEROCOPY and SO_EE_ORIGIN_ZEROCOPY are defined in linux 4.14. We define these here so older
+// kernels can compile.
+#ifndef SO_ZEROCOPY
+#define SO_ZEROCOPY 60
+#endif
+
+#ifndef MSG_ZEROCOPY
+#define MSG_ZEROCOPY 0x4000000
+#endif
+
+#ifndef SO_EE_ORIGIN_ZEROCOPY
+#define SO_EE_ORIGIN_ZEROCOPY 5
+#endif
+
+// TCP_ULP, SOL_TLS, TLS_TX and TLS_RX are defined in linux 4.13 / 4.17. We define these here so older kernels can
+// compile.
+#ifndef TCP_ULP
+#define TCP_ULP 31
+#endif
+
+#ifndef SOL_TLS
+#define SOL_TLS 282
+#endif
+
+#ifndef TLS_TX
+#define TLS_TX 1
+#endif
+
+#ifndef TLS_RX
+#define TLS_RX 2
+#endif
+
+// SO_ATTACH_REUSEPORT_CBPF is defined in linux 4.5. We define it here so older kernels can compile.
+#ifndef SO_ATTACH_REUSEPORT_CBPF
+#define SO_ATTACH_REUSEPORT_CBPF 51
+#endif
+
+// Large enough for the crypto info of all supported ciphers, e.g. struct tls12_crypto_info_aes_gcm_256.
+#define NETTY_EPOLL_MAX_TLS_CRYPTO_INFO_SIZE 64
+
 static jclass peerCredentialsClass = NULL;
 static jmethodID peerCredentialsMethodId = NULL;
 
@@ -154,6 +208,45 @@ static void netty_epoll_linuxsocket_setIpRecvOrigDestAddr(JNIEnv* env, jclass cl
     netty_unix_socket_setOption(env, fd, IPPROTO_IP, IP_RECVORIGDSTADDR, &optval, sizeof(optval));
 }
 
+static void netty_epoll_linuxsocket_setUdpGro(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval));
+}
+
+static void netty_epoll_linuxsocket_setZeroCopy(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval));
+}
+
+static void netty_epoll_linuxsocket_setTcpUlpTls(JNIEnv* env, jclass clazz, jint fd) {
+    netty_unix_socket_setOption(env, fd, IPPROTO_TCP, TCP_ULP, "tls", sizeof("tls"));
+}
+
+static void netty_epoll_linuxsocket_setTlsCryptoInfo(JNIEnv* env, jclass clazz, jint fd, jboolean tx, jbyteArray cryptoInfo) {
+    char buf[NETTY_EPOLL_MAX_TLS_CRYPTO_INFO_SIZE];
+    jsize len = (*env)->GetArrayLength(env, cryptoInfo);
+    if (len > NETTY_EPOLL_MAX_TLS_CRYPTO_INFO_SIZE) {
+        netty_unix_errors_throwIOException(env, "crypto info too large");
+        return;
+    }
+    (*env)->GetByteArrayRegion(env, cryptoInfo, 0, len, (jbyte*) buf);
+    netty_unix_socket_setOption(env, fd, SOL_TLS, tx == JNI_TRUE ? TLS_TX : TLS_RX, buf, len);
+}
+
+static void netty_epoll_linuxsocket_setReusePortCpuSteering(JNIEnv* env, jclass clazz, jint fd, jint numSockets) {
+    // Select the socket of the SO_REUSEPORT group by the CPU which handles the incoming packet.
+    struct sock_filter code[] = {
+        // A = raw_smp_processor_id()
+        { BPF_LD | BPF_W | BPF_ABS, 0, 0, SKF_AD_OFF + SKF_AD_CPU },
+        // A = A % numSockets
+        { BPF_ALU | BPF_MOD | BPF_K, 0, 0, (__u32) numSockets },
+        // return A
+        { BPF_RET | BPF_A, 0, 0, 0 }
+    };
+    struct sock_fprog prog;
+    prog.len = sizeof(code) / sizeof(code[0]);
+    prog.filter = code;
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ATTACH_REUSEPORT_CBPF, &prog, sizeof(prog));
+}
+
 static void netty_epoll_linuxsocket_setSoBusyPoll(JNIEnv* env, jclass clazz, jint fd, jint optval) {
     netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_BUSY_POLL, &optval, sizeof(optval));
 }
@@ -511,6 +604,22 @@ static jint netty_epoll_linuxsocket_isIpTransparent(JNIEnv* env, jclass clazz, j
      return optval;
 }
 
+static jint netty_epoll_linuxsocket_isUdpGro(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
+static jint netty_epoll_linuxsocket_isZeroCopy(JNIEnv* env, jclass clazz, jint fd) {
+     int optval;
+     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval)) == -1) {
+         return -1;
+     }
+     return optval;
+}
+
 static jint netty_epoll_linuxsocket_isIpRecvOrigDestAddr(JNIEnv* env, jclass clazz, jint fd) {
      int optval;
      if (netty_unix_socket_getOption(env, fd, IPPROTO_IP, IP_RECVORIGDSTADDR, &optval, sizeof(optval)) == -1) {
@@ -658,6 +767,63 @@ static jlong netty_epoll_linuxsocket_sendFile(JNIEnv* env, jclass clazz, jint fd
 
     return res;
 }
+
+static jint netty_epoll_linuxsocket_sendAddressZeroCopy(JNIEnv* env, jclass clazz, jint fd, jlong address, jint pos, jint limit) {
+    ssize_t res;
+    int err;
+    do {
+        res = send(fd, (void*) (intptr_t) (address + pos), (size_t) (limit - pos), MSG_ZEROCOPY);
+    } while (res == -1 && ((err = errno) == EINTR));
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
+
+// Reads one notification from the error queue of the socket. Returns 1 and stores the range of completed
+// MSG_ZEROCOPY send calls in the given array if a zerocopy completion was read, 0 if some other notification was
+// read and -errno on failure (-EAGAIN if the error queue is empty).
+static jint netty_epoll_linuxsocket_recvZeroCopyCompletion(JNIEnv* env, jclass clazz, jint fd, jintArray range) {
+    char control[CMSG_SPACE(sizeof(struct sock_extended_err) + sizeof(struct sockaddr_in6))];
+    struct msghdr msg;
+    struct cmsghdr* cmsg;
+    ssize_t res;
+    int err;
+
+    memset(&msg, 0, sizeof(msg));
+    msg.msg_control = control;
+    msg.msg_controllen = sizeof(control);
+
+    do {
+        res = recvmsg(fd, &msg, MSG_ERRQUEUE);
+    } while (res == -1 && ((err = errno) == EINTR));
+    if (res < 0) {
+        return -err;
+    }
+
+    for (cmsg = CMSG_FIRSTHDR(&msg); cmsg != NULL; cmsg = CMSG_NXTHDR(&msg, cmsg)) {
+        if ((cmsg->cmsg_level == SOL_IP && cmsg->cmsg_type == IP_RECVERR) ||
+                (cmsg->cmsg_level == SOL_IPV6 && cmsg->cmsg_type == IPV6_RECVERR)) {
+            struct sock_extended_err* serr = (struct sock_extended_err*) CMSG_DATA(cmsg);
+            if (serr->ee_errno == 0 && serr->ee_origin == SO_EE_ORIGIN_ZEROCOPY) {
+                // ee_info and ee_data hold the inclusive range of completed send calls.
+                jint values[2] = { (jint) serr->ee_info, (jint) serr->ee_data };
+                (*env)->SetIntArrayRegion(env, range, 0, 2, values);
+                return 1;
+            }
+        }
+    }
+    return 0;
+}
+
+// Duplicates the file descriptor of the socket. Returns the new file descriptor or -errno on failure.
+static jint netty_epoll_linuxsocket_dup(JNIEnv* env, jclass clazz, jint fd) {
+    int res = dup(fd);
+    if (res < 0) {
+        return -errno;
+    }
+    return res;
+}
 // JNI Registered Methods End
 
 // JNI Method Registration Table Begin
@@ -695,6 +861,16 @@ static const JNINativeMethod fixed_method_table[] = {
   { "isIpFreeBind", "(I)I", (void *) netty_epoll_linuxsocket_isIpFreeBind },
   { "isIpTransparent", "(I)I", (void *) netty_epoll_linuxsocket_isIpTransparent },
   { "isIpRecvOrigDestAddr", "(I)I", (void *) netty_epoll_linuxsocket_isIpRecvOrigDestAddr },
+  { "setUdpGro", "(II)V", (void *) netty_epoll_linuxsocket_setUdpGro },
+  { "isUdpGro", "(I)I", (void *) netty_epoll_linuxsocket_isUdpGro },
+  { "setZeroCopy", "(II)V", (void *) netty_epoll_linuxsocket_setZeroCopy },
+  { "setTcpUlpTls", "(I)V", (void *) netty_epoll_linuxsocket_setTcpUlpTls },
+  { "setTlsCryptoInfo", "(IZ[B)V", (void *) netty_epoll_linuxsocket_setTlsCryptoInfo },
+  { "setReusePortCpuSteering", "(II)V", (void *) netty_epoll_linuxsocket_setReusePortCpuSteering },
+  { "isZeroCopy", "(I)I", (void *) netty_epoll_linuxsocket_isZeroCopy },
+  { "sendAddressZeroCopy", "(IJII)I", (void *) netty_epoll_linuxsocket_sendAddressZeroCopy },
+  { "recvZeroCopyCompletion", "(I[I)I", (void *) netty_epoll_linuxsocket_recvZeroCopyCompletion },
+  { "dup", "(I)I", (void *) netty_epoll_linuxsocket_dup },
   { "getTcpInfo", "(I[J)V", (void *) netty_epoll_linuxsocket_getTcpInfo },
   { "setTcpMd5Sig", "(IZ[BI[B)V", (void *) netty_epoll_linuxsocket_setTcpMd5Sig },
   { "joinGroup", "(IZ[B[BII)V", (void *) netty_epoll_linuxsocket_joinGroup },
@@ -428,6 +428,14 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
             eventLoop().execute(epollInReadyRunnable);
         }
 
+        /**
+         * Called once EPOLLERR event is ready to be processed, before {@link #epollOutReady()} and
+         * {@link #epollInReady()} are called.
+         */
+        void epollErrReady() {
+            // NOOP
+        }
+
         /**
          * Called once EPOLLRDHUP event is ready to be processed
          */
@@ -78,6 +78,9 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     private WritableByteChannel byteChannel;
 
+    // Lazy init if we need to write with MSG_ZEROCOPY
+    private ZeroCopyWriteQueue zeroCopyQueue;
+
     protected AbstractEpollStreamChannel(Channel parent, int fd) {
         this(parent, new LinuxSocket(fd));
     }
@@ -256,6 +259,9 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return 0;
         }
 
+        if (isZeroCopyWrite(buf)) {
+            return writeBytesZeroCopy(in, buf);
+        }
         if (buf.hasMemoryAddress() || buf.nioBufferCount() == 1) {
             return doWriteBytes(in, buf);
         } else {
@@ -265,6 +271,138 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
     }
 
+    /**
+     * Write bytes with {@code MSG_ZEROCOPY}. The {@link ByteBuf} is kept alive and the {@link ChannelPromise} of the
+     * write is only completed once the kernel signals that it does not reference the memory anymore.
+     * @param in the collection which contains objects to write.
+     * @param buf the {@link ByteBuf} from which the bytes should be written
+     * @return The value that should be decremented from the write quantum which starts at
+     * {@link ChannelConfig#getWriteSpinCount()}.
+     */
+    private int writeBytesZeroCopy(ChannelOutboundBuffer in, ByteBuf buf) throws Exception {
+        final int readableBytes = buf.readableBytes();
+        final long memoryAddress = buf.memoryAddress();
+        int localFlushedAmount = socket.sendAddressZeroCopy(memoryAddress, buf.readerIndex(), buf.writerIndex());
+        ZeroCopyWriteQueue queue = zeroCopyQueue;
+        if (localFlushedAmount < 0) {
+            // ENOBUFS: the notification budget of the socket is used up until outstanding sends are completed, so
+            // fall back to a copying write.
+            if (queue == null || !queue.isPartiallyWritten(buf)) {
+                return doWriteBytes(in, buf);
+            }
+            // The kernel still references the start of the buffer, so it has to stay in the queue.
+            localFlushedAmount = socket.writeAddress(memoryAddress, buf.readerIndex(), buf.writerIndex());
+            if (localFlushedAmount <= 0) {
+                return WRITE_STATUS_SNDBUF_FULL;
+            }
+        } else {
+            if (localFlushedAmount == 0) {
+                return WRITE_STATUS_SNDBUF_FULL;
+            }
+            if (queue == null) {
+                zeroCopyQueue = queue = new ZeroCopyWriteQueue();
+            }
+            queue.add(buf);
+        }
+        if (localFlushedAmount < readableBytes) {
+            in.removeBytes(localFlushedAmount);
+        } else {
+            in.progress(localFlushedAmount);
+            queue.written(in.removeAndDeferNotify());
+        }
+        return 1;
+    }
+
+    private boolean isZeroCopyWrite(ByteBuf buf) {
+        ZeroCopyWriteQueue queue = zeroCopyQueue;
+        if (queue != null && queue.isPartiallyWritten(buf)) {
+            // Continue with MSG_ZEROCOPY even if the remaining bytes are below the threshold now.
+            return true;
+        }
+        int threshold = zeroCopyThreshold();
+        return threshold > 0 && buf.readableBytes() >= threshold && buf.hasMemoryAddress();
+    }
+
+    /**
+     * Returns the minimum number of readable bytes a {@link ByteBuf} needs to have to be written with
+     * {@code MSG_ZEROCOPY}, or {@code 0} if zero copy writes are not used.
+     */
+    int zeroCopyThreshold() {
+        return 0;
+    }
+
+    /**
+     * Reads the completion notifications of {@code MSG_ZEROCOPY} writes from the socket error queue.
+     */
+    private void readZeroCopyCompletions() {
+        ZeroCopyWriteQueue queue = zeroCopyQueue;
+        if (queue == null || queue.isEmpty() || !isOpen()) {
+            return;
+        }
+        try {
+            queue.readCompletions(socket);
+        } catch (IOException e) {
+            pipeline().fireExceptionCaught(e);
+            unsafe().close(unsafe().voidPromise());
+        }
+    }
+
+    /**
+     * Returns a duplicate of the file descriptor of the socket, which keeps the socket open after the channel was
+     * closed so the completions of outstanding {@code MSG_ZEROCOPY} writes can still be read, or {@code null} if it
+     * can not be created.
+     */
+    private LinuxSocket dupZeroCopyErrorQueue() {
+        LinuxSocket errorQueue;
+        try {
+            errorQueue = socket.dup();
+        } catch (IOException e) {
+            logger.debug("{} Failed to keep the socket open for MSG_ZEROCOPY completions", this, e);
+            return null;
+        }
+        try {
+            // Closing the channel will not close the socket itself anymore, so shut it down to let the remote peer
+            // know.
+            socket.shutdown();
+        } catch (IOException ignore) {
+            // The socket may not be connected anymore.
+        }
+        return errorQueue;
+    }
+
+    private void failZeroCopyQueue(final LinuxSocket errorQueue) {
+        final ZeroCopyWriteQueue queue = zeroCopyQueue;
+        if (queue == null) {
+            return;
+        }
+        // The queue must only be accessed from the EventLoop but doClose() may be triggered by the
+        // GlobalEventExecutor if SO_LINGER is used.
+        if (!isRegistered() || eventLoop().inEventLoop()) {
+            failZeroCopyQueue(queue, errorQueue);
+        } else {
+            eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    failZeroCopyQueue(queue, errorQueue);
+                }
+            });
+        }
+    }
+
+    private void failZeroCopyQueue(ZeroCopyWriteQueue queue, LinuxSocket errorQueue) {
+        queue.failAll(new ClosedChannelException());
+        if (errorQueue != null) {
+            queue.releaseWhenCompleted(eventLoop(), errorQueue);
+            return;
+        }
+        // No completions can be received anymore. Once SO_LINGER elapsed the kernel is most likely done with the
+        // memory, and keeping it forever would leak it.
+        int released = queue.releaseAll();
+        if (released > 0 && logger.isDebugEnabled()) {
+            logger.debug("{} Released {} buffer(s) before their MSG_ZEROCOPY sends completed", this, released);
+        }
+    }
+
     private void adjustMaxBytesPerGatheringWrite(long attempted, long written, long oldMaxBytesPerGatheringWrite) {
         // By default we track the SO_SNDBUF when ever it is explicitly set. However some OSes may dynamically change
         // SO_SNDBUF (and other characteristics that determine how much data can be written at once) so we should try
@@ -417,8 +555,10 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         int writeSpinCount = config().getWriteSpinCount();
         do {
             final int msgCount = in.size();
-            // Do gathering write if the outbound buffer entries start with more than one ByteBuf.
-            if (msgCount > 1 && in.current() instanceof ByteBuf) {
+            // Do gathering write if the outbound buffer entries start with more than one ByteBuf, unless the first
+            // one is large enough to be written with MSG_ZEROCOPY.
+            Object msg = in.current();
+            if (msgCount > 1 && msg instanceof ByteBuf && !isZeroCopyWrite((ByteBuf) msg)) {
                 writeSpinCount -= doWriteMultiple(in);
             } else if (msgCount == 0) {
                 // Wrote all messages.
@@ -667,6 +807,20 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     @Override
     protected void doClose() throws Exception {
+        ZeroCopyWriteQueue queue = zeroCopyQueue;
+        LinuxSocket zeroCopyErrorQueue = null;
+        if (queue != null && !queue.isEmpty() && isRegistered() && eventLoop().inEventLoop()) {
+            // Pick up the completions that are already there, so the socket only needs to be kept open if the
+            // kernel is not done with all buffers yet.
+            try {
+                queue.readCompletions(socket);
+            } catch (IOException e) {
+                logger.debug("{} Failed to read MSG_ZEROCOPY completions before close", this, e);
+            }
+            if (!queue.isEmpty()) {
+                zeroCopyErrorQueue = dupZeroCopyErrorQueue();
+            }
+        }
         try {
             // Calling super.doClose() first so spliceTo(...) will fail on next call.
             super.doClose();
@@ -674,6 +828,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             safeClosePipe(pipeIn);
             safeClosePipe(pipeOut);
             clearSpliceQueue();
+            failZeroCopyQueue(zeroCopyErrorQueue);
         }
     }
 
@@ -707,6 +862,11 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     }
 
     class EpollStreamUnsafe extends AbstractEpollUnsafe {
+        @Override
+        void epollErrReady() {
+            readZeroCopyCompletions();
+        }
+
         // Overridden here just to be able to access this method from AbstractEpollStreamChannel
         @Override
         protected Executor prepareToClose() {
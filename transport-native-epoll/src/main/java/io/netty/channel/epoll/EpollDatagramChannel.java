@@ -26,7 +26,6 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultAddressedEnvelope;
 import io.netty.channel.socket.DatagramChannel;
-import io.netty.channel.socket.DatagramChannelConfig;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.channel.socket.InternetProtocolFamily;
 import io.netty.channel.unix.DatagramSocketAddress;
@@ -295,8 +294,10 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
 
             try {
-                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+
-                if (Native.IS_SUPPORTING_SENDMMSG && in.size() > 1) {
+                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+. A SegmentedDatagramPacket
+                // is always written via sendmmsg(...) as this is the only way to pass the segment size.
+                if (Native.IS_SUPPORTING_SENDMMSG &&
+                        (in.size() > 1 || msg instanceof SegmentedDatagramPacket)) {
                     NativeDatagramPacketArray array = cleanDatagramPacketArray();
                     array.add(in, isConnected());
                     int cnt = array.count();
@@ -401,6 +402,18 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
     @Override
     protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof SegmentedDatagramPacket) {
+            if (!SegmentedDatagramPacket.isSupported()) {
+                throw new UnsupportedOperationException(
+                        "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+            }
+            SegmentedDatagramPacket packet = (SegmentedDatagramPacket) msg;
+            ByteBuf content = packet.content();
+            return UnixChannelUtil.isBufferCopyNeededForWrite(content) ?
+                    new SegmentedDatagramPacket(newDirectBuffer(packet, content), packet.segmentSize(),
+                            packet.recipient()) : msg;
+        }
+
         if (msg instanceof DatagramPacket) {
             DatagramPacket packet = (DatagramPacket) msg;
             ByteBuf content = packet.content();
@@ -462,7 +475,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         @Override
         void epollInReady() {
             assert eventLoop().inEventLoop();
-            DatagramChannelConfig config = config();
+            EpollDatagramChannelConfig config = config();
             if (shouldBreakEpollInReady(config)) {
                 clearEpollIn0();
                 return;
@@ -479,6 +492,9 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             try {
                 try {
                     boolean connected = isConnected();
+                    // UDP_GRO passes the segment size of coalesced datagrams as control message, which is only
+                    // read by recvmmsg(...).
+                    boolean gro = config.udpGro();
                     do {
                         ByteBuf byteBuf = allocHandle.allocate(allocator);
                         final boolean read;
@@ -490,7 +506,10 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                                 0;
 
                         try {
-                            if (numDatagram <= 1) {
+                            if (gro && numDatagram == 1) {
+                                read = scatteringRead(allocHandle, byteBuf,
+                                        datagramSize == 0 ? byteBuf.writableBytes() : datagramSize, 1);
+                            } else if (numDatagram <= 1) {
                                 if (connected) {
                                     read = connectedRead(allocHandle, byteBuf, datagramSize);
                                 } else {
@@ -181,7 +181,9 @@ class EpollEventLoop extends SingleThreadEventLoop {
 
     @Override
     protected void wakeup(boolean inEventLoop) {
-        if (!inEventLoop && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
+        // Check with a plain read first so a burst of producers does not keep bouncing the cache line while the
+        // EventLoop is already awake, only one of them will win the getAndSet(...) and issue the actual wakeup.
+        if (!inEventLoop && nextWakeupNanos.get() != AWAKE && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
             // write to the evfd which will then wake-up epoll_wait(...)
             Native.eventFdWrite(eventFd.intValue(), 1L);
         }
@@ -452,6 +454,12 @@ class EpollEventLoop extends SingleThreadEventLoop {
                     // past.
                     AbstractEpollUnsafe unsafe = (AbstractEpollUnsafe) ch.unsafe();
 
+                    // Let the channel consume notifications from the socket error queue (like MSG_ZEROCOPY
+                    // completions) before handling the EPOLLERR as part of EPOLLOUT / EPOLLIN.
+                    if ((ev & Native.EPOLLERR) != 0) {
+                        unsafe.epollErrReady();
+                    }
+
                     // First check for EPOLLOUT as we may need to fail the connect ChannelPromise before try
                     // to read from the file descriptor.
                     // See https://github.com/netty/netty/issues/3785
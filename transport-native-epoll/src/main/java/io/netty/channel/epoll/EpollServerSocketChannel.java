@@ -72,6 +72,10 @@ public final class EpollServerSocketChannel extends AbstractEpollServerChannel i
             socket.setTcpFastOpen(config.getTcpFastopen());
         }
         socket.listen(config.getBacklog());
+        if (config.getReusePortCpuSteering() > 0) {
+            // The SO_REUSEPORT group of a TCP socket is created by listen(...)
+            socket.setReusePortCpuSteering(config.getReusePortCpuSteering());
+        }
         active = true;
     }
 
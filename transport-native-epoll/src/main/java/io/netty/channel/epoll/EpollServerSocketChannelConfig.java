@@ -27,8 +27,11 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Map;
 
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
 public final class EpollServerSocketChannelConfig extends EpollServerChannelConfig
         implements ServerSocketChannelConfig {
+    private volatile int reusePortCpuSteering;
 
     EpollServerSocketChannelConfig(EpollServerSocketChannel channel) {
         super(channel);
@@ -42,7 +45,8 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
     @Override
     public Map<ChannelOption<?>, Object> getOptions() {
         return getOptions(super.getOptions(), EpollChannelOption.SO_REUSEPORT, EpollChannelOption.IP_FREEBIND,
-            EpollChannelOption.IP_TRANSPARENT, EpollChannelOption.TCP_DEFER_ACCEPT);
+            EpollChannelOption.IP_TRANSPARENT, EpollChannelOption.TCP_DEFER_ACCEPT,
+            EpollChannelOption.REUSEPORT_CPU_STEERING);
     }
 
     @SuppressWarnings("unchecked")
@@ -60,6 +64,9 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
         if (option == EpollChannelOption.TCP_DEFER_ACCEPT) {
             return (T) Integer.valueOf(getTcpDeferAccept());
         }
+        if (option == EpollChannelOption.REUSEPORT_CPU_STEERING) {
+            return (T) Integer.valueOf(getReusePortCpuSteering());
+        }
         return super.getOption(option);
     }
 
@@ -79,6 +86,8 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
             setTcpMd5Sig(m);
         } else if (option == EpollChannelOption.TCP_DEFER_ACCEPT) {
             setTcpDeferAccept((Integer) value);
+        } else if (option == EpollChannelOption.REUSEPORT_CPU_STEERING) {
+            setReusePortCpuSteering((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -213,6 +222,41 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
         }
     }
 
+    /**
+     * Returns the number of sockets in the {@code SO_REUSEPORT} group between which incoming connections are
+     * distributed by CPU, or {@code 0} if the kernel distributes them by hash.
+     */
+    public int getReusePortCpuSteering() {
+        return reusePortCpuSteering;
+    }
+
+    /**
+     * Attach a <a href="http://man7.org/linux/man-pages/man7/socket.7.html">SO_ATTACH_REUSEPORT_CBPF</a> program to
+     * the {@code SO_REUSEPORT} group of this socket, which hands a new connection to the socket at index
+     * {@code cpu % numSockets} instead of using a hash of the connection. {@code cpu} is the CPU that processed the
+     * incoming packet, so combined with receive side scaling and pinned {@link EpollEventLoop} threads a connection
+     * is served by the CPU which received it. {@code numSockets} should be the number of sockets bound to the same
+     * address, for example the number of {@link EpollEventLoop}s when using
+     * {@link io.netty.bootstrap.ServerBootstrap#bindPerEventLoop(java.net.SocketAddress)}. The index of a socket is the
+     * order in which it was bound, which {@code bindPerEventLoop} keeps in line with the order of the
+     * {@link EpollEventLoop}s.
+     *
+     * The program is attached once the socket listens, as the kernel refuses to bind a socket which already has its
+     * own program to a port used by others. It requires Linux kernel 4.6 or later.
+     */
+    public EpollServerSocketChannelConfig setReusePortCpuSteering(int numSockets) {
+        checkPositive(numSockets, "numSockets");
+        if (channel.isActive()) {
+            try {
+                ((EpollServerSocketChannel) channel).socket.setReusePortCpuSteering(numSockets);
+            } catch (IOException e) {
+                throw new ChannelException(e);
+            }
+        }
+        reusePortCpuSteering = numSockets;
+        return this;
+    }
+
     /**
      * Returns {@code true} if <a href="http://man7.org/linux/man-pages/man7/ip.7.html">IP_FREEBIND</a> is enabled,
      * {@code false} otherwise.
@@ -17,6 +17,7 @@ package io.netty.channel.epoll;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
+import io.netty.channel.socket.KernelTlsChannel;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.util.concurrent.GlobalEventExecutor;
@@ -35,7 +36,8 @@ import static io.netty.channel.epoll.LinuxSocket.newSocketStream;
  * {@link SocketChannel} implementation that uses linux EPOLL Edge-Triggered Mode for
  * maximal performance.
  */
-public final class EpollSocketChannel extends AbstractEpollStreamChannel implements SocketChannel {
+public final class EpollSocketChannel extends AbstractEpollStreamChannel
+        implements SocketChannel, KernelTlsChannel {
 
     private final EpollSocketChannelConfig config;
 
@@ -85,6 +87,16 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         }
     }
 
+    @Override
+    public void enableKernelTls() throws IOException {
+        socket.setTcpUlpTls();
+    }
+
+    @Override
+    public void setKernelTlsCryptoInfo(boolean transmit, byte[] cryptoInfo) throws IOException {
+        socket.setTlsCryptoInfo(transmit, cryptoInfo);
+    }
+
     @Override
     public InetSocketAddress remoteAddress() {
         return (InetSocketAddress) super.remoteAddress();
@@ -100,6 +112,11 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         return config;
     }
 
+    @Override
+    int zeroCopyThreshold() {
+        return config.getZeroCopyThreshold();
+    }
+
     @Override
     public ServerSocketChannel parent() {
         return (ServerSocketChannel) super.parent();
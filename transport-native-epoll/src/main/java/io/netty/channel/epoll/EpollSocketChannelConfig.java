@@ -36,9 +36,11 @@ import static io.netty.channel.ChannelOption.SO_RCVBUF;
 import static io.netty.channel.ChannelOption.SO_REUSEADDR;
 import static io.netty.channel.ChannelOption.SO_SNDBUF;
 import static io.netty.channel.ChannelOption.TCP_NODELAY;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 public final class EpollSocketChannelConfig extends EpollChannelConfig implements SocketChannelConfig {
     private volatile boolean allowHalfClosure;
+    private volatile int zeroCopyThreshold;
 
     /**
      * Creates a new instance.
@@ -60,7 +62,8 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
                 ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.TCP_NOTSENT_LOWAT,
                 EpollChannelOption.TCP_KEEPCNT, EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL,
                 EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK, EpollChannelOption.IP_TRANSPARENT,
-                EpollChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_BUSY_POLL);
+                EpollChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_BUSY_POLL,
+                EpollChannelOption.ZEROCOPY_THRESHOLD);
     }
 
     @SuppressWarnings("unchecked")
@@ -120,6 +123,9 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         if (option == EpollChannelOption.SO_BUSY_POLL) {
             return (T) Integer.valueOf(getSoBusyPoll());
         }
+        if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            return (T) Integer.valueOf(getZeroCopyThreshold());
+        }
         return super.getOption(option);
     }
 
@@ -167,6 +173,8 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
             setTcpFastOpenConnect((Boolean) value);
         } else if (option == EpollChannelOption.SO_BUSY_POLL) {
             setSoBusyPoll((Integer) value);
+        } else if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            setZeroCopyThreshold((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -575,6 +583,40 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         }
     }
 
+    /**
+     * Set the minimum number of readable bytes a direct {@link io.netty.buffer.ByteBuf} needs to have to be written
+     * with {@code MSG_ZEROCOPY} instead of being copied into the socket send buffer. {@code 0} disables zero copy
+     * writes, which is the default. Requires Linux kernel 4.14 or later. See
+     * <a href="https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html">MSG_ZEROCOPY</a> for details.
+     * <p>
+     * Buffers written this way are only released, and their write promises are only completed, once the kernel
+     * notified that it does not reference their memory anymore. If the channel is closed before, the promises are
+     * failed and the buffers are not released, as the kernel may still transmit from them. As this notification comes
+     * with some overhead it only pays off for large writes, typically above 10KB.
+     */
+    public EpollSocketChannelConfig setZeroCopyThreshold(int zeroCopyThreshold) {
+        checkPositiveOrZero(zeroCopyThreshold, "zeroCopyThreshold");
+        try {
+            if (zeroCopyThreshold > 0 && this.zeroCopyThreshold == 0) {
+                // SO_ZEROCOPY is never disabled again, as otherwise a MSG_ZEROCOPY write that races with this call
+                // would never receive its completion notification.
+                ((EpollSocketChannel) channel).socket.setZeroCopy(true);
+            }
+            this.zeroCopyThreshold = zeroCopyThreshold;
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Returns the minimum number of readable bytes a direct {@link io.netty.buffer.ByteBuf} needs to have to be
+     * written with {@code MSG_ZEROCOPY}, or {@code 0} if zero copy writes are disabled.
+     */
+    public int getZeroCopyThreshold() {
+        return zeroCopyThreshold;
+    }
+
     @Override
     public boolean isAllowHalfClosure() {
         return allowHalfClosure;
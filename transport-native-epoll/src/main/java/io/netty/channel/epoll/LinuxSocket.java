@@ -31,7 +31,10 @@ import java.net.NetworkInterface;
 import java.net.UnknownHostException;
 import java.util.Enumeration;
 
+import static io.netty.channel.unix.Errors.ERRNO_EAGAIN_NEGATIVE;
+import static io.netty.channel.unix.Errors.ERRNO_EWOULDBLOCK_NEGATIVE;
 import static io.netty.channel.unix.Errors.ioResult;
+import static io.netty.channel.unix.Errors.newIOException;
 
 /**
  * A socket which provides access Linux native methods.
@@ -207,6 +210,37 @@ final class LinuxSocket extends Socket {
         setIpFreeBind(intValue(), enabled ? 1 : 0);
     }
 
+    void setUdpGro(boolean gro) throws IOException {
+        setUdpGro(intValue(), gro ? 1 : 0);
+    }
+
+    void setZeroCopy(boolean zeroCopy) throws IOException {
+        setZeroCopy(intValue(), zeroCopy ? 1 : 0);
+    }
+
+    /**
+     * Attaches the kernel TLS upper layer protocol to this (connected) TCP socket.
+     */
+    void setTcpUlpTls() throws IOException {
+        setTcpUlpTls(intValue());
+    }
+
+    /**
+     * Installs the given {@code struct tls12_crypto_info_*} for the transmit or the receive direction. Once set,
+     * the kernel encrypts all written or decrypts all read data.
+     */
+    void setTlsCryptoInfo(boolean tx, byte[] cryptoInfo) throws IOException {
+        setTlsCryptoInfo(intValue(), tx, cryptoInfo);
+    }
+
+    /**
+     * Attaches a {@code SO_ATTACH_REUSEPORT_CBPF} program which selects the socket of the {@code SO_REUSEPORT} group
+     * by the CPU that handles the incoming connection, modulo {@code numSockets}.
+     */
+    void setReusePortCpuSteering(int numSockets) throws IOException {
+        setReusePortCpuSteering(intValue(), numSockets);
+    }
+
     void setIpTransparent(boolean enabled) throws IOException {
         setIpTransparent(intValue(), enabled ? 1 : 0);
     }
@@ -268,6 +302,14 @@ final class LinuxSocket extends Socket {
         return isIpFreeBind(intValue()) != 0;
     }
 
+    boolean isUdpGro() throws IOException {
+        return isUdpGro(intValue()) != 0;
+    }
+
+    boolean isZeroCopy() throws IOException {
+        return isZeroCopy(intValue()) != 0;
+    }
+
     boolean isIpTransparent() throws IOException {
         return isIpTransparent(intValue()) != 0;
     }
@@ -300,6 +342,51 @@ final class LinuxSocket extends Socket {
         return ioResult("sendfile", (int) res);
     }
 
+    /**
+     * Like {@link #writeAddress(long, int, int)} but uses {@code MSG_ZEROCOPY}, so the memory must not be reused
+     * until {@link #recvZeroCopyCompletion(int[])} reported the send call as completed. Returns {@code -1} if the
+     * kernel can not pin more memory for this socket ({@code ENOBUFS}) before outstanding send calls completed, in
+     * which case the bytes should be written without {@code MSG_ZEROCOPY}.
+     */
+    int sendAddressZeroCopy(long memoryAddress, int pos, int limit) throws IOException {
+        int res = sendAddressZeroCopy(intValue(), memoryAddress, pos, limit);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == Native.ERRNO_ENOBUFS_NEGATIVE) {
+            return -1;
+        }
+        return ioResult("sendAddressZeroCopy", res);
+    }
+
+    /**
+     * Reads one notification from the error queue. Returns {@code 1} and stores the inclusive range of completed
+     * {@code MSG_ZEROCOPY} send calls in {@code range[0]} and {@code range[1]} if a completion was read, {@code 0}
+     * if some other notification was read and {@code -1} if the error queue is empty.
+     */
+    int recvZeroCopyCompletion(int[] range) throws IOException {
+        int res = recvZeroCopyCompletion(intValue(), range);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == ERRNO_EAGAIN_NEGATIVE || res == ERRNO_EWOULDBLOCK_NEGATIVE) {
+            return -1;
+        }
+        throw newIOException("recvZeroCopyCompletion", res);
+    }
+
+    /**
+     * Returns a new {@link LinuxSocket} for a duplicate of the file descriptor of this socket. The socket itself is
+     * only closed once the file descriptors of both were closed.
+     */
+    LinuxSocket dup() throws IOException {
+        int res = dup(intValue());
+        if (res < 0) {
+            throw newIOException("dup", res);
+        }
+        return new LinuxSocket(res);
+    }
+
     private static InetAddress deriveInetAddress(NetworkInterface netInterface, boolean ipv6) {
         final InetAddress ipAny = ipv6 ? INET6_ANY : INET_ANY;
         if (netInterface != null) {
@@ -354,6 +441,10 @@ final class LinuxSocket extends Socket {
     private static native long sendFile(int socketFd, DefaultFileRegion src, long baseOffset,
                                         long offset, long length) throws IOException;
 
+    private static native int sendAddressZeroCopy(int fd, long memoryAddress, int pos, int limit);
+    private static native int recvZeroCopyCompletion(int fd, int[] range);
+    private static native int dup(int fd);
+
     private static native int getTcpDeferAccept(int fd) throws IOException;
     private static native int isTcpQuickAck(int fd) throws IOException;
     private static native int isTcpCork(int fd) throws IOException;
@@ -366,6 +457,8 @@ final class LinuxSocket extends Socket {
     private static native int getTimeToLive(int fd) throws IOException;
     private static native int isIpFreeBind(int fd) throws IOException;
     private static native int isIpTransparent(int fd) throws IOException;
+    private static native int isUdpGro(int fd) throws IOException;
+    private static native int isZeroCopy(int fd) throws IOException;
     private static native int isIpRecvOrigDestAddr(int fd) throws IOException;
     private static native void getTcpInfo(int fd, long[] array) throws IOException;
     private static native PeerCredentials getPeerCredentials(int fd) throws IOException;
@@ -384,6 +477,11 @@ final class LinuxSocket extends Socket {
     private static native void setTcpUserTimeout(int fd, int milliseconds)throws IOException;
     private static native void setIpFreeBind(int fd, int freeBind) throws IOException;
     private static native void setIpTransparent(int fd, int transparent) throws IOException;
+    private static native void setUdpGro(int fd, int gro) throws IOException;
+    private static native void setZeroCopy(int fd, int zeroCopy) throws IOException;
+    private static native void setTcpUlpTls(int fd) throws IOException;
+    private static native void setTlsCryptoInfo(int fd, boolean tx, byte[] cryptoInfo) throws IOException;
+    private static native void setReusePortCpuSteering(int fd, int numSockets) throws IOException;
     private static native void setIpRecvOrigDestAddr(int fd, int transparent) throws IOException;
     private static native void setTcpMd5Sig(
             int fd, boolean ipv6, byte[] address, int scopeId, byte[] key) throws IOException;
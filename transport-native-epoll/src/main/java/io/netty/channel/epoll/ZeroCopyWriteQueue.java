@@ -0,0 +1,276 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.internal.PromiseNotificationUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of {@link ByteBuf}s that were written with {@code MSG_ZEROCOPY}. The kernel numbers every successful
+ * {@code MSG_ZEROCOPY} send call of a socket and reports ranges of completed calls via the socket error queue. A
+ * {@link ByteBuf} is only released, and the {@link ChannelPromise} of its write only completed, once all send calls
+ * that referenced its memory were completed. Notifications are done in the same order as the buffers were written.
+ * <p>
+ * This class is not thread-safe and must only be used from the {@link EpollEventLoop}.
+ */
+final class ZeroCopyWriteQueue {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ZeroCopyWriteQueue.class);
+    // How long to wait for the completions of outstanding send calls once the channel was closed.
+    private static final long CLOSE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(Math.max(0,
+            SystemPropertyUtil.getLong("io.netty.channel.epoll.zeroCopyCloseTimeoutMillis", 5000)));
+    private static final long CLOSE_POLL_INTERVAL_MILLIS = 10;
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.channel.epoll.zeroCopyCloseTimeoutMillis: {}",
+                    TimeUnit.NANOSECONDS.toMillis(CLOSE_TIMEOUT_NANOS));
+        }
+    }
+
+    private final ArrayDeque<Entry> entries = new ArrayDeque<Entry>();
+    private final int[] range = new int[2];
+    // The id the kernel will assign to the next successful MSG_ZEROCOPY send call.
+    private int nextId;
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Records a successful {@code MSG_ZEROCOPY} send call which wrote (a part of) the given {@link ByteBuf}.
+     */
+    void add(ByteBuf buf) {
+        int id = nextId++;
+        Entry last = entries.peekLast();
+        if (last == null || last.buf != buf || last.written) {
+            // First send call for this buffer, keep it alive until the kernel is done with it.
+            last = new Entry(buf.retain(), id);
+            entries.add(last);
+        }
+        last.lastId = id;
+        last.pending++;
+    }
+
+    /**
+     * Returns {@code true} if a part of the given {@link ByteBuf} was written with {@code MSG_ZEROCOPY} but not all
+     * of it yet. The remaining bytes must be written with {@code MSG_ZEROCOPY} as well, as otherwise the
+     * {@link ByteBuf} is never marked as {@link #written(ChannelPromise)}.
+     */
+    boolean isPartiallyWritten(ByteBuf buf) {
+        Entry last = entries.peekLast();
+        return last != null && last.buf == buf && !last.written;
+    }
+
+    /**
+     * Marks the {@link ByteBuf} of the last {@link #add(ByteBuf)} call as completely written. The given
+     * {@link ChannelPromise} will be completed once the kernel released its memory.
+     */
+    void written(ChannelPromise promise) {
+        Entry last = entries.peekLast();
+        assert last != null && !last.written;
+        last.written = true;
+        last.promise = promise == null || promise.isVoid() ? null : promise;
+        // The kernel may have completed all send calls already.
+        notifyCompleted();
+    }
+
+    /**
+     * Reads all pending notifications from the error queue of the given {@link LinuxSocket} and notifies every
+     * {@link ByteBuf} whose send calls were completed.
+     */
+    void readCompletions(LinuxSocket socket) throws IOException {
+        int res;
+        while ((res = socket.recvZeroCopyCompletion(range)) >= 0) {
+            if (res > 0) {
+                complete(range[0], range[1]);
+            }
+        }
+        notifyCompleted();
+    }
+
+    /**
+     * Fails all pending writes as the channel was closed. A {@link ByteBuf} is only released if no uncompleted send
+     * call references its memory. The kernel may still transmit from the others, so these are kept until their send
+     * calls were reported as completed or {@link #releaseAll()} is called.
+     */
+    void failAll(Throwable cause) {
+        for (int i = entries.size(); i > 0; i--) {
+            Entry e = entries.pollFirst();
+            ChannelPromise promise = e.promise;
+            e.promise = null;
+            // Nothing more will be added for this buffer.
+            e.written = true;
+            if (e.pending == 0) {
+                e.buf.release();
+            } else {
+                entries.addLast(e);
+            }
+            if (promise != null) {
+                PromiseNotificationUtil.tryFailure(promise, cause, logger);
+            }
+        }
+    }
+
+    /**
+     * Releases all {@link ByteBuf}s, even if the kernel did not report all send calls that reference their memory as
+     * completed. This must only be called after {@link #failAll(Throwable)}, once no more completions can be received.
+     *
+     * @return the number of {@link ByteBuf}s which were released before their send calls were completed
+     */
+    int releaseAll() {
+        int released = 0;
+        for (;;) {
+            Entry e = entries.pollFirst();
+            if (e == null) {
+                return released;
+            }
+            assert e.promise == null;
+            e.buf.release();
+            released++;
+        }
+    }
+
+    /**
+     * Keeps reading completions from the error queue of the given {@link LinuxSocket}, which must be a duplicate of
+     * the file descriptor of the closed channel, until all {@link ByteBuf}s were released or the close timeout
+     * elapsed. Afterwards the remaining {@link ByteBuf}s are released and the {@link LinuxSocket} is closed. This must
+     * only be called after {@link #failAll(Throwable)}.
+     */
+    void releaseWhenCompleted(EventLoop loop, LinuxSocket errorQueue) {
+        new CloseTask(loop, errorQueue).run();
+    }
+
+    /**
+     * Marks the given inclusive range of send calls as completed and notifies every {@link ByteBuf} that is done.
+     */
+    // Package-private for testing
+    void completed(int firstId, int lastId) {
+        complete(firstId, lastId);
+        notifyCompleted();
+    }
+
+    private void complete(int firstId, int lastId) {
+        for (Entry e : entries) {
+            // Ids are 32 bit counters that may wrap around, so only compare distances.
+            int span = e.lastId - e.firstId;
+            int from = firstId - e.firstId;
+            int to = lastId - e.firstId;
+            if (from < 0) {
+                from = 0;
+            }
+            if (to > span) {
+                to = span;
+            }
+            if (from <= to) {
+                e.pending -= to - from + 1;
+            }
+        }
+    }
+
+    private void notifyCompleted() {
+        // Peek again on every iteration as a listener may write more data or close the channel.
+        for (;;) {
+            Entry e = entries.peekFirst();
+            if (e == null || !e.written || e.pending != 0) {
+                break;
+            }
+            entries.pollFirst();
+            e.buf.release();
+            if (e.promise != null) {
+                PromiseNotificationUtil.trySuccess(e.promise, null, logger);
+            }
+        }
+    }
+
+    private final class CloseTask implements Runnable, FutureListener<Object> {
+        private final EventLoop loop;
+        private final LinuxSocket errorQueue;
+        private final long deadlineNanos = System.nanoTime() + CLOSE_TIMEOUT_NANOS;
+
+        CloseTask(EventLoop loop, LinuxSocket errorQueue) {
+            this.loop = loop;
+            this.errorQueue = errorQueue;
+        }
+
+        @Override
+        public void run() {
+            try {
+                readCompletions(errorQueue);
+            } catch (IOException e) {
+                logger.debug("Failed to read MSG_ZEROCOPY completions of a closed channel", e);
+                close();
+                return;
+            }
+            if (isEmpty() || deadlineNanos - System.nanoTime() <= 0) {
+                close();
+                return;
+            }
+            try {
+                loop.schedule(this, CLOSE_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS).addListener(this);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void operationComplete(Future<Object> future) {
+            if (future.isCancelled()) {
+                // The EventLoop was shut down.
+                close();
+            }
+        }
+
+        private void close() {
+            int released = releaseAll();
+            if (released > 0 && logger.isDebugEnabled()) {
+                logger.debug("Released {} buffer(s) of a closed channel before their MSG_ZEROCOPY sends completed",
+                        released);
+            }
+            try {
+                errorQueue.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close the MSG_ZEROCOPY error queue of a closed channel", e);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final ByteBuf buf;
+        final int firstId;
+        int lastId;
+        // Number of send calls that referenced the buffer and were not completed yet.
+        int pending;
+        boolean written;
+        ChannelPromise promise;
+
+        Entry(ByteBuf buf, int firstId) {
+            this.buf = buf;
+            this.firstId = firstId;
+        }
+    }
+}
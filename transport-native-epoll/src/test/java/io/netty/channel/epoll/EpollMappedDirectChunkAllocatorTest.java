@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.unix.MappedDirectChunkAllocator;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EpollMappedDirectChunkAllocatorTest {
+    private static final int CHUNK_SIZE = 8192 << 2;
+
+    @BeforeClass
+    public static void loadNativeLibrary() {
+        // The natives of MappedDirectChunkAllocator are part of the native transport library.
+        Epoll.ensureAvailability();
+    }
+
+    @Test
+    public void testAllocateAndRelease() throws Exception {
+        MappedDirectChunkAllocator chunkAllocator = new MappedDirectChunkAllocator(CHUNK_SIZE, 2, false);
+        assertEquals(CHUNK_SIZE, chunkAllocator.chunkSize());
+        assertEquals(2, chunkAllocator.numChunks());
+        assertEquals(2, chunkAllocator.numFreeChunks());
+
+        // Larger requests can not be served by a slot.
+        assertNull(chunkAllocator.allocate(CHUNK_SIZE + 1));
+
+        ByteBuffer first = chunkAllocator.allocate(CHUNK_SIZE);
+        ByteBuffer second = chunkAllocator.allocate(CHUNK_SIZE);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertTrue(first.isDirect());
+        assertEquals(CHUNK_SIZE, first.capacity());
+        assertEquals(CHUNK_SIZE, second.capacity());
+        assertEquals(CHUNK_SIZE, Math.abs(PlatformDependent.directBufferAddress(second) -
+                PlatformDependent.directBufferAddress(first)));
+        assertEquals(0, chunkAllocator.numFreeChunks());
+        // All slots are in use, so the arena has to fall back to a chunk of its own.
+        assertNull(chunkAllocator.allocate(CHUNK_SIZE));
+
+        first.put(0, (byte) 1);
+        first.put(CHUNK_SIZE - 1, (byte) 1);
+        assertTrue(chunkAllocator.release(first));
+        assertEquals(1, chunkAllocator.numFreeChunks());
+
+        // Memory which is not part of the mapping is not released by the allocator.
+        assertFalse(chunkAllocator.release(ByteBuffer.allocateDirect(CHUNK_SIZE)));
+        assertEquals(1, chunkAllocator.numFreeChunks());
+
+        // The slot is reused and its pages were given back to the kernel, so they are zero filled again.
+        ByteBuffer reused = chunkAllocator.allocate(CHUNK_SIZE);
+        assertSame(first, reused);
+        assertEquals(0, reused.position());
+        assertEquals(CHUNK_SIZE, reused.limit());
+        assertEquals(0, reused.get(0));
+        assertEquals(0, reused.get(CHUNK_SIZE - 1));
+
+        assertTrue(chunkAllocator.release(reused));
+        assertTrue(chunkAllocator.release(second));
+        assertEquals(2, chunkAllocator.numFreeChunks());
+    }
+
+    @Test
+    public void testHugePages() throws Exception {
+        // Transparent huge pages are only a hint, so the allocator must work without them as well.
+        MappedDirectChunkAllocator chunkAllocator = new MappedDirectChunkAllocator(CHUNK_SIZE, 1, true);
+        ByteBuffer memory = chunkAllocator.allocate(CHUNK_SIZE);
+        assertNotNull(memory);
+        memory.put(0, (byte) 1);
+        assertTrue(chunkAllocator.release(memory));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSize() throws Exception {
+        new MappedDirectChunkAllocator(0, 1, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidNumChunks() throws Exception {
+        new MappedDirectChunkAllocator(CHUNK_SIZE, 0, false);
+    }
+
+    @Test
+    public void testPooledByteBufAllocator() throws Exception {
+        MappedDirectChunkAllocator chunkAllocator = new MappedDirectChunkAllocator(CHUNK_SIZE, 1, false);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 2, 0, 0, false, 0, chunkAllocator);
+
+        ByteBuf mapped = allocator.directBuffer(CHUNK_SIZE);
+        assertEquals(0, chunkAllocator.numFreeChunks());
+        ByteBuf fallback = allocator.directBuffer(CHUNK_SIZE);
+        assertEquals(2 * CHUNK_SIZE, allocator.metric().usedDirectMemory());
+
+        mapped.writeLong(42);
+        assertEquals(42, mapped.readLong());
+        fallback.writeLong(42);
+        assertEquals(42, fallback.readLong());
+
+        assertTrue(mapped.release());
+        assertTrue(fallback.release());
+        // The chunk was handed back to the mapping once the arena released it.
+        assertEquals(1, chunkAllocator.numFreeChunks());
+        assertEquals(0, allocator.metric().usedDirectMemory());
+    }
+}
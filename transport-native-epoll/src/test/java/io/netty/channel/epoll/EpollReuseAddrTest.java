@@ -18,16 +18,20 @@ package io.netty.channel.epoll;
 import io.netty.bootstrap.AbstractBootstrap;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.util.NetUtil;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ResourceLeakDetector;
+import io.netty.util.concurrent.EventExecutor;
 import org.junit.Assert;
 import org.junit.Assume;
 import org.junit.Ignore;
@@ -38,6 +42,11 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -116,6 +125,78 @@ public class EpollReuseAddrTest {
         future2.channel().close().syncUninterruptibly();
     }
 
+    @Test(timeout = 10000)
+    public void testBindPerEventLoop() throws Exception {
+        Assume.assumeTrue(versionEqOrGt(3, 9, 0));
+        testBindPerEventLoop0(false);
+    }
+
+    @Test(timeout = 10000)
+    public void testBindPerEventLoopWithCpuSteering() throws Exception {
+        // SO_ATTACH_REUSEPORT_CBPF was added in linux 4.6
+        Assume.assumeTrue(versionEqOrGt(4, 6, 0));
+        testBindPerEventLoop0(true);
+    }
+
+    private static void testBindPerEventLoop0(boolean cpuSteering) throws Exception {
+        final int numEventLoops = 2;
+        final Set<Channel> acceptingChannels = Collections.newSetFromMap(new ConcurrentHashMap<Channel, Boolean>());
+        final AtomicBoolean sameEventLoop = new AtomicBoolean(true);
+        EventLoopGroup group = new EpollEventLoopGroup(numEventLoops);
+        List<Channel> channels = Collections.emptyList();
+        try {
+            ServerBootstrap bootstrap = new ServerBootstrap();
+            bootstrap.group(group);
+            bootstrap.channel(EpollServerSocketChannel.class);
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            if (cpuSteering) {
+                bootstrap.option(EpollChannelOption.REUSEPORT_CPU_STEERING, numEventLoops);
+            }
+            bootstrap.childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    if (ch.parent().eventLoop() != ch.eventLoop()) {
+                        sameEventLoop.set(false);
+                    }
+                    acceptingChannels.add(ch.parent());
+                    ch.close();
+                }
+            });
+
+            // Bind once to pick a free port, as all listeners must be bound to the same one. Close it again before
+            // binding the listeners, so the SO_REUSEPORT group only consists of them.
+            Channel portChannel = bootstrap.bind(new InetSocketAddress(NetUtil.LOCALHOST, 0))
+                    .syncUninterruptibly().channel();
+            InetSocketAddress address = (InetSocketAddress) portChannel.localAddress();
+            portChannel.close().syncUninterruptibly();
+
+            channels = bootstrap.bindPerEventLoop(address).syncUninterruptibly().getNow();
+            Assert.assertEquals(numEventLoops, channels.size());
+            Iterator<EventExecutor> eventLoops = group.iterator();
+            for (Channel channel : channels) {
+                Assert.assertSame(eventLoops.next(), channel.eventLoop());
+                Assert.assertEquals(address, channel.localAddress());
+                Assert.assertEquals(cpuSteering ? numEventLoops : 0,
+                        ((EpollServerSocketChannel) channel).config().getReusePortCpuSteering());
+            }
+
+            // With CPU steering all connections of this test may be handled by the same CPU and so the same listener.
+            int expectedAcceptingChannels = cpuSteering ? 1 : numEventLoops;
+            while (acceptingChannels.size() < expectedAcceptingChannels) {
+                Socket socket = new Socket(address.getAddress(), address.getPort());
+                socket.setReuseAddress(true);
+                socket.close();
+            }
+            Assert.assertTrue(sameEventLoop.get());
+            Assert.assertTrue(channels.containsAll(acceptingChannels));
+        } finally {
+            for (Channel channel : channels) {
+                channel.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
     @Test(timeout = 10000)
     @Ignore // TODO: Unignore after making it pass on centos6-1 and debian7-1
     public void testMultipleBindDatagramChannel() throws Exception {
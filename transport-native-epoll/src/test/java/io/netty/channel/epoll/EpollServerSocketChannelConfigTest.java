@@ -70,6 +70,11 @@ public class EpollServerSocketChannelConfigTest {
         assertTrue(ch.config().isReusePort());
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidReusePortCpuSteering() {
+        ch.config().setReusePortCpuSteering(0);
+    }
+
     @Test
     public void testFreeBind() {
         ch.config().setFreeBind(false);
@@ -134,6 +134,25 @@ public class EpollSocketChannelConfigTest {
         assertTrue(ch.config().isTcpQuickAck());
     }
 
+    @Test
+    public void testZeroCopyThreshold() {
+        assertEquals(0, ch.config().getZeroCopyThreshold());
+        try {
+            ch.config().setZeroCopyThreshold(16384);
+        } catch (ChannelException e) {
+            // SO_ZEROCOPY requires Linux kernel 4.14 or later.
+            assumeNoException(e);
+        }
+        assertEquals(16384, (int) ch.config().getOption(EpollChannelOption.ZEROCOPY_THRESHOLD));
+        ch.config().setOption(EpollChannelOption.ZEROCOPY_THRESHOLD, 0);
+        assertEquals(0, ch.config().getZeroCopyThreshold());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidZeroCopyThreshold() {
+        ch.config().setZeroCopyThreshold(-1);
+    }
+
     @Test
     public void testSetOptionWhenClosed() {
         ch.close().syncUninterruptibly();
@@ -16,6 +16,12 @@
 package io.netty.channel.epoll;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
@@ -23,6 +29,13 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assume.assumeNoException;
 
 public class EpollSocketChannelTest {
 
@@ -100,6 +113,126 @@ public class EpollSocketChannelTest {
         Assert.assertTrue(info.totalRetrans() >= 0);
     }
 
+    @Test(timeout = 30000)
+    public void testZeroCopyWrite() throws Exception {
+        EventLoopGroup group = new EpollEventLoopGroup(1);
+        final int bufferSize = 1024 * 1024;
+        final int numBuffers = 16;
+        final AtomicLong received = new AtomicLong();
+        final CountDownLatch receivedLatch = new CountDownLatch(1);
+        Channel serverChannel = null;
+        EpollSocketChannel ch = null;
+        try {
+            serverChannel = new ServerBootstrap().group(group)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ByteBuf buf = (ByteBuf) msg;
+                            if (received.addAndGet(buf.readableBytes()) == (long) bufferSize * numBuffers) {
+                                receivedLatch.countDown();
+                            }
+                            buf.release();
+                        }
+                    })
+                    .bind(new InetSocketAddress(0)).syncUninterruptibly().channel();
+            ch = (EpollSocketChannel) new Bootstrap().group(group)
+                    .channel(EpollSocketChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(serverChannel.localAddress()).syncUninterruptibly().channel();
+            try {
+                ch.config().setZeroCopyThreshold(16 * 1024);
+            } catch (ChannelException e) {
+                // SO_ZEROCOPY requires Linux kernel 4.14 or later.
+                assumeNoException(e);
+            }
+
+            List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+            List<ChannelFuture> futures = new ArrayList<ChannelFuture>();
+            for (int i = 0; i < numBuffers; i++) {
+                ByteBuf buf = ch.alloc().directBuffer(bufferSize).writeZero(bufferSize);
+                buffers.add(buf);
+                futures.add(ch.write(buf));
+            }
+            ch.flush();
+            for (ChannelFuture future : futures) {
+                future.syncUninterruptibly();
+            }
+            Assert.assertTrue(receivedLatch.await(10, TimeUnit.SECONDS));
+            // All buffers must have been released once the kernel signaled the completion of the write.
+            for (ByteBuf buf : buffers) {
+                Assert.assertEquals(0, buf.refCnt());
+            }
+        } finally {
+            if (ch != null) {
+                ch.close().syncUninterruptibly();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testZeroCopyBuffersReleasedOnClose() throws Exception {
+        EventLoopGroup group = new EpollEventLoopGroup(1);
+        final int bufferSize = 1024 * 1024;
+        final int numBuffers = 16;
+        Channel serverChannel = null;
+        try {
+            serverChannel = new ServerBootstrap().group(group)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ((ByteBuf) msg).release();
+                        }
+                    })
+                    .bind(new InetSocketAddress(0)).syncUninterruptibly().channel();
+            final EpollSocketChannel ch = (EpollSocketChannel) new Bootstrap().group(group)
+                    .channel(EpollSocketChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(serverChannel.localAddress()).syncUninterruptibly().channel();
+            try {
+                ch.config().setZeroCopyThreshold(16 * 1024);
+            } catch (ChannelException e) {
+                // SO_ZEROCOPY requires Linux kernel 4.14 or later.
+                ch.close().syncUninterruptibly();
+                assumeNoException(e);
+            }
+
+            final List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+            for (int i = 0; i < numBuffers; i++) {
+                buffers.add(ch.alloc().directBuffer(bufferSize).writeZero(bufferSize));
+            }
+            // Close the channel before the completions of the writes could be read.
+            ch.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (ByteBuf buf : buffers) {
+                        ch.write(buf);
+                    }
+                    ch.flush();
+                    ch.close();
+                }
+            }).syncUninterruptibly();
+            ch.closeFuture().syncUninterruptibly();
+
+            // All buffers must be released eventually, even those the kernel was still using when it was closed.
+            for (ByteBuf buf : buffers) {
+                while (buf.refCnt() != 0) {
+                    Thread.sleep(10);
+                }
+            }
+        } finally {
+            if (serverChannel != null) {
+                serverChannel.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
     // See https://github.com/netty/netty/issues/7159
     @Test
     public void testSoLingerNoAssertError() throws Exception {
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.NetUtil.LOCALHOST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class SegmentedDatagramPacketTest {
+
+    private static final int SEGMENT_SIZE = 8;
+    // Two full segments and a smaller last one.
+    private static final int CONTENT_SIZE = 2 * SEGMENT_SIZE + 4;
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void setUp() {
+        Epoll.ensureAvailability();
+        group = new EpollEventLoopGroup(1);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    @Test(timeout = 10000)
+    public void testSendSegmented() throws Exception {
+        assumeTrue(SegmentedDatagramPacket.isSupported());
+        BlockingQueue<DatagramInfo> received = new LinkedBlockingQueue<DatagramInfo>();
+        Channel server = newServer(received, false);
+        Channel client = newClient();
+        try {
+            client.writeAndFlush(newPacket(server)).syncUninterruptibly();
+
+            // The kernel split the content into datagrams of SEGMENT_SIZE bytes.
+            int offset = 0;
+            while (offset < CONTENT_SIZE) {
+                DatagramInfo info = received.poll(5, TimeUnit.SECONDS);
+                assertFalse(info.segmented);
+                assertEquals(Math.min(SEGMENT_SIZE, CONTENT_SIZE - offset), info.content.length);
+                assertContent(info.content, offset);
+                offset += info.content.length;
+            }
+            assertEquals(CONTENT_SIZE, offset);
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testReceiveGro() throws Exception {
+        assumeTrue(SegmentedDatagramPacket.isSupported());
+        BlockingQueue<DatagramInfo> received = new LinkedBlockingQueue<DatagramInfo>();
+        Channel server = newServer(received, true);
+        Channel client = newClient();
+        try {
+            // The Bootstrap only logs if the option could not be set.
+            assumeTrue(isUdpGro((EpollDatagramChannel) server));
+            client.writeAndFlush(newPacket(server)).syncUninterruptibly();
+
+            // A GSO packet sent over the loopback device is not split when the receiver enabled UDP_GRO, so the
+            // segment size is passed by a control message.
+            DatagramInfo info = received.poll(5, TimeUnit.SECONDS);
+            assertTrue(info.segmented);
+            assertEquals(SEGMENT_SIZE, info.segmentSize);
+            assertEquals(CONTENT_SIZE, info.content.length);
+            assertContent(info.content, 0);
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        }
+    }
+
+    private static boolean isUdpGro(EpollDatagramChannel channel) {
+        try {
+            return channel.config().isUdpGro();
+        } catch (ChannelException e) {
+            return false;
+        }
+    }
+
+    private static Channel newServer(final BlockingQueue<DatagramInfo> received, boolean gro) {
+        Bootstrap bootstrap = new Bootstrap().group(group)
+                .channel(EpollDatagramChannel.class)
+                .option(EpollChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(2048))
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        received.add(new DatagramInfo(msg));
+                    }
+                });
+        if (gro) {
+            // The original destination address is passed by a control message as well, both must fit into the
+            // control buffer of recvmmsg(...).
+            bootstrap.option(EpollChannelOption.UDP_GRO, true)
+                    .option(EpollChannelOption.IP_RECVORIGDSTADDR, true);
+        }
+        return bootstrap.bind(new InetSocketAddress(LOCALHOST, 0)).syncUninterruptibly().channel();
+    }
+
+    private static Channel newClient() {
+        return new Bootstrap().group(group)
+                .channel(EpollDatagramChannel.class)
+                .handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                        // NOOP
+                    }
+                })
+                .bind(new InetSocketAddress(LOCALHOST, 0)).syncUninterruptibly().channel();
+    }
+
+    private static SegmentedDatagramPacket newPacket(Channel server) {
+        ByteBuf content = Unpooled.directBuffer(CONTENT_SIZE);
+        for (int i = 0; i < CONTENT_SIZE; i++) {
+            content.writeByte(i);
+        }
+        return new SegmentedDatagramPacket(content, SEGMENT_SIZE, (InetSocketAddress) server.localAddress());
+    }
+
+    private static void assertContent(byte[] content, int offset) {
+        for (int i = 0; i < content.length; i++) {
+            assertEquals((byte) (offset + i), content[i]);
+        }
+    }
+
+    private static final class DatagramInfo {
+        final boolean segmented;
+        final int segmentSize;
+        final byte[] content;
+
+        DatagramInfo(DatagramPacket packet) {
+            segmented = packet instanceof SegmentedDatagramPacket;
+            segmentSize = segmented ? ((SegmentedDatagramPacket) packet).segmentSize() : 0;
+            ByteBuf buf = packet.content();
+            content = new byte[buf.readableBytes()];
+            buf.getBytes(buf.readerIndex(), content);
+        }
+    }
+}
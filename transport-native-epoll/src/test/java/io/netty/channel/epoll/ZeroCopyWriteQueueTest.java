@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.nio.channels.ClosedChannelException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ZeroCopyWriteQueueTest {
+
+    @Test
+    public void testNotifyInOrderOnCompletion() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ZeroCopyWriteQueue queue = new ZeroCopyWriteQueue();
+        ByteBuf first = Unpooled.directBuffer(8).writeLong(1);
+        ByteBuf second = Unpooled.directBuffer(8).writeLong(2);
+        ChannelPromise firstPromise = channel.newPromise();
+        ChannelPromise secondPromise = channel.newPromise();
+
+        // The first buffer needs two send calls (id 0 and 1), the second one (id 2).
+        queue.add(first);
+        queue.add(first);
+        assertTrue(queue.isPartiallyWritten(first));
+        queue.written(firstPromise);
+        assertFalse(queue.isPartiallyWritten(first));
+        queue.add(second);
+        queue.written(secondPromise);
+
+        // The second buffer is completed first, but must only be notified after the first one.
+        queue.completed(2, 2);
+        queue.completed(0, 0);
+        assertFalse(firstPromise.isDone());
+        assertFalse(secondPromise.isDone());
+        assertEquals(2, first.refCnt());
+
+        queue.completed(1, 1);
+        assertTrue(firstPromise.isSuccess());
+        assertTrue(secondPromise.isSuccess());
+        assertTrue(queue.isEmpty());
+
+        assertEquals(1, first.refCnt());
+        assertEquals(1, second.refCnt());
+        first.release();
+        second.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFailAllKeepsMemoryInUseByTheKernel() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ZeroCopyWriteQueue queue = new ZeroCopyWriteQueue();
+        ByteBuf completed = Unpooled.directBuffer(8).writeLong(1);
+        ByteBuf pending = Unpooled.directBuffer(8).writeLong(2);
+        ChannelPromise pendingPromise = channel.newPromise();
+
+        // Partially written buffer whose send call was completed already.
+        queue.add(completed);
+        queue.completed(0, 0);
+        queue.add(pending);
+        queue.written(pendingPromise);
+
+        ClosedChannelException cause = new ClosedChannelException();
+        queue.failAll(cause);
+        // The write was not confirmed by the kernel, so it must not be reported as successful.
+        assertFalse(pendingPromise.isSuccess());
+        assertEquals(cause, pendingPromise.cause());
+
+        // Only the buffer that is not referenced by the kernel anymore was released.
+        assertFalse(queue.isEmpty());
+        assertEquals(1, completed.refCnt());
+        assertEquals(2, pending.refCnt());
+
+        // The other one is released once the kernel is done with it.
+        queue.completed(1, 1);
+        assertTrue(queue.isEmpty());
+        assertEquals(1, pending.refCnt());
+        completed.release();
+        pending.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testReleaseAllAfterFailAll() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ZeroCopyWriteQueue queue = new ZeroCopyWriteQueue();
+        ByteBuf first = Unpooled.directBuffer(8).writeLong(1);
+        ByteBuf second = Unpooled.directBuffer(8).writeLong(2);
+        ChannelPromise firstPromise = channel.newPromise();
+
+        queue.add(first);
+        queue.written(firstPromise);
+        // Partially written buffer, closing the channel completes it.
+        queue.add(second);
+
+        queue.failAll(new ClosedChannelException());
+        assertFalse(firstPromise.isSuccess());
+        assertFalse(queue.isPartiallyWritten(second));
+
+        // No completions were received, so both are released without them.
+        assertEquals(2, queue.releaseAll());
+        assertTrue(queue.isEmpty());
+        assertEquals(1, first.refCnt());
+        assertEquals(1, second.refCnt());
+        first.release();
+        second.release();
+        channel.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,913 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.ChannelInputShutdownReadComplete;
+import io.netty.channel.socket.SocketChannelConfig;
+import io.netty.channel.unix.Buffer;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.UnixChannel;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ConnectionPendingException;
+import java.nio.channels.NotYetConnectedException;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.channel.unix.UnixChannelUtil.computeRemoteAddr;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+abstract class AbstractIOUringChannel extends AbstractChannel implements UnixChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+
+    // Bits of ioState which mark the operations that are currently in flight for this channel. There is at most
+    // one operation of each kind in flight at any given time.
+    static final int POLL_IN_SCHEDULED = 1;
+    static final int POLL_OUT_SCHEDULED = 1 << 1;
+    static final int POLL_RDHUP_SCHEDULED = 1 << 2;
+    static final int READ_SCHEDULED = 1 << 3;
+    static final int WRITE_SCHEDULED = 1 << 4;
+    static final int CONNECT_SCHEDULED = 1 << 5;
+
+    final LinuxSocket socket;
+    /**
+     * The future of the current connection attempt.  If not null, subsequent
+     * connection attempts will fail.
+     */
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+
+    private volatile SocketAddress local;
+    private volatile SocketAddress remote;
+
+    boolean inputClosedSeenErrorOnRead;
+    boolean readPending;
+
+    protected volatile boolean active;
+
+    // All of the following fields are only accessed from the EventLoop.
+    int ioState;
+    // The id of this channel in the IOUringEventLoop it is registered with or 0 if not registered.
+    private int id;
+    private byte readOpcode;
+    private byte writeOpcode;
+    // The buffer the in-flight read operation will fill.
+    private ByteBuf readBuffer;
+    // The buffers referenced by the in-flight write operation. We hold an extra reference to them so the memory
+    // stays valid even if the ChannelOutboundBuffer releases them while the kernel is still working on it.
+    private final List<ByteBuf> writeBuffers = new ArrayList<ByteBuf>();
+    // The native sockaddr referenced by the in-flight connect operation.
+    private ByteBuf connectAddress;
+    private IOException writeError;
+
+    private final Runnable clearReadPendingRunnable = new Runnable() {
+        @Override
+        public void run() {
+            readPending = false;
+        }
+    };
+
+    AbstractIOUringChannel(LinuxSocket fd) {
+        this(null, fd, false);
+    }
+
+    AbstractIOUringChannel(Channel parent, LinuxSocket fd, boolean active) {
+        super(parent);
+        this.socket = checkNotNull(fd, "fd");
+        this.active = active;
+        if (active) {
+            // Directly cache the remote and local addresses
+            // See https://github.com/netty/netty/issues/2359
+            this.local = fd.localAddress();
+            this.remote = fd.remoteAddress();
+        }
+    }
+
+    AbstractIOUringChannel(Channel parent, LinuxSocket fd, SocketAddress remote) {
+        super(parent);
+        this.socket = checkNotNull(fd, "fd");
+        this.active = true;
+        // Directly cache the remote and local addresses
+        // See https://github.com/netty/netty/issues/2359
+        this.remote = remote;
+        this.local = fd.localAddress();
+    }
+
+    @Override
+    public final FileDescriptor fd() {
+        return socket;
+    }
+
+    @Override
+    public abstract IOUringChannelConfig config();
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socket.isOpen();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof IOUringEventLoop;
+    }
+
+    final IOUringSubmissionQueue submissionQueue() {
+        return ((IOUringEventLoop) eventLoop()).submissionQueue();
+    }
+
+    final long userData(byte op, int data) {
+        return UserData.encode(id, op, data);
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        id = ((IOUringEventLoop) eventLoop()).add(this);
+        if (active) {
+            activated();
+        }
+    }
+
+    /**
+     * Called on the {@link EventLoop} once the channel is registered and active.
+     */
+    void activated() {
+        // NOOP
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        if (id == 0) {
+            return;
+        }
+        IOUringEventLoop loop = (IOUringEventLoop) eventLoop();
+        IOUringSubmissionQueue submissionQueue = loop.submissionQueue();
+        int inFlight = 0;
+        if ((ioState & POLL_IN_SCHEDULED) != 0) {
+            submissionQueue.addPollRemove(userData(Native.IORING_OP_POLL_ADD, Native.POLLIN),
+                    userData(Native.IORING_OP_POLL_REMOVE, 0));
+            inFlight++;
+        }
+        if ((ioState & POLL_OUT_SCHEDULED) != 0) {
+            submissionQueue.addPollRemove(userData(Native.IORING_OP_POLL_ADD, Native.POLLOUT),
+                    userData(Native.IORING_OP_POLL_REMOVE, 0));
+            inFlight++;
+        }
+        if ((ioState & POLL_RDHUP_SCHEDULED) != 0) {
+            submissionQueue.addPollRemove(userData(Native.IORING_OP_POLL_ADD, Native.POLLRDHUP),
+                    userData(Native.IORING_OP_POLL_REMOVE, 0));
+            inFlight++;
+        }
+        if ((ioState & READ_SCHEDULED) != 0) {
+            submissionQueue.addCancel(userData(readOpcode, 0), userData(Native.IORING_OP_ASYNC_CANCEL, 0));
+            inFlight++;
+        }
+        if ((ioState & WRITE_SCHEDULED) != 0) {
+            submissionQueue.addCancel(userData(writeOpcode, 0), userData(Native.IORING_OP_ASYNC_CANCEL, 0));
+            inFlight++;
+        }
+        if ((ioState & CONNECT_SCHEDULED) != 0) {
+            submissionQueue.addCancel(userData(Native.IORING_OP_CONNECT, 0),
+                    userData(Native.IORING_OP_ASYNC_CANCEL, 0));
+            inFlight++;
+        }
+        List<ByteBuf> resources = new ArrayList<ByteBuf>(2);
+        collectInFlightResources(resources);
+        loop.remove(id, inFlight, resources);
+        id = 0;
+        ioState = 0;
+    }
+
+    /**
+     * Add all the buffers that are referenced by the operations which are currently in flight to the given
+     * {@link List}. The ownership of the buffers is transferred to the caller.
+     */
+    void collectInFlightResources(List<ByteBuf> resources) {
+        if (readBuffer != null) {
+            resources.add(readBuffer);
+            readBuffer = null;
+        }
+        resources.addAll(writeBuffers);
+        writeBuffers.clear();
+        if (connectAddress != null) {
+            resources.add(connectAddress);
+            connectAddress = null;
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        active = false;
+        // Even if we allow half closed sockets we should give up on reading. Otherwise we may allow a read attempt on a
+        // socket which has not even been connected yet. This has been observed to block during unit tests.
+        inputClosedSeenErrorOnRead = true;
+        try {
+            ChannelPromise promise = connectPromise;
+            if (promise != null) {
+                // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+                promise.tryFailure(new ClosedChannelException());
+                connectPromise = null;
+            }
+
+            ScheduledFuture<?> future = connectTimeoutFuture;
+            if (future != null) {
+                future.cancel(false);
+                connectTimeoutFuture = null;
+            }
+
+            if (isRegistered()) {
+                // Need to check if we are on the EventLoop as doClose() may be triggered by the GlobalEventExecutor
+                // if SO_LINGER is used.
+                //
+                // See https://github.com/netty/netty/issues/7159
+                EventLoop loop = eventLoop();
+                if (loop.inEventLoop()) {
+                    doDeregister();
+                    // Hand the queued operations and cancellations to the kernel before the fd is closed, as the fd
+                    // number may be reused right away.
+                    submissionQueue().submit();
+                } else {
+                    loop.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                doDeregister();
+                            } catch (Throwable cause) {
+                                pipeline().fireExceptionCaught(cause);
+                            }
+                        }
+                    });
+                }
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected final void doBeginRead() throws Exception {
+        // Channel.read() or ChannelHandlerContext.read() was called
+        readPending = true;
+        if ((ioState & (POLL_IN_SCHEDULED | READ_SCHEDULED)) == 0) {
+            // We first wait until there is something to read before we submit the read itself, as otherwise we would
+            // need to keep a buffer per channel around until the remote peer sends something.
+            schedulePollIn();
+        }
+    }
+
+    final void clearReadPending() {
+        if (isRegistered()) {
+            EventLoop eventLoop = eventLoop();
+            if (eventLoop.inEventLoop()) {
+                readPending = false;
+            } else {
+                eventLoop.execute(clearReadPendingRunnable);
+            }
+        } else {
+            // Best effort if we are not registered yet clear readPending. This happens during channel initialization.
+            readPending = false;
+        }
+    }
+
+    final void schedulePollIn() {
+        if ((ioState & POLL_IN_SCHEDULED) == 0) {
+            ioState |= POLL_IN_SCHEDULED;
+            submissionQueue().addPoll(socket.intValue(), Native.POLLIN,
+                    userData(Native.IORING_OP_POLL_ADD, Native.POLLIN));
+        }
+    }
+
+    final void schedulePollOut() {
+        if ((ioState & POLL_OUT_SCHEDULED) == 0) {
+            ioState |= POLL_OUT_SCHEDULED;
+            submissionQueue().addPoll(socket.intValue(), Native.POLLOUT,
+                    userData(Native.IORING_OP_POLL_ADD, Native.POLLOUT));
+        }
+    }
+
+    final void schedulePollRdHup() {
+        if ((ioState & POLL_RDHUP_SCHEDULED) == 0) {
+            ioState |= POLL_RDHUP_SCHEDULED;
+            submissionQueue().addPoll(socket.intValue(), Native.POLLRDHUP,
+                    userData(Native.IORING_OP_POLL_ADD, Native.POLLRDHUP));
+        }
+    }
+
+    /**
+     * Mark a read operation with the given opcode as in flight. If not {@code null}, the given buffer is owned by
+     * the operation until it completes.
+     */
+    final void readScheduled(byte opcode, ByteBuf buffer) {
+        assert (ioState & READ_SCHEDULED) == 0;
+        ioState |= READ_SCHEDULED;
+        readOpcode = opcode;
+        readBuffer = buffer;
+    }
+
+    /**
+     * Mark a write operation with the given opcode as in flight.
+     */
+    final void writeScheduled(byte opcode) {
+        assert (ioState & WRITE_SCHEDULED) == 0;
+        ioState |= WRITE_SCHEDULED;
+        writeOpcode = opcode;
+    }
+
+    /**
+     * Retain the given buffer until the in-flight write operation completes.
+     */
+    final void retainForWrite(ByteBuf buffer) {
+        writeBuffers.add(buffer.retain());
+    }
+
+    private void releaseWriteBuffers() {
+        for (int i = 0; i < writeBuffers.size(); i++) {
+            writeBuffers.get(i).release();
+        }
+        writeBuffers.clear();
+    }
+
+    /**
+     * Returns the address of the memory of the given direct {@link ByteBuf}.
+     */
+    static long memoryAddress(ByteBuf buffer) {
+        if (buffer.hasMemoryAddress()) {
+            return buffer.memoryAddress();
+        }
+        return Buffer.memoryAddress(buffer.internalNioBuffer(0, buffer.capacity()));
+    }
+
+    final boolean shouldBreakReadReady(ChannelConfig config) {
+        return socket.isInputShutdown() && (inputClosedSeenErrorOnRead || !isAllowHalfClosure(config));
+    }
+
+    private static boolean isAllowHalfClosure(ChannelConfig config) {
+        return config instanceof SocketChannelConfig &&
+                ((SocketChannelConfig) config).isAllowHalfClosure();
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        IOException error = writeError;
+        if (error != null) {
+            // The last write operation failed, let AbstractUnsafe.flush0() handle it.
+            writeError = null;
+            throw error;
+        }
+        if ((ioState & (WRITE_SCHEDULED | POLL_OUT_SCHEDULED)) == 0) {
+            scheduleWrite(in);
+            if ((ioState & WRITE_SCHEDULED) != 0) {
+                // Submit the write right away instead of once the EventLoop gets back to submitting its queued
+                // operations. This way the data is sent even if a handler blocks the EventLoop, and the write is
+                // ordered before anything that is done with the socket directly, like shutdownOutput(), or
+                // operations that are queued later, like a read.
+                submissionQueue().submit();
+            }
+        }
+    }
+
+    /**
+     * Submit a write operation for the flushed messages of the given {@link ChannelOutboundBuffer} and mark it via
+     * {@link #writeScheduled(byte)}.
+     */
+    abstract void scheduleWrite(ChannelOutboundBuffer in) throws Exception;
+
+    @Override
+    protected abstract AbstractIOUringUnsafe newUnsafe();
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the original one.
+     */
+    protected final ByteBuf newDirectBuffer(ByteBuf buf) {
+        return newDirectBuffer(buf, buf);
+    }
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the specified holder.
+     * The caller must ensure that the holder releases the original {@link ByteBuf} when the holder is released by
+     * this method.
+     */
+    protected final ByteBuf newDirectBuffer(Object holder, ByteBuf buf) {
+        final int readableBytes = buf.readableBytes();
+        if (readableBytes == 0) {
+            ReferenceCountUtil.release(holder);
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        final ByteBufAllocator alloc = alloc();
+        if (alloc.isDirectBufferPooled()) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        final ByteBuf directBuf = ByteBufUtil.threadLocalDirectBuffer();
+        if (directBuf == null) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        directBuf.writeBytes(buf, buf.readerIndex(), readableBytes);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    private static ByteBuf newDirectBuffer0(Object holder, ByteBuf buf, ByteBufAllocator alloc, int capacity) {
+        final ByteBuf directBuf = alloc.directBuffer(capacity);
+        directBuf.writeBytes(buf, buf.readerIndex(), capacity);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    protected static void checkResolvable(InetSocketAddress addr) {
+        if (addr.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+    }
+
+    protected abstract class AbstractIOUringUnsafe extends AbstractUnsafe {
+        private IOUringRecvByteAllocatorHandle allocHandle;
+
+        /**
+         * Called by the {@link IOUringEventLoop} once an operation of this channel completed.
+         */
+        final void handle(byte op, int data, int res) {
+            switch (op) {
+                case Native.IORING_OP_POLL_ADD:
+                    if (data == Native.POLLIN) {
+                        ioState &= ~POLL_IN_SCHEDULED;
+                        pollIn(res);
+                    } else if (data == Native.POLLOUT) {
+                        ioState &= ~POLL_OUT_SCHEDULED;
+                        pollOut(res);
+                    } else if (data == Native.POLLRDHUP) {
+                        ioState &= ~POLL_RDHUP_SCHEDULED;
+                        pollRdHup(res);
+                    }
+                    break;
+                case Native.IORING_OP_READ:
+                case Native.IORING_OP_ACCEPT:
+                case Native.IORING_OP_RECVMSG:
+                    ioState &= ~READ_SCHEDULED;
+                    ByteBuf buffer = readBuffer;
+                    readBuffer = null;
+                    readComplete(res, buffer);
+                    break;
+                case Native.IORING_OP_WRITE:
+                case Native.IORING_OP_WRITEV:
+                case Native.IORING_OP_SENDMSG:
+                    ioState &= ~WRITE_SCHEDULED;
+                    releaseWriteBuffers();
+                    writeComplete(res);
+                    break;
+                case Native.IORING_OP_CONNECT:
+                    ioState &= ~CONNECT_SCHEDULED;
+                    connectAddress.release();
+                    connectAddress = null;
+                    connectComplete(res);
+                    break;
+                default:
+                    // The results of cancellations are not interesting for us.
+                    break;
+            }
+        }
+
+        /**
+         * Called once the channel became readable.
+         */
+        private void pollIn(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE || (ioState & READ_SCHEDULED) != 0) {
+                return;
+            }
+            if (!readPending || shouldBreakReadReady(config())) {
+                // Nobody is interested in reading at the moment, doBeginRead() will poll again.
+                return;
+            }
+            recvBufAllocHandle().reset(config());
+            scheduleRead();
+        }
+
+        /**
+         * Called once the channel became writable.
+         */
+        private void pollOut(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            if (connectPromise != null) {
+                // pending connect which is now complete so handle it.
+                finishConnect();
+            } else if (!socket.isOutputShutdown()) {
+                // directly call super.flush0() to force a flush now
+                forceFlush();
+            }
+        }
+
+        /**
+         * Called once the remote peer shutdown its output.
+         */
+        private void pollRdHup(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            // This must happen before we attempt to read. This will ensure reading continues until an error occurs.
+            recvBufAllocHandle().receivedRdHup();
+
+            if (isActive()) {
+                if ((ioState & READ_SCHEDULED) == 0) {
+                    // Read everything that is still pending, this will also notice that the input was shutdown.
+                    // See https://github.com/netty/netty/issues/3709
+                    recvBufAllocHandle().reset(config());
+                    scheduleRead();
+                }
+            } else {
+                // Just to be safe make sure the input marked as closed.
+                shutdownInput(true);
+            }
+        }
+
+        /**
+         * Submit a read operation and mark it via {@link #readScheduled(byte, ByteBuf)}.
+         */
+        abstract void scheduleRead();
+
+        /**
+         * Called once the in-flight read operation completed. The given buffer is the one that was passed to
+         * {@link #readScheduled(byte, ByteBuf)} and must be released or passed on by the implementation.
+         */
+        abstract void readComplete(int res, ByteBuf buffer);
+
+        /**
+         * Called once the in-flight write operation completed with any result other than {@code EAGAIN}. Returns
+         * {@code true} if we should continue to flush and {@code false} if we need to wait until the channel becomes
+         * writable again.
+         */
+        abstract boolean writeComplete0(ChannelOutboundBuffer in, int res);
+
+        private void writeComplete(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            ChannelOutboundBuffer in = outboundBuffer();
+            if (in == null) {
+                // The output was shutdown or the channel was closed in the meantime.
+                return;
+            }
+            if (res == Errors.ERRNO_EAGAIN_NEGATIVE || res == Errors.ERRNO_EWOULDBLOCK_NEGATIVE ||
+                    !writeComplete0(in, res)) {
+                // network stack saturated... try again once the channel is writable.
+                schedulePollOut();
+            } else {
+                // Continue with the rest of the flushed messages.
+                forceFlush();
+            }
+        }
+
+        /**
+         * Remember the failed result of the last write operation, so it fails the flushed messages once
+         * {@link #doWrite(ChannelOutboundBuffer)} is called the next time.
+         */
+        final void writeFailed(int res) {
+            try {
+                Errors.ioResult("io_uring write", res);
+            } catch (IOException e) {
+                writeError = e;
+            }
+        }
+
+        /**
+         * Shutdown the input side of the channel.
+         */
+        void shutdownInput(boolean rdHup) {
+            if (!socket.isInputShutdown()) {
+                if (isAllowHalfClosure(config())) {
+                    try {
+                        socket.shutdown(true, false);
+                    } catch (IOException ignored) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                        fireEventAndClose(ChannelInputShutdownEvent.INSTANCE);
+                        return;
+                    } catch (NotYetConnectedException ignore) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                    }
+                    pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                } else {
+                    close(voidPromise());
+                }
+            } else if (!rdHup) {
+                inputClosedSeenErrorOnRead = true;
+                pipeline().fireUserEventTriggered(ChannelInputShutdownReadComplete.INSTANCE);
+            }
+        }
+
+        private void fireEventAndClose(Object evt) {
+            pipeline().fireUserEventTriggered(evt);
+            close(voidPromise());
+        }
+
+        @Override
+        public IOUringRecvByteAllocatorHandle recvBufAllocHandle() {
+            if (allocHandle == null) {
+                allocHandle = new IOUringRecvByteAllocatorHandle(
+                        (RecvByteBufAllocator.ExtendedHandle) super.recvBufAllocHandle());
+            }
+            return allocHandle;
+        }
+
+        @Override
+        protected final void flush0() {
+            // Flush immediately only when there's no write in flight and we are not waiting for the channel to become
+            // writable. Otherwise the completion will trigger the flush later.
+            if ((ioState & (WRITE_SCHEDULED | POLL_OUT_SCHEDULED)) == 0) {
+                super.flush0();
+            }
+        }
+
+        final void forceFlush() {
+            super.flush0();
+        }
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new ConnectionPendingException();
+                }
+
+                boolean wasActive = isActive();
+                if (doConnect(remoteAddress, localAddress)) {
+                    fulfillConnectPromise(promise, wasActive);
+                } else {
+                    connectPromise = promise;
+                    requestedRemoteAddress = remoteAddress;
+
+                    // Schedule connect timeout.
+                    int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                    if (connectTimeoutMillis > 0) {
+                        connectTimeoutFuture = eventLoop().schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                ChannelPromise connectPromise = AbstractIOUringChannel.this.connectPromise;
+                                ConnectTimeoutException cause =
+                                        new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                                if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                    close(voidPromise());
+                                }
+                            }
+                        }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                    }
+
+                    promise.addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (future.isCancelled()) {
+                                if (connectTimeoutFuture != null) {
+                                    connectTimeoutFuture.cancel(false);
+                                }
+                                connectPromise = null;
+                                close(voidPromise());
+                            }
+                        }
+                    });
+                }
+            } catch (Throwable t) {
+                closeIfClosed();
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, boolean wasActive) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+            active = true;
+
+            // Get the state as trySuccess() may trigger an ChannelFutureListener that will close the Channel.
+            // We still need to ensure we call fireChannelActive() in this case.
+            boolean active = isActive();
+
+            // trySuccess() will return false if a user cancelled the connection attempt.
+            boolean promiseSet = promise.trySuccess();
+
+            // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+            // because what happened is what happened.
+            if (!wasActive && active) {
+                activated();
+                pipeline().fireChannelActive();
+            }
+
+            // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, Throwable cause) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(cause);
+            closeIfClosed();
+        }
+
+        private void connectComplete(int res) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE || connectPromise == null) {
+                // The connection attempt was cancelled or timed out.
+                return;
+            }
+            if (res == 0 || res == Errors.ERRNO_EINPROGRESS_NEGATIVE) {
+                // Either connected or we need to wait until the channel becomes writable.
+                finishConnect();
+                return;
+            }
+            try {
+                Errors.throwConnectException("io_uring connect", res);
+            } catch (Throwable t) {
+                fulfillConnectPromise(connectPromise, annotateConnectException(t, requestedRemoteAddress));
+                if (connectTimeoutFuture != null) {
+                    connectTimeoutFuture.cancel(false);
+                }
+                connectPromise = null;
+            }
+        }
+
+        private void finishConnect() {
+            // Note this method is invoked by the event loop only if the connection attempt was
+            // neither cancelled nor timed out.
+
+            assert eventLoop().inEventLoop();
+
+            boolean connectStillInProgress = false;
+            try {
+                boolean wasActive = isActive();
+                if (!doFinishConnect()) {
+                    connectStillInProgress = true;
+                    return;
+                }
+                fulfillConnectPromise(connectPromise, wasActive);
+            } catch (Throwable t) {
+                fulfillConnectPromise(connectPromise, annotateConnectException(t, requestedRemoteAddress));
+            } finally {
+                if (!connectStillInProgress) {
+                    // Check for null as the connectTimeoutFuture is only created if a connectTimeoutMillis > 0 is used
+                    // See https://github.com/netty/netty/issues/1770
+                    if (connectTimeoutFuture != null) {
+                        connectTimeoutFuture.cancel(false);
+                    }
+                    connectPromise = null;
+                }
+            }
+        }
+
+        /**
+         * Finish the connect
+         */
+        private boolean doFinishConnect() throws Exception {
+            if (socket.finishConnect()) {
+                if (requestedRemoteAddress instanceof InetSocketAddress) {
+                    remote = computeRemoteAddr((InetSocketAddress) requestedRemoteAddress, socket.remoteAddress());
+                }
+                local = socket.localAddress();
+                requestedRemoteAddress = null;
+
+                return true;
+            }
+            schedulePollOut();
+            return false;
+        }
+    }
+
+    @Override
+    protected void doBind(SocketAddress local) throws Exception {
+        if (local instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) local);
+        }
+        socket.bind(local);
+        this.local = socket.localAddress();
+    }
+
+    /**
+     * Connect to the remote peer. The connect itself is submitted to the ring, so this always returns {@code false}
+     * and the connect is finished once the operation completes.
+     */
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) localAddress);
+        }
+
+        if (!(remoteAddress instanceof InetSocketAddress)) {
+            throw new UnsupportedOperationException("Unsupported address type: " + remoteAddress);
+        }
+        InetSocketAddress remoteSocketAddr = (InetSocketAddress) remoteAddress;
+        checkResolvable(remoteSocketAddr);
+
+        if (remote != null) {
+            // Check if already connected before trying to connect. This is needed as connect(...) will not return -1
+            // and set errno to EISCONN if a previous connect(...) attempt was setting errno to EINPROGRESS and finished
+            // later.
+            throw new AlreadyConnectedException();
+        }
+
+        if (localAddress != null) {
+            socket.bind(localAddress);
+        }
+
+        ByteBuf address = alloc().directBuffer(Native.SIZEOF_SOCKADDR_STORAGE);
+        boolean success = false;
+        try {
+            long addressMemory = memoryAddress(address);
+            int addressLength = SockaddrIn.write(socket.isIpv6(), addressMemory, remoteSocketAddr);
+            submissionQueue().addConnect(socket.intValue(), addressMemory, addressLength,
+                    userData(Native.IORING_OP_CONNECT, 0));
+            ioState |= CONNECT_SCHEDULED;
+            connectAddress = address;
+            success = true;
+        } finally {
+            if (!success) {
+                address.release();
+                doClose();
+            }
+        }
+        // We always need to set the localAddress even if not connected yet as the bind already took place.
+        //
+        // See https://github.com/netty/netty/issues/3463
+        local = socket.localAddress();
+        return false;
+    }
+
+    final void resetCachedAddresses() {
+        local = socket.localAddress();
+        remote = socket.remoteAddress();
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return remote;
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.FileRegion;
+import io.netty.channel.socket.DuplexChannel;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.unix.SocketWritableByteChannel;
+import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Executor;
+
+abstract class AbstractIOUringStreamChannel extends AbstractIOUringChannel implements DuplexChannel {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractIOUringStreamChannel.class);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ", " +
+                    StringUtil.simpleClassName(FileRegion.class) + ')';
+
+    private final ChannelOutboundBuffer.MessageProcessor writeProcessor = new ChannelOutboundBuffer.MessageProcessor() {
+        @Override
+        public boolean processMessage(Object msg) {
+            if (!(msg instanceof ByteBuf)) {
+                // A FileRegion is written on its own once all the buffers in front of it were written.
+                return false;
+            }
+            ByteBuf buf = (ByteBuf) msg;
+            if (!buf.isReadable()) {
+                return true;
+            }
+            IovArray array = iovArray;
+            int count = array.count();
+            boolean added = array.add(buf, buf.readerIndex(), buf.readableBytes());
+            if (array.count() != count) {
+                retainForWrite(buf);
+            }
+            return added;
+        }
+    };
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            // Calling flush0 directly to ensure we not try to flush messages that were added via write(...) in the
+            // meantime.
+            ((AbstractIOUringUnsafe) unsafe()).forceFlush();
+        }
+    };
+
+    // Only used while filling the IovArray of a gathering write.
+    private IovArray iovArray;
+    private WritableByteChannel byteChannel;
+
+    AbstractIOUringStreamChannel(Channel parent, LinuxSocket fd) {
+        super(parent, fd, true);
+    }
+
+    AbstractIOUringStreamChannel(LinuxSocket fd, boolean active) {
+        super(null, fd, active);
+    }
+
+    AbstractIOUringStreamChannel(Channel parent, LinuxSocket fd, SocketAddress remote) {
+        super(parent, fd, remote);
+    }
+
+    @Override
+    void activated() {
+        // Get notified once the remote peer shuts down its output so we read everything that is still pending.
+        schedulePollRdHup();
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringStreamUnsafe();
+    }
+
+    @Override
+    void scheduleWrite(ChannelOutboundBuffer in) throws Exception {
+        int writeSpinCount = config().getWriteSpinCount();
+        for (;;) {
+            Object msg = in.current();
+            if (msg == null) {
+                // Wrote all messages.
+                return;
+            }
+            if (msg instanceof ByteBuf) {
+                ByteBuf buf = (ByteBuf) msg;
+                if (!buf.isReadable()) {
+                    in.remove();
+                    continue;
+                }
+                if (in.size() == 1 && buf.nioBufferCount() == 1) {
+                    scheduleWriteSingle(buf);
+                } else {
+                    // Do gathering write if the outbound buffer entries start with more than one ByteBuf.
+                    scheduleWriteMultiple(in);
+                }
+                return;
+            }
+            if (msg instanceof FileRegion) {
+                // FileRegions are transferred directly via the socket as the kernel takes care of the copying.
+                if (!writeFileRegion(in, (FileRegion) msg)) {
+                    // Wait until the channel is writable again.
+                    schedulePollOut();
+                    return;
+                }
+                if (--writeSpinCount == 0) {
+                    // Give other channels the chance to make progress and continue later.
+                    eventLoop().execute(flushTask);
+                    return;
+                }
+                continue;
+            }
+            // Should never reach here.
+            throw new Error();
+        }
+    }
+
+    private void scheduleWriteSingle(ByteBuf buf) {
+        retainForWrite(buf);
+        long address = memoryAddress(buf);
+        submissionQueue().addWrite(socket.intValue(), address, buf.readerIndex(), buf.writerIndex(),
+                userData(Native.IORING_OP_WRITE, 0));
+        writeScheduled(Native.IORING_OP_WRITE);
+    }
+
+    private void scheduleWriteMultiple(ChannelOutboundBuffer in) throws Exception {
+        IovArray array = ((IOUringEventLoop) eventLoop()).cleanIovArray();
+        array.maxBytes(config().getMaxBytesPerGatheringWrite());
+        iovArray = array;
+        try {
+            in.forEachFlushedMessage(writeProcessor);
+        } finally {
+            iovArray = null;
+        }
+        // The first message is a readable ByteBuf, so there is at least one entry in the array.
+        assert array.count() > 0;
+        submissionQueue().addWritev(socket.intValue(), array.memoryAddress(0), array.count(),
+                userData(Native.IORING_OP_WRITEV, 0));
+        writeScheduled(Native.IORING_OP_WRITEV);
+    }
+
+    /**
+     * Write a {@link FileRegion}, returns {@code false} if no data was accepted by the socket.
+     */
+    private boolean writeFileRegion(ChannelOutboundBuffer in, FileRegion region) throws Exception {
+        if (region.transferred() >= region.count()) {
+            in.remove();
+            return true;
+        }
+
+        if (byteChannel == null) {
+            byteChannel = new IOUringSocketWritableByteChannel();
+        }
+        final long flushedAmount = region.transferTo(byteChannel, region.transferred());
+        if (flushedAmount > 0) {
+            in.progress(flushedAmount);
+            if (region.transferred() >= region.count()) {
+                in.remove();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            return UnixChannelUtil.isBufferCopyNeededForWrite(buf)? newDirectBuffer(buf): buf;
+        }
+
+        if (msg instanceof FileRegion) {
+            return msg;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @UnstableApi
+    @Override
+    protected final void doShutdownOutput() throws Exception {
+        if (isRegistered() && eventLoop().inEventLoop()) {
+            // A write may still be queued, it must reach the kernel before the output is shutdown.
+            submissionQueue().submit();
+        }
+        socket.shutdown(false, true);
+    }
+
+    private void shutdownInput0(final ChannelPromise promise) {
+        try {
+            socket.shutdown(true, false);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return socket.isOutputShutdown();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return socket.isInputShutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return socket.isShutdown();
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ((AbstractUnsafe) unsafe()).shutdownOutput(promise);
+                }
+            });
+        }
+
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdownInput() {
+        return shutdownInput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownInput(final ChannelPromise promise) {
+        Executor closeExecutor = ((IOUringStreamUnsafe) unsafe()).prepareToClose();
+        if (closeExecutor != null) {
+            closeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownInput0(promise);
+                }
+            });
+        } else {
+            EventLoop loop = eventLoop();
+            if (loop.inEventLoop()) {
+                shutdownInput0(promise);
+            } else {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        shutdownInput0(promise);
+                    }
+                });
+            }
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdown() {
+        return shutdown(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdown(final ChannelPromise promise) {
+        ChannelFuture shutdownOutputFuture = shutdownOutput();
+        if (shutdownOutputFuture.isDone()) {
+            shutdownOutputDone(shutdownOutputFuture, promise);
+        } else {
+            shutdownOutputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(final ChannelFuture shutdownOutputFuture) throws Exception {
+                    shutdownOutputDone(shutdownOutputFuture, promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void shutdownOutputDone(final ChannelFuture shutdownOutputFuture, final ChannelPromise promise) {
+        ChannelFuture shutdownInputFuture = shutdownInput();
+        if (shutdownInputFuture.isDone()) {
+            shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+        } else {
+            shutdownInputFuture.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture shutdownInputFuture) throws Exception {
+                    shutdownDone(shutdownOutputFuture, shutdownInputFuture, promise);
+                }
+            });
+        }
+    }
+
+    private static void shutdownDone(ChannelFuture shutdownOutputFuture,
+                              ChannelFuture shutdownInputFuture,
+                              ChannelPromise promise) {
+        Throwable shutdownOutputCause = shutdownOutputFuture.cause();
+        Throwable shutdownInputCause = shutdownInputFuture.cause();
+        if (shutdownOutputCause != null) {
+            if (shutdownInputCause != null) {
+                logger.debug("Exception suppressed because a previous exception occurred.",
+                        shutdownInputCause);
+            }
+            promise.setFailure(shutdownOutputCause);
+        } else if (shutdownInputCause != null) {
+            promise.setFailure(shutdownInputCause);
+        } else {
+            promise.setSuccess();
+        }
+    }
+
+    class IOUringStreamUnsafe extends AbstractIOUringUnsafe {
+        // Overridden here just to be able to access this method from AbstractIOUringStreamChannel
+        @Override
+        protected Executor prepareToClose() {
+            return super.prepareToClose();
+        }
+
+        @Override
+        void scheduleRead() {
+            IOUringRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
+            ByteBuf byteBuf = allocHandle.allocate(alloc());
+            allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+            submissionQueue().addRead(socket.intValue(), memoryAddress(byteBuf), byteBuf.writerIndex(),
+                    byteBuf.capacity(), userData(Native.IORING_OP_READ, 0));
+            readScheduled(Native.IORING_OP_READ, byteBuf);
+        }
+
+        @Override
+        void readComplete(int res, ByteBuf byteBuf) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                byteBuf.release();
+                return;
+            }
+            final IOUringChannelConfig config = config();
+            final ChannelPipeline pipeline = pipeline();
+            final IOUringRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
+            boolean close = false;
+            try {
+                if (res > 0) {
+                    byteBuf.writerIndex(byteBuf.writerIndex() + res);
+                    allocHandle.lastBytesRead(res);
+                    allocHandle.incMessagesRead(1);
+                    readPending = false;
+                    pipeline.fireChannelRead(byteBuf);
+                    byteBuf = null;
+
+                    if (!shouldBreakReadReady(config) &&
+                            (allocHandle.continueReading() || allocHandle.isReceivedRdHup())) {
+                        // There may be more data to read, so submit the next read right away.
+                        scheduleRead();
+                        return;
+                    }
+                    // If auto read is enabled or the user calls read() the next poll is scheduled via doBeginRead().
+                    allocHandle.readComplete();
+                    pipeline.fireChannelReadComplete();
+                    return;
+                }
+
+                byteBuf.release();
+                byteBuf = null;
+                if (res == Errors.ERRNO_EAGAIN_NEGATIVE || res == Errors.ERRNO_EWOULDBLOCK_NEGATIVE) {
+                    // There is nothing left to read, wait until the channel is readable again.
+                    allocHandle.lastBytesRead(0);
+                    allocHandle.readComplete();
+                    pipeline.fireChannelReadComplete();
+                    if (readPending && !shouldBreakReadReady(config)) {
+                        schedulePollIn();
+                    }
+                    return;
+                }
+
+                allocHandle.lastBytesRead(-1);
+                if (res < 0) {
+                    // Let handleReadException(...) deal with the error.
+                    Errors.ioResult("io_uring read", res);
+                }
+                // EOF
+                close = true;
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                shutdownInput(false);
+            } catch (Throwable t) {
+                handleReadException(pipeline, byteBuf, t, close, allocHandle);
+            }
+        }
+
+        @Override
+        boolean writeComplete0(ChannelOutboundBuffer in, int res) {
+            if (res < 0) {
+                // Fail the flushed messages via AbstractUnsafe.flush0().
+                writeFailed(res);
+                return true;
+            }
+            if (res == 0) {
+                return false;
+            }
+            in.removeBytes(res);
+            return true;
+        }
+
+        private void handleReadException(ChannelPipeline pipeline, ByteBuf byteBuf, Throwable cause, boolean close,
+                IOUringRecvByteAllocatorHandle allocHandle) {
+            if (byteBuf != null) {
+                if (byteBuf.isReadable()) {
+                    readPending = false;
+                    pipeline.fireChannelRead(byteBuf);
+                } else {
+                    byteBuf.release();
+                }
+            }
+            if (!close) {
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+            }
+            pipeline.fireExceptionCaught(cause);
+            if (close || cause instanceof IOException) {
+                shutdownInput(false);
+            }
+        }
+    }
+
+    private final class IOUringSocketWritableByteChannel extends SocketWritableByteChannel {
+        IOUringSocketWritableByteChannel() {
+            super(socket);
+        }
+
+        @Override
+        protected ByteBufAllocator alloc() {
+            return AbstractIOUringStreamChannel.this.alloc();
+        }
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.Buffer;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.Errors.NativeIoException;
+import io.netty.channel.unix.UnixChannelUtil;
+import io.netty.util.UncheckedBooleanSupplier;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.util.List;
+
+import static io.netty.channel.uring.LinuxSocket.newSocketDgram;
+
+/**
+ * {@link DatagramChannel} implementation that uses io_uring to submit its {@code recvmsg} and {@code sendmsg}
+ * calls. Multicast is not supported yet.
+ */
+public final class IOUringDatagramChannel extends AbstractIOUringChannel implements DatagramChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(true);
+    private static final String EXPECTED_TYPES =
+            " (expected: " + StringUtil.simpleClassName(DatagramPacket.class) + ", " +
+            StringUtil.simpleClassName(AddressedEnvelope.class) + '<' +
+            StringUtil.simpleClassName(ByteBuf.class) + ", " +
+            StringUtil.simpleClassName(InetSocketAddress.class) + ">, " +
+            StringUtil.simpleClassName(ByteBuf.class) + ')';
+
+    // The native memory used for a recvmsg or sendmsg call is laid out as:
+    // struct msghdr | struct iovec | struct sockaddr_storage
+    private static final int MSG_IOV_OFFSET = Native.SIZEOF_MSGHDR;
+    private static final int MSG_NAME_OFFSET = MSG_IOV_OFFSET + 2 * Buffer.addressSize();
+    private static final int MSG_MEMORY_SIZE = MSG_NAME_OFFSET + Native.SIZEOF_SOCKADDR_STORAGE;
+
+    private final IOUringDatagramChannelConfig config;
+    private volatile boolean connected;
+
+    // The memory is owned by the in-flight operation which uses it and handed over to the IOUringEventLoop if the
+    // channel is deregistered before the operation completed.
+    private ByteBuf recvMsgMemory;
+    private ByteBuf sendMsgMemory;
+
+    public IOUringDatagramChannel() {
+        super(newSocketDgram());
+        config = new IOUringDatagramChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public boolean isActive() {
+        return socket.isOpen() && (config.getActiveOnOpen() && isRegistered() || active);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress) {
+        return joinGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        return joinGroup(multicastAddress, null, null, promise);
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return joinGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface,
+            ChannelPromise promise) {
+        return joinGroup(multicastAddress.getAddress(), networkInterface, null, promise);
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return joinGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture joinGroup(
+            final InetAddress multicastAddress, final NetworkInterface networkInterface,
+            final InetAddress source, final ChannelPromise promise) {
+        ObjectUtil.checkNotNull(multicastAddress, "multicastAddress");
+
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress) {
+        return leaveGroup(multicastAddress, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(InetAddress multicastAddress, ChannelPromise promise) {
+        return leaveGroup(multicastAddress, null, null, promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetSocketAddress multicastAddress, NetworkInterface networkInterface) {
+        return leaveGroup(multicastAddress, networkInterface, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetSocketAddress multicastAddress,
+            NetworkInterface networkInterface, ChannelPromise promise) {
+        return leaveGroup(multicastAddress.getAddress(), networkInterface, null, promise);
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            InetAddress multicastAddress, NetworkInterface networkInterface, InetAddress source) {
+        return leaveGroup(multicastAddress, networkInterface, source, newPromise());
+    }
+
+    @Override
+    public ChannelFuture leaveGroup(
+            final InetAddress multicastAddress, final NetworkInterface networkInterface, final InetAddress source,
+            final ChannelPromise promise) {
+        ObjectUtil.checkNotNull(multicastAddress, "multicastAddress");
+
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, NetworkInterface networkInterface,
+            InetAddress sourceToBlock) {
+        return block(multicastAddress, networkInterface, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(
+            final InetAddress multicastAddress, final NetworkInterface networkInterface,
+            final InetAddress sourceToBlock, final ChannelPromise promise) {
+        ObjectUtil.checkNotNull(multicastAddress, "multicastAddress");
+        ObjectUtil.checkNotNull(sourceToBlock, "sourceToBlock");
+
+        promise.setFailure(new UnsupportedOperationException("Multicast not supported"));
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture block(InetAddress multicastAddress, InetAddress sourceToBlock) {
+        return block(multicastAddress, sourceToBlock, newPromise());
+    }
+
+    @Override
+    public ChannelFuture block(
+            InetAddress multicastAddress, InetAddress sourceToBlock, ChannelPromise promise) {
+        return block(multicastAddress, null, sourceToBlock, promise);
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringDatagramChannelUnsafe();
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        super.doBind(localAddress);
+        active = true;
+    }
+
+    @Override
+    void scheduleWrite(ChannelOutboundBuffer in) throws Exception {
+        for (;;) {
+            Object msg = in.current();
+            if (msg == null) {
+                // Wrote all messages.
+                return;
+            }
+
+            final ByteBuf data;
+            final InetSocketAddress remoteAddress;
+            if (msg instanceof AddressedEnvelope) {
+                @SuppressWarnings("unchecked")
+                AddressedEnvelope<ByteBuf, InetSocketAddress> envelope =
+                        (AddressedEnvelope<ByteBuf, InetSocketAddress>) msg;
+                data = envelope.content();
+                remoteAddress = envelope.recipient();
+            } else {
+                data = (ByteBuf) msg;
+                remoteAddress = null;
+            }
+
+            if (remoteAddress == null && !connected) {
+                // There is no way to know where to send the datagram to.
+                in.remove(new IOException("datagram has no recipient and the channel is not connected"));
+                continue;
+            }
+
+            if (sendMsgMemory == null) {
+                sendMsgMemory = newMsgMemory();
+            }
+            long memory = memoryAddress(sendMsgMemory);
+            int nameLength = remoteAddress == null ? 0 :
+                    SockaddrIn.write(socket.isIpv6(), memory + MSG_NAME_OFFSET, remoteAddress);
+            writeMsgHdr(memory, nameLength, memoryAddress(data) + data.readerIndex(), data.readableBytes());
+
+            retainForWrite(data);
+            submissionQueue().addSendmsg(socket.intValue(), memory, userData(Native.IORING_OP_SENDMSG, 0));
+            writeScheduled(Native.IORING_OP_SENDMSG);
+            return;
+        }
+    }
+
+    private ByteBuf newMsgMemory() {
+        return alloc().directBuffer(MSG_MEMORY_SIZE, MSG_MEMORY_SIZE);
+    }
+
+    /**
+     * Fill the {@code struct msghdr} and {@code struct iovec} at the given memory address so they reference the given
+     * data and the {@code struct sockaddr_storage} that follows them. A {@code nameLength} of {@code 0} means the
+     * message is sent to the address the socket is connected to.
+     */
+    private static void writeMsgHdr(long memory, int nameLength, long dataAddress, int dataLength) {
+        PlatformDependent.setMemory(memory, Native.SIZEOF_MSGHDR, (byte) 0);
+        long iov = memory + MSG_IOV_OFFSET;
+        putAddress(iov, dataAddress);
+        putAddress(iov + Buffer.addressSize(), dataLength);
+
+        putAddress(memory + Native.MSGHDR_OFFSETOF_MSG_NAME, nameLength == 0 ? 0 : memory + MSG_NAME_OFFSET);
+        PlatformDependent.putInt(memory + Native.MSGHDR_OFFSETOF_MSG_NAMELEN, nameLength);
+        putAddress(memory + Native.MSGHDR_OFFSETOF_MSG_IOV, iov);
+        putAddress(memory + Native.MSGHDR_OFFSETOF_MSG_IOVLEN, 1);
+    }
+
+    private static void putAddress(long address, long value) {
+        if (Buffer.addressSize() == 8) {
+            PlatformDependent.putLong(address, value);
+        } else {
+            PlatformDependent.putInt(address, (int) value);
+        }
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof DatagramPacket) {
+            DatagramPacket packet = (DatagramPacket) msg;
+            ByteBuf content = packet.content();
+            return isBufferCopyNeededForWrite(content) ?
+                    new DatagramPacket(newDirectBuffer(packet, content), packet.recipient()) : msg;
+        }
+
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            return isBufferCopyNeededForWrite(buf)? newDirectBuffer(buf) : buf;
+        }
+
+        if (msg instanceof AddressedEnvelope) {
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<Object, SocketAddress> e = (AddressedEnvelope<Object, SocketAddress>) msg;
+            if (e.content() instanceof ByteBuf &&
+                (e.recipient() == null || e.recipient() instanceof InetSocketAddress)) {
+
+                ByteBuf content = (ByteBuf) e.content();
+                return isBufferCopyNeededForWrite(content)?
+                        new DefaultAddressedEnvelope<ByteBuf, InetSocketAddress>(
+                            newDirectBuffer(e, content), (InetSocketAddress) e.recipient()) : e;
+            }
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    private static boolean isBufferCopyNeededForWrite(ByteBuf buf) {
+        // Each datagram is sent via a single iovec, so we need a copy of buffers that consist of multiple ones.
+        return buf.nioBufferCount() != 1 || UnixChannelUtil.isBufferCopyNeededForWrite(buf);
+    }
+
+    @Override
+    public IOUringDatagramChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        socket.disconnect();
+        connected = active = false;
+        resetCachedAddresses();
+    }
+
+    @Override
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) localAddress);
+        }
+        if (remoteAddress instanceof InetSocketAddress) {
+            checkResolvable((InetSocketAddress) remoteAddress);
+        }
+        if (localAddress != null) {
+            socket.bind(localAddress);
+        }
+        // Connecting a datagram socket never blocks, so there is no need to submit it to the ring.
+        socket.connect(remoteAddress);
+        connected = true;
+        resetCachedAddresses();
+        return true;
+    }
+
+    @Override
+    void collectInFlightResources(List<ByteBuf> resources) {
+        if ((ioState & READ_SCHEDULED) != 0 && recvMsgMemory != null) {
+            resources.add(recvMsgMemory);
+            recvMsgMemory = null;
+        }
+        if ((ioState & WRITE_SCHEDULED) != 0 && sendMsgMemory != null) {
+            resources.add(sendMsgMemory);
+            sendMsgMemory = null;
+        }
+        super.collectInFlightResources(resources);
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            connected = false;
+            // Everything that is still in use by an in-flight operation was handed over to the IOUringEventLoop.
+            if (recvMsgMemory != null) {
+                recvMsgMemory.release();
+                recvMsgMemory = null;
+            }
+            if (sendMsgMemory != null) {
+                sendMsgMemory.release();
+                sendMsgMemory = null;
+            }
+        }
+    }
+
+    private IOException translateForConnected(IOException e) {
+        // We need to correctly translate connect errors to match NIO behaviour.
+        if (connected && e instanceof NativeIoException &&
+                ((NativeIoException) e).expectedErr() == Errors.ERROR_ECONNREFUSED_NEGATIVE) {
+            PortUnreachableException error = new PortUnreachableException(e.getMessage());
+            error.initCause(e);
+            return error;
+        }
+        return e;
+    }
+
+    final class IOUringDatagramChannelUnsafe extends AbstractIOUringUnsafe {
+
+        @Override
+        void scheduleRead() {
+            IOUringRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
+            ByteBuf byteBuf = allocHandle.allocate(alloc());
+            allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+
+            if (recvMsgMemory == null) {
+                recvMsgMemory = newMsgMemory();
+            }
+            long memory = memoryAddress(recvMsgMemory);
+            writeMsgHdr(memory, Native.SIZEOF_SOCKADDR_STORAGE, memoryAddress(byteBuf) + byteBuf.writerIndex(),
+                    byteBuf.writableBytes());
+            submissionQueue().addRecvmsg(socket.intValue(), memory, userData(Native.IORING_OP_RECVMSG, 0));
+            readScheduled(Native.IORING_OP_RECVMSG, byteBuf);
+        }
+
+        @Override
+        void readComplete(int res, ByteBuf byteBuf) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                byteBuf.release();
+                return;
+            }
+            final ChannelPipeline pipeline = pipeline();
+            final IOUringRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
+            if (res >= 0) {
+                byteBuf.writerIndex(byteBuf.writerIndex() + res);
+                allocHandle.lastBytesRead(res);
+                allocHandle.incMessagesRead(1);
+                readPending = false;
+
+                InetSocketAddress sender = SockaddrIn.read(memoryAddress(recvMsgMemory) + MSG_NAME_OFFSET);
+                pipeline.fireChannelRead(
+                        new DatagramPacket(byteBuf, IOUringDatagramChannel.this.localAddress(), sender));
+
+                // Every datagram is read on its own, so keep on reading until there is nothing left or we hit the
+                // limit of messages per read.
+                if (allocHandle.continueReading(UncheckedBooleanSupplier.TRUE_SUPPLIER)) {
+                    scheduleRead();
+                    return;
+                }
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                return;
+            }
+
+            byteBuf.release();
+            allocHandle.lastBytesRead(-1);
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+            if (res == Errors.ERRNO_EAGAIN_NEGATIVE || res == Errors.ERRNO_EWOULDBLOCK_NEGATIVE) {
+                // There is nothing left to read, wait until the channel is readable again.
+                if (readPending) {
+                    schedulePollIn();
+                }
+                return;
+            }
+            try {
+                Errors.ioResult("io_uring recvmsg", res);
+            } catch (IOException e) {
+                pipeline.fireExceptionCaught(translateForConnected(e));
+            }
+        }
+
+        @Override
+        boolean writeComplete0(ChannelOutboundBuffer in, int res) {
+            if (res < 0) {
+                // Only fail the datagram that could not be sent and continue with the next one.
+                try {
+                    Errors.ioResult("io_uring sendmsg", res);
+                } catch (IOException e) {
+                    in.remove(translateForConnected(e));
+                }
+            } else {
+                in.remove();
+            }
+            return true;
+        }
+    }
+}
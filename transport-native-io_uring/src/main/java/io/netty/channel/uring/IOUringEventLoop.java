@@ -0,0 +1,455 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.EventLoopTaskQueueFactory;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.unix.Buffer;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.uring.IOUringCompletionQueue.IOUringCompletionQueueCallback;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link EventLoop} which uses io_uring under the covers. Only works on Linux!
+ */
+final class IOUringEventLoop extends SingleThreadEventLoop {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEventLoop.class);
+
+    static {
+        // Ensure JNI is initialized by the time this class is loaded by this time!
+        // We use unix-common methods in this class which are backed by JNI methods.
+        IOUring.ensureAvailability();
+    }
+
+    // The id 0 is reserved for the operations of the EventLoop itself.
+    private static final int EVENT_LOOP_ID = 0;
+
+    private static final long AWAKE = -1L;
+    private static final long NONE = Long.MAX_VALUE;
+
+    private final RingBuffer ringBuffer;
+    private final FileDescriptor eventFd;
+    private final ByteBuffer eventFdReadBuffer;
+    private final long eventFdReadBufferAddress;
+
+    private final IntObjectMap<AbstractIOUringChannel> channels = new IntObjectHashMap<AbstractIOUringChannel>(4096);
+    private final IntObjectMap<InFlightResources> detachedChannels = new IntObjectHashMap<InFlightResources>();
+    private int nextChannelId;
+
+    // IovArrays may only be reused once the operations that reference them were submitted.
+    private final List<IovArray> iovArrays = new ArrayList<IovArray>();
+    private int iovArrayIndex;
+
+    private final IOUringCompletionQueueCallback completionCallback = new IOUringCompletionQueueCallback() {
+        @Override
+        public void handle(int res, int flags, long userData) {
+            handleCompletion(res, userData);
+        }
+    };
+
+    // nextWakeupNanos is:
+    //    AWAKE            when EL is awake
+    //    NONE             when EL is waiting with no wakeup scheduled
+    //    other value T    when EL is waiting with wakeup scheduled at time T
+    private final AtomicLong nextWakeupNanos = new AtomicLong(AWAKE);
+    private boolean pendingWakeup;
+    private boolean eventFdReadPending;
+    private long prevDeadlineNanos = NONE;
+    private int timeoutGeneration;
+    private volatile int ioRatio = 50;
+
+    IOUringEventLoop(EventLoopGroup parent, Executor executor, int ringSize,
+                     RejectedExecutionHandler rejectedExecutionHandler, EventLoopTaskQueueFactory queueFactory) {
+        super(parent, executor, false, newTaskQueue(queueFactory), newTaskQueue(queueFactory),
+                rejectedExecutionHandler);
+        ringBuffer = ringSize == 0 ? Native.createRingBuffer() : Native.createRingBuffer(ringSize);
+        boolean success = false;
+        try {
+            eventFd = Native.newEventFd();
+            success = true;
+        } finally {
+            if (!success) {
+                ringBuffer.close();
+            }
+        }
+        eventFdReadBuffer = Buffer.allocateDirectWithNativeOrder(8);
+        eventFdReadBufferAddress = Buffer.memoryAddress(eventFdReadBuffer);
+    }
+
+    private static Queue<Runnable> newTaskQueue(
+            EventLoopTaskQueueFactory queueFactory) {
+        if (queueFactory == null) {
+            return newTaskQueue0(DEFAULT_MAX_PENDING_TASKS);
+        }
+        return queueFactory.newTaskQueue(DEFAULT_MAX_PENDING_TASKS);
+    }
+
+    @Override
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        return newTaskQueue0(maxPendingTasks);
+    }
+
+    private static Queue<Runnable> newTaskQueue0(int maxPendingTasks) {
+        // This event loop never calls takeTask()
+        return maxPendingTasks == Integer.MAX_VALUE ? PlatformDependent.<Runnable>newMpscQueue()
+                : PlatformDependent.<Runnable>newMpscQueue(maxPendingTasks);
+    }
+
+    IOUringSubmissionQueue submissionQueue() {
+        return ringBuffer.submissionQueue();
+    }
+
+    /**
+     * Return a cleared {@link IovArray} that can be used for writes in this {@link EventLoop}. The returned
+     * {@link IovArray} will not be handed out again before the next submission to the ring.
+     */
+    IovArray cleanIovArray() {
+        IovArray iovArray;
+        if (iovArrayIndex == iovArrays.size()) {
+            iovArray = new IovArray();
+            iovArrays.add(iovArray);
+        } else {
+            iovArray = iovArrays.get(iovArrayIndex);
+            iovArray.clear();
+        }
+        iovArrayIndex++;
+        return iovArray;
+    }
+
+    /**
+     * Register the given channel with this {@link EventLoop} and return the id that must be used as part of the
+     * {@code user_data} of all its submissions.
+     */
+    int add(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        int id;
+        do {
+            id = ++nextChannelId;
+        } while (id == EVENT_LOOP_ID || channels.containsKey(id) || detachedChannels.containsKey(id));
+        channels.put(id, ch);
+        return id;
+    }
+
+    /**
+     * Deregister the channel with the given id from this {@link EventLoop}. If operations of the channel are still
+     * in flight the given resources are kept alive until all of them were completed by the kernel.
+     */
+    void remove(int id, int inFlight, List<ByteBuf> resources) {
+        assert inEventLoop();
+        channels.remove(id);
+        if (inFlight > 0) {
+            detachedChannels.put(id, new InFlightResources(inFlight, resources));
+        } else {
+            release(resources);
+        }
+    }
+
+    @Override
+    protected void wakeup(boolean inEventLoop) {
+        // Check with a plain read first so a burst of producers does not keep bouncing the cache line while the
+        // EventLoop is already awake, only one of them will win the getAndSet(...) and issue the actual wakeup.
+        if (!inEventLoop && nextWakeupNanos.get() != AWAKE && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
+            // write to the evfd which will then complete the pending read of it and so wake-up the EventLoop
+            Native.eventFdWrite(eventFd.intValue(), 1L);
+        }
+    }
+
+    @Override
+    protected boolean beforeScheduledTaskSubmitted(long deadlineNanos) {
+        // Note this is also correct for the nextWakeupNanos == -1 (AWAKE) case
+        return deadlineNanos < nextWakeupNanos.get();
+    }
+
+    @Override
+    protected boolean afterScheduledTaskSubmitted(long deadlineNanos) {
+        // Note this is also correct for the nextWakeupNanos == -1 (AWAKE) case
+        return deadlineNanos < nextWakeupNanos.get();
+    }
+
+    /**
+     * Returns the percentage of the desired amount of time spent for I/O in the event loop.
+     */
+    public int getIoRatio() {
+        return ioRatio;
+    }
+
+    /**
+     * Sets the percentage of the desired amount of time spent for I/O in the event loop.  The default value is
+     * {@code 50}, which means the event loop will try to spend the same amount of time for I/O as for non-I/O tasks.
+     */
+    public void setIoRatio(int ioRatio) {
+        if (ioRatio <= 0 || ioRatio > 100) {
+            throw new IllegalArgumentException("ioRatio: " + ioRatio + " (expected: 0 < ioRatio <= 100)");
+        }
+        this.ioRatio = ioRatio;
+    }
+
+    @Override
+    public int registeredChannels() {
+        return channels.size();
+    }
+
+    @Override
+    protected void run() {
+        final IOUringCompletionQueue completionQueue = ringBuffer.completionQueue();
+        final IOUringSubmissionQueue submissionQueue = ringBuffer.submissionQueue();
+
+        // Always keep a read of the eventfd in flight so wakeup(...) is able to wake us up.
+        addEventFdRead(submissionQueue);
+        for (;;) {
+            try {
+                if (!completionQueue.hasCompletions() && !hasTasks()) {
+                    long curDeadlineNanos = nextScheduledTaskDeadlineNanos();
+                    if (curDeadlineNanos == -1L) {
+                        curDeadlineNanos = NONE; // nothing on the calendar
+                    }
+                    nextWakeupNanos.set(curDeadlineNanos);
+                    try {
+                        if (!hasTasks()) {
+                            if (curDeadlineNanos != prevDeadlineNanos) {
+                                // The timeout needs to be re-armed or removed.
+                                updateTimeout(submissionQueue, curDeadlineNanos);
+                            }
+                            // Submit everything that was queued before and wait for at least one completion.
+                            submissionQueue.submitAndWait();
+                            iovArrayIndex = 0;
+                        }
+                    } finally {
+                        // Try get() first to avoid much more expensive CAS in the case we
+                        // were woken via the wakeup() method (submitted task)
+                        if (nextWakeupNanos.get() == AWAKE || nextWakeupNanos.getAndSet(AWAKE) == AWAKE) {
+                            pendingWakeup = true;
+                        }
+                    }
+                }
+
+                final int ioRatio = this.ioRatio;
+                if (ioRatio == 100) {
+                    try {
+                        completionQueue.process(completionCallback);
+                    } finally {
+                        // Ensure we always run tasks.
+                        runAllTasks();
+                    }
+                } else {
+                    final long ioStartTime = System.nanoTime();
+                    try {
+                        completionQueue.process(completionCallback);
+                    } finally {
+                        // Ensure we always run tasks.
+                        final long ioTime = System.nanoTime() - ioStartTime;
+                        runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                    }
+                }
+
+                // Submit all the operations that were queued while processing the completions and running the tasks,
+                // so the kernel can start to work on them while we check for more completions.
+                submissionQueue.submit();
+                iovArrayIndex = 0;
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+            // Always handle shutdown even if the loop processing threw an exception.
+            try {
+                if (isShuttingDown()) {
+                    closeAll();
+                    if (confirmShutdown()) {
+                        break;
+                    }
+                }
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+        }
+    }
+
+    private void updateTimeout(IOUringSubmissionQueue submissionQueue, long deadlineNanos) {
+        if (prevDeadlineNanos != NONE) {
+            submissionQueue.addTimeoutRemove(UserData.encode(EVENT_LOOP_ID, Native.IORING_OP_TIMEOUT,
+                    timeoutGeneration), UserData.encode(EVENT_LOOP_ID, Native.IORING_OP_TIMEOUT_REMOVE, 0));
+        }
+        // Use a new generation so we can ignore the completion of a timeout that fired before it could be removed.
+        timeoutGeneration = (timeoutGeneration + 1) & 0xFFFF;
+        if (deadlineNanos != NONE) {
+            submissionQueue.addTimeout(deadlineToDelayNanos(deadlineNanos),
+                    UserData.encode(EVENT_LOOP_ID, Native.IORING_OP_TIMEOUT, timeoutGeneration));
+        }
+        prevDeadlineNanos = deadlineNanos;
+    }
+
+    private void addEventFdRead(IOUringSubmissionQueue submissionQueue) {
+        submissionQueue.addRead(eventFd.intValue(), eventFdReadBufferAddress, 0, 8,
+                UserData.encode(EVENT_LOOP_ID, Native.IORING_OP_READ, 0));
+        eventFdReadPending = true;
+    }
+
+    private void handleCompletion(int res, long userData) {
+        int id = UserData.decodeId(userData);
+        byte op = UserData.decodeOp(userData);
+        if (id == EVENT_LOOP_ID) {
+            handleEventLoopCompletion(res, op, UserData.decodeData(userData));
+            return;
+        }
+        AbstractIOUringChannel ch = channels.get(id);
+        if (ch != null) {
+            ((AbstractIOUringChannel.AbstractIOUringUnsafe) ch.unsafe()).handle(op, UserData.decodeData(userData), res);
+            return;
+        }
+        if (op == Native.IORING_OP_POLL_REMOVE || op == Native.IORING_OP_ASYNC_CANCEL) {
+            // The result of a cancellation is not interesting for us, we wait for the completion of the operation
+            // itself.
+            return;
+        }
+        InFlightResources resources = detachedChannels.get(id);
+        if (resources != null && --resources.inFlight == 0) {
+            detachedChannels.remove(id);
+            release(resources.buffers);
+        }
+    }
+
+    private void handleEventLoopCompletion(int res, byte op, int data) {
+        if (op == Native.IORING_OP_READ) {
+            eventFdReadPending = false;
+            pendingWakeup = false;
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            if (res < 0) {
+                logger.warn("Unexpected result while reading the event fd: {}", res);
+            }
+            if (!isShutdown()) {
+                addEventFdRead(ringBuffer.submissionQueue());
+            }
+        } else if (op == Native.IORING_OP_TIMEOUT) {
+            if (res == Native.ERRNO_ETIME_NEGATIVE && data == timeoutGeneration) {
+                // The timeout fired so there is nothing armed anymore.
+                prevDeadlineNanos = NONE;
+            }
+        }
+    }
+
+    /**
+     * Visible only for testing!
+     */
+    void handleLoopException(Throwable t) {
+        logger.warn("Unexpected exception in the io_uring loop.", t);
+
+        // Prevent possible consecutive immediate failures that lead to
+        // excessive CPU consumption.
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            // Ignore.
+        }
+    }
+
+    private void closeAll() {
+        // Using the intermediate collection to prevent ConcurrentModificationException.
+        // In the `close()` method, the channel is deleted from `channels` map.
+        AbstractIOUringChannel[] localChannels = channels.values().toArray(new AbstractIOUringChannel[0]);
+
+        for (AbstractIOUringChannel ch: localChannels) {
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    private static void release(List<ByteBuf> buffers) {
+        for (int i = 0; i < buffers.size(); i++) {
+            buffers.get(i).release();
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        IOUringSubmissionQueue submissionQueue = ringBuffer.submissionQueue();
+        IOUringCompletionQueue completionQueue = ringBuffer.completionQueue();
+        try {
+            // Ensure any in-flight wakeup writes have been performed prior to closing eventFd and wait for all the
+            // operations of closed channels so we can release their memory. Use a 1 second "safeguard" timeout.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (pendingWakeup || !detachedChannels.isEmpty()) {
+                long timeout = deadline - System.nanoTime();
+                if (timeout <= 0) {
+                    if (pendingWakeup) {
+                        // We timed-out so assume that the write we're expecting isn't coming
+                        logger.warn("Missed eventfd write (not seen after > 1 second)");
+                    }
+                    break;
+                }
+                prevDeadlineNanos = NONE;
+                updateTimeout(submissionQueue, System.nanoTime() + timeout);
+                submissionQueue.submitAndWait();
+                completionQueue.process(completionCallback);
+            }
+            if (eventFdReadPending) {
+                // Cancel the read of the eventfd so the ring does not reference it anymore.
+                submissionQueue.addCancel(UserData.encode(EVENT_LOOP_ID, Native.IORING_OP_READ, 0),
+                        UserData.encode(EVENT_LOOP_ID, Native.IORING_OP_ASYNC_CANCEL, 0));
+                submissionQueue.submit();
+            }
+            try {
+                eventFd.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the event fd.", e);
+            }
+        } finally {
+            // release native memory
+            for (IovArray iovArray: iovArrays) {
+                iovArray.release();
+            }
+            iovArrays.clear();
+            // Closing the ring cancels everything which is still in flight, so we can release the remaining memory.
+            ringBuffer.close();
+            for (InFlightResources resources: detachedChannels.values()) {
+                release(resources.buffers);
+            }
+            detachedChannels.clear();
+            Buffer.free(eventFdReadBuffer);
+        }
+    }
+
+    /**
+     * Keeps the memory that is referenced by operations which were still in flight when a channel was closed or
+     * deregistered alive until the kernel completed or cancelled them.
+     */
+    private static final class InFlightResources {
+        int inFlight;
+        final List<ByteBuf> buffers;
+
+        InFlightResources(int inFlight, List<ByteBuf> buffers) {
+            this.inFlight = inFlight;
+            this.buffers = buffers;
+        }
+    }
+}
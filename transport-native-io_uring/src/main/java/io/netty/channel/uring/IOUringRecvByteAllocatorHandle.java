@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator.DelegatingHandle;
+import io.netty.channel.RecvByteBufAllocator.ExtendedHandle;
+import io.netty.channel.unix.PreferredDirectByteBufAllocator;
+import io.netty.util.UncheckedBooleanSupplier;
+
+final class IOUringRecvByteAllocatorHandle extends DelegatingHandle implements ExtendedHandle {
+    private final PreferredDirectByteBufAllocator preferredDirectByteBufAllocator =
+            new PreferredDirectByteBufAllocator();
+    private final UncheckedBooleanSupplier defaultMaybeMoreDataSupplier = new UncheckedBooleanSupplier() {
+        @Override
+        public boolean get() {
+            return maybeMoreDataToRead();
+        }
+    };
+    private boolean receivedRdHup;
+
+    IOUringRecvByteAllocatorHandle(ExtendedHandle handle) {
+        super(handle);
+    }
+
+    void receivedRdHup() {
+        receivedRdHup = true;
+    }
+
+    boolean isReceivedRdHup() {
+        return receivedRdHup;
+    }
+
+    boolean maybeMoreDataToRead() {
+        // If we filled the whole buffer there is most likely more data waiting. io_uring polls are level-triggered
+        // so we will be notified again anyway if we stop reading here.
+        return lastBytesRead() == attemptedBytesRead();
+    }
+
+    @Override
+    public ByteBuf allocate(ByteBufAllocator alloc) {
+        // We need to ensure we always allocate a direct ByteBuf as the kernel reads into its memory directly.
+        preferredDirectByteBufAllocator.updateAllocator(alloc);
+        return delegate().allocate(preferredDirectByteBufAllocator);
+    }
+
+    @Override
+    public boolean continueReading(UncheckedBooleanSupplier maybeMoreDataSupplier) {
+        return ((ExtendedHandle) delegate()).continueReading(maybeMoreDataSupplier);
+    }
+
+    @Override
+    public boolean continueReading() {
+        // We must override the supplier which determines if there maybe more data to read.
+        return continueReading(defaultMaybeMoreDataSupplier);
+    }
+}
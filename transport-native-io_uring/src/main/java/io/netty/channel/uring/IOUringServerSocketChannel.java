@@ -0,0 +1,179 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.unix.Errors;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static io.netty.channel.uring.LinuxSocket.newSocketStream;
+
+/**
+ * {@link ServerSocketChannel} implementation that uses io_uring to accept new connections.
+ */
+public final class IOUringServerSocketChannel extends AbstractIOUringChannel implements ServerSocketChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    private final IOUringServerSocketChannelConfig config;
+
+    public IOUringServerSocketChannel() {
+        super(newSocketStream());
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        super.doBind(localAddress);
+        socket.listen(config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    void scheduleWrite(ChannelOutboundBuffer in) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    Channel newChildChannel(int fd) throws Exception {
+        LinuxSocket socket = new LinuxSocket(fd);
+        try {
+            return new IOUringSocketChannel(this, socket, socket.remoteAddress());
+        } catch (Throwable t) {
+            socket.close();
+            throw t;
+        }
+    }
+
+    final class IOUringServerSocketUnsafe extends AbstractIOUringUnsafe {
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void scheduleRead() {
+            recvBufAllocHandle().attemptedBytesRead(1);
+            submissionQueue().addAccept(socket.intValue(), userData(Native.IORING_OP_ACCEPT, 0));
+            readScheduled(Native.IORING_OP_ACCEPT, null);
+        }
+
+        @Override
+        void readComplete(int res, ByteBuf buffer) {
+            if (res == Native.ERRNO_ECANCELED_NEGATIVE) {
+                return;
+            }
+            final ChannelPipeline pipeline = pipeline();
+            final IOUringRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
+            if (res >= 0) {
+                // lastBytesRead must be set so that the IOUringRecvByteAllocatorHandle knows if it should try to
+                // accept again or not.
+                allocHandle.lastBytesRead(1);
+                allocHandle.incMessagesRead(1);
+                readPending = false;
+                try {
+                    pipeline.fireChannelRead(newChildChannel(res));
+                } catch (Throwable t) {
+                    allocHandle.readComplete();
+                    pipeline.fireChannelReadComplete();
+                    pipeline.fireExceptionCaught(t);
+                    return;
+                }
+                if (allocHandle.continueReading()) {
+                    // There may be more connections waiting, so accept the next one right away.
+                    scheduleRead();
+                    return;
+                }
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                return;
+            }
+
+            allocHandle.lastBytesRead(-1);
+            allocHandle.readComplete();
+            pipeline.fireChannelReadComplete();
+            if (res == Errors.ERRNO_EAGAIN_NEGATIVE || res == Errors.ERRNO_EWOULDBLOCK_NEGATIVE) {
+                // No connection is waiting anymore, wait until the channel is readable again.
+                if (readPending) {
+                    schedulePollIn();
+                }
+                return;
+            }
+            try {
+                Errors.ioResult("io_uring accept", res);
+            } catch (Throwable t) {
+                pipeline.fireExceptionCaught(t);
+            }
+        }
+
+        @Override
+        boolean writeComplete0(ChannelOutboundBuffer in, int res) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
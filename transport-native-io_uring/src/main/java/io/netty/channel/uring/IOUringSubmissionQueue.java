@@ -0,0 +1,241 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.unix.Buffer;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The submission queue of an io_uring instance. Entries are written into the shared memory region and become visible
+ * to the kernel once {@link #submit()} or {@link #submitAndWait()} is called.
+ */
+final class IOUringSubmissionQueue {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringSubmissionQueue.class);
+
+    private static final int SQE_SIZE = 64;
+    private static final int INT_SIZE = 4;
+    private static final int KERNEL_TIMESPEC_SIZE = 16; // __kernel_timespec
+
+    // Offsets of the fields in struct io_uring_sqe.
+    private static final int SQE_OP_CODE_FIELD = 0;
+    private static final int SQE_FLAGS_FIELD = 1;
+    private static final int SQE_IOPRIO_FIELD = 2;
+    private static final int SQE_FD_FIELD = 4;
+    private static final int SQE_OFFSET_FIELD = 8;
+    private static final int SQE_ADDRESS_FIELD = 16;
+    private static final int SQE_LEN_FIELD = 24;
+    private static final int SQE_RW_FLAGS_FIELD = 28;
+    private static final int SQE_USER_DATA_FIELD = 32;
+    private static final int SQE_PAD_FIELD = 40;
+
+    private static final int KERNEL_TIMESPEC_TV_SEC_FIELD = 0;
+    private static final int KERNEL_TIMESPEC_TV_NSEC_FIELD = 8;
+
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final long kDroppedAddress;
+    private final long kArrayAddress;
+    final long submissionQueueArrayAddress;
+
+    final int ringEntries;
+    private final int ringMask;
+
+    final int ringSize;
+    final long ringAddress;
+    final int ringFd;
+
+    private final ByteBuffer timeoutMemory;
+    private final long timeoutMemoryAddress;
+
+    private int head;
+    private int tail;
+
+    IOUringSubmissionQueue(long kHeadAddress, long kTailAddress, long kRingMaskAddress, long kRingEntriesAddress,
+                           long kFlagsAddress, long kDroppedAddress, long kArrayAddress,
+                           long submissionQueueArrayAddress, int ringSize, long ringAddress, int ringFd) {
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.kDroppedAddress = kDroppedAddress;
+        this.kArrayAddress = kArrayAddress;
+        this.submissionQueueArrayAddress = submissionQueueArrayAddress;
+        this.ringSize = ringSize;
+        this.ringAddress = ringAddress;
+        this.ringFd = ringFd;
+
+        ringEntries = PlatformDependent.getIntVolatile(kRingEntriesAddress);
+        ringMask = PlatformDependent.getIntVolatile(kRingMaskAddress);
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+        tail = PlatformDependent.getIntVolatile(kTailAddress);
+
+        // We use the same index in the ring array as in the array of submission queue entries, so we can fill the
+        // ring array once and never touch it again.
+        for (int i = 0; i < ringEntries; i++) {
+            PlatformDependent.putInt(kArrayAddress + (long) i * INT_SIZE, i);
+        }
+
+        timeoutMemory = Buffer.allocateDirectWithNativeOrder(KERNEL_TIMESPEC_SIZE);
+        timeoutMemoryAddress = Buffer.memoryAddress(timeoutMemory);
+    }
+
+    /**
+     * Returns the number of entries which were added but not submitted yet.
+     */
+    int count() {
+        return tail - head;
+    }
+
+    private void enqueueSqe(byte op, int rwFlags, int fd, long bufferAddress, int length, long offset,
+                            long userData) {
+        int pending = tail - head;
+        if (pending == ringEntries) {
+            // The queue is full, so submit what we have to make room for the new entry.
+            int submitted = submit();
+            if (submitted != pending) {
+                // We failed to submit all the entries, nothing we can do about it here.
+                throw new RuntimeException("Only submitted " + submitted + " of " + pending + " entries");
+            }
+        }
+        long sqe = submissionQueueArrayAddress + (long) (tail++ & ringMask) * SQE_SIZE;
+
+        PlatformDependent.putByte(sqe + SQE_OP_CODE_FIELD, op);
+        PlatformDependent.putByte(sqe + SQE_FLAGS_FIELD, (byte) 0);
+        PlatformDependent.putShort(sqe + SQE_IOPRIO_FIELD, (short) 0);
+        PlatformDependent.putInt(sqe + SQE_FD_FIELD, fd);
+        PlatformDependent.putLong(sqe + SQE_OFFSET_FIELD, offset);
+        PlatformDependent.putLong(sqe + SQE_ADDRESS_FIELD, bufferAddress);
+        PlatformDependent.putInt(sqe + SQE_LEN_FIELD, length);
+        PlatformDependent.putInt(sqe + SQE_RW_FLAGS_FIELD, rwFlags);
+        PlatformDependent.putLong(sqe + SQE_USER_DATA_FIELD, userData);
+
+        // The rest of the entry (buf_index, personality and padding) must be zeroed.
+        PlatformDependent.putLong(sqe + SQE_PAD_FIELD, 0);
+        PlatformDependent.putLong(sqe + SQE_PAD_FIELD + 8, 0);
+        PlatformDependent.putLong(sqe + SQE_PAD_FIELD + 16, 0);
+    }
+
+    void addRead(int fd, long bufferAddress, int pos, int limit, long userData) {
+        enqueueSqe(Native.IORING_OP_READ, 0, fd, bufferAddress + pos, limit - pos, 0, userData);
+    }
+
+    void addWrite(int fd, long bufferAddress, int pos, int limit, long userData) {
+        enqueueSqe(Native.IORING_OP_WRITE, 0, fd, bufferAddress + pos, limit - pos, 0, userData);
+    }
+
+    void addWritev(int fd, long iovecArrayAddress, int length, long userData) {
+        enqueueSqe(Native.IORING_OP_WRITEV, 0, fd, iovecArrayAddress, length, 0, userData);
+    }
+
+    void addPoll(int fd, int pollMask, long userData) {
+        enqueueSqe(Native.IORING_OP_POLL_ADD, pollMask, fd, 0, 0, 0, userData);
+    }
+
+    void addPollRemove(long userDataToRemove, long userData) {
+        enqueueSqe(Native.IORING_OP_POLL_REMOVE, 0, -1, userDataToRemove, 0, 0, userData);
+    }
+
+    void addAccept(int fd, long userData) {
+        // We do not ask the kernel for the remote address here, it is obtained from the accepted socket itself.
+        enqueueSqe(Native.IORING_OP_ACCEPT, Native.SOCK_NONBLOCK | Native.SOCK_CLOEXEC, fd, 0, 0, 0, userData);
+    }
+
+    void addConnect(int fd, long socketAddress, int socketAddressLength, long userData) {
+        enqueueSqe(Native.IORING_OP_CONNECT, 0, fd, socketAddress, 0, socketAddressLength, userData);
+    }
+
+    void addSendmsg(int fd, long msgHdrAddress, long userData) {
+        enqueueSqe(Native.IORING_OP_SENDMSG, 0, fd, msgHdrAddress, 1, 0, userData);
+    }
+
+    void addRecvmsg(int fd, long msgHdrAddress, long userData) {
+        enqueueSqe(Native.IORING_OP_RECVMSG, 0, fd, msgHdrAddress, 1, 0, userData);
+    }
+
+    void addTimeout(long nanoSeconds, long userData) {
+        // The timespec is copied by the kernel when the entry is submitted, so we can reuse the memory.
+        PlatformDependent.putLong(timeoutMemoryAddress + KERNEL_TIMESPEC_TV_SEC_FIELD, nanoSeconds / 1000000000L);
+        PlatformDependent.putLong(timeoutMemoryAddress + KERNEL_TIMESPEC_TV_NSEC_FIELD, nanoSeconds % 1000000000L);
+        enqueueSqe(Native.IORING_OP_TIMEOUT, 0, -1, timeoutMemoryAddress, 1, 0, userData);
+    }
+
+    void addTimeoutRemove(long userDataToRemove, long userData) {
+        enqueueSqe(Native.IORING_OP_TIMEOUT_REMOVE, 0, -1, userDataToRemove, 0, 0, userData);
+    }
+
+    void addCancel(long userDataToCancel, long userData) {
+        enqueueSqe(Native.IORING_OP_ASYNC_CANCEL, 0, -1, userDataToCancel, 0, 0, userData);
+    }
+
+    /**
+     * Submit all pending entries without waiting for any completion.
+     */
+    int submit() {
+        int submit = tail - head;
+        return submit > 0 ? submit(submit, 0, 0) : 0;
+    }
+
+    /**
+     * Submit all pending entries and wait until at least one completion is available.
+     */
+    int submitAndWait() {
+        int submit = tail - head;
+        if (submit > 0) {
+            return submit(submit, 1, Native.IORING_ENTER_GETEVENTS);
+        }
+        int ret = Native.ioUringEnter(ringFd, 0, 1, Native.IORING_ENTER_GETEVENTS);
+        if (ret < 0) {
+            throw new RuntimeException("io_uring_enter(...) failed: " + ret);
+        }
+        return ret;
+    }
+
+    private int submit(int toSubmit, int minComplete, int flags) {
+        // Publish the new tail with release semantics so the kernel sees all the entries we wrote before.
+        PlatformDependent.putIntOrdered(kTailAddress, tail);
+        int ret = Native.ioUringEnter(ringFd, toSubmit, minComplete, flags);
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+        if (ret != toSubmit) {
+            if (ret < 0) {
+                throw new RuntimeException("io_uring_enter(...) failed: " + ret);
+            }
+            logger.trace("Not all submissions succeeded. Only {} of {} SQEs were submitted.", ret, toSubmit);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the number of entries that were dropped by the kernel because they were invalid.
+     */
+    long dropped() {
+        return PlatformDependent.getIntVolatile(kDroppedAddress) & 0xFFFFFFFFL;
+    }
+
+    int submissionQueueArraySize() {
+        return ringEntries * SQE_SIZE;
+    }
+
+    void release() {
+        Buffer.free(timeoutMemory);
+    }
+
+    @Override
+    public String toString() {
+        return "IOUringSubmissionQueue{head=" + head + ", tail=" + tail + ", ringEntries=" + ringEntries + '}';
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Reads and writes {@code struct sockaddr_in} and {@code struct sockaddr_in6} from and to native memory.
+ */
+final class SockaddrIn {
+    private static final byte[] IPV4_MAPPED_IPV6_PREFIX = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff };
+
+    // Offsets of the fields in struct sockaddr_in.
+    private static final int SOCKADDR_IN_OFFSETOF_SIN_FAMILY = 0;
+    private static final int SOCKADDR_IN_OFFSETOF_SIN_PORT = 2;
+    private static final int SOCKADDR_IN_OFFSETOF_SIN_ADDR = 4;
+
+    // Offsets of the fields in struct sockaddr_in6.
+    private static final int SOCKADDR_IN6_OFFSETOF_SIN6_FAMILY = 0;
+    private static final int SOCKADDR_IN6_OFFSETOF_SIN6_PORT = 2;
+    private static final int SOCKADDR_IN6_OFFSETOF_SIN6_FLOWINFO = 4;
+    private static final int SOCKADDR_IN6_OFFSETOF_SIN6_ADDR = 8;
+    private static final int SOCKADDR_IN6_OFFSETOF_SIN6_SCOPE_ID = 24;
+
+    private SockaddrIn() {
+        // utility
+    }
+
+    /**
+     * Write the given {@link InetSocketAddress} to the given memory and return the length of the written structure.
+     * The memory must be at least {@link Native#SIZEOF_SOCKADDR_STORAGE} bytes.
+     */
+    static int write(boolean ipv6, long memory, InetSocketAddress address) {
+        if (ipv6) {
+            return writeIPv6(memory, address.getAddress(), address.getPort());
+        }
+        return writeIPv4(memory, address.getAddress(), address.getPort());
+    }
+
+    private static int writeIPv4(long memory, InetAddress address, int port) {
+        PlatformDependent.setMemory(memory, Native.SIZEOF_SOCKADDR_IN, (byte) 0);
+
+        PlatformDependent.putShort(memory + SOCKADDR_IN_OFFSETOF_SIN_FAMILY, (short) Native.AF_INET);
+        writePort(memory + SOCKADDR_IN_OFFSETOF_SIN_PORT, port);
+
+        byte[] bytes = address.getAddress();
+        if (bytes.length != 4) {
+            throw new IllegalArgumentException("Unable to connect an IPv4 socket to " + address);
+        }
+        PlatformDependent.copyMemory(bytes, 0, memory + SOCKADDR_IN_OFFSETOF_SIN_ADDR, bytes.length);
+        return Native.SIZEOF_SOCKADDR_IN;
+    }
+
+    private static int writeIPv6(long memory, InetAddress address, int port) {
+        PlatformDependent.setMemory(memory, Native.SIZEOF_SOCKADDR_IN6, (byte) 0);
+
+        PlatformDependent.putShort(memory + SOCKADDR_IN6_OFFSETOF_SIN6_FAMILY, (short) Native.AF_INET6);
+        writePort(memory + SOCKADDR_IN6_OFFSETOF_SIN6_PORT, port);
+
+        // The flowinfo is always 0.
+        PlatformDependent.putInt(memory + SOCKADDR_IN6_OFFSETOF_SIN6_FLOWINFO, 0);
+
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            // Use an IPv4-mapped IPv6 address as we talk to an IPv6 socket.
+            PlatformDependent.copyMemory(IPV4_MAPPED_IPV6_PREFIX, 0, memory + SOCKADDR_IN6_OFFSETOF_SIN6_ADDR,
+                    IPV4_MAPPED_IPV6_PREFIX.length);
+            PlatformDependent.copyMemory(bytes, 0,
+                    memory + SOCKADDR_IN6_OFFSETOF_SIN6_ADDR + IPV4_MAPPED_IPV6_PREFIX.length, bytes.length);
+        } else {
+            PlatformDependent.copyMemory(bytes, 0, memory + SOCKADDR_IN6_OFFSETOF_SIN6_ADDR, bytes.length);
+            PlatformDependent.putInt(memory + SOCKADDR_IN6_OFFSETOF_SIN6_SCOPE_ID,
+                    ((Inet6Address) address).getScopeId());
+        }
+        return Native.SIZEOF_SOCKADDR_IN6;
+    }
+
+    private static void writePort(long memory, int port) {
+        // The port is stored in network byte order.
+        PlatformDependent.putByte(memory, (byte) (port >>> 8));
+        PlatformDependent.putByte(memory + 1, (byte) port);
+    }
+
+    /**
+     * Read the {@link InetSocketAddress} that is stored in the given memory or {@code null} if the address family
+     * is not supported.
+     */
+    static InetSocketAddress read(long memory) {
+        int family = PlatformDependent.getShort(memory) & 0xFFFF;
+        int port = (PlatformDependent.getByte(memory + SOCKADDR_IN_OFFSETOF_SIN_PORT) & 0xFF) << 8 |
+                PlatformDependent.getByte(memory + SOCKADDR_IN_OFFSETOF_SIN_PORT + 1) & 0xFF;
+        try {
+            if (family == Native.AF_INET) {
+                byte[] bytes = new byte[4];
+                PlatformDependent.copyMemory(memory + SOCKADDR_IN_OFFSETOF_SIN_ADDR, bytes, 0, bytes.length);
+                return new InetSocketAddress(InetAddress.getByAddress(bytes), port);
+            }
+            if (family == Native.AF_INET6) {
+                byte[] bytes = new byte[16];
+                PlatformDependent.copyMemory(memory + SOCKADDR_IN6_OFFSETOF_SIN6_ADDR, bytes, 0, bytes.length);
+                if (isIPv4Mapped(bytes)) {
+                    byte[] ipv4 = new byte[4];
+                    System.arraycopy(bytes, IPV4_MAPPED_IPV6_PREFIX.length, ipv4, 0, ipv4.length);
+                    return new InetSocketAddress(InetAddress.getByAddress(ipv4), port);
+                }
+                int scopeId = PlatformDependent.getInt(memory + SOCKADDR_IN6_OFFSETOF_SIN6_SCOPE_ID);
+                return new InetSocketAddress(Inet6Address.getByAddress(null, bytes, scopeId), port);
+            }
+            return null;
+        } catch (UnknownHostException e) {
+            // Should never happen as we always pass a valid length.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isIPv4Mapped(byte[] bytes) {
+        for (int i = 0; i < IPV4_MAPPED_IPV6_PREFIX.length; i++) {
+            if (bytes[i] != IPV4_MAPPED_IPV6_PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * Encodes and decodes the {@code user_data} which is attached to every submission and returned as part of its
+ * completion. The upper 32 bits contain the id of the channel (or {@code 0} for the {@link IOUringEventLoop} itself),
+ * followed by 16 bits for the opcode and 16 bits of operation specific data.
+ */
+final class UserData {
+
+    static long encode(int id, byte op, int data) {
+        return ((long) id << 32) | ((op & 0xFFFFL) << 16) | (data & 0xFFFFL);
+    }
+
+    static int decodeId(long userData) {
+        return (int) (userData >>> 32);
+    }
+
+    static byte decodeOp(long userData) {
+        return (byte) (userData >>> 16);
+    }
+
+    static int decodeData(long userData) {
+        return (int) userData & 0xFFFF;
+    }
+
+    private UserData() {
+        // utility
+    }
+}
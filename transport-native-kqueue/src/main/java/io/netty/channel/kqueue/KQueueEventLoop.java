@@ -144,7 +144,9 @@ final class KQueueEventLoop extends SingleThreadEventLoop {
 
     @Override
     protected void wakeup(boolean inEventLoop) {
-        if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
+        // Check with a plain read first so a burst of producers does not keep bouncing the cache line while a wakeup
+        // is already pending, only one of them will win the compareAndSet(...) and issue the actual wakeup.
+        if (!inEventLoop && wakenUp == 0 && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
             wakeup();
         }
     }
@@ -13,6 +13,8 @@
  * License for the specific language governing permissions and limitations
  * under the License.
  */
+#include <errno.h>
+#include <sys/mman.h>
 #include "netty_unix_jni.h"
 #include "netty_unix_util.h"
 #include "netty_unix_buffer.h"
@@ -26,12 +28,54 @@ static jint netty_unix_buffer_addressSize0(JNIEnv* env, jclass clazz) {
    return (jint) sizeof(int*);
 }
 
+static jlong netty_unix_buffer_mmapAnonymous0(JNIEnv* env, jclass clazz, jlong size) {
+    void* address = mmap(NULL, (size_t) size, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0);
+    if (address == MAP_FAILED) {
+        return -errno;
+    }
+    return (jlong) address;
+}
+
+static jint netty_unix_buffer_munmap0(JNIEnv* env, jclass clazz, jlong address, jlong size) {
+    if (munmap((void*) address, (size_t) size) != 0) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jint netty_unix_buffer_madviseHugePage0(JNIEnv* env, jclass clazz, jlong address, jlong size) {
+#ifdef MADV_HUGEPAGE
+    if (madvise((void*) address, (size_t) size, MADV_HUGEPAGE) != 0) {
+        return -errno;
+    }
+    return 0;
+#else
+    return -EINVAL;
+#endif /* MADV_HUGEPAGE */
+}
+
+static jint netty_unix_buffer_madviseDontNeed0(JNIEnv* env, jclass clazz, jlong address, jlong size) {
+    if (madvise((void*) address, (size_t) size, MADV_DONTNEED) != 0) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jobject netty_unix_buffer_wrapMemoryAddress0(JNIEnv* env, jclass clazz, jlong address, jint capacity) {
+    return (*env)->NewDirectByteBuffer(env, (void*) address, (jlong) capacity);
+}
+
 // JNI Registered Methods End
 
 // JNI Method Registration Table Begin
 static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "memoryAddress0", "(Ljava/nio/ByteBuffer;)J", (void *) netty_unix_buffer_memoryAddress0 },
-  { "addressSize0", "()I", (void *) netty_unix_buffer_addressSize0 }
+  { "addressSize0", "()I", (void *) netty_unix_buffer_addressSize0 },
+  { "mmapAnonymous0", "(J)J", (void *) netty_unix_buffer_mmapAnonymous0 },
+  { "munmap0", "(JJ)I", (void *) netty_unix_buffer_munmap0 },
+  { "madviseHugePage0", "(JJ)I", (void *) netty_unix_buffer_madviseHugePage0 },
+  { "madviseDontNeed0", "(JJ)I", (void *) netty_unix_buffer_madviseDontNeed0 },
+  { "wrapMemoryAddress0", "(JI)Ljava/nio/ByteBuffer;", (void *) netty_unix_buffer_wrapMemoryAddress0 }
 };
 static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
 // JNI Method Registration Table End
@@ -18,9 +18,12 @@ package io.netty.channel.unix;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.UnstableApi;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
+import static io.netty.channel.unix.Errors.newIOException;
+
 @UnstableApi
 public final class Buffer {
 
@@ -62,7 +65,63 @@ public final class Buffer {
         return addressSize0();
     }
 
+    /**
+     * Reserves {@code size} bytes of memory via an anonymous, private memory mapping and returns its address.
+     */
+    static long mmapAnonymous(long size) throws IOException {
+        long address = mmapAnonymous0(size);
+        if (address < 0) {
+            throw newIOException("mmap", (int) address);
+        }
+        return address;
+    }
+
+    /**
+     * Removes a memory mapping that was created by {@link #mmapAnonymous(long)}.
+     */
+    static void munmap(long address, long size) throws IOException {
+        int res = munmap0(address, size);
+        if (res < 0) {
+            throw newIOException("munmap", res);
+        }
+    }
+
+    /**
+     * Hints the kernel to back the given memory range with transparent huge pages.
+     */
+    static void madviseHugePage(long address, long size) throws IOException {
+        int res = madviseHugePage0(address, size);
+        if (res < 0) {
+            throw newIOException("madvise", res);
+        }
+    }
+
+    /**
+     * Gives the pages of the given memory range back to the kernel. The memory stays mapped and will read as zeros
+     * when it is accessed the next time.
+     */
+    static void madviseDontNeed(long address, long size) throws IOException {
+        int res = madviseDontNeed0(address, size);
+        if (res < 0) {
+            throw newIOException("madvise", res);
+        }
+    }
+
+    /**
+     * Returns a direct {@link ByteBuffer} that wraps the given memory range. The {@link ByteBuffer} does not own the
+     * memory and so must not be freed.
+     */
+    static ByteBuffer wrapMemoryAddress(long address, int capacity) {
+        return wrapMemoryAddress0(address, capacity);
+    }
+
     // If Unsafe can not be used we will need to do JNI calls.
     private static native int addressSize0();
     private static native long memoryAddress0(ByteBuffer buffer);
+
+    private static native long mmapAnonymous0(long size);
+    private static native int munmap0(long address, long size);
+    private static native int madviseHugePage0(long address, long size);
+    private static native int madviseDontNeed0(long address, long size);
+    private static native ByteBuffer wrapMemoryAddress0(long address, int capacity);
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.buffer.DirectChunkAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * A {@link DirectChunkAllocator} which carves the chunks of the direct arenas of a {@link PooledByteBufAllocator}
+ * out of one anonymous memory mapping that is reserved up front. The mapping can optionally be backed by transparent
+ * huge pages, which reduces the TLB pressure when large pools are accessed.
+ * <p>
+ * The pages of a chunk are given back to the kernel via {@code madvise(MADV_DONTNEED)} once the arena releases it,
+ * while the address range stays reserved for the next chunk. If all slots are in use the arena falls back to
+ * {@link ByteBuffer#allocateDirect(int)}.
+ * <p>
+ * The native library of one of the native transports must have been loaded before an instance is created (for
+ * example via {@code Epoll.ensureAvailability()}). The mapping is never removed, so an instance should be shared
+ * by allocators that live as long as the application.
+ */
+@UnstableApi
+public final class MappedDirectChunkAllocator implements DirectChunkAllocator {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(MappedDirectChunkAllocator.class);
+
+    private final long address;
+    private final long size;
+    private final int chunkSize;
+    private final ByteBuffer[] chunks;
+    // Stack of free slots, the lowest slot is on top so the start of the mapping is reused first.
+    private final int[] freeSlots;
+    private int numFreeSlots;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param chunkSize the size of each slot. This must be at least the chunk size of the
+     *                  {@link PooledByteBufAllocator} plus its {@code directMemoryCacheAlignment}.
+     * @param numChunks the number of slots to reserve.
+     * @param hugePages {@code true} if the kernel should be asked to back the mapping with transparent huge pages.
+     */
+    public MappedDirectChunkAllocator(int chunkSize, int numChunks, boolean hugePages) throws IOException {
+        this.chunkSize = checkPositive(chunkSize, "chunkSize");
+        checkPositive(numChunks, "numChunks");
+        size = (long) chunkSize * numChunks;
+        address = Buffer.mmapAnonymous(size);
+        if (hugePages) {
+            try {
+                Buffer.madviseHugePage(address, size);
+            } catch (IOException e) {
+                // Only a hint, the mapping is still usable with normal pages.
+                logger.debug("Unable to use transparent huge pages for the mapped chunks", e);
+            }
+        }
+        chunks = new ByteBuffer[numChunks];
+        freeSlots = new int[numChunks];
+        boolean success = false;
+        try {
+            for (int i = 0; i < numChunks; i++) {
+                chunks[i] = Buffer.wrapMemoryAddress(address + (long) i * chunkSize, chunkSize);
+                freeSlots[i] = numChunks - 1 - i;
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                try {
+                    Buffer.munmap(address, size);
+                } catch (IOException e) {
+                    logger.debug("Unable to remove the mapping of the chunks", e);
+                }
+            }
+        }
+        numFreeSlots = numChunks;
+    }
+
+    /**
+     * Returns the size of each slot.
+     */
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the number of slots.
+     */
+    public int numChunks() {
+        return chunks.length;
+    }
+
+    /**
+     * Returns the number of slots which are currently not used by any arena.
+     */
+    public synchronized int numFreeChunks() {
+        return numFreeSlots;
+    }
+
+    @Override
+    public ByteBuffer allocate(int capacity) {
+        if (capacity > chunkSize) {
+            return null;
+        }
+        final int slot;
+        synchronized (this) {
+            if (numFreeSlots == 0) {
+                return null;
+            }
+            slot = freeSlots[--numFreeSlots];
+        }
+        ByteBuffer memory = chunks[slot];
+        memory.clear();
+        return memory;
+    }
+
+    @Override
+    public boolean release(ByteBuffer memory) {
+        long memoryAddress = Buffer.memoryAddress(memory);
+        if (memoryAddress < address || memoryAddress >= address + size) {
+            return false;
+        }
+        int slot = (int) ((memoryAddress - address) / chunkSize);
+        try {
+            Buffer.madviseDontNeed(address + (long) slot * chunkSize, chunkSize);
+        } catch (IOException e) {
+            // The slot can still be reused, its pages are just not returned to the kernel.
+            logger.debug("Unable to release the pages of a mapped chunk", e);
+        }
+        synchronized (this) {
+            freeSlots[numFreeSlots++] = slot;
+        }
+        return true;
+    }
+}
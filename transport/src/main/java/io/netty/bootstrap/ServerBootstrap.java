@@ -25,15 +25,24 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
@@ -219,6 +228,74 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         logger.info("结束为通道添加首个通道初始化器...");
     }
 
+    /**
+     * 为事件循环组中的每个事件循环{@link EventLoop}各创建一个服务器通道{@link ServerChannel}，并全部绑定到同一个地址上。
+     * 每个服务器通道将接受的通道注册到自己的事件循环中，连接的接受与处理都在同一个线程中完成，无需再转交给其它事件循环。
+     * 服务器通道按事件循环的迭代顺序依次绑定，前一个绑定完成后才开始下一个。
+     *
+     * Create a new {@link ServerChannel} for each {@link EventLoop} of the {@link EventLoopGroup} and bind all of
+     * them to the same address. Each {@link ServerChannel} registers the {@link Channel}s it accepts with its own
+     * {@link EventLoop}, so connections are accepted and served by the same thread without being handed over to
+     * another {@link EventLoop}.
+     * <p>
+     * The transport must allow to bind multiple sockets to the same address, which is for example the case when
+     * {@code EpollChannelOption.SO_REUSEPORT} is set via {@link #option(ChannelOption, Object)}. The kernel then
+     * distributes new connections between the sockets. The same {@link EventLoopGroup} must be used for the parent
+     * and the child, and {@code localAddress} must not use an ephemeral port as each {@link ServerChannel} would be
+     * bound to a different port otherwise.
+     * <p>
+     * The {@link ServerChannel}s are bound one after the other in the iteration order of the {@link EventLoopGroup},
+     * so the index of a socket in the {@code SO_REUSEPORT} group matches the index of its {@link EventLoop}, given
+     * no other socket is bound to the same address. If one bind fails, the {@link ServerChannel}s that were bound
+     * already are closed and the returned {@link Future} fails.
+     *
+     * @return the {@link Future} which is notified with the bound {@link ServerChannel}s, in the iteration order of
+     *         the {@link EventLoopGroup}
+     */
+    public Future<List<Channel>> bindPerEventLoop(SocketAddress localAddress) {
+        validate();
+        ObjectUtil.checkNotNull(localAddress, "localAddress");
+        EventLoopGroup parentGroup = config.group();
+        if (childGroup != parentGroup) {
+            throw new IllegalStateException("bindPerEventLoop requires the same group for parent and child");
+        }
+
+        List<EventLoop> eventLoops = new ArrayList<EventLoop>();
+        for (EventExecutor executor : parentGroup) {
+            eventLoops.add((EventLoop) executor);
+        }
+        Promise<List<Channel>> promise = GlobalEventExecutor.INSTANCE.newPromise();
+        bindNext(eventLoops, localAddress, new ArrayList<Channel>(eventLoops.size()), promise);
+        return promise;
+    }
+
+    private void bindNext(final List<EventLoop> eventLoops, final SocketAddress localAddress,
+                          final List<Channel> channels, final Promise<List<Channel>> promise) {
+        EventLoop eventLoop = eventLoops.get(channels.size());
+        ServerBootstrap bootstrap = new ServerBootstrap(this);
+        // 父通道与子通道都使用同一个事件循环，ServerBootstrapAcceptor在事件循环线程中直接完成子通道的注册
+        bootstrap.group = eventLoop;
+        bootstrap.childGroup = eventLoop;
+        bootstrap.bind(localAddress).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (!future.isSuccess()) {
+                    for (Channel channel : channels) {
+                        channel.close();
+                    }
+                    promise.setFailure(future.cause());
+                } else {
+                    channels.add(future.channel());
+                    if (channels.size() == eventLoops.size()) {
+                        promise.setSuccess(Collections.unmodifiableList(channels));
+                    } else {
+                        bindNext(eventLoops, localAddress, channels, promise);
+                    }
+                }
+            }
+        });
+    }
+
     @Override
     public ServerBootstrap validate() {
         super.validate();
@@ -279,6 +279,37 @@ public final class ChannelOutboundBuffer {
         return true;
     }
 
+    /**
+     * Will remove and release the current message like {@link #remove()} but will not notify its
+     * {@link ChannelPromise}. Instead the {@link ChannelPromise} is returned and the caller is responsible for
+     * completing it, which is useful if the transport only knows later when the written data was consumed.
+     * Returns {@code null} if no flushed message exists or if the current message was cancelled before.
+     */
+    public ChannelPromise removeAndDeferNotify() {
+        Entry e = flushedEntry;
+        if (e == null) {
+            clearNioBuffers();
+            return null;
+        }
+        Object msg = e.msg;
+
+        ChannelPromise promise = e.promise;
+        int size = e.pendingSize;
+        boolean cancelled = e.cancelled;
+
+        removeEntry(e);
+
+        if (!cancelled) {
+            ReferenceCountUtil.safeRelease(msg);
+            decrementPendingOutboundBytes(size, false, true);
+        }
+
+        // recycle the entry
+        e.recycle();
+
+        return cancelled ? null : promise;
+    }
+
     /**
      * Will remove the current message, mark its {@link ChannelPromise} as failure using the given {@link Throwable}
      * and return {@code true}. If no   flushed message exists at the time this method is called it will return
@@ -333,34 +364,62 @@ public final class ChannelOutboundBuffer {
      * This operation assumes all messages in this buffer is {@link ByteBuf}.
      */
     public void removeBytes(long writtenBytes) {
-        for (;;) {
-            Object msg = current();
-            if (!(msg instanceof ByteBuf)) {
-                assert writtenBytes == 0;
+        // The pending bytes of all fully written messages are decremented at once before any of their promises is
+        // notified, so the writability is only updated once per gathering write and listeners already see it.
+        long removedPendingSize = 0;
+        int removed = 0;
+        long remaining = writtenBytes;
+        Entry e = flushedEntry;
+        for (int i = 0; i < flushed && e.msg instanceof ByteBuf; i ++, e = e.next) {
+            final int readableBytes = ((ByteBuf) e.msg).readableBytes();
+            if (readableBytes > remaining) {
                 break;
             }
-
-            final ByteBuf buf = (ByteBuf) msg;
-            final int readerIndex = buf.readerIndex();
-            final int readableBytes = buf.writerIndex() - readerIndex;
-
-            if (readableBytes <= writtenBytes) {
-                if (writtenBytes != 0) {
-                    progress(readableBytes);
-                    writtenBytes -= readableBytes;
-                }
-                remove();
-            } else { // readableBytes > writtenBytes
-                if (writtenBytes != 0) {
-                    buf.readerIndex(readerIndex + (int) writtenBytes);
-                    progress(writtenBytes);
-                }
-                break;
+            remaining -= readableBytes;
+            removedPendingSize += e.pendingSize;
+            removed ++;
+        }
+        decrementPendingOutboundBytes(removedPendingSize, false, true);
+
+        for (; removed > 0; removed --) {
+            e = flushedEntry;
+            if (writtenBytes != 0) {
+                final int readableBytes = ((ByteBuf) e.msg).readableBytes();
+                progress(readableBytes);
+                writtenBytes -= readableBytes;
             }
+            removeWritten(e);
+        }
+
+        e = flushedEntry;
+        if (e == null || !(e.msg instanceof ByteBuf)) {
+            assert writtenBytes == 0;
+        } else if (writtenBytes != 0) {
+            final ByteBuf buf = (ByteBuf) e.msg;
+            buf.readerIndex(buf.readerIndex() + (int) writtenBytes);
+            progress(writtenBytes);
         }
         clearNioBuffers();
     }
 
+    /**
+     * Removes the given flushed entry, which must be the current one, and notifies its {@link ChannelPromise}.
+     * Unlike {@link #remove()} this does not decrement the pending bytes, which the caller did already.
+     */
+    private void removeWritten(Entry e) {
+        assert e == flushedEntry;
+        removeEntry(e);
+
+        if (!e.cancelled) {
+            // only release message and notify if it was not canceled before.
+            ReferenceCountUtil.safeRelease(e.msg);
+            safeSuccess(e.promise);
+        }
+
+        // recycle the entry
+        e.recycle();
+    }
+
     // Clear all ByteBuffer from the array so these can be GC'ed.
     // See https://github.com/netty/netty/issues/3837
     private void clearNioBuffers() {
@@ -712,9 +771,11 @@ public final class ChannelOutboundBuffer {
     }
 
     private static void safeSuccess(ChannelPromise promise) {
-        // Only log if the given promise is not of type VoidChannelPromise as trySuccess(...) is expected to return
-        // false.
-        PromiseNotificationUtil.trySuccess(promise, null, promise instanceof VoidChannelPromise ? null : logger);
+        // A VoidChannelPromise can never be notified, so there is no need to try. Otherwise always log as
+        // trySuccess(...) is not expected to return false.
+        if (!(promise instanceof VoidChannelPromise)) {
+            PromiseNotificationUtil.trySuccess(promise, null, logger);
+        }
     }
 
     private static void safeFail(ChannelPromise promise, Throwable cause) {
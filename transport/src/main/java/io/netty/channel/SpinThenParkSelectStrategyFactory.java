@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.IntSupplier;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SelectStrategyFactory} for latency sensitive applications. Once an event loop runs out of work its
+ * {@link SelectStrategy} first spins by polling for new events without blocking, then yields the CPU a few times and
+ * only then falls back to a blocking select. This avoids the wakeup latency of a blocking select if new events or
+ * tasks arrive shortly after the event loop became idle, at the cost of burning CPU while spinning.
+ * <p>
+ * The time spent spinning adapts to the recent arrival rate: it doubles (up to the maximum) whenever new work showed
+ * up while spinning and halves (down to the minimum) whenever the event loop had to block after all. Scheduled tasks
+ * that become due while spinning may be delayed by up to the maximum spin time.
+ * <p>
+ * The same factory should only be used for the event loops of one {@link EventLoopGroup}, as it also collects the
+ * statistics of all the {@link SelectStrategy}s it created, which can be used to judge the CPU cost of spinning.
+ */
+@UnstableApi
+public final class SpinThenParkSelectStrategyFactory implements SelectStrategyFactory {
+    private static final long DEFAULT_MIN_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(5);
+    private static final long DEFAULT_MAX_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final int DEFAULT_MAX_YIELDS = 8;
+
+    private final long minSpinNanos;
+    private final long maxSpinNanos;
+    private final int maxYields;
+
+    private final LongCounter spinWakeups = PlatformDependent.newLongCounter();
+    private final LongCounter parks = PlatformDependent.newLongCounter();
+    private final LongCounter spinNanos = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new instance which spins for 5 to 100 microseconds and yields 8 times before it blocks.
+     */
+    public SpinThenParkSelectStrategyFactory() {
+        this(DEFAULT_MIN_SPIN_NANOS, DEFAULT_MAX_SPIN_NANOS, DEFAULT_MAX_YIELDS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param minSpinTime the time to spin at least once the event loop became idle.
+     * @param maxSpinTime the maximum time to spin once the event loop became idle.
+     * @param maxYields the number of times to yield the CPU after spinning and before blocking.
+     * @param unit the {@link TimeUnit} of {@code minSpinTime} and {@code maxSpinTime}.
+     */
+    public SpinThenParkSelectStrategyFactory(long minSpinTime, long maxSpinTime, int maxYields, TimeUnit unit) {
+        ObjectUtil.checkNotNull(unit, "unit");
+        minSpinNanos = unit.toNanos(ObjectUtil.checkPositiveOrZero(minSpinTime, "minSpinTime"));
+        maxSpinNanos = unit.toNanos(ObjectUtil.checkPositiveOrZero(maxSpinTime, "maxSpinTime"));
+        if (minSpinNanos > maxSpinNanos) {
+            throw new IllegalArgumentException(
+                    "minSpinTime: " + minSpinTime + " (expected: <= maxSpinTime: " + maxSpinTime + ')');
+        }
+        this.maxYields = ObjectUtil.checkPositiveOrZero(maxYields, "maxYields");
+    }
+
+    @Override
+    public SelectStrategy newSelectStrategy() {
+        return new SpinThenParkSelectStrategy();
+    }
+
+    /**
+     * Returns how often new work was found while spinning or yielding, so a blocking select was avoided.
+     */
+    public long spinWakeups() {
+        return spinWakeups.value();
+    }
+
+    /**
+     * Returns how often nothing happened while spinning and yielding, so the event loop blocked after all.
+     */
+    public long parks() {
+        return parks.value();
+    }
+
+    /**
+     * Returns the total time the event loops spent spinning and yielding while being idle.
+     */
+    public long spinTime(TimeUnit unit) {
+        return unit.convert(spinNanos.value(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Only used by the event loop thread that owns it, so no synchronization is needed.
+     */
+    private final class SpinThenParkSelectStrategy implements SelectStrategy {
+        private long spinBudgetNanos = maxSpinNanos;
+        private boolean idle;
+        private long idleStartNanos;
+        private int yields;
+
+        @Override
+        public int calculateStrategy(IntSupplier selectSupplier, boolean hasTasks) throws Exception {
+            int selected = selectSupplier.get();
+            if (hasTasks || selected > 0) {
+                if (idle) {
+                    idle = false;
+                    spinWakeups.increment();
+                    spinNanos.add(System.nanoTime() - idleStartNanos);
+                    spinBudgetNanos = Math.min(maxSpinNanos, Math.max(1, spinBudgetNanos << 1));
+                }
+                return selected;
+            }
+
+            long now = System.nanoTime();
+            if (!idle) {
+                idle = true;
+                idleStartNanos = now;
+                yields = 0;
+            }
+            if (now - idleStartNanos < spinBudgetNanos) {
+                // Jump back into the event loop which will check for new tasks and call us again.
+                return CONTINUE;
+            }
+            if (yields < maxYields) {
+                yields++;
+                Thread.yield();
+                return CONTINUE;
+            }
+
+            idle = false;
+            parks.increment();
+            spinNanos.add(now - idleStartNanos);
+            spinBudgetNanos = Math.max(minSpinNanos, spinBudgetNanos >> 1);
+            return SELECT;
+        }
+    }
+}
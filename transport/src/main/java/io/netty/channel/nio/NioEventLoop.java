@@ -1104,7 +1104,9 @@ public final class NioEventLoop extends SingleThreadEventLoop {
 
     @Override
     protected void wakeup(boolean inEventLoop) {
-        if (!inEventLoop && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
+        // Check with a plain read first so a burst of producers does not keep bouncing the cache line while the
+        // EventLoop is already awake, only one of them will win the getAndSet(...) and issue the actual wakeup.
+        if (!inEventLoop && nextWakeupNanos.get() != AWAKE && nextWakeupNanos.getAndSet(AWAKE) != AWAKE) {
             selector.wakeup();
         }
     }
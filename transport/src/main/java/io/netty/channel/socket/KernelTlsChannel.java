@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.socket;
+
+import io.netty.channel.Channel;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+
+/**
+ * A {@link Channel} whose socket can offload the encryption and decryption of TLS records to the kernel (kTLS).
+ * The keys of the TLS session are negotiated in user space and installed afterwards, so this is mostly used by a
+ * handler that takes over from a TLS handler once the handshake completed.
+ * <p>
+ * Both methods must be called from the {@link io.netty.channel.EventLoop} of the {@link Channel}.
+ */
+@UnstableApi
+public interface KernelTlsChannel extends Channel {
+
+    /**
+     * Attaches the kernel TLS upper layer protocol ({@code TCP_ULP "tls"}) to the connected socket. This fails if
+     * the kernel does not support TLS offload.
+     */
+    void enableKernelTls() throws IOException;
+
+    /**
+     * Installs the given {@code struct tls12_crypto_info_*} of {@code linux/tls.h} for the transmit or the receive
+     * direction. Once set, the kernel encrypts all written or decrypts all read data of this direction.
+     */
+    void setKernelTlsCryptoInfo(boolean transmit, byte[] cryptoInfo) throws IOException;
+}
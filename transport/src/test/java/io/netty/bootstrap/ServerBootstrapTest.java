@@ -16,6 +16,7 @@
 package io.netty.bootstrap;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
@@ -27,13 +28,23 @@ import io.netty.channel.local.LocalAddress;
 import io.netty.channel.local.LocalChannel;
 import io.netty.channel.local.LocalEventLoopGroup;
 import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ServerBootstrapTest {
@@ -78,6 +89,91 @@ public class ServerBootstrapTest {
         testParentHandler(true);
     }
 
+    @Test(timeout = 5000)
+    public void testBindPerEventLoop() throws Exception {
+        final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        List<Channel> channels = Collections.emptyList();
+        try {
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.channel(LocalServerChannel.class)
+              .group(group)
+              .childHandler(new ChannelInitializer<Channel>() {
+                  @Override
+                  protected void initChannel(Channel ch) {
+                      accepted.add(ch);
+                  }
+              });
+
+            Bootstrap cb = new Bootstrap();
+            cb.group(group)
+              .channel(LocalChannel.class);
+
+            // Every LocalServerChannel gets its own address, which is enough to verify the EventLoop assignment.
+            channels = sb.bindPerEventLoop(LocalAddress.ANY).syncUninterruptibly().getNow();
+            assertEquals(2, channels.size());
+            Iterator<EventExecutor> eventLoops = group.iterator();
+            for (Channel sch : channels) {
+                assertSame(eventLoops.next(), sch.eventLoop());
+
+                Channel cch = cb.handler(new ChannelInboundHandlerAdapter()).connect(sch.localAddress()).syncUninterruptibly().channel();
+                Channel child = accepted.take();
+                assertSame(sch, child.parent());
+                assertSame(sch.eventLoop(), child.eventLoop());
+                cch.close().syncUninterruptibly();
+            }
+            assertFalse(eventLoops.hasNext());
+        } finally {
+            for (Channel channel : channels) {
+                channel.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void testBindPerEventLoopClosesBoundChannelsOnFailure() throws Exception {
+        final BlockingQueue<Channel> registered = new LinkedBlockingQueue<Channel>();
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        try {
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.channel(LocalServerChannel.class)
+              .group(group)
+              .handler(new ChannelInitializer<Channel>() {
+                  @Override
+                  protected void initChannel(Channel ch) {
+                      registered.add(ch);
+                  }
+              })
+              .childHandler(new ChannelInboundHandlerAdapter());
+
+            // A LocalAddress can only be bound once, so the second bind fails.
+            Future<List<Channel>> future = sb.bindPerEventLoop(new LocalAddress(UUID.randomUUID().toString()));
+            assertTrue(future.await().cause() instanceof ChannelException);
+            Channel first = registered.take();
+            first.closeFuture().syncUninterruptibly();
+            assertSame(group.iterator().next(), first.eventLoop());
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBindPerEventLoopWithDifferentChildGroup() {
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        EventLoopGroup childGroup = new DefaultEventLoopGroup(1);
+        try {
+            new ServerBootstrap()
+                    .channel(LocalServerChannel.class)
+                    .group(group, childGroup)
+                    .childHandler(new ChannelInboundHandlerAdapter())
+                    .bindPerEventLoop(LocalAddress.ANY);
+        } finally {
+            group.shutdownGracefully();
+            childGroup.shutdownGracefully();
+        }
+    }
+
     private static void testParentHandler(boolean channelInitializer) throws Exception {
         final LocalAddress addr = new LocalAddress(UUID.randomUUID().toString());
         final CountDownLatch readLatch = new CountDownLatch(1);
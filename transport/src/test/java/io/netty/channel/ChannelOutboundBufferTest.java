@@ -273,6 +273,79 @@ public class ChannelOutboundBufferTest {
         safeClose(ch);
     }
 
+    @Test
+    public void testRemoveBytes() {
+        final StringBuilder buf = new StringBuilder();
+        final EmbeddedChannel ch = new EmbeddedChannel(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+                buf.append(ctx.channel().isWritable());
+                buf.append(' ');
+            }
+        });
+
+        ch.config().setWriteBufferLowWaterMark(256 + ChannelOutboundBuffer.CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD);
+        ch.config().setWriteBufferHighWaterMark(512 + ChannelOutboundBuffer.CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD);
+
+        ChannelOutboundBuffer buffer = ch.unsafe().outboundBuffer();
+        ChannelPromise promise1 = ch.newPromise();
+        ChannelPromise promise2 = ch.newPromise();
+        ChannelPromise promise3 = ch.newPromise();
+        promise1.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                // The pending bytes of the whole batch must already be decremented when listeners are notified.
+                buf.append(ch.isWritable());
+                buf.append(' ');
+            }
+        });
+        buffer.addMessage(buffer().writeZero(128), 128, promise1);
+        buffer.addMessage(buffer().writeZero(128), 128, ch.voidPromise());
+        buffer.addMessage(buffer().writeZero(128), 128, promise2);
+        buffer.addMessage(buffer().writeZero(128), 128, promise3);
+        buffer.addFlush();
+        assertThat(buf.toString(), is("false "));
+
+        // Write the first three messages and half of the last one.
+        buffer.removeBytes(3 * 128 + 64);
+        assertTrue(promise1.isSuccess());
+        assertTrue(promise2.isSuccess());
+        assertFalse(promise3.isDone());
+        assertEquals(1, buffer.size());
+        assertEquals(64, ((ByteBuf) buffer.current()).readableBytes());
+        assertThat(buffer.totalPendingWriteBytes(),
+                is(128L + ChannelOutboundBuffer.CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD));
+        assertThat(buf.toString(), is("false true true "));
+
+        buffer.removeBytes(64);
+        assertTrue(promise3.isSuccess());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+
+        safeClose(ch);
+    }
+
+    @Test
+    public void testRemoveAndDeferNotify() {
+        EmbeddedChannel ch = new EmbeddedChannel();
+        ChannelOutboundBuffer buffer = ch.unsafe().outboundBuffer();
+        assertNull(buffer.removeAndDeferNotify());
+
+        ByteBuf msg = directBuffer().writeZero(128);
+        ChannelPromise promise = ch.newPromise();
+        buffer.addMessage(msg.retain(), 128, promise);
+        buffer.addFlush();
+
+        assertSame(promise, buffer.removeAndDeferNotify());
+        assertFalse(promise.isDone());
+        assertEquals(1, msg.refCnt());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+
+        msg.release();
+        safeClose(ch);
+    }
+
     @Test
     public void testUserDefinedWritability() {
         final StringBuilder buf = new StringBuilder();
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.IntSupplier;
+import org.junit.Test;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpinThenParkSelectStrategyFactoryTest {
+
+    private static IntSupplier supplier(final int selected) {
+        return new IntSupplier() {
+            @Override
+            public int get() {
+                return selected;
+            }
+        };
+    }
+
+    @Test
+    public void testSelectedOrTasksAreReturnedImmediately() throws Exception {
+        SelectStrategy strategy = new SpinThenParkSelectStrategyFactory().newSelectStrategy();
+        assertEquals(3, strategy.calculateStrategy(supplier(3), false));
+        assertEquals(0, strategy.calculateStrategy(supplier(0), true));
+    }
+
+    @Test
+    public void testSpinsBeforeParking() throws Exception {
+        SpinThenParkSelectStrategyFactory factory =
+                new SpinThenParkSelectStrategyFactory(1, 1, 0, TimeUnit.HOURS);
+        SelectStrategy strategy = factory.newSelectStrategy();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(supplier(0), false));
+        }
+        // New events while spinning avoid the blocking select.
+        assertEquals(1, strategy.calculateStrategy(supplier(1), false));
+        assertEquals(1, factory.spinWakeups());
+        assertEquals(0, factory.parks());
+    }
+
+    @Test
+    public void testYieldsThenParks() throws Exception {
+        SpinThenParkSelectStrategyFactory factory =
+                new SpinThenParkSelectStrategyFactory(0, 0, 2, TimeUnit.NANOSECONDS);
+        SelectStrategy strategy = factory.newSelectStrategy();
+        assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(supplier(0), false));
+        assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(supplier(0), false));
+        assertEquals(SelectStrategy.SELECT, strategy.calculateStrategy(supplier(0), false));
+        assertEquals(0, factory.spinWakeups());
+        assertEquals(1, factory.parks());
+        assertTrue(factory.spinTime(TimeUnit.NANOSECONDS) >= 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinSpinTimeGreaterThanMax() {
+        new SpinThenParkSelectStrategyFactory(2, 1, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(timeout = 10000)
+    public void testNioEventLoop() throws Exception {
+        SpinThenParkSelectStrategyFactory factory = new SpinThenParkSelectStrategyFactory();
+        EventLoopGroup group = new NioEventLoopGroup(1, (Executor) null, SelectorProvider.provider(), factory);
+        try {
+            EventLoop loop = group.next();
+            for (int i = 0; i < 100; i++) {
+                final int value = i;
+                assertEquals(value, (int) loop.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return value;
+                    }
+                }).sync().getNow());
+            }
+            assertTrue(factory.spinWakeups() + factory.parks() > 0);
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+}